@@ -433,19 +433,8 @@ public abstract class AssertionCleartkAnalysisEngine extends
                }
             }
 
-            int closest = Integer.MAX_VALUE;
-            AssertionCuePhraseAnnotation closestCue = null;
-            for ( AssertionCuePhraseAnnotation cue : cues ) {
-               // It is much faster to count between BaseTokens already isolated within the same sentence.
-               final int betweenCount = countBetween( cue, identifiedAnnotation, baseTokens );
-               if ( betweenCount < closest ) {
-                  closestCue = cue;
-                  closest = betweenCount;
-               }
-
-//          instance.addAll(cuePhraseInWindowExtractor.extractBetween(jCas, cue, entityOrEventMention));
-            }
-            if ( closestCue != null && closest < 21 ) {
+            final AssertionCuePhraseAnnotation closestCue = findClosestCue( identifiedAnnotation, cues, baseTokens );
+            if ( closestCue != null ) {
                instance.add( new Feature( "ClosestCue_Word", closestCue.getCoveredText() ) );
 //          instance.add(new Feature("ClosestCue_Phrase", closestCue.getCuePhrase()));
                instance.add( new Feature( "ClosestCue_PhraseFamily", closestCue.getCuePhraseAssertionFamily() ) );
@@ -508,22 +497,7 @@ public abstract class AssertionCleartkAnalysisEngine extends
             List<Feature> feats = instance.getFeatures();
 //      List<Feature> lcFeats = new ArrayList<Feature>();
 
-            for ( Feature feat : feats ) {
-               if ( feat instanceof TreeFeature ||
-                    (feat.getName() != null && (feat.getName().startsWith( "TreeFrag" ) ||
-                                                feat.getName().startsWith( "WORD" ) ||
-                                                feat.getName().startsWith( "NEG" ))) ) {
-                  continue;
-               }
-               if ( feat.getName() != null &&
-                    (feat.getName().contains( "_TreeFrag" ) || feat.getName().contains( "_WORD" ) ||
-                     feat.getName().contains( "_NEG" )) ) {
-                  continue;
-               }
-               if ( feat.getValue() instanceof String ) {
-                  feat.setValue( ((String)feat.getValue()).toLowerCase() );
-               }
-            }
+            lowerCaseValues( feats );
 
             if ( !fileToDomain.isEmpty() && ffDomainAdaptor != null ) {
                for ( FeatureFunctionExtractor<IdentifiedAnnotation> extractor : this.featureFunctionExtractors ) {
@@ -621,6 +595,133 @@ public abstract class AssertionCleartkAnalysisEngine extends
    }
 
 
+   /**
+    * Features from the tokens around an entity within its sentence, as extracted by {@link #process(JCas)}
+    * without domain adaptation.  These are the same for every attribute engine with the same feature config.
+    *
+    * @param view     view with the annotations
+    * @param entity   entity or event mention
+    * @param sentence sentence covering the entity
+    * @return token features, which may be empty if this engine does not use token features
+    * @throws AnalysisEngineProcessException if a feature cannot be extracted
+    */
+   List<Feature> extractTokenFeatures( final JCas view, final IdentifiedAnnotation entity, final Sentence sentence )
+         throws AnalysisEngineProcessException {
+      final List<Feature> features = new ArrayList<>();
+      for ( CleartkExtractor<IdentifiedAnnotation, BaseToken> extractor : this.tokenCleartkExtractors ) {
+         features.addAll( extractor.extractWithin( view, entity, sentence ) );
+      }
+      return features;
+   }
+
+   /**
+    * @return true if this engine uses features from the tokens around an entity
+    */
+   boolean usesTokenFeatures() {
+      return !this.tokenCleartkExtractors.isEmpty();
+   }
+
+   /**
+    * Features of the closest assertion cue and the entity type, as extracted by {@link #process(JCas)}
+    * without domain adaptation.  These are the same for every attribute engine.
+    *
+    * @param entity     entity or event mention
+    * @param cues       assertion cues within the sentence of the entity
+    * @param baseTokens base tokens within the sentence of the entity
+    * @return cue and entity type features
+    */
+   static List<Feature> extractCueFeatures( final IdentifiedAnnotation entity,
+                                            final Collection<AssertionCuePhraseAnnotation> cues,
+                                            final Collection<BaseToken> baseTokens ) {
+      final List<Feature> features = new ArrayList<>();
+      final AssertionCuePhraseAnnotation closestCue = findClosestCue( entity, cues, baseTokens );
+      if ( closestCue != null ) {
+         features.add( new Feature( "ClosestCue_Word", closestCue.getCoveredText() ) );
+         features.add( new Feature( "ClosestCue_PhraseFamily", closestCue.getCuePhraseAssertionFamily() ) );
+         features.add( new Feature( "ClosestCue_PhraseCategory", closestCue.getCuePhraseCategory() ) );
+      }
+      if ( entity.getTypeID() == CONST.NE_TYPE_ID_ANATOMICAL_SITE ) {
+         features.add( new Feature( "ENTITY_TYPE_ANAT_SITE" ) );
+      }
+      return features;
+   }
+
+   /**
+    * Classifies an entity and sets its attribute, using features shared with other attribute engines
+    * and the entity features of this engine.  The result is the same as that of {@link #process(JCas)}
+    * without domain adaptation.  Used by {@link FusedAssertionCleartkAnalysisEngine}.
+    *
+    * @param jCas          ye olde
+    * @param entity        entity or event mention
+    * @param tokenFeatures features from {@link #extractTokenFeatures(JCas, IdentifiedAnnotation, Sentence)}
+    * @param cueFeatures   features from {@link #extractCueFeatures(IdentifiedAnnotation, Collection, Collection)}
+    * @throws AnalysisEngineProcessException if a feature cannot be extracted or the entity cannot be classified
+    */
+   void classify( final JCas jCas, final IdentifiedAnnotation entity,
+                  final List<Feature> tokenFeatures, final List<Feature> cueFeatures )
+         throws AnalysisEngineProcessException {
+      final Instance<String> instance = new Instance<>();
+      if ( usesTokenFeatures() ) {
+         instance.addAll( tokenFeatures );
+      }
+      instance.addAll( cueFeatures );
+      for ( FeatureExtractor1<IdentifiedAnnotation> extractor : this.entityFeatureExtractors ) {
+         instance.addAll( extractor.extract( jCas, entity ) );
+      }
+      for ( FeatureExtractor1<IdentifiedAnnotation> extractor : this.entityTreeExtractors ) {
+         instance.addAll( extractor.extract( jCas, entity ) );
+      }
+      lowerCaseValues( instance.getFeatures() );
+      setClassLabel( entity, instance );
+   }
+
+   /**
+    * Lower cases string values of features other than trees, tree fragments, words and negation features.
+    * Lower casing is done in place, and a value that is already lower case is unchanged.
+    *
+    * @param features -
+    */
+   static private void lowerCaseValues( final Collection<Feature> features ) {
+      for ( Feature feat : features ) {
+         if ( feat instanceof TreeFeature ||
+              (feat.getName() != null && (feat.getName().startsWith( "TreeFrag" ) ||
+                                          feat.getName().startsWith( "WORD" ) ||
+                                          feat.getName().startsWith( "NEG" ))) ) {
+            continue;
+         }
+         if ( feat.getName() != null &&
+              (feat.getName().contains( "_TreeFrag" ) || feat.getName().contains( "_WORD" ) ||
+               feat.getName().contains( "_NEG" )) ) {
+            continue;
+         }
+         if ( feat.getValue() instanceof String ) {
+            feat.setValue( ((String)feat.getValue()).toLowerCase() );
+         }
+      }
+   }
+
+   /**
+    * @param entity     entity or event mention
+    * @param cues       assertion cues within the sentence of the entity
+    * @param baseTokens base tokens within the sentence of the entity
+    * @return the cue with the fewest tokens between it and the entity, or null if there is none within 20 tokens
+    */
+   static private AssertionCuePhraseAnnotation findClosestCue( final IdentifiedAnnotation entity,
+                                                               final Collection<AssertionCuePhraseAnnotation> cues,
+                                                               final Collection<BaseToken> baseTokens ) {
+      int closest = Integer.MAX_VALUE;
+      AssertionCuePhraseAnnotation closestCue = null;
+      for ( AssertionCuePhraseAnnotation cue : cues ) {
+         // It is much faster to count between BaseTokens already isolated within the same sentence.
+         final int betweenCount = countBetween( cue, entity, baseTokens );
+         if ( betweenCount < closest ) {
+            closestCue = cue;
+            closest = betweenCount;
+         }
+      }
+      return closest < 21 ? closestCue : null;
+   }
+
    /**
     * @param annotation1 -
     * @param annotation2 -
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.assertion.medfacts.cleartk;
+
+import org.apache.ctakes.assertion.medfacts.cleartk.AssertionCleartkAnalysisEngine.FEATURE_CONFIG;
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.temporary.assertion.AssertionCuePhraseAnnotation;
+import org.apache.ctakes.typesystem.type.textsem.EntityMention;
+import org.apache.ctakes.typesystem.type.textsem.EventMention;
+import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.cleartk.ml.Feature;
+import org.cleartk.ml.jar.GenericJarClassifierFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns polarity, uncertainty, history of, conditional, generic and subject in a single pass.
+ * <p>
+ * The result is the same as that of running the six cleartk attribute engines one after another,
+ * as the default clinical pipeline does.  The sentence index, the token window features and the assertion cue
+ * features are the same for all six engines, so here they are built once for each entity.
+ * Each attribute then adds its own entity features and runs its own classifier.
+ * Attributes are assigned in the usual order, so uncertainty can still use the polarity of the entity.
+ * </p>
+ * This engine only classifies.  Training and domain adaptation must use the individual engines.
+ * <p>
+ * The default pipelines still run the six engines.  To use this engine, load FusedAttributeCleartkSubPipe
+ * (or TsFusedAttributeCleartkSubPipe) in place of the AttributeCleartkSubPipe of a piper file.
+ * </p>
+ */
+@PipeBitInfo(
+      name = "Assertion Attributes Annotator (ClearTK)",
+      description = "Annotates polarity, uncertainty, history of, conditional, generic and subject in one pass.",
+      dependencies = { PipeBitInfo.TypeProduct.SENTENCE, PipeBitInfo.TypeProduct.BASE_TOKEN,
+                       PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION }
+)
+final public class FusedAssertionCleartkAnalysisEngine extends JCasAnnotator_ImplBase {
+
+   static private final Logger LOGGER = Logger.getLogger( "FusedAssertionCleartkAnalysisEngine" );
+
+   static public final String PARAM_POLARITY_MODEL = "PolarityModel";
+   static public final String PARAM_UNCERTAINTY_MODEL = "UncertaintyModel";
+   static public final String PARAM_HISTORY_MODEL = "HistoryModel";
+   static public final String PARAM_CONDITIONAL_MODEL = "ConditionalModel";
+   static public final String PARAM_GENERIC_MODEL = "GenericModel";
+   static public final String PARAM_SUBJECT_MODEL = "SubjectModel";
+
+   @ConfigurationParameter(
+         name = PARAM_POLARITY_MODEL,
+         description = "Path to the polarity model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/polarity/sharpi2b2mipacqnegex/model.jar"
+   )
+   private String _polarityModel;
+
+   @ConfigurationParameter(
+         name = PARAM_UNCERTAINTY_MODEL,
+         description = "Path to the uncertainty model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/uncertainty/model.jar"
+   )
+   private String _uncertaintyModel;
+
+   @ConfigurationParameter(
+         name = PARAM_HISTORY_MODEL,
+         description = "Path to the history of model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/historyOf/model.jar"
+   )
+   private String _historyModel;
+
+   @ConfigurationParameter(
+         name = PARAM_CONDITIONAL_MODEL,
+         description = "Path to the conditional model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/conditional/model.jar"
+   )
+   private String _conditionalModel;
+
+   @ConfigurationParameter(
+         name = PARAM_GENERIC_MODEL,
+         description = "Path to the generic model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/generic/model.jar"
+   )
+   private String _genericModel;
+
+   @ConfigurationParameter(
+         name = PARAM_SUBJECT_MODEL,
+         description = "Path to the subject model jar.",
+         mandatory = false,
+         defaultValue = "/org/apache/ctakes/assertion/models/subject/model.jar"
+   )
+   private String _subjectModel;
+
+   // Attribute engines in the order of the default clinical pipeline
+   private final List<AssertionCleartkAnalysisEngine> _attributeEngines = new ArrayList<>( 6 );
+   // Engine used to extract the token features shared by all engines that use them
+   private AssertionCleartkAnalysisEngine _tokenEngine;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      LOGGER.info( "Initializing attribute classifiers ..." );
+      _attributeEngines.clear();
+      // Feature configurations are those of each engine's createAnnotatorDescription()
+      addAttributeEngine( new PolarityCleartkAnalysisEngine(), _polarityModel, FEATURE_CONFIG.ALL_SYN );
+      addAttributeEngine( new UncertaintyCleartkAnalysisEngine(), _uncertaintyModel, FEATURE_CONFIG.ALL_SYN );
+      addAttributeEngine( new HistoryCleartkAnalysisEngine(), _historyModel, null );
+      addAttributeEngine( new ConditionalCleartkAnalysisEngine(), _conditionalModel, null );
+      addAttributeEngine( new GenericCleartkAnalysisEngine(), _genericModel, null );
+      addAttributeEngine( new SubjectCleartkAnalysisEngine(), _subjectModel, FEATURE_CONFIG.DEP_REGEX );
+      _tokenEngine = _attributeEngines.stream()
+                                      .filter( AssertionCleartkAnalysisEngine::usesTokenFeatures )
+                                      .findFirst()
+                                      .orElse( null );
+   }
+
+   private void addAttributeEngine( final AssertionCleartkAnalysisEngine engine, final String modelPath,
+                                    final FEATURE_CONFIG featureConfig ) throws ResourceInitializationException {
+      final UimaContext context;
+      if ( featureConfig == null ) {
+         context = UimaContextFactory.createUimaContext(
+               GenericJarClassifierFactory.PARAM_CLASSIFIER_JAR_PATH, modelPath );
+      } else {
+         context = UimaContextFactory.createUimaContext(
+               GenericJarClassifierFactory.PARAM_CLASSIFIER_JAR_PATH, modelPath,
+               AssertionCleartkAnalysisEngine.PARAM_FEATURE_CONFIG, featureConfig.name() );
+      }
+      engine.initialize( context );
+      _attributeEngines.add( engine );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      final Map<Sentence, Collection<Annotation>> sentenceAnnotationMap
+            = JCasUtil.indexCovered( jCas, Sentence.class, Annotation.class );
+      final Collection<IdentifiedAnnotation> entities = new ArrayList<>();
+      final Collection<AssertionCuePhraseAnnotation> cues = new ArrayList<>();
+      final Collection<BaseToken> baseTokens = new ArrayList<>();
+      for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+         entities.clear();
+         cues.clear();
+         baseTokens.clear();
+         for ( Annotation annotation : sentenceAnnotationMap.get( sentence ) ) {
+            if ( annotation instanceof EventMention || annotation instanceof EntityMention ) {
+               entities.add( (IdentifiedAnnotation)annotation );
+            } else if ( annotation instanceof AssertionCuePhraseAnnotation ) {
+               cues.add( (AssertionCuePhraseAnnotation)annotation );
+            } else if ( annotation instanceof BaseToken ) {
+               baseTokens.add( (BaseToken)annotation );
+            }
+         }
+         for ( IdentifiedAnnotation entity : entities ) {
+            final List<Feature> tokenFeatures = _tokenEngine == null
+                                                ? Collections.emptyList()
+                                                : _tokenEngine.extractTokenFeatures( jCas, entity, sentence );
+            final List<Feature> cueFeatures
+                  = AssertionCleartkAnalysisEngine.extractCueFeatures( entity, cues, baseTokens );
+            for ( AssertionCleartkAnalysisEngine engine : _attributeEngines ) {
+               engine.classify( jCas, entity, tokenFeatures, cueFeatures );
+            }
+         }
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      for ( AssertionCleartkAnalysisEngine engine : _attributeEngines ) {
+         engine.collectionProcessComplete();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      _attributeEngines.forEach( AssertionCleartkAnalysisEngine::destroy );
+      super.destroy();
+   }
+
+   /**
+    * @return description of the engine with the default models
+    * @throws ResourceInitializationException -
+    */
+   static public AnalysisEngineDescription createAnnotatorDescription() throws ResourceInitializationException {
+      return AnalysisEngineFactory.createEngineDescription( FusedAssertionCleartkAnalysisEngine.class );
+   }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.assertion.medfacts.cleartk;
+
+import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.syntax.ConllDependencyNode;
+import org.apache.ctakes.typesystem.type.syntax.PunctuationToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textsem.DiseaseDisorderMention;
+import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
+import org.apache.ctakes.typesystem.type.textsem.SignSymptomMention;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AggregateBuilder;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.CasCopier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Checks that the fused engine assigns the same attributes as the six cleartk attribute engines.
+ */
+public class FusedAssertionCleartkAnalysisEngineTest {
+
+   static private final String TEXT = "The patient denies chest pain .\n"
+                                      + "Possible pneumonia was seen on the chest film .\n"
+                                      + "Her mother has a history of breast cancer .\n"
+                                      + "She had a fever last year and no cough .\n"
+                                      + "Call the clinic if nausea or vomiting develops .\n"
+                                      + "Patients with diabetes often need insulin .\n"
+                                      + "The donor was tested for hepatitis .\n";
+
+   static private final Collection<String> DISEASES = Arrays.asList( "pneumonia", "breast cancer", "diabetes",
+         "hepatitis" );
+   static private final Collection<String> SYMPTOMS = Arrays.asList( "chest pain", "fever", "cough", "nausea",
+         "vomiting" );
+
+   @Test
+   public void testSameAttributes() throws Exception {
+      final JCas annotatedCas = createAnnotatedCas();
+      final JCas separateCas = JCasFactory.createJCas();
+      CasCopier.copyCas( annotatedCas.getCas(), separateCas.getCas(), true );
+      final JCas fusedCas = JCasFactory.createJCas();
+      CasCopier.copyCas( annotatedCas.getCas(), fusedCas.getCas(), true );
+
+      final AggregateBuilder separate = new AggregateBuilder();
+      separate.add( PolarityCleartkAnalysisEngine.createAnnotatorDescription() );
+      separate.add( UncertaintyCleartkAnalysisEngine.createAnnotatorDescription() );
+      separate.add( HistoryCleartkAnalysisEngine.createAnnotatorDescription() );
+      separate.add( ConditionalCleartkAnalysisEngine.createAnnotatorDescription() );
+      separate.add( GenericCleartkAnalysisEngine.createAnnotatorDescription() );
+      separate.add( SubjectCleartkAnalysisEngine.createAnnotatorDescription() );
+      SimplePipeline.runPipeline( separateCas, separate.createAggregateDescription() );
+      SimplePipeline.runPipeline( fusedCas, FusedAssertionCleartkAnalysisEngine.createAnnotatorDescription() );
+
+      final List<String> separateAttributes = getAttributes( separateCas );
+      assertEquals( DISEASES.size() + SYMPTOMS.size(), separateAttributes.size() );
+      // The notes must give the classifiers something to differ on
+      assertNotEquals( 1, separateAttributes.stream().map( a -> a.substring( a.indexOf( ' ' ) ) ).distinct().count() );
+      assertEquals( separateAttributes, getAttributes( fusedCas ) );
+   }
+
+   static private List<String> getAttributes( final JCas jCas ) {
+      final List<String> attributes = new ArrayList<>();
+      for ( IdentifiedAnnotation annotation : JCasUtil.select( jCas, IdentifiedAnnotation.class ) ) {
+         attributes.add( annotation.getCoveredText().replace( ' ', '_' )
+                         + " polarity=" + annotation.getPolarity()
+                         + " uncertainty=" + annotation.getUncertainty()
+                         + " history=" + annotation.getHistoryOf()
+                         + " conditional=" + annotation.getConditional()
+                         + " generic=" + annotation.getGeneric()
+                         + " subject=" + annotation.getSubject() );
+      }
+      return attributes;
+   }
+
+   /**
+    * @return cas with sentences, tokens, a simple dependency parse, assertion cues and mentions
+    */
+   static private JCas createAnnotatedCas() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( TEXT );
+      int lineBegin = 0;
+      for ( String line : TEXT.split( "\n" ) ) {
+         final int lineEnd = lineBegin + line.length();
+         new Sentence( jCas, lineBegin, lineEnd ).addToIndexes();
+         final List<BaseToken> tokens = new ArrayList<>();
+         final Matcher matcher = Pattern.compile( "\\S+" ).matcher( line );
+         while ( matcher.find() ) {
+            final BaseToken token = matcher.group().equals( "." )
+                                    ? new PunctuationToken( jCas, lineBegin + matcher.start(), lineBegin + matcher.end() )
+                                    : new WordToken( jCas, lineBegin + matcher.start(), lineBegin + matcher.end() );
+            token.setPartOfSpeech( matcher.group().equals( "." ) ? "." : "NN" );
+            token.addToIndexes();
+            tokens.add( token );
+         }
+         addDependencies( jCas, tokens );
+         lineBegin = lineEnd + 1;
+      }
+      addMentions( jCas, DISEASES, true );
+      addMentions( jCas, SYMPTOMS, false );
+      final AnalysisEngine cueAnnotator = AnalysisEngineFactory.createEngine( AlternateCuePhraseAnnotator.class );
+      cueAnnotator.process( jCas );
+      cueAnnotator.destroy();
+      return jCas;
+   }
+
+   /**
+    * Each word depends on the next, the last word of the sentence on the root
+    */
+   static private void addDependencies( final JCas jCas, final List<BaseToken> tokens ) {
+      final ConllDependencyNode root = new ConllDependencyNode( jCas, tokens.get( 0 ).getBegin(),
+            tokens.get( tokens.size() - 1 ).getEnd() );
+      root.setId( 0 );
+      root.addToIndexes();
+      final ConllDependencyNode[] nodes = new ConllDependencyNode[ tokens.size() ];
+      for ( int i = 0; i < nodes.length; i++ ) {
+         final BaseToken token = tokens.get( i );
+         nodes[ i ] = new ConllDependencyNode( jCas, token.getBegin(), token.getEnd() );
+         nodes[ i ].setId( i + 1 );
+         nodes[ i ].setForm( token.getCoveredText() );
+         nodes[ i ].setPostag( token.getPartOfSpeech() );
+         nodes[ i ].setCpostag( token.getPartOfSpeech() );
+         nodes[ i ].setDeprel( i == 1 ? "nsubj" : "dep" );
+      }
+      for ( int i = 0; i < nodes.length; i++ ) {
+         nodes[ i ].setHead( i == nodes.length - 1 ? root : nodes[ i + 1 ] );
+         nodes[ i ].addToIndexes();
+      }
+   }
+
+   static private void addMentions( final JCas jCas, final Collection<String> terms, final boolean disease ) {
+      for ( String term : terms ) {
+         final int begin = TEXT.indexOf( term );
+         final IdentifiedAnnotation mention = disease
+                                              ? new DiseaseDisorderMention( jCas, begin, begin + term.length() )
+                                              : new SignSymptomMention( jCas, begin, begin + term.length() );
+         mention.addToIndexes();
+      }
+   }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCopier;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * Benchmark state holding a synthetic note and the engine to measure.
+ * <p>
+ * For each trial the note is created and run once through the prerequisite engines.
+ * Before each invocation the processed note is copied to a clean jcas, so every invocation measures the engine
+ * on the same input and copying is not measured.
+ * </p>
+ */
+@State( Scope.Thread )
+abstract public class AbstractNoteState {
+
+   /**
+    * JMH sets parameters by field name, so this field does not follow the usual naming.
+    */
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private JCas _noteJCas;
+   private JCas _jCas;
+   private AnalysisEngine _engine;
+
+   /**
+    * @return engines that must run before the measured engine, or null if there are none
+    * @throws ResourceInitializationException -
+    * @throws IOException                     -
+    */
+   abstract protected AnalysisEngineDescription createPrerequisites()
+         throws ResourceInitializationException, IOException;
+
+   /**
+    * @return description of the measured engine
+    * @throws ResourceInitializationException -
+    * @throws IOException                     -
+    */
+   abstract protected AnalysisEngineDescription createMeasuredDescription()
+         throws ResourceInitializationException, IOException;
+
+   @Setup( Level.Trial )
+   public void setupTrial() throws UIMAException, IOException {
+      _noteJCas = SyntheticNotes.createJCas( noteSize );
+      final AnalysisEngineDescription prerequisites = createPrerequisites();
+      if ( prerequisites != null ) {
+         SimplePipeline.runPipeline( _noteJCas, prerequisites );
+      }
+      _jCas = JCasFactory.createJCas();
+      _engine = AnalysisEngineFactory.createEngine( createMeasuredDescription() );
+      initializeTrial();
+   }
+
+   /**
+    * Called at the end of trial setup, after the note has been prepared.
+    *
+    * @throws UIMAException -
+    * @throws IOException   -
+    */
+   protected void initializeTrial() throws UIMAException, IOException {
+   }
+
+   @Setup( Level.Invocation )
+   public void copyNote() {
+      _jCas.reset();
+      CasCopier.copyCas( _noteJCas.getCas(), _jCas.getCas(), true );
+   }
+
+   @TearDown( Level.Trial )
+   public void tearDownTrial() throws AnalysisEngineProcessException {
+      _engine.collectionProcessComplete();
+      _engine.destroy();
+      closeTrial();
+   }
+
+   /**
+    * Called at the end of trial teardown, after the measured engine has been destroyed.
+    */
+   protected void closeTrial() {
+   }
+
+   /**
+    * @return the note text, for benchmarks of code that works on plain text
+    */
+   public String getNoteText() {
+      return _noteJCas.getDocumentText();
+   }
+
+   /**
+    * @return a clean copy of the prepared note
+    */
+   public JCas getJCas() {
+      return _jCas;
+   }
+
+   /**
+    * Runs the measured engine on the prepared note.
+    *
+    * @return the processed jcas, to be consumed by the benchmark
+    * @throws AnalysisEngineProcessException -
+    */
+   public JCas process() throws AnalysisEngineProcessException {
+      _engine.process( _jCas );
+      return _jCas;
+   }
+
+}
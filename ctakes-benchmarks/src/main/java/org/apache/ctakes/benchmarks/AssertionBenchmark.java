@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.assertion.medfacts.cleartk.*;
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AggregateBuilder;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each cleartk assertion engine, all six as run by the default clinical pipeline,
+ * and all six in the fused engine, on parsed notes with dictionary terms.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class AssertionBenchmark {
+
+   public enum AssertionEngine {
+      POLARITY,
+      UNCERTAINTY,
+      HISTORY,
+      CONDITIONAL,
+      GENERIC,
+      SUBJECT,
+      ALL,
+      FUSED
+   }
+
+   static public class AssertionState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "POLARITY", "UNCERTAINTY", "HISTORY", "CONDITIONAL", "GENERIC", "SUBJECT", "ALL", "FUSED" } )
+      public AssertionEngine assertionEngine;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.DEPENDENCIES );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         switch ( assertionEngine ) {
+            case POLARITY:
+               return PolarityCleartkAnalysisEngine.createAnnotatorDescription();
+            case UNCERTAINTY:
+               return UncertaintyCleartkAnalysisEngine.createAnnotatorDescription();
+            case HISTORY:
+               return HistoryCleartkAnalysisEngine.createAnnotatorDescription();
+            case CONDITIONAL:
+               return ConditionalCleartkAnalysisEngine.createAnnotatorDescription();
+            case GENERIC:
+               return GenericCleartkAnalysisEngine.createAnnotatorDescription();
+            case SUBJECT:
+               return SubjectCleartkAnalysisEngine.createAnnotatorDescription();
+            case FUSED:
+               return FusedAssertionCleartkAnalysisEngine.createAnnotatorDescription();
+         }
+         final AggregateBuilder builder = new AggregateBuilder();
+         builder.add( PolarityCleartkAnalysisEngine.createAnnotatorDescription() );
+         builder.add( UncertaintyCleartkAnalysisEngine.createAnnotatorDescription() );
+         builder.add( HistoryCleartkAnalysisEngine.createAnnotatorDescription() );
+         builder.add( ConditionalCleartkAnalysisEngine.createAnnotatorDescription() );
+         builder.add( GenericCleartkAnalysisEngine.createAnnotatorDescription() );
+         builder.add( SubjectCleartkAnalysisEngine.createAnnotatorDescription() );
+         return builder.createAggregateDescription();
+      }
+   }
+
+   @Benchmark
+   public JCas assertionEngine( final AssertionState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
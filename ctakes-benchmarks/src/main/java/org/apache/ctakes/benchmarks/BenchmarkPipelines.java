@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.assertion.medfacts.cleartk.*;
+import org.apache.ctakes.contexttokenizer.ae.ContextDependentTokenizerAnnotator;
+import org.apache.ctakes.core.ae.SentenceDetector;
+import org.apache.ctakes.core.ae.SimpleSegmentAnnotator;
+import org.apache.ctakes.core.ae.TokenizerAnnotatorPTB;
+import org.apache.ctakes.dependency.parser.ae.ClearNLPDependencyParserAE;
+import org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator;
+import org.apache.ctakes.lvg.ae.LvgAnnotator;
+import org.apache.ctakes.postagger.POSTagger;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.factory.AggregateBuilder;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.net.MalformedURLException;
+
+/**
+ * Stages of the clinical pipeline, in the order of {@code ClinicalPipelineFactory.getFastPipeline()},
+ * used to prepare notes for benchmarks of later stages.
+ * Each stage includes all stages before it.  Dictionary lookup uses the benchmark terms.
+ */
+final public class BenchmarkPipelines {
+
+   public enum Stage {
+      SEGMENTS,
+      SENTENCES,
+      TOKENS,
+      LVG,
+      CONTEXT_TOKENS,
+      POS,
+      LOOKUP,
+      DEPENDENCIES,
+      ASSERTION
+   }
+
+   private BenchmarkPipelines() {
+   }
+
+   /**
+    * @param lastStage last stage to run
+    * @return description of all stages up to and including the last stage
+    * @throws ResourceInitializationException -
+    * @throws MalformedURLException           -
+    */
+   static public AnalysisEngineDescription createPipeline( final Stage lastStage )
+         throws ResourceInitializationException, MalformedURLException {
+      final AggregateBuilder builder = new AggregateBuilder();
+      for ( Stage stage : Stage.values() ) {
+         if ( stage.ordinal() > lastStage.ordinal() ) {
+            break;
+         }
+         addStage( builder, stage );
+      }
+      return builder.createAggregateDescription();
+   }
+
+   static private void addStage( final AggregateBuilder builder, final Stage stage )
+         throws ResourceInitializationException, MalformedURLException {
+      switch ( stage ) {
+         case SEGMENTS:
+            builder.add( SimpleSegmentAnnotator.createAnnotatorDescription() );
+            break;
+         case SENTENCES:
+            builder.add( SentenceDetector.createAnnotatorDescription() );
+            break;
+         case TOKENS:
+            builder.add( TokenizerAnnotatorPTB.createAnnotatorDescription() );
+            break;
+         case LVG:
+            builder.add( LvgAnnotator.createAnnotatorDescription() );
+            break;
+         case CONTEXT_TOKENS:
+            builder.add( ContextDependentTokenizerAnnotator.createAnnotatorDescription() );
+            break;
+         case POS:
+            builder.add( POSTagger.createAnnotatorDescription() );
+            break;
+         case LOOKUP:
+            builder.add( DefaultJCasTermAnnotator.createAnnotatorDescription( SyntheticNotes.LOOKUP_XML ) );
+            break;
+         case DEPENDENCIES:
+            builder.add( ClearNLPDependencyParserAE.createAnnotatorDescription() );
+            break;
+         case ASSERTION:
+            builder.add( PolarityCleartkAnalysisEngine.createAnnotatorDescription() );
+            builder.add( UncertaintyCleartkAnalysisEngine.createAnnotatorDescription() );
+            builder.add( HistoryCleartkAnalysisEngine.createAnnotatorDescription() );
+            builder.add( ConditionalCleartkAnalysisEngine.createAnnotatorDescription() );
+            builder.add( GenericCleartkAnalysisEngine.createAnnotatorDescription() );
+            builder.add( SubjectCleartkAnalysisEngine.createAnnotatorDescription() );
+            break;
+      }
+   }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Runs cTAKES benchmarks with the gc profiler for allocation rates, and writes results as json
+ * so that runs of different commits can be compared.
+ * <p>
+ * Arguments are standard JMH command line options, for instance a benchmark name pattern, "-f 1" or "-rf csv".
+ * Unless a result file is given with "-rff", results are written to ctakes_benchmarks_[date].json.
+ * </p>
+ */
+final public class BenchmarkRunner {
+
+   private BenchmarkRunner() {
+   }
+
+   public static void main( final String... args ) throws CommandLineOptionException, RunnerException {
+      final CommandLineOptions commandLine = new CommandLineOptions( args );
+      final String resultFile = commandLine.getResult()
+            .orElse( "ctakes_benchmarks_" + new SimpleDateFormat( "yyyyMMdd_HHmmss" ).format( new Date() ) + ".json" );
+      final Options options = new OptionsBuilder()
+            .parent( commandLine )
+            .addProfiler( GCProfiler.class )
+            .resultFormat( commandLine.getResultFormat().orElse( ResultFormatType.JSON ) )
+            .result( resultFile )
+            .build();
+      new Runner( options ).run();
+   }
+
+}
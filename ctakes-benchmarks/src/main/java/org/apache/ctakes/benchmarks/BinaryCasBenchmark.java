@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.core.cc.FileTreeBinaryCasWriter;
+import org.apache.ctakes.core.cc.FileTreeXmiWriter;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.util.BinaryCasCompression;
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasLoadMode;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing notes processed through dictionary lookup to files and reading them back,
+ * as xmi and as compressed binary cas files.
+ * The size of each file and of the note text is logged when the trial starts.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class BinaryCasBenchmark {
+
+   static private final Logger LOGGER = Logger.getLogger( "BinaryCasBenchmark" );
+
+   public enum CasFormat {
+      XMI,
+      BINARY,
+      BINARY_GZIP,
+      BINARY_ZSTD
+   }
+
+   static public class CasFileState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "XMI", "BINARY", "BINARY_GZIP", "BINARY_ZSTD" } )
+      public CasFormat casFormat;
+
+      private File _outputDir;
+      private File _casFile;
+      private BinaryCasCompression _compression;
+      private JCas _readJCas;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.LOOKUP );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription()
+            throws ResourceInitializationException, IOException {
+         _outputDir = Files.createTempDirectory( "ctakes_cas_benchmark" ).toFile();
+         if ( casFormat == CasFormat.XMI ) {
+            return AnalysisEngineFactory.createEngineDescription( FileTreeXmiWriter.class,
+                  ConfigParameterConstants.PARAM_OUTPUTDIR, _outputDir.getPath() );
+         }
+         _compression = casFormat == CasFormat.BINARY_GZIP
+                        ? BinaryCasCompression.GZIP
+                        : casFormat == CasFormat.BINARY_ZSTD ? BinaryCasCompression.ZSTD : BinaryCasCompression.NONE;
+         return AnalysisEngineFactory.createEngineDescription( FileTreeBinaryCasWriter.class,
+               ConfigParameterConstants.PARAM_OUTPUTDIR, _outputDir.getPath(),
+               FileTreeBinaryCasWriter.PARAM_COMPRESSION, _compression.name() );
+      }
+
+      @Override
+      protected void initializeTrial() throws UIMAException, IOException {
+         copyNote();
+         process();
+         final File[] files = _outputDir.listFiles();
+         if ( files == null || files.length != 1 ) {
+            throw new IOException( "Expected one written file in " + _outputDir.getPath() );
+         }
+         _casFile = files[ 0 ];
+         final int textBytes = getNoteText().getBytes( StandardCharsets.UTF_8 ).length;
+         LOGGER.info( casFormat + " file for " + noteSize + " note: " + _casFile.length()
+                      + " bytes, " + String.format( "%.1f", _casFile.length() / (double)textBytes )
+                      + " times the text" );
+         _readJCas = JCasFactory.createJCas();
+      }
+
+      @Override
+      protected void closeTrial() {
+         final File[] files = _outputDir.listFiles();
+         if ( files != null ) {
+            for ( File file : files ) {
+               file.delete();
+            }
+         }
+         _outputDir.delete();
+      }
+
+      private JCas read() throws IOException, SAXException {
+         _readJCas.reset();
+         try ( InputStream inputStream = new BufferedInputStream( new FileInputStream( _casFile ), 64 * 1024 ) ) {
+            if ( casFormat == CasFormat.XMI ) {
+               XmiCasDeserializer.deserialize( inputStream, _readJCas.getCas() );
+            } else {
+               CasIOUtils.load( _compression.decompress( inputStream ), null, _readJCas.getCas(),
+                     CasLoadMode.LENIENT );
+            }
+         }
+         return _readJCas;
+      }
+   }
+
+   @Benchmark
+   public JCas writeCas( final CasFileState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+   @Benchmark
+   public JCas readCas( final CasFileState state ) throws IOException, SAXException {
+      return state.read();
+   }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.ytex.kernel.dao.ConceptDaoImpl;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.MappedConceptGraph;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures concept graph start-up: reading the old gzipped java serialized file, reading the binary file
+ * into {@link org.apache.ctakes.ytex.kernel.model.ConcRel} objects, and mapping the binary file.
+ * <p>
+ * Files are mapped and cached by the os, so every measurement is a single shot in a new fork.
+ * The files are written during setup, which is not measured.
+ * </p>
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 0 )
+@Measurement( iterations = 1 )
+@Fork( value = 5, jvmArgs = { "-Xms2g", "-Xmx4g" } )
+public class ConceptGraphLoadBenchmark {
+
+   static private final Logger LOGGER = Logger.getLogger( "ConceptGraphLoadBenchmark" );
+
+   @State( Scope.Benchmark )
+   static public class FileState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "300000" } )
+      public int conceptCount;
+
+      private File _legacyDirectory;
+      private File _binaryDirectory;
+      private ConceptDaoImpl _legacyDao;
+      private ConceptDaoImpl _binaryDao;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws IOException {
+         final ConceptGraph graph = SyntheticConceptGraph.createGraph( conceptCount );
+         _legacyDirectory = Files.createTempDirectory( "ctakes_cg_benchmark" ).toFile();
+         final File legacyFile = new File( _legacyDirectory, SyntheticConceptGraph.GRAPH_NAME + ".gz" );
+         try ( ObjectOutputStream os = new ObjectOutputStream( new BufferedOutputStream(
+               new GZIPOutputStream( new FileOutputStream( legacyFile ) ) ) ) ) {
+            os.writeObject( graph );
+         }
+         _binaryDirectory = Files.createTempDirectory( "ctakes_cg_benchmark" ).toFile();
+         final File binaryFile = new File( _binaryDirectory, SyntheticConceptGraph.GRAPH_NAME + ".cg" );
+         MappedConceptGraph.write( graph, binaryFile );
+         LOGGER.info( conceptCount + " concepts, serialized " + legacyFile.length() + " bytes, binary "
+                      + binaryFile.length() + " bytes" );
+         _legacyDao = createDao( _legacyDirectory );
+         _binaryDao = createDao( _binaryDirectory );
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() {
+         delete( _legacyDirectory );
+         delete( _binaryDirectory );
+      }
+   }
+
+   static private ConceptDaoImpl createDao( final File directory ) {
+      final Properties properties = new Properties();
+      properties.setProperty( "org.apache.ctakes.ytex.conceptGraphDir", directory.getPath() );
+      final ConceptDaoImpl dao = new ConceptDaoImpl();
+      dao.setYtexProperties( properties );
+      return dao;
+   }
+
+   static private void delete( final File directory ) {
+      final File[] files = directory.listFiles();
+      if ( files != null ) {
+         for ( File file : files ) {
+            file.delete();
+         }
+      }
+      directory.delete();
+   }
+
+   @Benchmark
+   public ConceptGraph loadSerialized( final FileState state ) {
+      return state._legacyDao.getConceptGraph( SyntheticConceptGraph.GRAPH_NAME );
+   }
+
+   @Benchmark
+   public ConceptGraph loadBinary( final FileState state ) {
+      return state._binaryDao.getConceptGraph( SyntheticConceptGraph.GRAPH_NAME );
+   }
+
+   @Benchmark
+   public MappedConceptGraph mapBinary( final FileState state ) {
+      return state._binaryDao.getMappedConceptGraph( SyntheticConceptGraph.GRAPH_NAME );
+   }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.ytex.kernel.metric.ConceptPairSimilarity;
+import org.apache.ctakes.ytex.kernel.metric.ConceptSimilarityService.SimilarityMetricEnum;
+import org.apache.ctakes.ytex.kernel.metric.ConceptSimilarityServiceImpl;
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraphIndex;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures least common subsumer queries and similarity measures for all pairs of concepts in a note,
+ * over a synthetic concept graph the size of snomed.
+ * Each operation is one concept pair, so throughput is in pairs per second.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx4g" } )
+public class ConceptSimilarityBenchmark {
+
+   static private final Logger LOGGER = Logger.getLogger( "ConceptSimilarityBenchmark" );
+
+   static private final int NOTE_CONCEPTS = 200;
+   static private final int PAIRS = NOTE_CONCEPTS * (NOTE_CONCEPTS - 1) / 2;
+
+   static private final List<SimilarityMetricEnum> METRICS = Arrays.asList( SimilarityMetricEnum.INTRINSIC_LIN,
+         SimilarityMetricEnum.LCH, SimilarityMetricEnum.PATH, SimilarityMetricEnum.WUPALMER );
+
+   @State( Scope.Benchmark )
+   static public class GraphState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "300000" } )
+      public int conceptCount;
+
+      private ConceptSimilarityServiceImpl _service;
+      private ConceptGraphIndex _index;
+      private ConcRel[] _concepts;
+
+      @Setup( Level.Trial )
+      public void setupTrial() {
+         final ConceptGraph graph = SyntheticConceptGraph.createGraph( conceptCount );
+         _service = SyntheticConceptGraph.createSimilarityService( graph );
+         _index = _service.getConceptGraphIndex();
+         LOGGER.info( conceptCount + " concepts with " + _index.getAncestorCount() + " ancestors" );
+         final Random random = new Random( conceptCount );
+         final List<ConcRel> conceptList = graph.getConceptList();
+         _concepts = new ConcRel[ NOTE_CONCEPTS ];
+         for ( int i = 0; i < NOTE_CONCEPTS; i++ ) {
+            _concepts[ i ] = conceptList.get( random.nextInt( conceptList.size() ) );
+         }
+      }
+   }
+
+   @State( Scope.Thread )
+   static public class BufferState {
+      private final ConceptGraphIndex.LcsBuffer _lcses = new ConceptGraphIndex.LcsBuffer();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation( PAIRS )
+   public int breadthFirstLcs( final GraphState state ) {
+      final ConcRel[] concepts = state._concepts;
+      int sum = 0;
+      for ( int i = 0; i < concepts.length; i++ ) {
+         for ( int j = i + 1; j < concepts.length; j++ ) {
+            final Set<ConcRel> lcses = new HashSet<>( 2 );
+            sum += ConcRel.getLeastCommonConcept( concepts[ i ], concepts[ j ], lcses, null );
+         }
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation( PAIRS )
+   public int indexLcs( final GraphState state, final BufferState buffer ) {
+      final ConcRel[] concepts = state._concepts;
+      int sum = 0;
+      for ( int i = 0; i < concepts.length; i++ ) {
+         final int node = concepts[ i ].getNodeIndex();
+         for ( int j = i + 1; j < concepts.length; j++ ) {
+            sum += state._index.getLeastCommonConcepts( node, concepts[ j ].getNodeIndex(), buffer._lcses );
+         }
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation( PAIRS )
+   public double similarity( final GraphState state ) {
+      final ConcRel[] concepts = state._concepts;
+      double sum = 0;
+      for ( int i = 0; i < concepts.length; i++ ) {
+         for ( int j = i + 1; j < concepts.length; j++ ) {
+            final ConceptPairSimilarity similarity = state._service.similarity( METRICS,
+                  concepts[ i ].getConceptID(), concepts[ j ].getConceptID(), null, false );
+            sum += similarity.getSimilarities().get( 0 );
+         }
+      }
+      return sum;
+   }
+
+}
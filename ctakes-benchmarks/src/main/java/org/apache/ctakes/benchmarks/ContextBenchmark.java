@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.necontexts.ContextAnnotator;
+import org.apache.ctakes.necontexts.negation.NegationContextAnalyzer;
+import org.apache.ctakes.necontexts.negation.NegationContextHitConsumer;
+import org.apache.ctakes.necontexts.status.StatusContextAnalyzer;
+import org.apache.ctakes.necontexts.status.StatusContextHitConsumer;
+import org.apache.ctakes.typesystem.type.textspan.Segment;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures negation and status context analysis on notes with dictionary terms.
+ * The benchmark pipeline has one segment for the whole note, so segment windows hold many more terms than
+ * sentence windows and show the cost of dense context.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class ContextBenchmark {
+
+   public enum Analyzer {
+      NEGATION,
+      STATUS
+   }
+
+   public enum Window {
+      SENTENCE,
+      SEGMENT
+   }
+
+   static public class ContextState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "NEGATION", "STATUS" } )
+      public Analyzer analyzer;
+      @Param( { "SENTENCE", "SEGMENT" } )
+      public Window window;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.LOOKUP );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         final String windowClass = window == Window.SEGMENT ? Segment.class.getName() : Sentence.class.getName();
+         if ( analyzer == Analyzer.STATUS ) {
+            // As in the default named entity context pipeline
+            return AnalysisEngineFactory.createEngineDescription( ContextAnnotator.class,
+                  ContextAnnotator.WINDOW_ANNOTATION_CLASS_PARAM, windowClass,
+                  ContextAnnotator.CONTEXT_ANALYZER_CLASS_PARAM, StatusContextAnalyzer.class.getName(),
+                  ContextAnnotator.CONTEXT_HIT_CONSUMER_CLASS_PARAM, StatusContextHitConsumer.class.getName(),
+                  ContextAnnotator.MAX_LEFT_SCOPE_SIZE_PARAM, 10,
+                  ContextAnnotator.MAX_RIGHT_SCOPE_SIZE_PARAM, 10 );
+         }
+         return AnalysisEngineFactory.createEngineDescription( ContextAnnotator.class,
+               ContextAnnotator.WINDOW_ANNOTATION_CLASS_PARAM, windowClass,
+               ContextAnnotator.CONTEXT_ANALYZER_CLASS_PARAM, NegationContextAnalyzer.class.getName(),
+               ContextAnnotator.CONTEXT_HIT_CONSUMER_CLASS_PARAM, NegationContextHitConsumer.class.getName() );
+      }
+   }
+
+   @Benchmark
+   public JCas contextAnnotator( final ContextState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.BsvRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.util.DictionaryImageCompiler;
+import org.apache.uima.analysis_engine.annotator.AnnotatorContextException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures dictionary start-up: reading a bsv file into a heap or compact dictionary, and opening a compiled image.
+ * <p>
+ * Images are mapped only once per jvm, so every measurement is a single shot in a new fork.
+ * The bsv file and image are written during setup, which is not measured.
+ * </p>
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 0 )
+@Measurement( iterations = 1 )
+@Fork( value = 5, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class DictionaryImageBenchmark {
+
+   static private final String DICTIONARY_NAME = "BenchmarkTerms";
+
+   @State( Scope.Benchmark )
+   static public class ImageState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "10000", "200000" } )
+      public int termCount;
+
+      private File _directory;
+      private String _bsvPath;
+      private Properties _imageProperties;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws AnnotatorContextException, IOException {
+         _directory = Files.createTempDirectory( "ctakes_image_benchmark" ).toFile();
+         final File bsvFile = new File( _directory, "terms.bsv" );
+         writeBsv( bsvFile, termCount );
+         _bsvPath = bsvFile.getPath();
+         final String lookupXml;
+         try ( BufferedReader reader = new BufferedReader( new InputStreamReader(
+               FileLocator.getAsStream( SyntheticNotes.LOOKUP_XML ), StandardCharsets.UTF_8 ) ) ) {
+            lookupXml = reader.lines().collect( Collectors.joining( "\n" ) )
+                              .replace( SyntheticNotes.TERMS_BSV, _bsvPath );
+         }
+         final File xmlFile = new File( _directory, "lookup.xml" );
+         Files.write( xmlFile.toPath(), lookupXml.getBytes( StandardCharsets.UTF_8 ) );
+         final File imageFile = new File( _directory, "terms.img" );
+         DictionaryImageCompiler.compileImage( xmlFile.getPath(), imageFile );
+         _imageProperties = new Properties();
+         _imageProperties.setProperty( "imagePath", imageFile.getPath() );
+         _imageProperties.setProperty( "imageEntry", DICTIONARY_NAME );
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() {
+         final File[] files = _directory.listFiles();
+         if ( files != null ) {
+            for ( File file : files ) {
+               file.delete();
+            }
+         }
+         _directory.delete();
+      }
+   }
+
+   @Benchmark
+   public RareWordDictionary loadBsv( final ImageState state ) {
+      return new BsvRareWordDictionary( DICTIONARY_NAME, state._bsvPath );
+   }
+
+   @Benchmark
+   public RareWordDictionary loadCompactBsv( final ImageState state ) {
+      return new CompactRareWordDictionary( DICTIONARY_NAME, state._bsvPath, true );
+   }
+
+   @Benchmark
+   public RareWordDictionary loadImage( final ImageState state ) throws IOException {
+      return new CompactRareWordDictionary( DICTIONARY_NAME, null, state._imageProperties );
+   }
+
+   /**
+    * Writes terms of one to four words made of random syllables, with a fixed seed.
+    */
+   static private void writeBsv( final File bsvFile, final int termCount ) throws IOException {
+      final String[] syllables = { "car", "dio", "neu", "ro", "pul", "mo", "nar", "gas", "tro", "hep", "at", "itis",
+                                   "osis", "al", "ic", "emia", "derm", "my", "o", "path", "y", "ren", "cyst", "lip" };
+      final Random random = new Random( termCount );
+      try ( Writer writer = Files.newBufferedWriter( bsvFile.toPath(), StandardCharsets.UTF_8 ) ) {
+         for ( int i = 0; i < termCount; i++ ) {
+            final StringBuilder sb = new StringBuilder();
+            final int wordCount = 1 + random.nextInt( 4 );
+            for ( int j = 0; j < wordCount; j++ ) {
+               if ( j > 0 ) {
+                  sb.append( ' ' );
+               }
+               final int syllableCount = 2 + random.nextInt( 3 );
+               for ( int k = 0; k < syllableCount; k++ ) {
+                  sb.append( syllables[ random.nextInt( syllables.length ) ] );
+               }
+            }
+            writer.write( String.format( "C%07d|T047|%s\n", i + 1, sb ) );
+         }
+      }
+   }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.ae.JCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.ae.TrieJCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.BsvRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures fast dictionary lookup, both as a pipeline annotator and as plain term finding in prepared windows.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class DictionaryLookupBenchmark {
+
+   public enum Lookup {
+      DEFAULT,
+      TRIE
+   }
+
+   public enum DictionaryType {
+      MEM,
+      COMPACT
+   }
+
+   static public class AnnotatorState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "DEFAULT", "TRIE" } )
+      public Lookup lookup;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.POS );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         if ( lookup == Lookup.TRIE ) {
+            return TrieJCasTermAnnotator.createAnnotatorDescription( SyntheticNotes.LOOKUP_XML );
+         }
+         return DefaultJCasTermAnnotator.createAnnotatorDescription( SyntheticNotes.LOOKUP_XML );
+      }
+   }
+
+   /**
+    * Holds a dictionary and the lookup windows of a note.
+    * Windows are reused by every invocation, so nothing is done between invocations.
+    */
+   static public class FindTermsState extends NoteTextState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "DEFAULT", "TRIE" } )
+      public Lookup lookup;
+      @Param( { "MEM", "COMPACT" } )
+      public DictionaryType dictionaryType;
+
+      private JCasTermAnnotator _annotator;
+      private RareWordDictionary _dictionary;
+      private LookupWindows _lookupWindows;
+
+      @Override
+      protected void initializeTrial() throws IOException {
+         _annotator = lookup == Lookup.TRIE ? new TrieJCasTermAnnotator() : new DefaultJCasTermAnnotator();
+         final RareWordDictionary bsvDictionary = new BsvRareWordDictionary( "BenchmarkTerms", SyntheticNotes.TERMS_BSV );
+         _dictionary = dictionaryType == DictionaryType.COMPACT
+                       ? CompactRareWordDictionary.createCompactDictionary( bsvDictionary, false )
+                       : bsvDictionary;
+         _lookupWindows = new LookupWindows( noteSize );
+      }
+   }
+
+   @Benchmark
+   public JCas lookupAnnotator( final AnnotatorState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+   @Benchmark
+   public CollectionMap<TextSpan, Long, ? extends Collection<Long>> findTerms( final FindTermsState state ) {
+      final CollectionMap<TextSpan, Long, ? extends Collection<Long>> terms = new HashSetMap<>();
+      final LookupWindows windows = state._lookupWindows;
+      for ( int i = 0; i < windows.getWindowCount(); i++ ) {
+         state._annotator.findTerms( state._dictionary, windows.getTokens( i ), windows.getLookupIndices( i ), terms );
+      }
+      return terms;
+   }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.cr.FileTreeReader;
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a directory tree of notes with the file tree reader,
+ * with the whole tree walked first and files read when requested, and with prefetching.
+ * Each note is followed by a fixed amount of work standing in for the pipeline, which prefetching can overlap.
+ * Documents per second is the note count divided by the score.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class FileTreeReaderBenchmark {
+
+   static private final int PATIENT_COUNT = 10;
+
+   @State( Scope.Benchmark )
+   static public class TreeState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "0", "8" } )
+      public int prefetchCount;
+
+      @Param( { "1000" } )
+      public int noteCount;
+
+      // Units of Blackhole.consumeCPU spent on each note after it is read
+      @Param( { "0", "100000" } )
+      public int workPerNote;
+
+      private File _inputDirectory;
+      private JCas _jCas;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws UIMAException, IOException {
+         _inputDirectory = Files.createTempDirectory( "ctakes_reader_input" ).toFile();
+         final byte[] text = SyntheticNotes.createNoteText( NoteSize.MEDIUM ).getBytes( StandardCharsets.UTF_8 );
+         for ( int i = 0; i < noteCount; i++ ) {
+            final File patientDir = new File( _inputDirectory, "patient_" + (i % PATIENT_COUNT) );
+            patientDir.mkdirs();
+            Files.write( new File( patientDir, "note_" + i + ".txt" ).toPath(), text );
+         }
+         _jCas = JCasFactory.createJCas();
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() {
+         final File[] patientDirs = _inputDirectory.listFiles();
+         if ( patientDirs != null ) {
+            for ( File patientDir : patientDirs ) {
+               final File[] notes = patientDir.listFiles();
+               if ( notes != null ) {
+                  for ( File note : notes ) {
+                     note.delete();
+                  }
+               }
+               patientDir.delete();
+            }
+         }
+         _inputDirectory.delete();
+      }
+   }
+
+   @Benchmark
+   public int readTree( final TreeState state ) throws Exception {
+      final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeReader.class,
+            ConfigParameterConstants.PARAM_INPUTDIR, state._inputDirectory.getPath(),
+            FileTreeReader.PARAM_PREFETCH_COUNT, state.prefetchCount );
+      int length = 0;
+      while ( reader.hasNext() ) {
+         state._jCas.reset();
+         reader.getNext( state._jCas.getCas() );
+         length += state._jCas.getDocumentText().length();
+         Blackhole.consumeCPU( state.workPerNote );
+      }
+      reader.close();
+      reader.destroy();
+      return length;
+   }
+
+}
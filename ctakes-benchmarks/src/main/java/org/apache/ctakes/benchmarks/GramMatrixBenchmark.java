@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDao;
+import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDaoImpl;
+import org.apache.ctakes.ytex.kernel.evaluator.*;
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.tree.Node;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.HibernateTransactionManager;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the gram matrix of a synthetic corpus with the {@link CorpusKernelEvaluatorImpl}:
+ * row by row with a transaction per row as before, in tiles stored in the database a tile per transaction,
+ * and in tiles stored in a gram matrix file.
+ * <p>
+ * Documents are trees of sentences and concepts, with concepts from a synthetic concept graph.
+ * The kernel is the sum of a semantic kernel, the convolution of intrinsic lin similarity over the concepts
+ * of each pair of sentences, and the normalized subset tree kernel.
+ * The database is an hsqldb file database that syncs its log at each commit, as a server database would.
+ * Each measurement evaluates the whole matrix in a new kernel evaluation.
+ * </p>
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class GramMatrixBenchmark {
+
+   static private final String CONCEPT = "concept";
+   static private final String SENTENCE = "sentence";
+
+   public enum StoreMode {
+      ROWS,
+      TILES_DATABASE,
+      TILES_FILE
+   }
+
+   @State( Scope.Benchmark )
+   static public class CorpusState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "ROWS", "TILES_DATABASE", "TILES_FILE" } )
+      public StoreMode storeMode;
+
+      @Param( { "200" } )
+      public int documentCount;
+
+      @Param( { "1" } )
+      public int threads;
+
+      private File _directory;
+      private DriverManagerDataSource _dataSource;
+      private SessionFactory _sessionFactory;
+      private CorpusKernelEvaluatorImpl _evaluator;
+      private Map<Long, Node> _instances;
+      private int _evaluation;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws Exception {
+         _directory = Files.createTempDirectory( "ctakes_gram_matrix" ).toFile();
+         _dataSource = new DriverManagerDataSource( "jdbc:hsqldb:file:" + new File( _directory, "db" ).getPath(),
+               "sa", "" );
+         _dataSource.setDriverClassName( "org.hsqldb.jdbcDriver" );
+         try ( Connection connection = _dataSource.getConnection();
+               Statement statement = connection.createStatement() ) {
+            statement.execute( "SET FILES WRITE DELAY FALSE" );
+            statement.execute( "CREATE CACHED TABLE kernel_eval (kernel_eval_id INT GENERATED BY DEFAULT AS IDENTITY,"
+                               + " corpus_name VARCHAR(50) DEFAULT '' NOT NULL, experiment VARCHAR(50) NOT NULL,"
+                               + " label VARCHAR(50) DEFAULT '' NOT NULL, cv_fold_id INT DEFAULT 0 NOT NULL,"
+                               + " param1 DOUBLE DEFAULT 0 NOT NULL, param2 VARCHAR(50) DEFAULT '' NOT NULL,"
+                               + " PRIMARY KEY (kernel_eval_id))" );
+            statement.execute( "CREATE CACHED TABLE kernel_eval_instance (kernel_eval_id INT NOT NULL,"
+                               + " instance_id1 BIGINT NOT NULL, instance_id2 BIGINT NOT NULL,"
+                               + " similarity DOUBLE NOT NULL)" );
+            statement.execute( "CREATE INDEX IX_kernel_eval1 ON kernel_eval_instance(kernel_eval_id, instance_id1)" );
+            statement.execute( "CREATE INDEX IX_kernel_eval2 ON kernel_eval_instance(kernel_eval_id, instance_id2)" );
+            statement.execute( "CREATE UNIQUE INDEX NK_kernel_eval_instance"
+                               + " ON kernel_eval_instance(kernel_eval_id, instance_id1, instance_id2)" );
+            statement.execute( "CREATE TABLE gram_instance (instance_id BIGINT NOT NULL PRIMARY KEY)" );
+            try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO gram_instance VALUES (?)" ) ) {
+               for ( long id = 1; id <= documentCount; id++ ) {
+                  insert.setLong( 1, id );
+                  insert.executeUpdate();
+               }
+            }
+         }
+         final LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder( _dataSource );
+         builder.addResource( "org/apache/ctakes/ytex/kernel/model/KernelEvaluation.hbm.xml" );
+         builder.setProperty( "hibernate.dialect", "org.hibernate.dialect.HSQLDialect" );
+         builder.setProperty( "hibernate.jdbc.batch_size", "100" );
+         _sessionFactory = builder.buildSessionFactory();
+         final HibernateTransactionManager transactionManager = new HibernateTransactionManager( _sessionFactory );
+         final KernelEvaluationDaoImpl daoImpl = new KernelEvaluationDaoImpl();
+         daoImpl.setSessionFactory( _sessionFactory );
+         daoImpl.setTransactionManager( transactionManager );
+         // the dao runs in the caller's transaction, or a new one, as with the spring configuration
+         final Properties transactionAttributes = new Properties();
+         transactionAttributes.setProperty( "*", "PROPAGATION_REQUIRED" );
+         final ProxyFactory proxyFactory = new ProxyFactory( daoImpl );
+         proxyFactory.addAdvice( new TransactionInterceptor( transactionManager, transactionAttributes ) );
+
+         _evaluator = new CorpusKernelEvaluatorImpl();
+         _evaluator.setDataSource( _dataSource );
+         _evaluator.setTransactionManager( transactionManager );
+         _evaluator.setKernelEvaluationDao( (KernelEvaluationDao)proxyFactory.getProxy() );
+         _evaluator.setInstanceIDQuery( "select instance_id from gram_instance order by instance_id" );
+         _evaluator.setExperiment( "benchmark" );
+         _evaluator.setThreads( threads );
+         if ( storeMode == StoreMode.TILES_FILE ) {
+            _evaluator.setGramMatrixFile( new File( _directory, "gram.bin" ).getPath() );
+         }
+         final ConceptGraph graph = SyntheticConceptGraph.createGraph( 100000 );
+         _evaluator.setInstanceKernel( createKernel( graph ) );
+         _instances = createCorpus( graph, documentCount );
+      }
+
+      @Setup( Level.Invocation )
+      public void setupInvocation() {
+         // a new kernel evaluation, and a new file, so that nothing is resumed
+         _evaluator.setName( "benchmark" + _evaluation++ );
+         new File( _directory, "gram.bin" ).delete();
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() throws SQLException {
+         _sessionFactory.close();
+         try ( Connection connection = _dataSource.getConnection();
+               Statement statement = connection.createStatement() ) {
+            statement.execute( "SHUTDOWN" );
+         }
+         final File[] files = _directory.listFiles();
+         if ( files != null ) {
+            for ( File file : files ) {
+               file.delete();
+            }
+         }
+         _directory.delete();
+      }
+   }
+
+   @Benchmark
+   public void gramMatrix( final CorpusState state ) throws Exception {
+      if ( state.storeMode != StoreMode.ROWS ) {
+         state._evaluator.evaluateKernelOnCorpus( state._instances, state.threads, false );
+      } else if ( state.threads == 1 ) {
+         state._evaluator.evaluateKernelOnCorpus( state._instances, 0, 0, false );
+      } else {
+         // slices on a thread each, as the evaluator used to
+         final ExecutorService executor = Executors.newFixedThreadPool( state.threads );
+         final List<Future<?>> futures = new ArrayList<>();
+         for ( int slice = 1; slice <= state.threads; slice++ ) {
+            final int nSlice = slice;
+            futures.add( executor.submit( () -> state._evaluator.evaluateKernelOnCorpus( state._instances,
+                  state.threads, nSlice, false ) ) );
+         }
+         for ( Future<?> future : futures ) {
+            future.get();
+         }
+         executor.shutdown();
+      }
+   }
+
+   static private Kernel createKernel( final ConceptGraph graph ) throws Exception {
+      final SemanticSimKernel similarity = new SemanticSimKernel();
+      similarity.setConceptSimilarityService( SyntheticConceptGraph.createSimilarityService( graph ) );
+      similarity.setMetricNames( "INTRINSIC_LIN" );
+      similarity.afterPropertiesSet();
+      final NodeAttributeKernel conceptKernel = new NodeAttributeKernel();
+      conceptKernel.setAttributeName( CONCEPT );
+      conceptKernel.setDelegateKernel( similarity );
+      final ConvolutionKernel conceptsKernel = new ConvolutionKernel();
+      conceptsKernel.setNodeType( CONCEPT );
+      conceptsKernel.setDelegateKernel( conceptKernel );
+      final ConvolutionKernel semanticKernel = new ConvolutionKernel();
+      semanticKernel.setNodeType( SENTENCE );
+      semanticKernel.setDelegateKernel( conceptsKernel );
+      final SubsetTreeKernel treeKernel = new SubsetTreeKernel();
+      treeKernel.setLabelAttribute( CONCEPT );
+      final SumKernel sumKernel = new SumKernel();
+      sumKernel.setDelegateKernels( Arrays.asList( semanticKernel, treeKernel ) );
+      sumKernel.afterPropertiesSet();
+      return sumKernel;
+   }
+
+   /**
+    * @return documents of 2 to 4 sentences with 1 to 3 concepts each, concepts from a pool of 500
+    */
+   static private Map<Long, Node> createCorpus( final ConceptGraph graph, final int documentCount ) {
+      final Random random = new Random( documentCount );
+      final List<ConcRel> conceptList = graph.getConceptList();
+      final String[] concepts = new String[ 500 ];
+      for ( int i = 0; i < concepts.length; i++ ) {
+         concepts[ i ] = conceptList.get( random.nextInt( conceptList.size() ) ).getConceptID();
+      }
+      final Map<Long, Node> instances = new HashMap<>( documentCount );
+      for ( long id = 1; id <= documentCount; id++ ) {
+         final Node document = createNode( "document", null );
+         for ( int s = 2 + random.nextInt( 3 ); s > 0; s-- ) {
+            final Node sentence = createNode( SENTENCE, null );
+            for ( int c = 1 + random.nextInt( 3 ); c > 0; c-- ) {
+               sentence.getChildren().add( createNode( CONCEPT, concepts[ random.nextInt( concepts.length ) ] ) );
+            }
+            document.getChildren().add( sentence );
+         }
+         instances.put( id, document );
+      }
+      return instances;
+   }
+
+   static private Node createNode( final String type, final String concept ) {
+      final Node node = new Node();
+      node.setType( type );
+      final Map<String, Serializable> value = new HashMap<>();
+      if ( concept != null ) {
+         value.put( CONCEPT, concept );
+      }
+      node.setValue( value );
+      return node;
+   }
+
+}
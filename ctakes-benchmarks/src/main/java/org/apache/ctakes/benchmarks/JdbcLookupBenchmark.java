@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.ae.JCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.JdbcRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
+import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-note cost of a jdbc dictionary, with one query per lookup token
+ * and with batched queries prefetched for the whole note.
+ * <p>
+ * The dictionary table is in an in-memory hsqldb, so the measurement is of query count and overhead, not of network.
+ * A new dictionary is created for every invocation, so cached terms of one invocation are not used by the next.
+ * </p>
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class JdbcLookupBenchmark {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcLookupBenchmark";
+   static private final String USER = "sa";
+   static private final String PASS = "";
+   static private final String TABLE = "CUI_TERMS";
+
+   public enum QueryMode {
+      SINGLE,
+      BATCHED
+   }
+
+   static public class JdbcState extends NoteTextState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "SINGLE", "BATCHED" } )
+      public QueryMode queryMode;
+
+      final private JCasTermAnnotator _annotator = new DefaultJCasTermAnnotator();
+      private LookupWindows _lookupWindows;
+      private JdbcRareWordDictionary _dictionary;
+
+      @Override
+      protected void initializeTrial() throws IOException {
+         _lookupWindows = new LookupWindows( noteSize );
+         try {
+            createTable();
+         } catch ( SQLException sqlE ) {
+            throw new IOException( sqlE );
+         }
+      }
+
+      @Setup( Level.Invocation )
+      public void createDictionary() throws SQLException {
+         if ( queryMode == QueryMode.BATCHED ) {
+            _dictionary = new JdbcRareWordDictionary( "batched", DRIVER, URL, USER, PASS, TABLE );
+         } else {
+            _dictionary = new JdbcRareWordDictionary( "single", DRIVER, URL, USER, PASS, TABLE, 1, 0 );
+         }
+      }
+   }
+
+   @Benchmark
+   public CollectionMap<TextSpan, Long, ? extends Collection<Long>> findTerms( final JdbcState state ) {
+      final LookupWindows windows = state._lookupWindows;
+      state._dictionary.prefetchRareWordHits( windows.getLookupTexts() );
+      final CollectionMap<TextSpan, Long, ? extends Collection<Long>> terms = new HashSetMap<>();
+      for ( int i = 0; i < windows.getWindowCount(); i++ ) {
+         state._annotator.findTerms( state._dictionary, windows.getTokens( i ), windows.getLookupIndices( i ), terms );
+      }
+      return terms;
+   }
+
+   /**
+    * Fills the dictionary table with the benchmark terms, in the layout used by the cTAKES hsqldb dictionaries.
+    */
+   static private void createTable() throws SQLException {
+      final Collection<CuiTerm> cuiTerms = new ArrayList<>();
+      for ( String[] row : SyntheticNotes.getTermRows() ) {
+         cuiTerms.add( new CuiTerm( row[ 0 ], row[ 2 ] ) );
+      }
+      final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap
+            = RareWordTermMapCreator.createRareWordTermMap( cuiTerms );
+      final Connection connection = JdbcConnectionFactory.getInstance().getConnection( DRIVER, URL, USER, PASS );
+      try ( Statement statement = connection.createStatement() ) {
+         statement.execute( "DROP TABLE " + TABLE + " IF EXISTS" );
+         statement.execute( "CREATE TABLE " + TABLE + " (CUI BIGINT, RINDEX INTEGER, TCOUNT INTEGER,"
+                            + " TEXT VARCHAR(255), RWORD VARCHAR(48))" );
+         statement.execute( "CREATE INDEX IDX_" + TABLE + " ON " + TABLE + " (RWORD)" );
+      }
+      try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO " + TABLE
+                                                                    + " VALUES (?, ?, ?, ?, ?)" ) ) {
+         for ( Collection<RareWordTerm> terms : rareWordTermMap.getAllCollections() ) {
+            for ( RareWordTerm term : terms ) {
+               insert.setLong( 1, term.getCuiCode() );
+               insert.setInt( 2, term.getRareWordIndex() );
+               insert.setInt( 3, term.getTokenCount() );
+               insert.setString( 4, term.getText() );
+               insert.setString( 5, term.getRareWord() );
+               insert.executeUpdate();
+            }
+         }
+      }
+   }
+
+}
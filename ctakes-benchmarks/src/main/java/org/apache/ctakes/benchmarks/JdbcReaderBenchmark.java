@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.ctakes.core.cr.JdbcCollectionReader;
+import org.apache.ctakes.core.resource.JdbcConnectionResourceImpl;
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a table of notes with the jdbc collection reader, with one result set after a count query,
+ * with pages of rows ordered by key, and with the key range split into partitions read one after the other.
+ * <p>
+ * The table is in an in-memory hsqldb, so the measurement is of query and reader overhead, not of network.
+ * Documents per second is the note count divided by the score.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class JdbcReaderBenchmark {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcReaderBenchmark";
+   static private final String TABLE = "NOTES";
+   static private final String CONNECTION = "DbConnection";
+   static private final int PARTITION_COUNT = 4;
+
+   public enum ReadMode {
+      RESULT_SET,
+      PAGED,
+      PARTITIONED
+   }
+
+   @State( Scope.Benchmark )
+   static public class TableState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "RESULT_SET", "PAGED", "PARTITIONED" } )
+      public ReadMode readMode;
+
+      @Param( { "10000" } )
+      public int noteCount;
+
+      private final List<CollectionReaderDescription> _readerDescs = new ArrayList<>();
+      private JCas _jCas;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws UIMAException, SQLException {
+         createTable( noteCount );
+         if ( readMode == ReadMode.PARTITIONED ) {
+            for ( int i = 0; i < PARTITION_COUNT; i++ ) {
+               _readerDescs.add( createReaderDescription( JdbcCollectionReader.PARAM_KEY_COL, "ID",
+                     JdbcCollectionReader.PARAM_PARTITION_COUNT, PARTITION_COUNT,
+                     JdbcCollectionReader.PARAM_PARTITION_INDEX, i ) );
+            }
+         } else if ( readMode == ReadMode.PAGED ) {
+            _readerDescs.add( createReaderDescription( JdbcCollectionReader.PARAM_KEY_COL, "ID" ) );
+         } else {
+            _readerDescs.add( createReaderDescription( JdbcCollectionReader.PARAM_DOCID_COLS, new String[]{ "ID" } ) );
+         }
+         _jCas = JCasFactory.createJCas();
+      }
+   }
+
+   @Benchmark
+   public int readTable( final TableState state ) throws UIMAException, IOException {
+      int length = 0;
+      for ( CollectionReaderDescription readerDesc : state._readerDescs ) {
+         final CollectionReader reader = CollectionReaderFactory.createReader( readerDesc );
+         while ( reader.hasNext() ) {
+            state._jCas.reset();
+            reader.getNext( state._jCas.getCas() );
+            length += state._jCas.getDocumentText().length();
+         }
+         reader.close();
+         reader.destroy();
+      }
+      return length;
+   }
+
+   static private CollectionReaderDescription createReaderDescription( final Object... parameters )
+         throws UIMAException {
+      final List<Object> allParameters = new ArrayList<>( Arrays.asList(
+            JdbcCollectionReader.PARAM_SQL, "SELECT ID, TEXT FROM " + TABLE,
+            JdbcCollectionReader.PARAM_DOCTEXT_COL, "TEXT",
+            JdbcCollectionReader.PARAM_DB_CONN_RESRC, CONNECTION ) );
+      allParameters.addAll( Arrays.asList( parameters ) );
+      // uimafit binds external resource descriptions given as parameter values
+      allParameters.add( CONNECTION );
+      allParameters.add( ExternalResourceFactory.createExternalResourceDescription(
+            JdbcConnectionResourceImpl.class, "",
+            JdbcConnectionResourceImpl.PARAM_DRIVER_CLASS, DRIVER,
+            JdbcConnectionResourceImpl.PARAM_URL, URL,
+            JdbcConnectionResourceImpl.PARAM_USERNAME, "sa",
+            JdbcConnectionResourceImpl.PARAM_PASSWORD, "",
+            JdbcConnectionResourceImpl.PARAM_KEEP_ALIVE, "false" ) );
+      return CollectionReaderFactory.createReaderDescription( JdbcCollectionReader.class, allParameters.toArray() );
+   }
+
+   /**
+    * Fills the note table with copies of a small synthetic note, with ids that leave gaps as real tables do.
+    */
+   static private void createTable( final int noteCount ) throws SQLException {
+      final String text = SyntheticNotes.createNoteText( NoteSize.SMALL );
+      try ( Connection connection = DriverManager.getConnection( URL, "sa", "" ) ) {
+         try ( Statement statement = connection.createStatement() ) {
+            statement.execute( "DROP TABLE " + TABLE + " IF EXISTS" );
+            statement.execute( "CREATE TABLE " + TABLE + " (ID BIGINT PRIMARY KEY, TEXT VARCHAR(100000))" );
+         }
+         try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO " + TABLE + " VALUES (?, ?)" ) ) {
+            for ( int i = 0; i < noteCount; i++ ) {
+               insert.setLong( 1, 3L * i + 7 );
+               insert.setString( 2, text );
+               insert.executeUpdate();
+            }
+         }
+      }
+   }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.core.cc.AbstractJdbcWriter;
+import org.apache.ctakes.core.cc.JdbcWriterTemplate;
+import org.apache.ctakes.core.resource.JdbcConnectionResource;
+import org.apache.ctakes.core.resource.JdbcConnectionResourceImpl;
+import org.apache.ctakes.core.util.SourceMetadataUtil;
+import org.apache.ctakes.typesystem.type.refsem.UmlsConcept;
+import org.apache.ctakes.typesystem.type.structured.SourceData;
+import org.apache.ctakes.typesystem.type.textsem.EntityMention;
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.CasConsumer;
+import org.apache.uima.collection.CasConsumerDescription;
+import org.apache.uima.fit.factory.ConfigurationParameterFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.resource.ExternalResourceDependency;
+import org.apache.uima.resource.metadata.ConfigurationParameterDeclarations;
+import org.apache.uima.resource.metadata.ConfigurationParameterSettings;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.impl.ProcessTrace_impl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the i2b2 table of the jdbc writer template, with the rows of each note executed
+ * and committed when the note has been processed, and with rows collected across notes and committed
+ * in large transactions on a background thread.
+ * <p>
+ * The file database syncs its log at each commit, as a server database would,
+ * while the in-memory database shows the statement overhead alone.
+ * Rows per second is the row count (note count times mention count) divided by the score.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class JdbcWriterBenchmark {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String TABLE = "NLP_VECTORS";
+   static private final String CONNECTION = "DbConnectionWrite";
+   static private final int MENTION_COUNT = 20;
+
+   public enum WriteMode {
+      PER_DOCUMENT,
+      BATCHED
+   }
+
+   public enum Database {
+      MEMORY,
+      FILE
+   }
+
+   @State( Scope.Benchmark )
+   static public class TableState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "PER_DOCUMENT", "BATCHED" } )
+      public WriteMode writeMode;
+
+      @Param( { "MEMORY", "FILE" } )
+      public Database database;
+
+      @Param( { "1000" } )
+      public int noteCount;
+
+      private File _databaseDirectory;
+      private String _url;
+      private CasConsumerDescription _writerDesc;
+      private JCas _jCas;
+      private SourceData _sourceData;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws UIMAException, IOException, SQLException {
+         if ( database == Database.FILE ) {
+            _databaseDirectory = Files.createTempDirectory( "ctakes_jdbc_writer" ).toFile();
+            _url = "jdbc:hsqldb:file:" + new File( _databaseDirectory, "db" ).getPath();
+         } else {
+            _url = "jdbc:hsqldb:mem:JdbcWriterBenchmark";
+         }
+         try ( Connection connection = DriverManager.getConnection( _url, "sa", "" );
+               Statement statement = connection.createStatement() ) {
+            if ( database == Database.FILE ) {
+               statement.execute( "SET FILES WRITE DELAY FALSE" );
+            }
+            statement.execute( "DROP TABLE " + TABLE + " IF EXISTS" );
+            statement.execute( "CREATE TABLE " + TABLE + " (record_id INT GENERATED BY DEFAULT AS IDENTITY,"
+                               + " encounter_num INT, patient_num BIGINT, concept_cd VARCHAR(50),"
+                               + " provider_id VARCHAR(50), start_date TIMESTAMP, modifier_cd VARCHAR(50),"
+                               + " instance_num BIGINT, valtype_cd VARCHAR(50), tval_char VARCHAR(255),"
+                               + " observation_blob VARCHAR(4000), PRIMARY KEY (record_id))" );
+         }
+         _writerDesc = createWriterDescription( _url, writeMode == WriteMode.BATCHED ? 10000 : 0 );
+         _jCas = createNote();
+         _sourceData = SourceMetadataUtil.getSourceData( _jCas );
+      }
+
+      @TearDown( Level.Iteration )
+      public void tearDownIteration() throws SQLException {
+         try ( Connection connection = DriverManager.getConnection( _url, "sa", "" );
+               Statement statement = connection.createStatement() ) {
+            statement.execute( "TRUNCATE TABLE " + TABLE );
+         }
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() throws SQLException {
+         try ( Connection connection = DriverManager.getConnection( _url, "sa", "" );
+               Statement statement = connection.createStatement() ) {
+            statement.execute( "SHUTDOWN" );
+         }
+         if ( _databaseDirectory != null ) {
+            final File[] files = _databaseDirectory.listFiles();
+            if ( files != null ) {
+               for ( File file : files ) {
+                  file.delete();
+               }
+            }
+            _databaseDirectory.delete();
+         }
+      }
+   }
+
+   @Benchmark
+   public int writeTable( final TableState state ) throws UIMAException, IOException {
+      final CasConsumer writer = UIMAFramework.produceCasConsumer( state._writerDesc );
+      for ( int i = 0; i < state.noteCount; i++ ) {
+         state._sourceData.setSourceEncounterId( Integer.toString( i ) );
+         writer.processCas( state._jCas.getCas() );
+      }
+      writer.collectionProcessComplete( new ProcessTrace_impl() );
+      writer.destroy();
+      return state.noteCount;
+   }
+
+   static private CasConsumerDescription createWriterDescription( final String url, final int batchRows )
+         throws UIMAException {
+      final CasConsumerDescription desc = UIMAFramework.getResourceSpecifierFactory().createCasConsumerDescription();
+      desc.setImplementationName( JdbcWriterTemplate.class.getName() );
+      final ProcessingResourceMetaData metaData = desc.getCasConsumerMetaData();
+      metaData.setName( "JdbcWriterTemplate" );
+      final ConfigurationParameterDeclarations declarations = metaData.getConfigurationParameterDeclarations();
+      declarations.addConfigurationParameter( ConfigurationParameterFactory.createPrimitiveParameter(
+            JdbcWriterTemplate.PARAM_VECTOR_TABLE, String.class, "", true ) );
+      declarations.addConfigurationParameter( ConfigurationParameterFactory.createPrimitiveParameter(
+            AbstractJdbcWriter.PARAM_DB_CONN_RESRC, String.class, "", true ) );
+      declarations.addConfigurationParameter( ConfigurationParameterFactory.createPrimitiveParameter(
+            AbstractJdbcWriter.PARAM_BATCH_ROWS, Integer.class, "", false ) );
+      final ConfigurationParameterSettings settings = metaData.getConfigurationParameterSettings();
+      settings.setParameterValue( JdbcWriterTemplate.PARAM_VECTOR_TABLE, TABLE );
+      settings.setParameterValue( AbstractJdbcWriter.PARAM_DB_CONN_RESRC, CONNECTION );
+      settings.setParameterValue( AbstractJdbcWriter.PARAM_BATCH_ROWS, batchRows );
+      desc.setExternalResourceDependencies( new ExternalResourceDependency[]{
+            ExternalResourceFactory.createExternalResourceDependency( CONNECTION, JdbcConnectionResource.class,
+                  false, "" ) } );
+      ExternalResourceFactory.bindExternalResource( desc, CONNECTION,
+            ExternalResourceFactory.createExternalResourceDescription( JdbcConnectionResourceImpl.class, "",
+                  JdbcConnectionResourceImpl.PARAM_DRIVER_CLASS, DRIVER,
+                  JdbcConnectionResourceImpl.PARAM_URL, url,
+                  JdbcConnectionResourceImpl.PARAM_USERNAME, "sa",
+                  JdbcConnectionResourceImpl.PARAM_PASSWORD, "",
+                  JdbcConnectionResourceImpl.PARAM_KEEP_ALIVE, "false" ) );
+      return desc;
+   }
+
+   /**
+    * @return a note with source metadata and mentions of different concepts, each written as one row
+    */
+   static private JCas createNote() throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      final StringBuilder text = new StringBuilder();
+      for ( int i = 0; i < MENTION_COUNT; i++ ) {
+         text.append( "finding" ).append( i ).append( ' ' );
+      }
+      jCas.setDocumentText( text.toString() );
+      SourceMetadataUtil.getOrCreateMetadata( jCas ).setPatientID( 42 );
+      final SourceData sourceData = SourceMetadataUtil.getOrCreateSourceData( jCas );
+      sourceData.setSourceEncounterId( "0" );
+      sourceData.setAuthorSpecialty( "provider" );
+      sourceData.setSourceOriginalDate( "2015-01-08 00:00:00" );
+      int begin = 0;
+      for ( int i = 0; i < MENTION_COUNT; i++ ) {
+         final int end = begin + ("finding" + i).length();
+         final EntityMention mention = new EntityMention( jCas, begin, end );
+         final UmlsConcept concept = new UmlsConcept( jCas );
+         concept.setCui( String.format( "C%07d", i ) );
+         concept.setPreferredText( "Finding " + i );
+         final FSArray concepts = new FSArray( jCas, 1 );
+         concepts.set( 0, concept );
+         mention.setOntologyConceptArr( concepts );
+         mention.setPolarity( i % 4 == 0 ? -1 : 1 );
+         mention.addToIndexes();
+         begin = end + 1;
+      }
+      return jCas;
+   }
+
+}
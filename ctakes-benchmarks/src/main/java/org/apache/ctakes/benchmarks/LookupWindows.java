@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.ctakes.core.fsm.token.NumberToken;
+import org.apache.ctakes.dictionary.lookup2.ae.JCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.util.FastLookupToken;
+import org.apache.ctakes.typesystem.type.syntax.*;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Lookup windows of a synthetic note, built the same way as by the fast dictionary lookup annotators,
+ * so that term finding can be measured without a pipeline.
+ */
+final public class LookupWindows {
+
+   final private List<List<FastLookupToken>> _windowTokens = new ArrayList<>();
+   final private List<List<Integer>> _windowLookupIndices = new ArrayList<>();
+   final private Collection<String> _lookupTexts = new HashSet<>();
+
+   /**
+    * Runs a note through the pipeline up to part of speech tagging and creates a window for each sentence.
+    *
+    * @param noteSize size of note
+    * @throws IOException if the pipeline cannot be run
+    */
+   public LookupWindows( final NoteSize noteSize ) throws IOException {
+      final JCas jCas;
+      try {
+         jCas = SyntheticNotes.createJCas( noteSize );
+         SimplePipeline.runPipeline( jCas, BenchmarkPipelines.createPipeline( Stage.POS ) );
+      } catch ( UIMAException uE ) {
+         throw new IOException( uE );
+      }
+      final Collection<String> exclusionTags
+            = new HashSet<>( Arrays.asList( JCasTermAnnotator.DEFAULT_EXCLUSION_TAGS.split( "," ) ) );
+      for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+         final List<FastLookupToken> tokens = new ArrayList<>();
+         final List<Integer> lookupIndices = new ArrayList<>();
+         for ( BaseToken baseToken : JCasUtil.selectCovered( jCas, BaseToken.class, sentence ) ) {
+            if ( baseToken instanceof NewlineToken ) {
+               continue;
+            }
+            final boolean isNonLookup = baseToken instanceof PunctuationToken
+                                        || baseToken instanceof NumberToken
+                                        || baseToken instanceof ContractionToken
+                                        || baseToken instanceof SymbolToken;
+            final FastLookupToken lookupToken = new FastLookupToken( baseToken );
+            if ( !isNonLookup && !exclusionTags.contains( baseToken.getPartOfSpeech() ) ) {
+               lookupIndices.add( tokens.size() );
+               _lookupTexts.add( lookupToken.getText() );
+               if ( lookupToken.getVariant() != null ) {
+                  _lookupTexts.add( lookupToken.getVariant() );
+               }
+            }
+            tokens.add( lookupToken );
+         }
+         _windowTokens.add( tokens );
+         _windowLookupIndices.add( lookupIndices );
+      }
+   }
+
+   public int getWindowCount() {
+      return _windowTokens.size();
+   }
+
+   /**
+    * @param window index of window
+    * @return all tokens in the window
+    */
+   public List<FastLookupToken> getTokens( final int window ) {
+      return _windowTokens.get( window );
+   }
+
+   /**
+    * @param window index of window
+    * @return indices of tokens in the window that are used for rare word lookup
+    */
+   public List<Integer> getLookupIndices( final int window ) {
+      return _windowLookupIndices.get( window );
+   }
+
+   /**
+    * @return texts and variants of all lookup tokens in the note
+    */
+   public Collection<String> getLookupTexts() {
+      return Collections.unmodifiableCollection( _lookupTexts );
+   }
+
+}
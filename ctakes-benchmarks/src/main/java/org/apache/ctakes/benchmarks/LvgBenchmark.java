@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.lvg.ae.LvgAnnotator;
+import org.apache.ctakes.lvg.ae.ThreadSafeLvg;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.ResourceCreationSpecifierFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lvg annotator on tokenized notes, with and without its cache of lvg results.
+ * Every invocation processes the same note, so after warmup the cache is measured on a corpus of repeated vocabulary.
+ * The thread safe annotator shares one cache and a pool of lvg instances between threads.
+ * The cache hit rate is logged when each trial ends.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class LvgBenchmark {
+
+   public enum Lvg {
+      DEFAULT,
+      THREAD_SAFE
+   }
+
+   public enum Cache {
+      OFF,
+      ON
+   }
+
+   static public class LvgState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "DEFAULT", "THREAD_SAFE" } )
+      public Lvg lvg;
+
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "OFF", "ON" } )
+      public Cache cache;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.TOKENS );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException, IOException {
+         final AnalysisEngineDescription description = lvg == Lvg.THREAD_SAFE
+                                                       ? ThreadSafeLvg.createAnnotatorDescription()
+                                                       : LvgAnnotator.createAnnotatorDescription();
+         if ( cache == Cache.OFF ) {
+            ResourceCreationSpecifierFactory.setConfigurationParameters( description,
+                  LvgAnnotator.PARAM_CACHE_SIZE, 0 );
+         }
+         return description;
+      }
+   }
+
+   @Benchmark
+   @Threads( 1 )
+   public JCas lvgAnnotator( final LvgState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+   @Benchmark
+   @Threads( 4 )
+   public JCas lvgAnnotatorFourThreads( final LvgState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * Benchmark state holding the plain text of a synthetic note, for code that does not need a jcas.
+ * Unlike {@link AbstractNoteState} nothing is done between invocations, so short calls are measured accurately.
+ */
+@State( Scope.Thread )
+public class NoteTextState {
+
+   /**
+    * JMH sets parameters by field name, so this field does not follow the usual naming.
+    */
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private String _noteText;
+
+   @Setup( Level.Trial )
+   public void setupTrial() throws IOException {
+      _noteText = SyntheticNotes.createNoteText( noteSize );
+      initializeTrial();
+   }
+
+   /**
+    * Called at the end of trial setup, after the note has been created.
+    *
+    * @throws IOException -
+    */
+   protected void initializeTrial() throws IOException {
+   }
+
+   public String getNoteText() {
+      return _noteText;
+   }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.pagerank.PageRankServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures personalized pagerank similarity of all pairs of concepts, over a synthetic concept graph the size
+ * of snomed, with the settings of the pagerank similarity metric.
+ * The vector cache is disabled, so every matrix computes every vector.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 5 )
+@Measurement( iterations = 3, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx4g" } )
+public class PageRankBenchmark {
+
+   static private final int ITERATIONS = 30;
+   static private final double THRESHOLD = 1e-3;
+   static private final double DAMPING_FACTOR = 0.85;
+
+   @State( Scope.Benchmark )
+   static public class GraphState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "300000" } )
+      public int conceptCount;
+
+      @Param( { "1000" } )
+      public int matrixConcepts;
+
+      @Param( { "1", "4" } )
+      public int threads;
+
+      private ConceptGraph _graph;
+      private PageRankServiceImpl _service;
+      private List<String> _concepts;
+      private String _rootChild;
+
+      @Setup( Level.Trial )
+      public void setupTrial() {
+         _graph = SyntheticConceptGraph.createGraph( conceptCount );
+         _service = new PageRankServiceImpl();
+         _service.setThreads( threads );
+         _service.setCacheSize( 0 );
+         final Random random = new Random( conceptCount );
+         final List<ConcRel> conceptList = _graph.getConceptList();
+         _concepts = new ArrayList<>( matrixConcepts );
+         for ( int i = 0; i < matrixConcepts; i++ ) {
+            _concepts.add( conceptList.get( random.nextInt( conceptList.size() ) ).getConceptID() );
+         }
+         _rootChild = conceptList.get( 1 ).getConceptID();
+      }
+   }
+
+   @Benchmark
+   public double[][] similarityMatrix( final GraphState state ) {
+      return state._service.simMatrix( state._concepts, state._graph, ITERATIONS, THRESHOLD, DAMPING_FACTOR );
+   }
+
+   /**
+    * A concept just below the root reaches about a third of the graph, so this measures the dense iterations.
+    */
+   @Benchmark
+   public double[] denseVector( final GraphState state ) {
+      return state._service.personalizedRank( state._rootChild, state._graph, ITERATIONS, THRESHOLD,
+            DAMPING_FACTOR ).toArray( state._graph.getConceptList().size() );
+   }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.ctakes.core.cc.FileTreeXmiWriter;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.cr.FileTreeReader;
+import org.apache.ctakes.core.pipeline.ParallelPipelineRunner;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.EntityProcessStatus;
+import org.apache.uima.collection.StatusCallbackListener;
+import org.apache.uima.fit.cpe.CpeBuilder;
+import org.apache.uima.fit.factory.AggregateBuilder;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures a full run of the clinical pipeline over a directory of notes, writing xmi files,
+ * with the parallel pipeline runner and with the collection processing engine that it replaces.
+ * The pipeline runs up to dictionary lookup, as later stages need the dependency parser model.
+ * Each run includes creation of the engines, as a piper run does.
+ * Documents per second is the note count divided by the score.
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 1 )
+@Measurement( iterations = 3 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx6g" } )
+public class ParallelPipelineBenchmark {
+
+   public enum Runner {
+      PARALLEL,
+      CPE
+   }
+
+   @State( Scope.Benchmark )
+   static public class CorpusState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "PARALLEL", "CPE" } )
+      public Runner runner;
+
+      // More thread counts can be measured with e.g. "-p threads=1,2,4,8"
+      @Param( { "2" } )
+      public int threads;
+
+      @Param( { "100" } )
+      public int noteCount;
+
+      private File _inputDirectory;
+      private File _outputDirectory;
+      private CollectionReaderDescription _readerDesc;
+      private AnalysisEngineDescription _processDesc;
+      private AnalysisEngineDescription _writerDesc;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws UIMAException, IOException {
+         _inputDirectory = Files.createTempDirectory( "ctakes_parallel_input" ).toFile();
+         _outputDirectory = Files.createTempDirectory( "ctakes_parallel_output" ).toFile();
+         final String text = SyntheticNotes.createNoteText( NoteSize.MEDIUM );
+         for ( int i = 0; i < noteCount; i++ ) {
+            Files.write( new File( _inputDirectory, "note_" + i + ".txt" ).toPath(),
+                  text.getBytes( StandardCharsets.UTF_8 ) );
+         }
+         _readerDesc = CollectionReaderFactory.createReaderDescription( FileTreeReader.class,
+               ConfigParameterConstants.PARAM_INPUTDIR, _inputDirectory.getPath() );
+         _processDesc = BenchmarkPipelines.createPipeline( Stage.LOOKUP );
+         _writerDesc = AnalysisEngineFactory.createEngineDescription( FileTreeXmiWriter.class,
+               ConfigParameterConstants.PARAM_OUTPUTDIR, _outputDirectory.getPath() );
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() {
+         deleteTree( _inputDirectory );
+         deleteTree( _outputDirectory );
+      }
+   }
+
+   @Benchmark
+   public void runPipeline( final CorpusState state ) throws Exception {
+      if ( state.runner == Runner.PARALLEL ) {
+         new ParallelPipelineRunner( state._readerDesc, state._processDesc, state._writerDesc,
+               state.threads, false ).run();
+         return;
+      }
+      final AggregateBuilder aggregate = new AggregateBuilder();
+      aggregate.add( state._processDesc );
+      aggregate.add( state._writerDesc );
+      final CpeBuilder cpeBuilder = new CpeBuilder();
+      cpeBuilder.setReader( state._readerDesc );
+      cpeBuilder.setAnalysisEngine( aggregate.createAggregateDescription() );
+      cpeBuilder.setMaxProcessingUnitThreadCount( state.threads );
+      final CompletionListener listener = new CompletionListener();
+      final CollectionProcessingEngine cpe = cpeBuilder.createCpe( listener );
+      cpe.process();
+      // The collection processing engine runs on its own threads
+      listener.__done.await();
+      final Exception error = listener.__error.get();
+      if ( error != null ) {
+         throw error;
+      }
+   }
+
+   static private final class CompletionListener implements StatusCallbackListener {
+      private final CountDownLatch __done = new CountDownLatch( 1 );
+      // first failure, rethrown by the benchmark so that a broken run is not timed
+      private final AtomicReference<Exception> __error = new AtomicReference<>();
+
+      @Override
+      public void entityProcessComplete( final CAS cas, final EntityProcessStatus status ) {
+         if ( status.isException() && !status.getExceptions().isEmpty() ) {
+            __error.compareAndSet( null, status.getExceptions().get( 0 ) );
+         }
+      }
+
+      @Override
+      public void collectionProcessComplete() {
+         __done.countDown();
+      }
+
+      @Override
+      public void aborted() {
+         __error.compareAndSet( null, new IllegalStateException( "Collection processing was aborted" ) );
+         __done.countDown();
+      }
+
+      @Override
+      public void initializationComplete() {
+      }
+
+      @Override
+      public void batchProcessComplete() {
+      }
+
+      @Override
+      public void paused() {
+      }
+
+      @Override
+      public void resumed() {
+      }
+   }
+
+   static private void deleteTree( final File file ) {
+      final File[] children = file.listFiles();
+      if ( children != null ) {
+         for ( File child : children ) {
+            deleteTree( child );
+         }
+      }
+      file.delete();
+   }
+
+}
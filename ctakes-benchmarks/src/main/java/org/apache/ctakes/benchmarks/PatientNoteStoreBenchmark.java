@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.benchmarks.SyntheticNotes.NoteSize;
+import org.apache.ctakes.core.patient.PatientNoteStore;
+import org.apache.ctakes.core.patient.PatientViewUtil;
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting a patient with many tokenized notes in the {@link PatientNoteStore} and popping the
+ * patient cas, as a patient consumer such as the patient coreferencer does.
+ * Views are either copied into the patient cas as they are stored, or spilled to disk under a memory budget.
+ * The peak heap of each run is logged at the end of the trial.
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 0 )
+@Measurement( iterations = 1 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx6g" } )
+public class PatientNoteStoreBenchmark {
+
+   static private final Logger LOGGER = Logger.getLogger( "PatientNoteStoreBenchmark" );
+
+   static private final String ENGINE_NAME = "PatientNoteStoreBenchmark";
+
+   public enum StoreMode {
+      MEMORY,
+      SPILL
+   }
+
+   @State( Scope.Benchmark )
+   static public class StoreState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "MEMORY", "SPILL" } )
+      public StoreMode storeMode;
+
+      @Param( { "1000", "10000" } )
+      public int noteCount;
+
+      private JCas _noteJCas;
+      private File _spillDirectory;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws UIMAException, IOException {
+         _noteJCas = SyntheticNotes.createJCas( NoteSize.SMALL );
+         SimplePipeline.runPipeline( _noteJCas, BenchmarkPipelines.createPipeline( Stage.TOKENS ) );
+         PatientNoteStore.getInstance().registerEngine( ENGINE_NAME );
+         if ( storeMode == StoreMode.SPILL ) {
+            _spillDirectory = Files.createTempDirectory( "patient_spill" ).toFile();
+            PatientNoteStore.getInstance().setSpilling( 64L * 1024 * 1024, _spillDirectory );
+         }
+         ManagementFactory.getMemoryPoolMXBeans().forEach( MemoryPoolMXBean::resetPeakUsage );
+      }
+
+      @TearDown( Level.Trial )
+      public void tearDownTrial() {
+         long peakBytes = 0;
+         for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if ( pool.getType() == MemoryType.HEAP ) {
+               peakBytes += pool.getPeakUsage().getUsed();
+            }
+         }
+         LOGGER.info( "Peak heap for " + storeMode + " with " + noteCount + " notes: "
+                      + (peakBytes / 1024 / 1024) + " MB" );
+         PatientNoteStore.getInstance().stopSpilling();
+         if ( _spillDirectory != null ) {
+            final File[] files = _spillDirectory.listFiles();
+            if ( files != null ) {
+               for ( File file : files ) {
+                  file.delete();
+               }
+            }
+            _spillDirectory.delete();
+         }
+      }
+   }
+
+   @Benchmark
+   public int storeAndPopPatient( final StoreState state ) {
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      final String patientId = "patient_" + state.storeMode;
+      store.setWantedDocCount( patientId, state.noteCount );
+      for ( int i = 0; i < state.noteCount; i++ ) {
+         store.storeAllViews( patientId, "note_" + i, state._noteJCas );
+      }
+      final JCas patientCas = store.popPatientCas( patientId, ENGINE_NAME );
+      return PatientViewUtil.getAllViews( patientCas ).size();
+   }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.postagger.POSTagger;
+import org.apache.ctakes.postagger.concurrent.ThreadSafePosTagger;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the part of speech tagger on tokenized notes, with one thread and with threads that share one model.
+ * Each thread has its own engine and note, as in a multi-threaded pipeline.
+ * More thread counts can be measured with the JMH "-t" option.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class PosTaggerBenchmark {
+
+   public enum Tagger {
+      DEFAULT,
+      THREAD_SAFE
+   }
+
+   static public class PosState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "DEFAULT", "THREAD_SAFE" } )
+      public Tagger tagger;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.CONTEXT_TOKENS );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         if ( tagger == Tagger.THREAD_SAFE ) {
+            return ThreadSafePosTagger.createAnnotatorDescription();
+         }
+         return POSTagger.createAnnotatorDescription();
+      }
+   }
+
+   @Benchmark
+   @Threads( 1 )
+   public JCas posTagger( final PosState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+   @Benchmark
+   @Threads( 4 )
+   public JCas posTaggerFourThreads( final PosState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
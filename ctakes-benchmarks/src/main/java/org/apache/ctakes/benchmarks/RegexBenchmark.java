@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.core.util.regex.RegexSpanFinder;
+import org.apache.ctakes.core.util.regex.TimeoutMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures regular expressions run with a timeout, the way sectionizers and the list and paragraph annotators
+ * run them: a new finder for each pattern in each document.
+ * One operation runs all {@link #PATTERNS} on a note, so patterns per second is the score times the pattern count.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class RegexBenchmark {
+
+   static private final Pattern[] PATTERNS = {
+         Pattern.compile( "^[A-Z][A-Z ]+:", Pattern.MULTILINE ),
+         Pattern.compile( "\\b\\d+ mg\\b" ),
+         Pattern.compile( "history of", Pattern.CASE_INSENSITIVE ),
+         Pattern.compile( "\\n\\s*\\n" ),
+         Pattern.compile( "(?:denies|negative for|no sign of) [a-z ]+", Pattern.CASE_INSENSITIVE ),
+         Pattern.compile( "\\d+/\\d+(?:/\\d{4})?" ),
+         Pattern.compile( "^.+\\.$", Pattern.MULTILINE ),
+         Pattern.compile( "(?:,\\s*(?:and|or)?\\s*[a-z]+)+" ) };
+
+   @Benchmark
+   public int regexSpanFinder( final NoteTextState state ) {
+      int count = 0;
+      for ( Pattern pattern : PATTERNS ) {
+         try ( RegexSpanFinder finder = new RegexSpanFinder( pattern ) ) {
+            count += finder.findSpans( state.getNoteText() ).size();
+         }
+      }
+      return count;
+   }
+
+   @Benchmark
+   public int timeoutMatcher( final NoteTextState state ) {
+      int count = 0;
+      for ( Pattern pattern : PATTERNS ) {
+         try ( TimeoutMatcher finder = new TimeoutMatcher( pattern, state.getNoteText() ) ) {
+            Matcher matcher = finder.nextMatch();
+            while ( matcher != null ) {
+               count++;
+               matcher = finder.nextMatch();
+            }
+         }
+      }
+      return count;
+   }
+
+   @Benchmark
+   public int plainMatcher( final NoteTextState state ) {
+      int count = 0;
+      for ( Pattern pattern : PATTERNS ) {
+         final Matcher matcher = pattern.matcher( state.getNoteText() );
+         while ( matcher.find() ) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+}
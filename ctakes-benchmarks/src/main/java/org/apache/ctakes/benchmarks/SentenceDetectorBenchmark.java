@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import opennlp.tools.sentdetect.DefaultSDContextGenerator;
+import opennlp.tools.sentdetect.SentenceModel;
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.core.ae.SentenceDetector;
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.sentence.EndOfSentenceScannerImpl;
+import org.apache.ctakes.core.sentence.SentenceDetectorCtakes;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sentence detector on plain note text and as a pipeline annotator.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class SentenceDetectorBenchmark {
+
+   static private final String MODEL_PATH = "org/apache/ctakes/core/sentdetect/sd-med-model.zip";
+
+   static public class TextState extends NoteTextState {
+      private SentenceDetectorCtakes _sentenceDetector;
+
+      @Override
+      protected void initializeTrial() throws IOException {
+         try ( InputStream stream = FileLocator.getAsStream( MODEL_PATH ) ) {
+            final SentenceModel model = new SentenceModel( stream );
+            final EndOfSentenceScannerImpl scanner = new EndOfSentenceScannerImpl();
+            _sentenceDetector = new SentenceDetectorCtakes( model.getMaxentModel(),
+                  new DefaultSDContextGenerator( scanner.getEndOfSentenceCharacters() ), scanner );
+         }
+      }
+   }
+
+   static public class SentenceState extends AbstractNoteState {
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.SEGMENTS );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         return SentenceDetector.createAnnotatorDescription();
+      }
+   }
+
+   @Benchmark
+   public int[] sentenceDetectorCtakes( final TextState state ) {
+      return state._sentenceDetector.sentPosDetect( state.getNoteText() );
+   }
+
+   @Benchmark
+   public JCas sentenceDetectorAnnotator( final SentenceState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.ytex.kernel.dao.ConceptDao;
+import org.apache.ctakes.ytex.kernel.metric.ConceptSimilarityServiceImpl;
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds concept graphs shaped like the snomed is-a hierarchy for benchmarks.
+ * <p>
+ * Concepts are laid out in levels below a single root, each level three times the size of the one above.
+ * Every concept has a parent in the level above, and about a third have one or two more parents
+ * near it in the levels above, so that ancestor sets overlap as they do in snomed.
+ * A fixed random seed is used, so a graph of some size is the same in every run and every commit.
+ * </p>
+ */
+final public class SyntheticConceptGraph {
+
+   static private final long SEED = 20181017L;
+
+   static public final String GRAPH_NAME = "synthetic";
+
+   private SyntheticConceptGraph() {
+   }
+
+   /**
+    * @param conceptCount number of concepts in the graph, snomed has about 300,000
+    * @return graph with depth and intrinsic information content set on every concept
+    */
+   static public ConceptGraph createGraph( final int conceptCount ) {
+      final Random random = new Random( SEED );
+      final ConceptGraph graph = new ConceptGraph();
+      final List<int[]> levels = new ArrayList<>();
+      final ConcRel root = graph.addConcept( "C0000000" );
+      levels.add( new int[]{ root.getNodeIndex() } );
+      int count = 1;
+      while ( count < conceptCount ) {
+         final int[] above = levels.get( levels.size() - 1 );
+         final int[] level = new int[ Math.min( above.length * 3, conceptCount - count ) ];
+         for ( int i = 0; i < level.length; i++ ) {
+            final ConcRel concept = graph.addConcept( String.format( "C%07d", count ) );
+            count++;
+            level[ i ] = concept.getNodeIndex();
+            // primary parent spread evenly over the level above
+            final int position = (int)((long)i * above.length / level.length);
+            addParent( graph, concept, above[ position ] );
+            final double extra = random.nextDouble();
+            final int extraParents = extra < 0.08 ? 2 : extra < 0.35 ? 1 : 0;
+            for ( int p = 0; p < extraParents; p++ ) {
+               // nearby concept one or two levels up
+               final int up = levels.size() > 1 && random.nextBoolean() ? 2 : 1;
+               final int[] parentLevel = levels.get( levels.size() - up );
+               final int center = (int)((long)i * parentLevel.length / level.length);
+               final int offset = random.nextInt( 41 ) - 20;
+               final int parent = Math.max( 0, Math.min( parentLevel.length - 1, center + offset ) );
+               addParent( graph, concept, parentLevel[ parent ] );
+            }
+         }
+         levels.add( level );
+      }
+      final List<ConcRel> concepts = graph.getConceptList();
+      for ( int depth = 0; depth < levels.size(); depth++ ) {
+         // intrinsic ic grows with depth, as leaves have few descendants
+         final double ic = Math.log( conceptCount ) * depth / (levels.size() - 1);
+         for ( int node : levels.get( depth ) ) {
+            concepts.get( node ).setDepth( (short)(depth + 1) );
+            concepts.get( node ).setIntrinsicInfoContent( ic + random.nextDouble() * 0.1 );
+         }
+      }
+      graph.setRoot( root.getConceptID() );
+      graph.setDepthMax( (short)levels.size() );
+      graph.setIntrinsicICMax( Math.log( conceptCount ) + 0.1 );
+      return graph;
+   }
+
+   static private void addParent( final ConceptGraph graph, final ConcRel child, final int parentIndex ) {
+      final ConcRel parent = graph.getConceptList().get( parentIndex );
+      child.getParents().add( parent );
+      parent.getChildren().add( child );
+   }
+
+   /**
+    * @param graph -
+    * @return similarity service initialized with the graph, without a database
+    */
+   static public ConceptSimilarityServiceImpl createSimilarityService( final ConceptGraph graph ) {
+      final ConceptDao conceptDao = (ConceptDao)Proxy.newProxyInstance( ConceptDao.class.getClassLoader(),
+            new Class<?>[]{ ConceptDao.class }, ( proxy, method, args ) -> {
+               if ( method.getName().equals( "getConceptGraph" ) ) {
+                  return graph;
+               }
+               throw new UnsupportedOperationException( method.getName() );
+            } );
+      final ConceptSimilarityServiceImpl service = new ConceptSimilarityServiceImpl();
+      service.setConceptDao( conceptDao );
+      service.setConceptGraphName( GRAPH_NAME );
+      service.setPreload( false );
+      service.init();
+      return service;
+   }
+
+}
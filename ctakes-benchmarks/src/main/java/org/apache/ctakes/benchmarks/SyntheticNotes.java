@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.util.StringUtil;
+import org.apache.ctakes.typesystem.type.structured.DocumentID;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes clinical notes for benchmarks.
+ * <p>
+ * Notes are built from sections of templated sentences filled with terms of the benchmark dictionary.
+ * A fixed random seed is used, so a note of some size is the same in every run and every commit.
+ * </p>
+ */
+final public class SyntheticNotes {
+
+   /**
+    * Path to the dictionary lookup specification for the benchmark terms
+    */
+   static public final String LOOKUP_XML = "org/apache/ctakes/benchmarks/BenchmarkBsv.xml";
+
+   /**
+    * Path to the bsv file of benchmark terms, with cui, tui and text columns
+    */
+   static public final String TERMS_BSV = "org/apache/ctakes/benchmarks/benchmark_terms.bsv";
+
+   static private final long SEED = 20180315L;
+
+   /**
+    * Sizes of notes, by number of sections.  Each section has 4 to 11 sentences.
+    */
+   public enum NoteSize {
+      SMALL( 2 ),
+      MEDIUM( 12 ),
+      LARGE( 60 );
+      final private int _sectionCount;
+
+      NoteSize( final int sectionCount ) {
+         _sectionCount = sectionCount;
+      }
+
+      public int getSectionCount() {
+         return _sectionCount;
+      }
+   }
+
+   static private final String[] SECTIONS = {
+         "CHIEF COMPLAINT:", "HISTORY OF PRESENT ILLNESS:", "PAST MEDICAL HISTORY:", "FAMILY HISTORY:",
+         "SOCIAL HISTORY:", "MEDICATIONS:", "REVIEW OF SYSTEMS:", "ASSESSMENT AND PLAN:" };
+
+   // {P} is a problem, {D} a drug, {R} a procedure and {N} a number
+   static private final String[] SENTENCES = {
+         "The patient is a {N} year old man with a history of {P} and {P}.",
+         "She presents with {P} for the past {N} days.",
+         "Patient denies {P} and {P}.",
+         "There is no sign of {P}.",
+         "Mother had {P}.",
+         "Father died of {P} at age {N}.",
+         "Sister with {P}.",
+         "Possible {P}, cannot exclude {P}.",
+         "Mass is suspicious for {P}.",
+         "Continue {D} {N} mg daily for {P}.",
+         "Started {D} {N} mg twice a day.",
+         "Recommend continuing use of {D}, {D}, and {D}.",
+         "Discontinue {D} due to {P}.",
+         "{R} on {N}/{N}/2017 showed {P}.",
+         "Discussed {R} and {R}.",
+         "Will return if {P} continues.",
+         "If {P} worsens, the patient should call the clinic.",
+         "He has not had {P} since {R} {N} years ago.",
+         "Blood pressure {N}/{N}, heart rate {N}, temperature {N}.{N}.",
+         "Negative for {P}, {P} or {P}.",
+         "Patient reports improvement of {P} on {D}.",
+         "Follow up in {N} weeks." };
+
+   static private final List<String[]> TERM_ROWS = new ArrayList<>();
+   static private final List<String> PROBLEMS = new ArrayList<>();
+   static private final List<String> DRUGS = new ArrayList<>();
+   static private final List<String> PROCEDURES = new ArrayList<>();
+
+   static {
+      try ( BufferedReader reader
+                  = new BufferedReader( new InputStreamReader( FileLocator.getAsStream( TERMS_BSV ) ) ) ) {
+         String line = reader.readLine();
+         while ( line != null ) {
+            if ( !line.isEmpty() && !line.startsWith( "//" ) ) {
+               final String[] columns = StringUtil.fastSplit( line, '|' );
+               TERM_ROWS.add( columns );
+               if ( columns[ 1 ].equals( "T121" ) ) {
+                  DRUGS.add( columns[ 2 ] );
+               } else if ( columns[ 1 ].equals( "T060" ) || columns[ 1 ].equals( "T061" ) ) {
+                  PROCEDURES.add( columns[ 2 ] );
+               } else {
+                  PROBLEMS.add( columns[ 2 ] );
+               }
+            }
+            line = reader.readLine();
+         }
+      } catch ( IOException ioE ) {
+         throw new UncheckedIOException( ioE );
+      }
+   }
+
+   private SyntheticNotes() {
+   }
+
+   /**
+    * @param noteSize size of note
+    * @return text of a note, the same for every call with the size
+    */
+   static public String createNoteText( final NoteSize noteSize ) {
+      final Random random = new Random( SEED );
+      final StringBuilder sb = new StringBuilder();
+      for ( int i = 0; i < noteSize.getSectionCount(); i++ ) {
+         sb.append( SECTIONS[ i % SECTIONS.length ] ).append( '\n' );
+         final int sentenceCount = 4 + random.nextInt( 8 );
+         for ( int j = 0; j < sentenceCount; j++ ) {
+            appendSentence( sb, SENTENCES[ random.nextInt( SENTENCES.length ) ], random );
+            // Some sections are lists with a sentence on each line
+            sb.append( i % 3 == 2 ? '\n' : ' ' );
+         }
+         sb.append( "\n\n" );
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @param noteSize size of note
+    * @return new jcas with the text of a note and a document id
+    * @throws UIMAException if the jcas cannot be created
+    */
+   static public JCas createJCas( final NoteSize noteSize ) throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( createNoteText( noteSize ) );
+      final DocumentID documentId = new DocumentID( jCas );
+      documentId.setDocumentID( "synthetic_" + noteSize.name().toLowerCase() );
+      documentId.addToIndexes();
+      return jCas;
+   }
+
+   /**
+    * @return cui, tui and text columns of all rows in the benchmark dictionary
+    */
+   static public List<String[]> getTermRows() {
+      return Collections.unmodifiableList( TERM_ROWS );
+   }
+
+   static private void appendSentence( final StringBuilder sb, final String template, final Random random ) {
+      int previous = 0;
+      int index = template.indexOf( '{' );
+      while ( index >= 0 ) {
+         sb.append( template, previous, index );
+         final char slot = template.charAt( index + 1 );
+         switch ( slot ) {
+            case 'P':
+               sb.append( PROBLEMS.get( random.nextInt( PROBLEMS.size() ) ) );
+               break;
+            case 'D':
+               sb.append( DRUGS.get( random.nextInt( DRUGS.size() ) ) );
+               break;
+            case 'R':
+               sb.append( PROCEDURES.get( random.nextInt( PROCEDURES.size() ) ) );
+               break;
+            default:
+               sb.append( 1 + random.nextInt( 99 ) );
+         }
+         previous = index + 3;
+         index = template.indexOf( '{', previous );
+      }
+      sb.append( template, previous, template.length() );
+   }
+
+}
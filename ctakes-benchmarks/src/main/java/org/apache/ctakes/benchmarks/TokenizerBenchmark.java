@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.core.ae.TokenizerAnnotatorPTB;
+import org.apache.ctakes.core.nlp.tokenizer.FastTokenizerPTB;
+import org.apache.ctakes.core.nlp.tokenizer.TokenizerPTB;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Penn Treebank tokenizer on plain note text and as a pipeline annotator,
+ * with the original tokenizer and with the fast tokenizer.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class TokenizerBenchmark {
+
+   public enum Tokenizer {
+      ORIGINAL,
+      FAST
+   }
+
+   static public class TextState extends NoteTextState {
+      final private TokenizerPTB _tokenizer = new TokenizerPTB();
+      final private FastTokenizerPTB _fastTokenizer = new FastTokenizerPTB();
+      private char[] _noteChars;
+
+      @Override
+      protected void initializeTrial() {
+         _noteChars = getNoteText().toCharArray();
+      }
+   }
+
+   static public class TokenizerState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "ORIGINAL", "FAST" } )
+      public Tokenizer tokenizer;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.SENTENCES );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription() throws ResourceInitializationException {
+         return AnalysisEngineFactory.createEngineDescription( TokenizerAnnotatorPTB.class,
+               TokenizerAnnotatorPTB.PARAM_FAST_TOKENIZER, tokenizer == Tokenizer.FAST );
+      }
+   }
+
+   @Benchmark
+   public List<?> tokenizeText( final TextState state ) {
+      return state._tokenizer.tokenize( state.getNoteText() );
+   }
+
+   @Benchmark
+   public int fastTokenizeText( final TextState state ) {
+      return state._fastTokenizer.tokenize( state._noteChars, 0, state._noteChars.length );
+   }
+
+   @Benchmark
+   public JCas tokenizerAnnotator( final TokenizerState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import opennlp.tools.parser.Parse;
+import org.apache.ctakes.constituency.parser.treekernel.TreeKernel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the normalized tree kernel matrix of a set of parses, as computed by the coreference tree kernel
+ * trainer.  Parses are read with {@link Parse#parseParse(String)} from a file with one bracketed parse per line
+ * or, without a file, generated from a small random grammar with about 15 words per sentence.
+ * Parses are compiled during the first warmup iteration and reused after that, as they are in training.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 5 )
+@Measurement( iterations = 3, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx2g" } )
+public class TreeKernelBenchmark {
+
+   static private final String[] DETERMINERS = { "the", "a", "this", "no" };
+   static private final String[] NOUNS = { "patient", "pain", "history", "fever", "chest", "mass", "lesion",
+                                           "cough", "abdomen", "dose" };
+   static private final String[] ADJECTIVES = { "acute", "mild", "left", "severe", "new" };
+   static private final String[] VERBS = { "denies", "reports", "has", "shows", "was" };
+   static private final String[] PREPOSITIONS = { "of", "in", "with", "for" };
+
+   @State( Scope.Benchmark )
+   static public class ParseState {
+      /**
+       * JMH sets parameters by field name, so these fields do not follow the usual naming.
+       */
+      @Param( { "300" } )
+      public int treeCount;
+
+      @Param( { "" } )
+      public String treeFile;
+
+      private List<Parse> _parses;
+      private TreeKernel _kernel;
+
+      @Setup( Level.Trial )
+      public void setupTrial() throws IOException {
+         final List<String> treeStrings = new ArrayList<>( treeCount );
+         if ( treeFile.isEmpty() ) {
+            final Random random = new Random( treeCount );
+            for ( int i = 0; i < treeCount; i++ ) {
+               final StringBuilder sb = new StringBuilder( "(TOP " );
+               appendSentence( sb, random, 0 );
+               treeStrings.add( sb.append( ')' ).toString() );
+            }
+         } else {
+            for ( String line : Files.readAllLines( Paths.get( treeFile ), StandardCharsets.UTF_8 ) ) {
+               if ( !line.trim().isEmpty() && treeStrings.size() < treeCount ) {
+                  treeStrings.add( line.trim() );
+               }
+            }
+         }
+         _parses = new ArrayList<>( treeStrings.size() );
+         for ( String treeString : treeStrings ) {
+            _parses.add( Parse.parseParse( treeString ) );
+         }
+         _kernel = new TreeKernel( true );
+      }
+   }
+
+   @Benchmark
+   public double[][] kernelMatrix( final ParseState state ) {
+      final List<Parse> parses = state._parses;
+      final double[][] matrix = new double[ parses.size() ][ parses.size() ];
+      for ( int i = 0; i < parses.size(); i++ ) {
+         for ( int j = i; j < parses.size(); j++ ) {
+            matrix[ i ][ j ] = state._kernel.eval( parses.get( i ), parses.get( j ) );
+            matrix[ j ][ i ] = matrix[ i ][ j ];
+         }
+      }
+      return matrix;
+   }
+
+   static private void appendSentence( final StringBuilder sb, final Random random, final int depth ) {
+      sb.append( "(S " );
+      appendNounPhrase( sb, random, depth );
+      sb.append( " (VP " );
+      appendWord( sb, "VBZ", VERBS, random );
+      sb.append( ' ' );
+      if ( depth < 2 && random.nextInt( 4 ) == 0 ) {
+         sb.append( "(SBAR (IN that) " );
+         appendSentence( sb, random, depth + 1 );
+         sb.append( ')' );
+      } else {
+         appendNounPhrase( sb, random, depth );
+      }
+      sb.append( "))" );
+   }
+
+   static private void appendNounPhrase( final StringBuilder sb, final Random random, final int depth ) {
+      final boolean attach = depth < 3 && random.nextInt( 3 ) == 0;
+      if ( attach ) {
+         sb.append( "(NP " );
+      }
+      sb.append( "(NP " );
+      appendWord( sb, "DT", DETERMINERS, random );
+      for ( int i = random.nextInt( 3 ); i > 0; i-- ) {
+         sb.append( ' ' );
+         appendWord( sb, "JJ", ADJECTIVES, random );
+      }
+      sb.append( ' ' );
+      appendWord( sb, "NN", NOUNS, random );
+      sb.append( ')' );
+      if ( attach ) {
+         sb.append( " (PP " );
+         appendWord( sb, "IN", PREPOSITIONS, random );
+         sb.append( ' ' );
+         appendNounPhrase( sb, random, depth + 1 );
+         sb.append( "))" );
+      }
+   }
+
+   static private void appendWord( final StringBuilder sb, final String tag, final String[] words,
+                                   final Random random ) {
+      sb.append( '(' ).append( tag ).append( ' ' ).append( words[ random.nextInt( words.length ) ] ).append( ')' );
+   }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.benchmarks;
+
+import org.apache.ctakes.benchmarks.BenchmarkPipelines.Stage;
+import org.apache.ctakes.core.cc.FileTreeXmiWriter;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures xmi serialization of fully processed notes to files,
+ * with files written on the pipeline thread or on a background thread, and optionally synced to the disk.
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms1g", "-Xmx4g" } )
+public class XmiWriterBenchmark {
+
+   static public class XmiState extends AbstractNoteState {
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "0", "16" } )
+      public int asyncQueueSize;
+
+      /**
+       * JMH sets parameters by field name, so this field does not follow the usual naming.
+       */
+      @Param( { "false", "true" } )
+      public boolean syncFiles;
+
+      private File _outputDir;
+
+      @Override
+      protected AnalysisEngineDescription createPrerequisites() throws ResourceInitializationException, IOException {
+         return BenchmarkPipelines.createPipeline( Stage.ASSERTION );
+      }
+
+      @Override
+      protected AnalysisEngineDescription createMeasuredDescription()
+            throws ResourceInitializationException, IOException {
+         _outputDir = Files.createTempDirectory( "ctakes_xmi_benchmark" ).toFile();
+         return AnalysisEngineFactory.createEngineDescription( FileTreeXmiWriter.class,
+               ConfigParameterConstants.PARAM_OUTPUTDIR, _outputDir.getPath(),
+               FileTreeXmiWriter.PARAM_ASYNC_QUEUE_SIZE, asyncQueueSize,
+               FileTreeXmiWriter.PARAM_SYNC_FILES, syncFiles );
+      }
+
+      @Override
+      protected void closeTrial() {
+         deleteTree( _outputDir );
+      }
+   }
+
+   @Benchmark
+   public JCas xmiWriter( final XmiState state ) throws AnalysisEngineProcessException {
+      return state.process();
+   }
+
+   static private void deleteTree( final File file ) {
+      final File[] children = file.listFiles();
+      if ( children != null ) {
+         for ( File child : children ) {
+            deleteTree( child );
+         }
+      }
+      file.delete();
+   }
+
+}
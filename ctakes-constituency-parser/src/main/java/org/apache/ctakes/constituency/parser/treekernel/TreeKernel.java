@@ -20,19 +20,48 @@ package org.apache.ctakes.constituency.parser.treekernel;
 
 import opennlp.tools.parser.Parse;
 
-import org.apache.ctakes.constituency.parser.util.TreeUtils;
 import org.apache.ctakes.utils.kernel.Kernel;
+import org.apache.ctakes.utils.tree.FastTreeKernel;
+import org.apache.ctakes.utils.tree.ProductionTree;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import com.google.common.collect.MapMaker;
 
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Subset tree kernel over opennlp parses, computed with the
+ * {@link FastTreeKernel}. Each parse is compiled once, and its self kernel
+ * computed once, for as long as the parse is in use.
+ */
 public class TreeKernel extends Kernel {
 
-	public static double lambda = 0.4;
+	public static double lambda = FastTreeKernel.DEFAULT_LAMBDA;
 	public static double lambdaSquared = lambda * lambda;
-	private ConcurrentHashMap<String,Double> normalizers = new ConcurrentHashMap<String,Double>();
-	private int normalHits = 0;
+
+	private static final FastTreeKernel.TreeAdapter<Parse> PARSE_ADAPTER = new FastTreeKernel.TreeAdapter<Parse>() {
+		@Override
+		public Parse getChild(Parse node, int i) {
+			return node.getChildren()[i];
+		}
+
+		@Override
+		public int getChildCount(Parse node) {
+			return node.getChildCount();
+		}
+
+		@Override
+		public String getLabel(Parse node) {
+			return node.getType();
+		}
+	};
+
+	/**
+	 * compiled trees by parse identity, parse equality depends on the text
+	 * and is costly. entries go away with the parse.
+	 */
+	private final ConcurrentMap<Parse, ProductionTree> trees = new MapMaker()
+			.weakKeys().makeMap();
+	private final FastTreeKernel kernel = new FastTreeKernel(lambda);
 	private boolean normalize = false;
 	
 	public TreeKernel(){
@@ -44,83 +73,19 @@ public class TreeKernel extends Kernel {
 	}
 	
 	public double eval(Object o1, Object o2){
-		Parse node1 = (Parse) o1;
-		Parse node2 = (Parse) o2;
-		double norm1=0.0;
-		double norm2=0.0;
-		if(normalize){
-			StringBuffer nodeStr = new StringBuffer();
-			node1.show(nodeStr);
-			String node1Str = nodeStr.toString();
-			if(!normalizers.containsKey(node1Str)){
-				double norm = sim(node1, node1);
-				System.out.println(node1Str);
-//				System.out.println
-				normalizers.put(node1Str, norm);
-				normalHits++;
-			}
-			nodeStr = new StringBuffer();
-			node2.show(nodeStr);
-			String node2Str = nodeStr.toString();
-			if(!normalizers.containsKey(node2Str)){
-				double norm = sim(node2, node2);
-				normalizers.put(node2Str, norm);
-				normalHits++;
-			}
-
-			norm1 = normalizers.get(node1Str);
-			norm2 = normalizers.get(node2Str);
-		}
+		ProductionTree tree1 = getTree((Parse) o1);
+		ProductionTree tree2 = getTree((Parse) o2);
 		if(normalize){
-			return sim(node1,node2) / Math.sqrt(norm1*norm2);
-		}else return sim(node1,node2);
+			return kernel.evaluateNormalized(tree1, tree2);
+		}else return kernel.evaluate(tree1, tree2);
 	}
 
-	private double sim(Parse node1, Parse node2){
-		double sim = 0.0;
-		//			hits++;
-		List<Parse> N1 = TreeUtils.getNodeList(node1);
-		List<Parse> N2 = TreeUtils.getNodeList(node2);
-		for(Parse n1 : N1){
-			for(Parse n2 : N2){
-				double cm=0.0;
-				cm = numCommonSubtrees(n1,n2);
-				sim += cm;
-			}
-		}
-		return sim;
-	}
-	
-	private static double numCommonSubtrees(Parse n1, Parse n2){
-		double retVal=1.0;
-		if(n1.getChildCount() != n2.getChildCount()){
-			retVal = 0;
-		}else if(!n1.getType().equals(n2.getType())){
-			retVal = 0;
-		}else if(n1.getChildCount() == 1 && n1.getChildren()[0].getChildCount() == 0 && n2.getChildren()[0].getChildCount() == 0){
-			// same productions and are both are preterminals
-			retVal = lambdaSquared;
-		}else{
-			// At this point they have the same label and same # children. Check if children the same.
-			boolean sameProd = true;
-			for(int i = 0; i < n1.getChildCount(); i++){
-				String l1 = n1.getChildren()[i].getType();
-				String l2 = n2.getChildren()[i].getType();
-				if(!l1.equals(l2)){
-					sameProd = false;
-					break;
-				}
-			}
-			if(sameProd == true){
-				// common = 1;
-				for(int i = 0; i < n1.getChildCount(); i++){
-					retVal *= (1 + numCommonSubtrees(n1.getChildren()[i], n2.getChildren()[i])); 
-				}
-				retVal = lambdaSquared * retVal;
-			}else{
-				retVal = 0;
-			}
+	private ProductionTree getTree(Parse parse){
+		ProductionTree tree = trees.get(parse);
+		if(tree == null){
+			tree = kernel.compile(parse, PARSE_ADAPTER);
+			trees.put(parse, tree);
 		}
-		return retVal;
+		return tree;
 	}
-}
\ No newline at end of file
+}
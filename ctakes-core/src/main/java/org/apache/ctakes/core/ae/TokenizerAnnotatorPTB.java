@@ -18,10 +18,16 @@
  */
 package org.apache.ctakes.core.ae;
 
+import org.apache.ctakes.core.nlp.tokenizer.FastTokenizerPTB;
 import org.apache.ctakes.core.nlp.tokenizer.TokenizerPTB;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.syntax.ContractionToken;
 import org.apache.ctakes.typesystem.type.syntax.NewlineToken;
+import org.apache.ctakes.typesystem.type.syntax.NumToken;
+import org.apache.ctakes.typesystem.type.syntax.PunctuationToken;
+import org.apache.ctakes.typesystem.type.syntax.SymbolToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
 import org.apache.ctakes.typesystem.type.textspan.Segment;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.log4j.Logger;
@@ -68,7 +74,25 @@ public class TokenizerAnnotatorPTB extends JCasAnnotator_ImplBase
   private String[] skipSegmentsArray;
   private Set<String> skipSegmentsSet;
 
+	/**
+	 * Value is "FastTokenizer".  If true, sentences are tokenized from the characters of the document by
+	 * {@link FastTokenizerPTB}, which creates the same tokens as {@link TokenizerPTB} with far fewer objects.
+	 * Off by default until the two tokenizers have been compared on a real corpus.
+	 */
+	public static final String PARAM_FAST_TOKENIZER = "FastTokenizer";
+  @ConfigurationParameter(
+      name = PARAM_FAST_TOKENIZER,
+      mandatory = false,
+      description = "Tokenize with the array based tokenizer, which creates the same tokens with fewer objects",
+      defaultValue = "false"
+      )
+  private boolean useFastTokenizer;
+
 	private TokenizerPTB tokenizer;
+	private FastTokenizerPTB fastTokenizer;
+	// characters of the document being processed, for the fast tokenizer
+	private String documentText;
+	private char[] documentChars;
 
 	private int tokenCount = 0;
 
@@ -77,6 +101,7 @@ public class TokenizerAnnotatorPTB extends JCasAnnotator_ImplBase
 		super.initialize(aContext);
 		logger.info("Initializing " + this.getClass().getName());
 		tokenizer = new TokenizerPTB();
+		fastTokenizer = new FastTokenizerPTB();
 		skipSegmentsSet = new HashSet<>();
     if(skipSegmentsArray != null){
       Collections.addAll(skipSegmentsSet, skipSegmentsArray);
@@ -100,6 +125,8 @@ public class TokenizerAnnotatorPTB extends JCasAnnotator_ImplBase
 				annotateRange(jcas, sa.getBegin(), sa.getEnd());
 			}
 		}
+		documentText = null;
+		documentChars = null;
 	}
 
 
@@ -150,6 +177,10 @@ public class TokenizerAnnotatorPTB extends JCasAnnotator_ImplBase
 			if (sentence.getBegin() < rangeBegin || sentence.getEnd() > rangeEnd) {
 				continue;
 			}
+			if (useFastTokenizer) {
+				addFastTokens(jcas, docText, sentence.getBegin(), sentence.getEnd());
+				continue;
+			}
 			List<?> tokens = tokenizer.tokenizeTextSegment(jcas, sentence.getCoveredText(), sentence.getBegin(), true);
 			for (Object bta: tokens) {
 				if (bta==null) {
@@ -180,6 +211,48 @@ public class TokenizerAnnotatorPTB extends JCasAnnotator_ImplBase
 
 	}
 	
+	/**
+	 * Tokenizes a sentence with the fast tokenizer and adds the tokens to the CAS
+	 */
+	private void addFastTokens(JCas jcas, String docText, int sentenceBegin, int sentenceEnd) {
+		if (docText != documentText) {
+			documentText = docText;
+			documentChars = docText.toCharArray();
+		}
+		final char[] text = documentChars;
+		final int count = fastTokenizer.tokenize(text, sentenceBegin, sentenceEnd);
+		for (int i = 0; i < count; i++) {
+			final int begin = fastTokenizer.getBegin(i);
+			final int end = fastTokenizer.getEnd(i);
+			final BaseToken token;
+			switch (fastTokenizer.getType(i)) {
+				case NEWLINE:
+					token = new NewlineToken(jcas, begin, end);
+					break;
+				case WORD:
+					final WordToken wordToken = new WordToken(jcas, begin, end);
+					wordToken.setCapitalization(FastTokenizerPTB.getCapitalization(text, begin, end));
+					wordToken.setNumPosition(FastTokenizerPTB.getNumPosition(text, begin, end));
+					token = wordToken;
+					break;
+				case NUMBER:
+					final NumToken numToken = new NumToken(jcas, begin, end);
+					numToken.setNumType(FastTokenizerPTB.getNumType(text, begin, end));
+					token = numToken;
+					break;
+				case PUNCTUATION:
+					token = new PunctuationToken(jcas, begin, end);
+					break;
+				case CONTRACTION:
+					token = new ContractionToken(jcas, begin, end);
+					break;
+				default:
+					token = new SymbolToken(jcas, begin, end);
+			}
+			token.addToIndexes();
+		}
+	}
+
 	public static AnalysisEngineDescription createAnnotatorDescription() throws ResourceInitializationException{
 	  return AnalysisEngineFactory.createEngineDescription(TokenizerAnnotatorPTB.class);
 	}
@@ -14,8 +14,8 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.Charset;
 import java.util.Collection;
 
 /**
@@ -45,8 +45,29 @@ abstract public class AbstractFileWriter<T> extends JCasAnnotator_ImplBase {
    )
    private String _subDirectory;
 
+   static public final String PARAM_ASYNC_QUEUE_SIZE = "AsyncQueueSize";
+   @ConfigurationParameter(
+         name = PARAM_ASYNC_QUEUE_SIZE,
+         description = "Number of files that may wait to be written on a background thread."
+                       + "  0 writes files on the pipeline thread.",
+         mandatory = false,
+         defaultValue = "0"
+   )
+   private int _asyncQueueSize;
+
+   static public final String PARAM_SYNC_FILES = "SyncFiles";
+   @ConfigurationParameter(
+         name = PARAM_SYNC_FILES,
+         description = "Sync written files to the disk before they are counted as written.",
+         mandatory = false,
+         defaultValue = "false"
+   )
+   private boolean _syncFiles;
+
    static private final Object DATA_LOCK = new Object();
 
+   private AsyncFileOutput _asyncOutput;
+
    /**
     * {@inheritDoc}
     */
@@ -61,6 +82,9 @@ abstract public class AbstractFileWriter<T> extends JCasAnnotator_ImplBase {
       } else if ( !_outputRootDir.exists() ) {
          _outputRootDir.mkdirs();
       }
+      if ( _asyncQueueSize > 0 ) {
+         _asyncOutput = new AsyncFileOutput( getClass().getSimpleName() + "Output", _asyncQueueSize, _syncFiles );
+      }
    }
 
    /**
@@ -83,6 +107,74 @@ abstract public class AbstractFileWriter<T> extends JCasAnnotator_ImplBase {
       }
    }
 
+   /**
+    * Waits for files that are still being written in the background.
+    * Subclasses that write files when the collection is complete should do so after calling this method.
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      if ( _asyncOutput == null ) {
+         return;
+      }
+      final AsyncFileOutput asyncOutput = _asyncOutput;
+      _asyncOutput = null;
+      try {
+         asyncOutput.close();
+      } catch ( IOException ioE ) {
+         throw new AnalysisEngineProcessException( ioE );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      if ( _asyncOutput != null ) {
+         _asyncOutput.abort();
+         _asyncOutput = null;
+      }
+      super.destroy();
+   }
+
+   /**
+    * Subclasses should write files through this stream so that they can be written in the background.
+    * With the background thread the content is kept in memory and the file is written after the stream is closed.
+    *
+    * @param file file to write
+    * @return stream for the file content, which must be closed
+    * @throws IOException if the file cannot be opened or a previous file could not be written
+    */
+   protected OutputStream createOutputStream( final File file ) throws IOException {
+      final AsyncFileOutput asyncOutput = _asyncOutput;
+      if ( asyncOutput != null ) {
+         asyncOutput.throwFailure();
+         return asyncOutput.createOutputStream( file );
+      }
+      if ( !_syncFiles ) {
+         return new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 );
+      }
+      return new BufferedOutputStream( new FileOutputStream( file ) {
+         @Override
+         public void close() throws IOException {
+            getFD().sync();
+            super.close();
+         }
+      }, 64 * 1024 );
+   }
+
+   /**
+    * @param file file to write
+    * @return writer for the file content using the default charset as a FileWriter does, which must be closed
+    * @throws IOException if the file cannot be opened or a previous file could not be written
+    * @see #createOutputStream(File)
+    */
+   protected Writer createWriter( final File file ) throws IOException {
+      return new OutputStreamWriter( createOutputStream( file ), Charset.defaultCharset() );
+   }
+
    /**
     * @param jCas the jcas passed to the process( jcas ) method.
     */
@@ -15,12 +15,23 @@ import org.apache.uima.util.ProcessTrace;
 
 import java.io.IOException;
 import java.sql.*;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Write cas to a database using jdbc
+ * <p>
+ * By default the rows of each document are executed when the document has been processed,
+ * which with auto-commit is one small transaction per document.
+ * When {@link #PARAM_BATCH_ROWS} is above 0, rows added with {@link #addTableRow(String, Map)} are instead collected
+ * across documents until the row or byte budget is reached.  The collected rows are handed to a background thread
+ * that executes them and commits them as one transaction, while the pipeline continues with the next documents.
+ * At most {@link #PARAM_QUEUED_BATCHES} collected batches wait for that thread, after which processing waits.
+ * Rows that are still collected are written when the collection is complete.
+ * The connection then belongs to the background thread, so every row must be added with
+ * {@link #addTableRow(String, Map)} and the prepared statements of {@link #getTableSqlInfoMap()} are not available.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -32,10 +43,16 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
 
    // Parameter names for the desc file
    static public final String PARAM_DB_CONN_RESRC = "DbConnResrcName";
+   static public final String PARAM_BATCH_ROWS = "BatchRows";
+   static public final String PARAM_BATCH_BYTES = "BatchBytes";
+   static public final String PARAM_QUEUED_BATCHES = "QueuedBatches";
 
    // Maximum row count for prepared statement batches
    static private final int MAX_BATCH_SIZE = 100;
 
+   static private final int DEFAULT_BATCH_BYTES = 16 * 1024 * 1024;
+   static private final int DEFAULT_QUEUED_BATCHES = 2;
+
 
    protected interface TableInfo {
       String getTableName();
@@ -76,6 +93,12 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
 
    final protected Map<String, TableSqlInfo> _tableSqlInfoMap = new HashMap<>();
 
+   private Connection _connection;
+   private int _batchRows;
+   private int _batchBytes;
+   private RowBatch _rowBatch;
+   private BatchWriter _batchWriter;
+
 
    /**
     * {@inheritDoc}
@@ -90,25 +113,58 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
          // thrown by UimaContext.getResourceObject(..)
          throw new ResourceInitializationException( raE );
       }
-      final Connection connection = resource.getConnection();
+      _connection = resource.getConnection();
       final Collection<TableInfo> tableInfos = getTableInfos();
-      try {
-         for ( TableInfo tableInfo : tableInfos ) {
-            _tableSqlInfoMap.put( tableInfo.getTableName(), new TableSqlInfo( connection, tableInfo ) );
+      _batchRows = getIntParameterValue( PARAM_BATCH_ROWS, 0 );
+      if ( _batchRows <= 0 ) {
+         try {
+            for ( TableInfo tableInfo : tableInfos ) {
+               _tableSqlInfoMap.put( tableInfo.getTableName(), new TableSqlInfo( _connection, tableInfo ) );
+            }
+         } catch ( SQLException sqlE ) {
+            // thrown by Connection.prepareStatement(..)
+            throw new ResourceInitializationException( sqlE );
          }
-      } catch ( SQLException sqlE ) {
-         // thrown by Connection.prepareStatement(..)
-         throw new ResourceInitializationException( sqlE );
+      } else {
+         _batchBytes = getIntParameterValue( PARAM_BATCH_BYTES, DEFAULT_BATCH_BYTES );
+         final int queuedBatches = Math.max( 1, getIntParameterValue( PARAM_QUEUED_BATCHES, DEFAULT_QUEUED_BATCHES ) );
+         try {
+            _batchWriter = new BatchWriter( _connection, tableInfos, queuedBatches );
+         } catch ( SQLException sqlE ) {
+            // thrown by Connection.prepareStatement(..) and Connection.setAutoCommit(..)
+            throw new ResourceInitializationException( sqlE );
+         }
+         _batchWriter.start();
+         _rowBatch = new RowBatch();
+         LOGGER.info( "Writing batches of up to " + _batchRows + " rows or " + _batchBytes + " bytes" );
       }
    }
 
+   private int getIntParameterValue( final String name, final int defaultValue ) {
+      final Object value = getConfigParameterValue( name );
+      return value instanceof Integer ? (Integer)value : defaultValue;
+   }
+
    /**
     * {@inheritDoc}
-    * closes the PreparedStatements
+    * writes any collected rows, waits for the background writer, and closes the PreparedStatements
     */
    @Override
    public void collectionProcessComplete( ProcessTrace arg0 )
          throws ResourceProcessException, IOException {
+      if ( _batchWriter != null ) {
+         final BatchWriter batchWriter = _batchWriter;
+         _batchWriter = null;
+         batchWriter.finish( _rowBatch );
+         _rowBatch = null;
+         try {
+            // The background thread has ended, so the connection can be used here again
+            _connection.setAutoCommit( true );
+         } catch ( SQLException sqlE ) {
+            throw new ResourceProcessException( sqlE );
+         }
+         LOGGER.info( "Wrote " + batchWriter.__rowCount + " rows in " + batchWriter.__batchCount + " transactions" );
+      }
       try {
          for ( TableSqlInfo tableSqlInfo : _tableSqlInfoMap.values() ) {
             tableSqlInfo.__preparedStatement.close();
@@ -119,6 +175,19 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
       super.collectionProcessComplete( arg0 );
    }
 
+   /**
+    * {@inheritDoc}
+    * stops the background writer if the collection was not completed
+    */
+   @Override
+   public void destroy() {
+      if ( _batchWriter != null ) {
+         _batchWriter.interrupt();
+         _batchWriter = null;
+      }
+      super.destroy();
+   }
+
 
    /**
     * {@inheritDoc}
@@ -156,6 +225,11 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
          // thrown by PreparedStatement methods
          throw new ResourceProcessException( sqlE );
       }
+      if ( _batchWriter != null
+           && (_rowBatch.__rowCount >= _batchRows || _rowBatch.__byteCount >= _batchBytes) ) {
+         _batchWriter.submit( _rowBatch );
+         _rowBatch = new RowBatch();
+      }
    }
 
 
@@ -183,11 +257,37 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
 
    /**
     * @return the map of table name to table sql info objects
+    * @throws IllegalStateException if batches are written in the background, as the connection is then used by
+    *                               the background thread
     */
    protected Map<String, TableSqlInfo> getTableSqlInfoMap() {
+      if ( _batchRows > 0 ) {
+         throw new IllegalStateException( "Rows must be added with addTableRow when " + PARAM_BATCH_ROWS
+                                          + " is above 0" );
+      }
       return _tableSqlInfoMap;
    }
 
+   /**
+    * Adds a row of values for a table.  When batches are written in the background the values are copied
+    * and written with the batch, otherwise they are added to the table's prepared statement
+    * as by {@link #writeTableRow(PreparedStatement, int, Map)}.
+    *
+    * @param tableName    name of a table given by {@link #getTableInfos()}
+    * @param fieldInfoMap for row value assignment.  The map can be changed and reused for the next row
+    * @throws SQLException if a PreparedStatement call throws one or if there is a type, value mismatch in fieldInfoMap
+    */
+   protected void addTableRow( final String tableName,
+                               final Map<? extends FieldInfo, Object> fieldInfoMap ) throws SQLException {
+      if ( _rowBatch != null ) {
+         _rowBatch.add( tableName, fieldInfoMap );
+         return;
+      }
+      final TableSqlInfo tableSqlInfo = _tableSqlInfoMap.get( tableName );
+      tableSqlInfo.setBatchCount( writeTableRow( tableSqlInfo.getPreparedStatement(), tableSqlInfo.getBatchCount(),
+            fieldInfoMap ) );
+   }
+
    /**
     * This is a safety method to set values of fieldInfoMaps instead of doing a direct .put in the map.
     * an IllegalArgumentException will be thrown if the given value is not the same class type as what the given
@@ -218,6 +318,19 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
     */
    static protected int writeTableRow( final PreparedStatement preparedStatement, final int batchSize,
                                        final Map<? extends FieldInfo, Object> fieldInfoMap ) throws SQLException {
+      setRowValues( preparedStatement, fieldInfoMap );
+      preparedStatement.addBatch();
+      if ( batchSize + 1 >= MAX_BATCH_SIZE ) {
+         preparedStatement.executeBatch();
+         // Not all drivers automatically clear the batch.  This is considered by some to be a feature, by most a bug.
+         preparedStatement.clearBatch();
+         return 0;
+      }
+      return batchSize + 1;
+   }
+
+   static private void setRowValues( final PreparedStatement preparedStatement,
+                                     final Map<? extends FieldInfo, Object> fieldInfoMap ) throws SQLException {
       for ( Map.Entry<? extends FieldInfo, Object> fieldInfoEntry : fieldInfoMap.entrySet() ) {
          final int fieldIndex = fieldInfoEntry.getKey().getFieldIndex();
          final Class<?> valueClass = fieldInfoEntry.getKey().getValueClass();
@@ -240,14 +353,6 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
             throw new SQLDataException( "Invalid Value Class for Field " + fieldInfoEntry.getKey().getFieldName() );
          }
       }
-      preparedStatement.addBatch();
-      if ( batchSize + 1 >= MAX_BATCH_SIZE ) {
-         preparedStatement.executeBatch();
-         // Not all drivers automatically clear the batch.  This is considered by some to be a feature, by most a bug.
-         preparedStatement.clearBatch();
-         return 0;
-      }
-      return batchSize + 1;
    }
 
    /**
@@ -277,4 +382,143 @@ abstract public class AbstractJdbcWriter extends CasConsumer_ImplBase {
    }
 
 
+   /**
+    * Rows collected across documents, by table name.
+    */
+   static private final class RowBatch {
+      final private Map<String, List<Map<FieldInfo, Object>>> __tableRows = new HashMap<>();
+      private int __rowCount;
+      private long __byteCount;
+
+      private void add( final String tableName, final Map<? extends FieldInfo, Object> fieldInfoMap ) {
+         List<Map<FieldInfo, Object>> rows = __tableRows.get( tableName );
+         if ( rows == null ) {
+            rows = new ArrayList<>();
+            __tableRows.put( tableName, rows );
+         }
+         // Copy, as callers change the map for the next row
+         rows.add( new HashMap<>( fieldInfoMap ) );
+         __rowCount++;
+         for ( Object value : fieldInfoMap.values() ) {
+            __byteCount += value instanceof String ? 2 * ((String)value).length() : 8;
+         }
+      }
+   }
+
+   /**
+    * Writes batches of rows on its own thread, one transaction per batch, with its own prepared statements.
+    * Once started it is the only user of the connection until it has ended.
+    * The first failure is kept and thrown to the pipeline, the failed batch is rolled back and later batches are
+    * discarded.
+    */
+   static private final class BatchWriter extends Thread {
+      // Marks the end of the batches
+      static private final RowBatch END = new RowBatch();
+
+      final private Connection __connection;
+      final private Map<String, PreparedStatement> __statements = new HashMap<>();
+      final private BlockingQueue<RowBatch> __queue;
+      private volatile Exception __failure;
+      private long __rowCount;
+      private int __batchCount;
+
+      private BatchWriter( final Connection connection, final Collection<TableInfo> tableInfos,
+                           final int queuedBatches ) throws SQLException {
+         super( "JdbcBatchWriter" );
+         setDaemon( true );
+         __connection = connection;
+         for ( TableInfo tableInfo : tableInfos ) {
+            final String sql = createRowInsertSql( tableInfo.getTableName(), tableInfo.getFieldInfos() );
+            __statements.put( tableInfo.getTableName(), connection.prepareStatement( sql ) );
+         }
+         __queue = new ArrayBlockingQueue<>( queuedBatches );
+         connection.setAutoCommit( false );
+      }
+
+      /**
+       * Waits for room in the queue, so the pipeline can not run far ahead of the database.
+       */
+      private void submit( final RowBatch rowBatch ) throws ResourceProcessException {
+         throwFailure();
+         try {
+            __queue.put( rowBatch );
+         } catch ( InterruptedException intE ) {
+            Thread.currentThread().interrupt();
+            throw new ResourceProcessException( intE );
+         }
+      }
+
+      /**
+       * Writes the last batch and waits for all batches to be committed.
+       */
+      private void finish( final RowBatch lastBatch ) throws ResourceProcessException {
+         if ( lastBatch.__rowCount > 0 ) {
+            submit( lastBatch );
+         }
+         try {
+            __queue.put( END );
+            join();
+         } catch ( InterruptedException intE ) {
+            Thread.currentThread().interrupt();
+            throw new ResourceProcessException( intE );
+         }
+         throwFailure();
+      }
+
+      private void throwFailure() throws ResourceProcessException {
+         if ( __failure != null ) {
+            throw new ResourceProcessException( __failure );
+         }
+      }
+
+      @Override
+      public void run() {
+         try {
+            RowBatch rowBatch = __queue.take();
+            while ( rowBatch != END ) {
+               if ( __failure == null ) {
+                  write( rowBatch );
+               }
+               rowBatch = __queue.take();
+            }
+         } catch ( InterruptedException intE ) {
+            // the pipeline was destroyed without completing the collection
+         } finally {
+            for ( PreparedStatement statement : __statements.values() ) {
+               try {
+                  statement.close();
+               } catch ( SQLException sqlE ) {
+                  LOGGER.warn( sqlE.getMessage() );
+               }
+            }
+         }
+      }
+
+      private void write( final RowBatch rowBatch ) {
+         try {
+            for ( Map.Entry<String, List<Map<FieldInfo, Object>>> tableRows : rowBatch.__tableRows.entrySet() ) {
+               final PreparedStatement statement = __statements.get( tableRows.getKey() );
+               for ( Map<FieldInfo, Object> row : tableRows.getValue() ) {
+                  setRowValues( statement, row );
+                  statement.addBatch();
+               }
+               statement.executeBatch();
+               statement.clearBatch();
+            }
+            __connection.commit();
+            __rowCount += rowBatch.__rowCount;
+            __batchCount++;
+         } catch ( SQLException sqlE ) {
+            LOGGER.error( "Could not write a batch of " + rowBatch.__rowCount + " rows, later batches are discarded",
+                  sqlE );
+            __failure = sqlE;
+            try {
+               __connection.rollback();
+            } catch ( SQLException rollbackE ) {
+               LOGGER.warn( rollbackE.getMessage() );
+            }
+         }
+      }
+   }
+
 }
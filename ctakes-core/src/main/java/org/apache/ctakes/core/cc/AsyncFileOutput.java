@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.cc;
+
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes files on a background thread, so that a pipeline thread does not wait for the disk.
+ * <p>
+ * The pipeline thread writes file content to a stream from {@link #createOutputStream(File)},
+ * which keeps the bytes in memory and queues them for the background thread when it is closed.
+ * At most the queue size of files wait to be written, after which closing a stream waits for room.
+ * </p>
+ * <p>
+ * When files are synced, the background thread keeps written files open until the queue is empty
+ * or a batch is full, and then syncs them together, so the disk can order the writes.
+ * </p>
+ * The first failure is kept, later files are discarded, and the failure is thrown by the next
+ * stream close and by {@link #close()}.
+ */
+final public class AsyncFileOutput {
+
+   static private final Logger LOGGER = Logger.getLogger( "AsyncFileOutput" );
+
+   static private final int MAX_SYNC_BATCH = 64;
+
+   // Marks the end of the files
+   static private final PendingFile END = new PendingFile( null, null, 0 );
+
+   final private BlockingQueue<PendingFile> _queue;
+   final private boolean _syncFiles;
+   final private Thread _thread;
+   private volatile IOException _failure;
+   private int _fileCount;
+   private int _syncedCount;
+   private int _syncBatchCount;
+
+   /**
+    * @param name      name for the background thread
+    * @param queueSize maximum number of files waiting to be written
+    * @param syncFiles true to sync written files to the disk
+    */
+   public AsyncFileOutput( final String name, final int queueSize, final boolean syncFiles ) {
+      _queue = new ArrayBlockingQueue<>( Math.max( 1, queueSize ) );
+      _syncFiles = syncFiles;
+      _thread = new Thread( this::writeFiles, name );
+      _thread.setDaemon( true );
+      _thread.start();
+   }
+
+   /**
+    * @param file file to write when the stream is closed
+    * @return stream that keeps content in memory until it is closed
+    */
+   public OutputStream createOutputStream( final File file ) {
+      return new ByteArrayOutputStream( 8192 ) {
+         private boolean __closed;
+
+         @Override
+         public void close() throws IOException {
+            if ( __closed ) {
+               return;
+            }
+            __closed = true;
+            submit( new PendingFile( file, buf, count ) );
+         }
+      };
+   }
+
+   /**
+    * @throws IOException if a file could not be written
+    */
+   public void throwFailure() throws IOException {
+      if ( _failure != null ) {
+         throw new IOException( "Could not write files in the background", _failure );
+      }
+   }
+
+   /**
+    * Waits until all queued files have been written and synced, and stops the background thread.
+    *
+    * @throws IOException if a file could not be written
+    */
+   public void close() throws IOException {
+      put( END );
+      try {
+         _thread.join();
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         throw new IOException( intE );
+      }
+      LOGGER.info( "Wrote " + _fileCount + " files in the background" );
+      throwFailure();
+   }
+
+   /**
+    * @return number of files that were synced, complete after {@link #close()}
+    */
+   int getSyncedCount() {
+      return _syncedCount;
+   }
+
+   /**
+    * @return number of batches in which files were synced, complete after {@link #close()}
+    */
+   int getSyncBatchCount() {
+      return _syncBatchCount;
+   }
+
+   /**
+    * Stops the background thread without waiting for queued files.
+    */
+   public void abort() {
+      _thread.interrupt();
+   }
+
+   private void submit( final PendingFile pendingFile ) throws IOException {
+      throwFailure();
+      put( pendingFile );
+   }
+
+   private void put( final PendingFile pendingFile ) throws IOException {
+      try {
+         _queue.put( pendingFile );
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         throw new IOException( intE );
+      }
+   }
+
+   private void writeFiles() {
+      final List<FileOutputStream> unsynced = new ArrayList<>();
+      try {
+         PendingFile pendingFile = _queue.take();
+         while ( pendingFile != END ) {
+            if ( _failure == null ) {
+               write( pendingFile, unsynced );
+               if ( unsynced.size() >= MAX_SYNC_BATCH || (!unsynced.isEmpty() && _queue.isEmpty()) ) {
+                  sync( unsynced );
+               }
+            }
+            pendingFile = _queue.take();
+         }
+      } catch ( InterruptedException intE ) {
+         // the writer was destroyed without completing the collection
+      }
+      sync( unsynced );
+   }
+
+   private void write( final PendingFile pendingFile, final List<FileOutputStream> unsynced ) {
+      FileOutputStream outputStream = null;
+      try {
+         outputStream = new FileOutputStream( pendingFile.__file );
+         outputStream.write( pendingFile.__bytes, 0, pendingFile.__length );
+         _fileCount++;
+         if ( _syncFiles ) {
+            unsynced.add( outputStream );
+            outputStream = null;
+         }
+      } catch ( IOException ioE ) {
+         LOGGER.error( "Could not write " + pendingFile.__file.getPath() + ", later files are discarded" );
+         _failure = ioE;
+      } finally {
+         closeQuietly( outputStream );
+      }
+   }
+
+   private void sync( final List<FileOutputStream> unsynced ) {
+      if ( unsynced.isEmpty() ) {
+         return;
+      }
+      _syncBatchCount++;
+      for ( FileOutputStream outputStream : unsynced ) {
+         try {
+            outputStream.getFD().sync();
+            _syncedCount++;
+         } catch ( IOException ioE ) {
+            if ( _failure == null ) {
+               LOGGER.error( "Could not sync a written file, later files are discarded" );
+               _failure = ioE;
+            }
+         } finally {
+            closeQuietly( outputStream );
+         }
+      }
+      unsynced.clear();
+   }
+
+   static private void closeQuietly( final OutputStream outputStream ) {
+      if ( outputStream == null ) {
+         return;
+      }
+      try {
+         outputStream.close();
+      } catch ( IOException ioE ) {
+         LOGGER.warn( ioE.getMessage() );
+      }
+   }
+
+   /**
+    * Content of one file, waiting to be written.
+    */
+   static private final class PendingFile {
+      final private File __file;
+      final private byte[] __bytes;
+      final private int __length;
+
+      private PendingFile( final File file, final byte[] bytes, final int length ) {
+         __file = file;
+         __bytes = bytes;
+         __length = length;
+      }
+   }
+
+}
@@ -49,7 +49,7 @@ public class CuiListFileWriter extends AbstractJCasFileWriter {
                                        + "\r\n" )
                             .forEach( sb::append );
       }
-      try ( Writer writer = new BufferedWriter( new FileWriter( file ) ) ) {
+      try ( Writer writer = new BufferedWriter( createWriter( file ) ) ) {
          writer.write( sb.toString() );
       }
       LOGGER.info( "Finished Writing" );
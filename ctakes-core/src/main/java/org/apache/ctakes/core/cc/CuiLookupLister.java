@@ -10,7 +10,7 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Collection;
@@ -33,7 +33,7 @@ public class CuiLookupLister extends AbstractJCasFileWriter {
                           final String outputDir,
                           final String documentId,
                           final String fileName ) throws IOException {
-      try ( Writer writer = new BufferedWriter( new FileWriter( outputDir + "/" + fileName + "_cui.txt" ) ) ) {
+      try ( Writer writer = new BufferedWriter( createWriter( new File( outputDir, fileName + "_cui.txt" ) ) ) ) {
          final Map<Sentence, Collection<IdentifiedAnnotation>> sentenceCodes
                = JCasUtil.indexCovered( jCas, Sentence.class, IdentifiedAnnotation.class );
          for ( Map.Entry<Sentence, Collection<IdentifiedAnnotation>> entry : sentenceCodes.entrySet() ) {
@@ -41,7 +41,7 @@ final public class FileTreeXmiWriter extends AbstractJCasFileWriter {
       final File xmiFile = new File( outputDir, fileName + ".xmi" );
       LOGGER.info( "Writing XMI to " + xmiFile.getPath() + " ..." );
       try {
-         writeXmi( jCas.getCas(), xmiFile );
+         writeXmi( jCas.getCas(), createOutputStream( xmiFile ) );
       } catch ( IOException | SAXException multE ) {
          throw new IOException( multE );
       }
@@ -49,15 +49,15 @@ final public class FileTreeXmiWriter extends AbstractJCasFileWriter {
    }
 
    /**
-    * Serialize a CAS to a file in XMI format
+    * Serialize a CAS to a stream in XMI format
     *
-    * @param cas  CAS to serialize
-    * @param file output file
+    * @param cas          CAS to serialize
+    * @param stream       output stream, closed when the CAS is written
     * @throws IOException  -
     * @throws SAXException -
     */
-   static private void writeXmi( final CAS cas, final File file ) throws IOException, SAXException {
-      try ( OutputStream outputStream = new BufferedOutputStream( new FileOutputStream( file ) ) ) {
+   static private void writeXmi( final CAS cas, final OutputStream stream ) throws IOException, SAXException {
+      try ( OutputStream outputStream = stream ) {
          XmiCasSerializer casSerializer = new XmiCasSerializer( cas.getTypeSystem() );
          XMISerializer xmiSerializer = new XMISerializer( outputStream );
          casSerializer.serialize( cas, xmiSerializer.getContentHandler() );
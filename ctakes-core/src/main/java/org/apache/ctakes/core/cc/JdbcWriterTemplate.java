@@ -28,7 +28,6 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
@@ -207,9 +206,6 @@ public class JdbcWriterTemplate extends AbstractJdbcWriter {
       fieldInfoValues.put( I2b2FieldInfo.CONCEPT_CD, conceptCode );
       final String tvalChar = preferredText + (saveAffirmed ? "" : " Negated");
       fieldInfoValues.put( I2b2FieldInfo.TVAL_CHAR, tvalChar );
-      // Do not use try with resource as it will close the prepared statement, which we do not yet want
-      final PreparedStatement preparedStatement = _tableSqlInfoMap.get( _tableName ).getPreparedStatement();
-      int batchCount = _tableSqlInfoMap.get( _tableName ).getBatchCount();
       for ( IdentifiedAnnotation annotation : annotations ) {
          final boolean isNegated = annotation.getPolarity() < 0;
          if ( saveAffirmed == isNegated ) {
@@ -218,10 +214,9 @@ public class JdbcWriterTemplate extends AbstractJdbcWriter {
          fieldInfoValues.put( I2b2FieldInfo.INSTANCE_NUM, instanceNum );
          final String observationBlob = createBlob( jcas, annotation );
          fieldInfoValues.put( I2b2FieldInfo.I2B2_OBERVATION_BLOB, observationBlob );
-         batchCount = writeTableRow( preparedStatement, batchCount, fieldInfoValues );
+         addTableRow( _tableName, fieldInfoValues );
          instanceNum++;
       }
-      _tableSqlInfoMap.get( _tableName ).setBatchCount( batchCount );
    }
 
 
@@ -30,7 +30,6 @@ import org.apache.uima.jcas.tcas.Annotation;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -104,7 +103,7 @@ final public class HtmlTextWriter extends AbstractJCasFileWriter {
       }
       final File htmlFile = new File( outputDir, fileName + FILE_EXTENSION );
       LOGGER.info( "Writing HTML to " + htmlFile.getPath() + " ..." );
-      try ( final BufferedWriter writer = new BufferedWriter( new FileWriter( htmlFile ) ) ) {
+      try ( final BufferedWriter writer = new BufferedWriter( createWriter( htmlFile ) ) ) {
          final String title = DocumentIDAnnotationUtil.getDocumentID( jCas );
          writer.write( startBody() );
          writer.write( getCssLink( CSS_FILENAME ) );
@@ -91,16 +91,27 @@ final public class PrettyTextWriter {
 
    public void writeFile( final JCas jCas, final String outputFilePath ) {
       try ( final BufferedWriter writer = new BufferedWriter( new FileWriter( outputFilePath ) ) ) {
-         final Collection<Sentence> sentences = JCasUtil.select( jCas, Sentence.class );
-         for ( Sentence sentence : sentences ) {
-            writeSentence( jCas, sentence, writer );
-         }
+         writeFile( jCas, writer );
       } catch ( IOException ioE ) {
          LOGGER.error( "Could not not write pretty file " + outputFilePath );
          LOGGER.error( ioE.getMessage() );
       }
    }
 
+   /**
+    * Write pretty sentences for the whole document
+    *
+    * @param jCas   ye olde ...
+    * @param writer writer to which pretty text for the document should be written
+    * @throws IOException if the writer has issues
+    */
+   public void writeFile( final JCas jCas, final BufferedWriter writer ) throws IOException {
+      final Collection<Sentence> sentences = JCasUtil.select( jCas, Sentence.class );
+      for ( Sentence sentence : sentences ) {
+         writeSentence( jCas, sentence, writer );
+      }
+   }
+
    /**
     * Write a sentence from the document text
     *
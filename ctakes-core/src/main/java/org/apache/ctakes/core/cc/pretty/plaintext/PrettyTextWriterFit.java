@@ -8,6 +8,8 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 
 import static org.apache.ctakes.core.config.ConfigParameterConstants.PARAM_OUTPUTDIR;
@@ -51,7 +53,9 @@ final public class PrettyTextWriterFit extends AbstractJCasFileWriter {
                           final String outputDir,
                           final String documentId,
                           final String fileName ) throws IOException {
-      _prettyTextWriter.writeFile( jCas, outputDir + "/" + fileName );
+      try ( BufferedWriter writer = new BufferedWriter( createWriter( new File( outputDir, fileName ) ) ) ) {
+         _prettyTextWriter.writeFile( jCas, writer );
+      }
    }
 
    /**
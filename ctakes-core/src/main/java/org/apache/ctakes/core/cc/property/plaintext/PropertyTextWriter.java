@@ -30,7 +30,7 @@ import java.util.*;
 public class PropertyTextWriter {
 
    static private final Logger LOGGER = Logger.getLogger( "PropertyTextWriter" );
-   static private final String FILE_EXTENSION = ".properties.txt";
+   static final String FILE_EXTENSION = ".properties.txt";
 
    private String _outputDirPath;
 
@@ -77,10 +77,7 @@ public class PropertyTextWriter {
          outputFile = new File( _outputDirPath, docId + FILE_EXTENSION );
       }
       try ( final BufferedWriter writer = new BufferedWriter( new FileWriter( outputFile ) ) ) {
-         final Collection<Sentence> sentences = JCasUtil.select( jcas, Sentence.class );
-         for ( Sentence sentence : sentences ) {
-            writeSentence( jcas, sentence, writer );
-         }
+         writeFile( jcas, writer );
       } catch ( IOException ioE ) {
          LOGGER.error( "Could not not write pretty property file " + outputFile.getPath() );
          LOGGER.error( ioE.getMessage() );
@@ -88,6 +85,20 @@ public class PropertyTextWriter {
       LOGGER.info( "Finished processing" );
    }
 
+   /**
+    * Write sentence property lists for the whole document
+    *
+    * @param jcas   ye olde ...
+    * @param writer writer to which property lists for the document should be written
+    * @throws IOException if the writer has issues
+    */
+   public void writeFile( final JCas jcas, final BufferedWriter writer ) throws IOException {
+      final Collection<Sentence> sentences = JCasUtil.select( jcas, Sentence.class );
+      for ( Sentence sentence : sentences ) {
+         writeSentence( jcas, sentence, writer );
+      }
+   }
+
    /**
     * Write a sentence and list of event and anatomical site properties from the document text
     *
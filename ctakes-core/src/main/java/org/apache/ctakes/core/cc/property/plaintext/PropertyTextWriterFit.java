@@ -1,18 +1,16 @@
 package org.apache.ctakes.core.cc.property.plaintext;
 
+import org.apache.ctakes.core.cc.AbstractJCasFileWriter;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
-import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.CAS;
-import org.apache.uima.cas.CASException;
-import org.apache.uima.fit.component.CasConsumer_ImplBase;
-import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
-import static org.apache.ctakes.core.config.ConfigParameterConstants.DESC_OUTPUTDIR;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+
 import static org.apache.ctakes.core.config.ConfigParameterConstants.PARAM_OUTPUTDIR;
 
 /**
@@ -33,15 +31,7 @@ import static org.apache.ctakes.core.config.ConfigParameterConstants.PARAM_OUTPU
       dependencies = { PipeBitInfo.TypeProduct.DOCUMENT_ID, PipeBitInfo.TypeProduct.SENTENCE,
                        PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION }
 )
-public class PropertyTextWriterFit extends CasConsumer_ImplBase {
-
-   @ConfigurationParameter(
-         name = PARAM_OUTPUTDIR,
-         mandatory = false,
-         description = DESC_OUTPUTDIR,
-         defaultValue = ""
-   )
-   private String fitOutputDirectoryPath;
+public class PropertyTextWriterFit extends AbstractJCasFileWriter {
 
 //   static private final Logger LOGGER = Logger.getLogger( "PropertyTextWriterFit" );
 
@@ -54,36 +44,27 @@ public class PropertyTextWriterFit extends CasConsumer_ImplBase {
    }
 
    /**
+    * Property files are written directly in the output directory.
     * {@inheritDoc}
     */
    @Override
-   public void initialize( final UimaContext uimaContext ) throws ResourceInitializationException {
-      super.initialize( uimaContext );
-      try {
-         if ( fitOutputDirectoryPath != null ) {
-            _propertyTextWriter.setOutputDirectory( fitOutputDirectoryPath );
-         } else {
-            _propertyTextWriter.setOutputDirectory( (String)uimaContext.getConfigParameterValue( PARAM_OUTPUTDIR ) );
-         }
-      } catch ( IllegalArgumentException | SecurityException multE ) {
-         // thrown if the path specifies a File (not Dir) or by file system access methods
-         throw new ResourceInitializationException( multE );
-      }
+   protected String getOutputDirectory( final JCas jcas, final String rootPath, final String documentId ) {
+      return rootPath;
    }
 
-
    /**
+    * Writes the file named for the document id.
     * {@inheritDoc}
     */
    @Override
-   public void process( final CAS aCAS ) throws AnalysisEngineProcessException {
-      JCas jcas;
-      try {
-         jcas = aCAS.getJCas();
-      } catch ( CASException casE ) {
-         throw new AnalysisEngineProcessException( casE );
+   public void writeFile( final JCas jCas,
+                          final String outputDir,
+                          final String documentId,
+                          final String fileName ) throws IOException {
+      final File outputFile = new File( outputDir, documentId + PropertyTextWriter.FILE_EXTENSION );
+      try ( BufferedWriter writer = new BufferedWriter( createWriter( outputFile ) ) ) {
+         _propertyTextWriter.writeFile( jCas, writer );
       }
-      _propertyTextWriter.process( jcas );
    }
 
    /**
@@ -102,7 +83,8 @@ public class PropertyTextWriterFit extends CasConsumer_ImplBase {
    static public AnalysisEngineDescription createAnnotatorDescription( final String outputDirectoryPath )
          throws ResourceInitializationException {
       return AnalysisEngineFactory.createEngineDescription( PropertyTextWriterFit.class,
-            PARAM_OUTPUTDIR, outputDirectoryPath );
+            PARAM_OUTPUTDIR, outputDirectoryPath == null || outputDirectoryPath.isEmpty()
+                             ? System.getProperty( "user.dir" ) : outputDirectoryPath );
    }
 
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.cc.FileTreeBinaryCasWriter;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.BinaryCasCompression;
+import org.apache.ctakes.core.util.NumberedSuffixComparator;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasLoadMode;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads binary cas files written by {@link FileTreeBinaryCasWriter} from a directory tree.
+ * <p>
+ * Each cas is restored as it was written, including the document id, prefix and path of the original note,
+ * so the reader can replace an xmi reader in front of any pipeline.
+ * Files without an embedded type system are read with {@link FileTreeBinaryCasWriter#TYPE_SYSTEM_FILE}
+ * from the input directory.  Types and features that are not in the reading pipeline's type system are dropped.
+ * </p>
+ */
+@PipeBitInfo(
+      name = "Binary CAS Reader (Dir Tree)",
+      description = "Reads document texts and annotations from compressed binary CAS files in a directory tree.",
+      role = PipeBitInfo.Role.READER,
+      products = { PipeBitInfo.TypeProduct.DOCUMENT_ID }
+)
+public class FileTreeBinaryCasReader extends JCasCollectionReader_ImplBase {
+
+   static private final Logger LOGGER = Logger.getLogger( "FileTreeBinaryCasReader" );
+
+   @ConfigurationParameter(
+         name = ConfigParameterConstants.PARAM_INPUTDIR,
+         description = ConfigParameterConstants.DESC_INPUTDIR
+   )
+   private File _rootDir;
+
+   private final List<File> _files = new ArrayList<>();
+   private byte[] _typeSystem;
+   private int _currentIndex;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      if ( !_rootDir.isDirectory() ) {
+         throw new ResourceInitializationException( new FileNotFoundException( _rootDir.getPath() ) );
+      }
+      final File typeSystemFile = new File( _rootDir, FileTreeBinaryCasWriter.TYPE_SYSTEM_FILE );
+      if ( typeSystemFile.isFile() ) {
+         try {
+            _typeSystem = Files.readAllBytes( typeSystemFile.toPath() );
+         } catch ( IOException ioE ) {
+            throw new ResourceInitializationException( ioE );
+         }
+      }
+      addFiles( _rootDir, new FileComparator() );
+      LOGGER.info( "Found " + _files.size() + " Binary CAS files in " + _rootDir.getPath() );
+   }
+
+   /**
+    * Adds the files in a directory before the files in its subdirectories, as {@link AbstractFileTreeReader} does,
+    * so that documents are read in the same order as from the tree that was written.
+    */
+   private void addFiles( final File directory, final Comparator<File> comparator ) {
+      final File[] children = directory.listFiles();
+      if ( children == null ) {
+         return;
+      }
+      final List<File> childDirs = new ArrayList<>();
+      final List<File> files = new ArrayList<>();
+      for ( File child : children ) {
+         if ( child.isDirectory() ) {
+            childDirs.add( child );
+         } else if ( BinaryCasCompression.getFileCompression( child ) != null && !child.isHidden() ) {
+            files.add( child );
+         }
+      }
+      files.sort( comparator );
+      childDirs.sort( comparator );
+      _files.addAll( files );
+      for ( File childDir : childDirs ) {
+         addFiles( childDir, comparator );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean hasNext() {
+      return _currentIndex < _files.size();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void getNext( final JCas jCas ) throws IOException, CollectionException {
+      final File file = _files.get( _currentIndex );
+      _currentIndex++;
+      LOGGER.info( "Reading " + file.getPath() );
+      final BinaryCasCompression compression = BinaryCasCompression.getFileCompression( file );
+      try ( InputStream casStream
+                  = compression.decompress( new BufferedInputStream( new FileInputStream( file ), 64 * 1024 ) );
+            InputStream typeSystemStream = _typeSystem == null ? null : new ByteArrayInputStream( _typeSystem ) ) {
+         CasIOUtils.load( casStream, typeSystemStream, jCas.getCas(), CasLoadMode.LENIENT );
+      }
+      LOGGER.info( "Finished Reading." );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Progress[] getProgress() {
+      return new Progress[]{ new ProgressImpl( _currentIndex, _files.size(), Progress.ENTITIES ) };
+   }
+
+   /**
+    * Sorts files and directories by name with {@link NumberedSuffixComparator}, as {@link AbstractFileTreeReader} does.
+    */
+   static private final class FileComparator implements Comparator<File> {
+      final private Comparator<String> __delegate = new NumberedSuffixComparator();
+
+      @Override
+      public int compare( final File file1, final File file2 ) {
+         return __delegate.compare( file1.getName(), file2.getName() );
+      }
+   }
+
+}
@@ -21,12 +21,17 @@ import org.apache.uima.util.Progress;
 import org.apache.uima.util.ProgressImpl;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,6 +40,13 @@ import java.util.stream.Stream;
  * Recursively reads a directory tree of files, sorted by level (root first),
  * creating the DocumentID from the file name and the DocumentIdPrefix by the subdirectory path between
  * the root and the leaf file
+ * <p>
+ * With a {@link #PARAM_PREFETCH_COUNT} above 0 the directory tree is walked as documents are requested instead of
+ * all at once, and upcoming files are read by a pool of threads while the pipeline works on the current document.
+ * Documents are returned in the same order in either case.
+ * The tree below each patient level directory is still listed when that directory is reached,
+ * so that the number of documents for the patient is known before its first document is returned.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -116,12 +128,51 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
    )
    private int _patientLevel = 1;
 
+   /**
+    * Name of configuration parameter that sets the number of files to read ahead of the pipeline.
+    */
+   public static final String PARAM_PREFETCH_COUNT = "PrefetchCount";
+   @ConfigurationParameter(
+         name = PARAM_PREFETCH_COUNT,
+         description = "Number of files to read ahead on background threads while the directory tree is walked"
+                       + " as needed.  Default value is 0; walk the whole tree first and read each file when requested."
+                       + "  When above 0 each patient must have only one directory at the patient level.",
+         mandatory = false
+   )
+   private int _prefetchCount = 0;
+
+   /**
+    * Name of configuration parameter that sets the number of threads that read ahead.
+    */
+   public static final String PARAM_READ_THREADS = "ReadThreads";
+   @ConfigurationParameter(
+         name = PARAM_READ_THREADS,
+         description = "Number of threads that read files ahead when PrefetchCount is above 0.",
+         mandatory = false
+   )
+   private int _readThreads = 2;
+
+   /**
+    * Name of configuration parameter that sets the size of files that are memory mapped instead of buffered.
+    */
+   public static final String PARAM_MAP_FILE_SIZE = "MapFileSize";
+   @ConfigurationParameter(
+         name = PARAM_MAP_FILE_SIZE,
+         description = "Files of at least this many bytes are read by memory mapping when KeepCR is true."
+                       + "  Default value is 0; never map files.",
+         mandatory = false
+   )
+   private int _mapFileSize = 0;
+
    private File _rootDir;
    private Collection<String> _validExtensions;
    private List<File> _files;
    private Map<File, String> _filePatients;
    private int _currentIndex;
    private Map<String, Integer> _patientDocCounts = new HashMap<>();
+   private FileWalker _fileWalker;
+   private ExecutorService _readPool;
+   private final Deque<PrefetchedFile> _prefetchedFiles = new ArrayDeque<>();
 
    /**
     * {@inheritDoc}
@@ -142,6 +193,11 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
          _files = Collections.singletonList( _rootDir );
          _filePatients = Collections.singletonMap( _rootDir, patient );
          PatientNoteStore.getInstance().setWantedDocCount( patient, 1 );
+      } else if ( _prefetchCount > 0 ) {
+         // walk the tree as files are needed and read ahead in the background.
+         _filePatients = new HashMap<>();
+         _fileWalker = new FileWalker();
+         _readPool = Executors.newFixedThreadPool( Math.max( 1, _readThreads ), new ReadThreadFactory() );
       } else {
          // gather all of the files and set the document counts per patient.
          _filePatients = new HashMap<>();
@@ -274,10 +330,14 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
     * Gets the total number of documents that will be returned by this
     * collection reader.  This is not part of the general collection reader
     * interface.
+    * When prefetching, this is the number of documents found so far.
     *
     * @return the number of documents in the collection
     */
    public int getNumberOfDocuments() {
+      if ( _fileWalker != null ) {
+         return _fileWalker._foundCount;
+      }
       return _files.size();
    }
 
@@ -287,6 +347,9 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
     */
    @Override
    public boolean hasNext() {
+      if ( _fileWalker != null ) {
+         return !_prefetchedFiles.isEmpty() || _fileWalker.hasNext();
+      }
       return _currentIndex < _files.size();
    }
 
@@ -295,9 +358,22 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
     */
    @Override
    public void getNext( final JCas jcas ) throws IOException, CollectionException {
-      final File file = _files.get( _currentIndex );
+      final File file;
+      String docText;
+      final String patientId;
+      if ( _fileWalker != null ) {
+         prefetch();
+         final PrefetchedFile prefetched = _prefetchedFiles.remove();
+         file = prefetched._file;
+         docText = prefetched.getText();
+         patientId = _filePatients.remove( file );
+         prefetch();
+      } else {
+         file = _files.get( _currentIndex );
+         docText = readFile( file );
+         patientId = _filePatients.get( file );
+      }
       _currentIndex++;
-      String docText = readFile( file );
       if ( !docText.isEmpty() && !docText.endsWith( "\n" ) ) {
          // Make sure that we end with a newline
          docText += "\n";
@@ -311,13 +387,22 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
       final String idPrefix = createDocumentIdPrefix( file, _rootDir );
       documentIdPrefix.setDocumentIdPrefix( idPrefix );
       documentIdPrefix.addToIndexes();
-      final String patientId = _filePatients.get( file );
       SourceMetadataUtil.setPatientIdentifier( jcas, patientId );
       final DocumentPath documentPath = new DocumentPath( jcas );
       documentPath.setDocumentPath( file.getAbsolutePath() );
       documentPath.addToIndexes();
    }
 
+   /**
+    * Starts reading files until the wanted number are read or being read.
+    */
+   private void prefetch() {
+      while ( _prefetchedFiles.size() < _prefetchCount && _fileWalker.hasNext() ) {
+         final File file = _fileWalker.next();
+         _prefetchedFiles.add( new PrefetchedFile( file, _readPool.submit( () -> readFile( file ) ) ) );
+      }
+   }
+
    /**
     * Reads file using a Path and stream.  Failing that it calls {@link #readByBuffer(File)}
     *
@@ -372,6 +457,9 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
     * @throws IOException if the file could not be read
     */
    private String readByBuffer( final File file ) throws IOException {
+      if ( _mapFileSize > 0 && file.length() >= _mapFileSize ) {
+         return readByMap( file );
+      }
       // Use 8KB as the default buffer size
       byte[] buffer = new byte[ 8192 ];
       final StringBuilder sb = new StringBuilder();
@@ -393,11 +481,29 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
       return sb.toString();
    }
 
+   /**
+    * Reads file by mapping it into memory, which avoids copying large files through a buffer.
+    *
+    * @param file file to read
+    * @return text in file
+    * @throws IOException if the file could not be read
+    */
+   private String readByMap( final File file ) throws IOException {
+      final Charset charset = _encoding != null ? Charset.forName( _encoding ) : Charset.defaultCharset();
+      try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+         final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+         return charset.decode( buffer ).toString();
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
    @Override
    public void close() throws IOException {
+      if ( _readPool != null ) {
+         _readPool.shutdownNow();
+      }
    }
 
    /**
@@ -405,6 +511,13 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
     */
    @Override
    public Progress[] getProgress() {
+      if ( _fileWalker != null ) {
+         // The total is unknown until the whole tree has been walked
+         final int total = _fileWalker.hasNext() ? -1 : _fileWalker._foundCount;
+         return new Progress[] {
+               new ProgressImpl( _currentIndex, total, Progress.ENTITIES )
+         };
+      }
       return new Progress[] {
             new ProgressImpl( _currentIndex, _files.size(), Progress.ENTITIES )
       };
@@ -424,4 +537,139 @@ final public class FileTreeReader extends JCasCollectionReader_ImplBase {
             inputDirectory );
    }
 
+
+   /**
+    * Walks the directory tree as files are requested, returning files in the same order as
+    * {@link #getDescendentFiles(File, Collection, int)}.
+    * A patient level directory is listed completely when it is reached and its document count is set.
+    * The count is set before the rest of the tree is walked, so a patient cannot be split across directories
+    * with the same name in different subtrees.  Walking fails when a patient name is repeated,
+    * as the patient could already have been completed with only part of its notes.
+    */
+   private final class FileWalker implements Iterator<File> {
+      // Files and directories not yet returned or walked, the next on top.
+      private final Deque<Object> _pending = new ArrayDeque<>();
+      private int _foundCount;
+
+      private FileWalker() {
+         _pending.push( new PendingDirectory( _rootDir, 0 ) );
+      }
+
+      @Override
+      public boolean hasNext() {
+         while ( !_pending.isEmpty() ) {
+            final Object next = _pending.peek();
+            if ( !(next instanceof PendingDirectory) ) {
+               return true;
+            }
+            _pending.pop();
+            walkDirectory( ((PendingDirectory)next)._dir, ((PendingDirectory)next)._level );
+         }
+         return false;
+      }
+
+      @Override
+      public File next() {
+         if ( !hasNext() ) {
+            throw new NoSuchElementException();
+         }
+         _foundCount++;
+         return (File)_pending.pop();
+      }
+
+      private void walkDirectory( final File dir, final int level ) {
+         if ( level == _patientLevel ) {
+            final String patientId = dir.getName();
+            final int earlierCount = _patientDocCounts.getOrDefault( patientId, 0 );
+            final List<File> files = getDescendentFiles( dir, _validExtensions, level );
+            if ( files.isEmpty() ) {
+               return;
+            }
+            if ( earlierCount > 0 ) {
+               throw new IllegalStateException( "Patient " + patientId + " has notes in more than one directory,"
+                                                + " second is " + dir.getPath() + " ; set "
+                                                + PARAM_PREFETCH_COUNT + " to 0 to read split patients" );
+            }
+            PatientNoteStore.getInstance().setWantedDocCount( patientId, _patientDocCounts.get( patientId ) );
+            for ( int i = files.size() - 1; i >= 0; i-- ) {
+               _pending.push( files.get( i ) );
+            }
+            return;
+         }
+         final File[] children = dir.listFiles();
+         if ( children == null ) {
+            return;
+         }
+         final List<File> childDirs = new ArrayList<>();
+         final List<File> files = new ArrayList<>();
+         for ( File child : children ) {
+            if ( child.isDirectory() ) {
+               childDirs.add( child );
+            } else if ( isExtensionValid( child, _validExtensions ) && !child.isHidden() ) {
+               files.add( child );
+            }
+         }
+         for ( int i = childDirs.size() - 1; i >= 0; i-- ) {
+            _pending.push( new PendingDirectory( childDirs.get( i ), level + 1 ) );
+         }
+         for ( int i = files.size() - 1; i >= 0; i-- ) {
+            _pending.push( files.get( i ) );
+         }
+      }
+   }
+
+   /**
+    * A directory that has not yet been walked and its level beneath the root directory.
+    */
+   static private final class PendingDirectory {
+      private final File _dir;
+      private final int _level;
+
+      private PendingDirectory( final File dir, final int level ) {
+         _dir = dir;
+         _level = level;
+      }
+   }
+
+   /**
+    * A file and its text, which is being read on a background thread.
+    */
+   static private final class PrefetchedFile {
+      private final File _file;
+      private final Future<String> _text;
+
+      private PrefetchedFile( final File file, final Future<String> text ) {
+         _file = file;
+         _text = text;
+      }
+
+      private String getText() throws IOException {
+         try {
+            return _text.get();
+         } catch ( InterruptedException intE ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while reading " + _file.getPath(), intE );
+         } catch ( ExecutionException exE ) {
+            if ( exE.getCause() instanceof IOException ) {
+               throw (IOException)exE.getCause();
+            }
+            throw new IOException( "Could not read " + _file.getPath(), exE.getCause() );
+         }
+      }
+   }
+
+   /**
+    * Creates daemon threads so that an unclosed reader does not keep the jvm running.
+    */
+   static private final class ReadThreadFactory implements ThreadFactory {
+      private final AtomicInteger _count = new AtomicInteger();
+
+      @Override
+      public Thread newThread( final Runnable runnable ) {
+         final Thread thread = new Thread( runnable, "FileTreeReader-" + _count.incrementAndGet() );
+         thread.setDaemon( true );
+         return thread;
+      }
+   }
+
 }
@@ -33,7 +33,10 @@ import org.apache.uima.util.ProgressImpl;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +44,13 @@ import java.util.StringTokenizer;
 
 /**
  * Collection Reader that pulls documents to be processed from a database.
+ * <p>
+ * If a key column is specified, rows are read in pages ordered by that key,
+ * each page starting after the last key of the previous page.  No count
+ * query is run and the key reached can be kept in a checkpoint file so that
+ * a stopped run can resume.  The key range can also be split into partitions
+ * that separate pipeline processes read at the same time.
+ * </p>
  * 
  * @author Mayo Clinic
  */
@@ -92,6 +102,52 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
      */
     public static final String PARAM_VALUE_FILE_RESRC = "ValueFileResrcName";
 
+    /**
+     * Optional parameter. Number of rows that the JDBC driver fetches from the
+     * database at a time. Some drivers, such as PostgreSQL, only stream rows
+     * when the connection is not in auto-commit mode.
+     */
+    public static final String PARAM_FETCH_SIZE = "FetchSize";
+
+    /**
+     * Optional parameter. Name of a numeric column used to read rows in pages
+     * ordered by that column, ideally unique and indexed. Rows with the same
+     * key are always read in the same page, so a page can hold more rows than
+     * the page size. The SQL statement is used as a subquery, so it must not
+     * have an ORDER BY clause. Cannot be used with a value file. If no
+     * document ID columns are specified, the key is the document ID.
+     */
+    public static final String PARAM_KEY_COL = "KeyColName";
+
+    /**
+     * Optional parameter. Number of rows in each page when a key column is
+     * specified. Default is 1000.
+     */
+    public static final String PARAM_PAGE_SIZE = "PageSize";
+
+    /**
+     * Optional parameter. Path to a file that keeps the key reached when a key
+     * column is specified. If the file exists, reading starts after the key in
+     * it. The key is written as pages are started and lags one page behind the
+     * rows that have been read, so that rows still in the pipeline are read
+     * again after a crash rather than lost.
+     */
+    public static final String PARAM_CHECKPOINT_FILE = "CheckpointFile";
+
+    /**
+     * Optional parameter. Number of equal key ranges that the rows are split
+     * into when a key column is specified. Default is 1.
+     */
+    public static final String PARAM_PARTITION_COUNT = "PartitionCount";
+
+    /**
+     * Optional parameter. Index, starting at 0, of the key range read by this
+     * reader. Each pipeline process should read a different partition. With
+     * more than one partition, the partition index is appended to the
+     * checkpoint file name.
+     */
+    public static final String PARAM_PARTITION_INDEX = "PartitionIndex";
+
     private PreparedStatement queryPrepStmt;
     private ResultSet rs;
 
@@ -115,6 +171,21 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
     private int prepStmtValArrIdx = 0;
     private boolean usePrepStmtVals = false;
 
+    // paging by key, used only if a key column is specified
+    private String keyColName = null;
+    private int pageSize = 1000;
+    private File checkpointFile = null;
+    // keys are read after pageStartKey up to and including endKey
+    private long pageStartKey = Long.MIN_VALUE;
+    private long prevPageStartKey = Long.MIN_VALUE;
+    private long pageEndKey;
+    private long endKey = Long.MAX_VALUE;
+    private long lastKey;
+    private boolean lastPage = false;
+    private boolean pagesDone = false;
+    // finds the last key of each page
+    private PreparedStatement pageKeyPrepStmt;
+
    @Override
     public void initialize() throws ResourceInitializationException
     {
@@ -132,11 +203,29 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
             }
 
             Connection conn = resrc.getConnection();
-            queryPrepStmt = conn.prepareStatement(sql);
+            keyColName = (String) getConfigParameterValue(PARAM_KEY_COL);
+            if ((keyColName != null) && (keyColName.trim().length() > 0))
+            {
+                initPaging(conn, sql);
+            } else
+            {
+                keyColName = null;
+                queryPrepStmt = conn.prepareStatement(sql);
+            }
+            Integer fetchSize = (Integer) getConfigParameterValue(PARAM_FETCH_SIZE);
+            if (fetchSize != null)
+            {
+                queryPrepStmt.setFetchSize(fetchSize);
+            }
 
             String fileResrcName = (String) getConfigParameterValue(PARAM_VALUE_FILE_RESRC);
             if ((fileResrcName != null) && (fileResrcName.trim().length() > 0))
             {
+                if (keyColName != null)
+                {
+                    throw new Exception(PARAM_VALUE_FILE_RESRC
+                            + " cannot be used with " + PARAM_KEY_COL);
+                }
                 FileResource fileResrc = (FileResource) getUimaContext().getResourceObject(fileResrcName);
                 if (fileResrc != null)
                 {
@@ -149,13 +238,158 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
                 }
             }
 
-            totalRowCount = getRowCount(conn, sql);
+            if (keyColName == null)
+            {
+                totalRowCount = getRowCount(conn, sql);
+            }
         } catch (Exception e)
         {
             throw new ResourceInitializationException(e);
         }
     }
 
+    /**
+     * Prepares the paged query and sets the range of keys to read from the
+     * partition and checkpoint file.
+     * 
+     * @param conn
+     * @param querySql
+     */
+    private void initPaging(Connection conn, String querySql)
+            throws SQLException, IOException
+    {
+        keyColName = keyColName.trim();
+        if (docIdColNames == null)
+        {
+            docIdColNames = new String[] { keyColName };
+        }
+        if (getConfigParameterValue(PARAM_PAGE_SIZE) != null)
+        {
+            pageSize = (Integer) getConfigParameterValue(PARAM_PAGE_SIZE);
+        }
+        int partitionCount = 1;
+        if (getConfigParameterValue(PARAM_PARTITION_COUNT) != null)
+        {
+            partitionCount = (Integer) getConfigParameterValue(PARAM_PARTITION_COUNT);
+        }
+        int partitionIdx = 0;
+        if (getConfigParameterValue(PARAM_PARTITION_INDEX) != null)
+        {
+            partitionIdx = (Integer) getConfigParameterValue(PARAM_PARTITION_INDEX);
+        }
+        if (partitionIdx < 0 || partitionIdx >= partitionCount)
+        {
+            throw new IllegalArgumentException("Partition index " + partitionIdx
+                    + " is not between 0 and " + (partitionCount - 1));
+        }
+
+        // derived table without AS so that it also works on Oracle
+        String fromSql = " FROM (" + querySql + ") ctakes_rows";
+        if (partitionCount > 1)
+        {
+            Statement rangeStmt = conn.createStatement();
+            ResultSet rangeRs = rangeStmt.executeQuery("SELECT MIN("
+                    + keyColName + "), MAX(" + keyColName + ")" + fromSql);
+            rangeRs.next();
+            long minKey = rangeRs.getLong(1);
+            long maxKey = rangeRs.getLong(2);
+            boolean empty = rangeRs.wasNull();
+            rangeRs.close();
+            rangeStmt.close();
+            if (empty)
+            {
+                pagesDone = true;
+            } else
+            {
+                pageStartKey = getPartitionBound(minKey, maxKey, partitionCount, partitionIdx);
+                endKey = getPartitionBound(minKey, maxKey, partitionCount, partitionIdx + 1);
+            }
+            logger.info("Reading partition " + partitionIdx + " of "
+                    + partitionCount + ", keys after " + pageStartKey
+                    + " up to " + endKey);
+        }
+
+        String checkpointPath = (String) getConfigParameterValue(PARAM_CHECKPOINT_FILE);
+        if ((checkpointPath != null) && (checkpointPath.trim().length() > 0))
+        {
+            if (partitionCount > 1)
+            {
+                checkpointPath += "." + partitionIdx;
+            }
+            checkpointFile = new File(checkpointPath.trim());
+            if (checkpointFile.isFile())
+            {
+                long checkpointKey = readCheckpoint();
+                logger.info("Resuming after key " + checkpointKey + " from "
+                        + checkpointFile.getPath());
+                pageStartKey = Math.max(pageStartKey, checkpointKey);
+            }
+        }
+        prevPageStartKey = pageStartKey;
+        lastKey = pageStartKey;
+
+        String rangeSql = " WHERE " + keyColName + " > ? AND " + keyColName
+                + " <= ? ORDER BY " + keyColName;
+        pageKeyPrepStmt = conn.prepareStatement("SELECT " + keyColName
+                + fromSql + rangeSql);
+        pageKeyPrepStmt.setMaxRows(pageSize);
+        queryPrepStmt = conn.prepareStatement("SELECT *" + fromSql + rangeSql);
+    }
+
+    /**
+     * @return the exclusive lower key of the partition, which is also the
+     *         inclusive upper key of the previous partition
+     */
+    static long getPartitionBound(long minKey, long maxKey, int partitionCount,
+            int partitionIdx)
+    {
+        if (partitionIdx == partitionCount)
+        {
+            return maxKey;
+        }
+        // divide before multiplying so that wide key ranges do not overflow
+        long span = maxKey - minKey + 1;
+        long offset = (span / partitionCount) * partitionIdx
+                + (span % partitionCount) * partitionIdx / partitionCount;
+        return minKey - 1 + offset;
+    }
+
+    private long readCheckpoint() throws IOException
+    {
+        BufferedReader br = new BufferedReader(new FileReader(checkpointFile));
+        try
+        {
+            return Long.parseLong(br.readLine().trim());
+        } finally
+        {
+            br.close();
+        }
+    }
+
+    /**
+     * Replaces the checkpoint file with the given key.
+     * 
+     * @param key
+     */
+    private void writeCheckpoint(long key) throws IOException
+    {
+        if (checkpointFile == null)
+        {
+            return;
+        }
+        File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        FileWriter writer = new FileWriter(tempFile);
+        try
+        {
+            writer.write(Long.toString(key));
+            writer.write('\n');
+        } finally
+        {
+            writer.close();
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
     /**
      * Loads the prepared statement value file.
      * 
@@ -356,6 +590,10 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
     {
         try
         {
+            if (keyColName != null)
+            {
+                return hasNextPagedRow();
+            }
 
             if (rs == null)
             {
@@ -369,10 +607,7 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
                 rs = queryPrepStmt.executeQuery();
 
                 // TODO only needs to be done once
-                ResultSetMetaData rsMetaData = rs.getMetaData();
-                int colIdx = rs.findColumn(docTextColName);
-                docColType = rsMetaData.getColumnType(colIdx);
-                docColTypeName = rsMetaData.getColumnTypeName(1);
+                setDocColType();
             }
 
             boolean hasAnotherRow = rs.next();
@@ -408,6 +643,76 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
         }
     }
 
+    private void setDocColType() throws SQLException
+    {
+        ResultSetMetaData rsMetaData = rs.getMetaData();
+        int colIdx = rs.findColumn(docTextColName);
+        docColType = rsMetaData.getColumnType(colIdx);
+        docColTypeName = rsMetaData.getColumnTypeName(1);
+    }
+
+    /**
+     * Moves to the next row, querying the next page of rows when the current
+     * page is exhausted.
+     * 
+     * @return true if there is another row
+     */
+    private boolean hasNextPagedRow() throws SQLException, IOException
+    {
+        while (!pagesDone)
+        {
+            if (rs == null)
+            {
+                // rows up to the start of the previous page were all read at
+                // least a page ago
+                writeCheckpoint(prevPageStartKey);
+                prevPageStartKey = pageStartKey;
+                setPageEndKey();
+                queryPrepStmt.setLong(1, pageStartKey);
+                queryPrepStmt.setLong(2, pageEndKey);
+                rs = queryPrepStmt.executeQuery();
+                setDocColType();
+            }
+            if (rs.next())
+            {
+                lastKey = rs.getLong(keyColName);
+                return true;
+            }
+            rs.close();
+            rs = null;
+            if (lastPage)
+            {
+                pagesDone = true;
+            } else
+            {
+                pageStartKey = pageEndKey;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the last key of the page that starts after the page start key. The
+     * page ends on a key rather than a row count so that rows with the same
+     * key are not split between pages, where the next page would skip them.
+     */
+    private void setPageEndKey() throws SQLException
+    {
+        pageKeyPrepStmt.setLong(1, pageStartKey);
+        pageKeyPrepStmt.setLong(2, endKey);
+        ResultSet keyRs = pageKeyPrepStmt.executeQuery();
+        int keyCount = 0;
+        long key = pageStartKey;
+        while (keyRs.next())
+        {
+            key = keyRs.getLong(1);
+            keyCount++;
+        }
+        keyRs.close();
+        lastPage = keyCount < pageSize;
+        pageEndKey = lastPage ? endKey : key;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -416,7 +721,14 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
     @Override
     public Progress[] getProgress()
     {
-        Progress p = new ProgressImpl(currRowCount, totalRowCount,
+        int total = totalRowCount;
+        if (keyColName != null)
+        {
+            // there is no count query for pages, so the total is unknown until
+            // all rows have been read
+            total = pagesDone ? currRowCount : -1;
+        }
+        Progress p = new ProgressImpl(currRowCount, total,
                 Progress.ENTITIES);
         return new Progress[] { p };
     }
@@ -431,7 +743,15 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase
     {
         try
         {
+            if (pagesDone)
+            {
+                writeCheckpoint(lastKey);
+            }
             queryPrepStmt.close();
+            if (pageKeyPrepStmt != null)
+            {
+                pageKeyPrepStmt.close();
+            }
         } catch (Exception e)
         {
             throw new IOException(e.getMessage());
@@ -302,6 +302,22 @@ public class ContractionsPTB {
 	return MultiTokenWordLenToken3[index];
     }
 
+    /**
+     * Same as looking up the lower cased text in MultiTokenWordsLookup, without creating a String
+     * @return index of the multi token word that is the text between begin and end, ignoring case, or -1
+     */
+    static int indexOfMultiTokenWord(char[] text, int begin, int end) {
+	loop: for (int i = 0; i < MultiTokenWords.length; i++) {
+	    String word = MultiTokenWords[i];
+	    if (word.length() != end-begin) continue;
+	    for (int j = 0; j < word.length(); j++) {
+		if (Character.toLowerCase(text[begin+j]) != word.charAt(j)) continue loop;
+	    }
+	    return i;
+	}
+	return -1;
+    }
+
     //
     //    static boolean isMultiWordToken(int currentPosition, String textSegment, int endOfInputToConsider) {
     //	
@@ -0,0 +1,702 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.nlp.tokenizer;
+
+import org.apache.ctakes.core.ae.TokenizerAnnotator;
+
+import java.util.Arrays;
+
+import static org.apache.ctakes.core.nlp.tokenizer.TokenizerHelper.*;
+
+/**
+ * Tokenizes with the same Penn Treebank rules as {@link TokenizerPTB}, working on the characters of the document.
+ * <p>
+ * Character classes of ascii characters come from a table, and tokens are kept as offset pairs with a type,
+ * so tokenizing a sentence creates no objects.  Only a word containing a hyphen or an apostrophe is copied
+ * to a lower cased String, for the rules of {@link HyphenatedPTB} and {@link ContractionsPTB}.
+ * Offsets are document offsets.
+ * </p>
+ * Text is lower cased one character at a time, so characters whose lower case is longer than one character
+ * do not shift the offsets of later tokens, as they can with {@link TokenizerPTB}.
+ * An instance holds the tokens of the last tokenized segment and is not thread safe.
+ */
+final public class FastTokenizerPTB {
+
+   public enum TokenType {
+      NEWLINE,
+      WORD,
+      NUMBER,
+      PUNCTUATION,
+      SYMBOL,
+      CONTRACTION
+   }
+
+   static private final byte WHITESPACE = 1;
+   static private final byte LETTER = 2;
+   static private final byte DIGIT = 4;
+   static private final byte PUNCTUATION = 8;
+   static private final byte[] ASCII_CLASSES = new byte[ 128 ];
+
+   static {
+      for ( char c = 0; c < ASCII_CLASSES.length; c++ ) {
+         byte charClass = 0;
+         if ( Character.isWhitespace( c ) ) {
+            charClass |= WHITESPACE;
+         }
+         if ( Character.isLetter( c ) ) {
+            charClass |= LETTER;
+         }
+         if ( Character.isDigit( c ) ) {
+            charClass |= DIGIT;
+         }
+         if ( isPunctuation( c ) ) {
+            charClass |= PUNCTUATION;
+         }
+         ASCII_CLASSES[ c ] = charClass;
+      }
+   }
+
+   static private final String ELLIPSIS = "...";
+   static private final String WWW = "www.";
+   static private final String[] URL_STARTERS = { "http://", "https://", "ftp://", "mailto:" };
+   static private final String FINAL_PUNCTUATION = "?!:";
+   static private final String EMAIL_CHARACTERS = "!#$%&'*+/=?^_`{|}~-";
+   static private final int MAX_EMAIL_LOCAL_LENGTH = 64;
+   static private final int MAX_EMAIL_LENGTH = 320;
+
+   private char[] _text;
+   private int _segmentBegin;
+   private int _segmentEnd;
+   private String _lowerCasedSegment;
+
+   private int _tokenCount;
+   private int[] _begins = new int[ 64 ];
+   private int[] _ends = new int[ 64 ];
+   private TokenType[] _types = new TokenType[ 64 ];
+
+   /**
+    * Tokenizes the text between the given offsets.
+    *
+    * @param text  characters of the document
+    * @param begin offset of the first character of the segment
+    * @param end   offset after the last character of the segment
+    * @return number of tokens in the segment
+    */
+   public int tokenize( final char[] text, final int begin, final int end ) {
+      _text = text;
+      _segmentBegin = begin;
+      _segmentEnd = end;
+      _lowerCasedSegment = null;
+      _tokenCount = 0;
+      int position = findFirstCharOfNextToken( begin );
+      while ( position >= 0 ) {
+         position = addTokens( position );
+         position = findFirstCharOfNextToken( position );
+      }
+      _text = null;
+      _lowerCasedSegment = null;
+      return _tokenCount;
+   }
+
+   /**
+    * @param index index of a token in the last tokenized segment
+    * @return document offset of the first character of the token
+    */
+   public int getBegin( final int index ) {
+      return _begins[ index ];
+   }
+
+   /**
+    * @param index index of a token in the last tokenized segment
+    * @return document offset after the last character of the token
+    */
+   public int getEnd( final int index ) {
+      return _ends[ index ];
+   }
+
+   /**
+    * @param index index of a token in the last tokenized segment
+    * @return type of the token
+    */
+   public TokenType getType( final int index ) {
+      return _types[ index ];
+   }
+
+   /**
+    * Adds the token or tokens that start at the given position.
+    *
+    * @return position after the added tokens
+    */
+   private int addTokens( int position ) {
+      final char[] text = _text;
+      final int end = _segmentEnd;
+      final char c = text[ position ];
+      if ( position + 1 >= end || isWhitespace( text[ position + 1 ] ) ) {
+         return addToken( getSingleCharType( c ), position, 1 );
+      }
+      if ( c == NEWLINE ) {
+         return addToken( TokenType.NEWLINE, position, 1 );
+      }
+      if ( c == CR ) {
+         return addToken( TokenType.NEWLINE, position, text[ position + 1 ] == NEWLINE ? 2 : 1 );
+      }
+      if ( c == PERIOD ) {
+         final int length = getLengthIfNumberStartingWithPeriod( position );
+         if ( length > 0 ) {
+            return addToken( TokenType.NUMBER, position, length );
+         }
+         if ( regionMatches( position, end, ELLIPSIS, false ) ) {
+            return addToken( TokenType.PUNCTUATION, position, ELLIPSIS.length() );
+         }
+         return addToken( TokenType.PUNCTUATION, position, 1 );
+      }
+      if ( c == HYPHEN_OR_MINUS_SIGN ) {
+         return addToken( TokenType.PUNCTUATION, position, 1 );
+      }
+      if ( c == APOSTROPHE ) {
+         final int length = getLengthIfNameStartingWithApostrophe( position );
+         if ( length > 0 ) {
+            return addToken( TokenType.WORD, position, length );
+         }
+         if ( isContractionStartingWithApostrophe( position ) ) {
+            return addToken( TokenType.CONTRACTION, position, 2 );
+         }
+         return addToken( TokenType.PUNCTUATION, position, 1 );
+      }
+      if ( isPunctuationChar( c ) ) {
+         return addToken( TokenType.PUNCTUATION, position, 1 );
+      }
+      if ( isLetterOrDigit( c ) ) {
+         return addAlphanumericTokens( position );
+      }
+      return addToken( TokenType.SYMBOL, position, 1 );
+   }
+
+   /**
+    * Same rules as the alphanumeric branch of {@link TokenizerPTB#tokenizeTextSegment}.
+    */
+   private int addAlphanumericTokens( int position ) {
+      final char[] text = _text;
+      final int end = _segmentEnd;
+      boolean obviouslyIsWord = true;
+      boolean obviouslyIsNumber = true;
+      int nextWhitespace = -1;
+      int nextNonLetterOrDigit = -1;
+      int nextNonLetterDigitApostrophe = -1;
+      int nextNonTelephoneChar = -1;
+      int nextNonNumericChar = -1;
+      int nextNonDigit = -1;
+      int i = position;
+      char ch;
+      do {
+         ch = text[ i ];
+         if ( isWhitespace( ch ) ) {
+            if ( nextNonLetterOrDigit < 0 ) nextNonLetterOrDigit = i;
+            if ( nextNonLetterDigitApostrophe < 0 ) nextNonLetterDigitApostrophe = i;
+            if ( nextNonDigit < 0 ) nextNonDigit = i;
+            if ( nextNonTelephoneChar < 0 ) nextNonTelephoneChar = i;
+            if ( nextNonNumericChar < 0 ) nextNonNumericChar = i;
+            nextWhitespace = i;
+         } else if ( !isLetterOrDigit( ch ) ) {
+            obviouslyIsWord = false;
+            obviouslyIsNumber = false;
+            if ( nextNonLetterOrDigit < 0 ) nextNonLetterOrDigit = i;
+            if ( nextNonLetterDigitApostrophe < 0 && ch != APOSTROPHE ) nextNonLetterDigitApostrophe = i;
+            if ( nextNonDigit < 0 ) nextNonDigit = i;
+            if ( nextNonTelephoneChar < 0 && !isTelephoneNumberChar( ch ) ) nextNonTelephoneChar = i;
+            if ( nextNonNumericChar < 0 && !isNumericChar( ch ) ) nextNonNumericChar = i;
+         } else if ( !isDigit( ch ) ) {
+            obviouslyIsNumber = false;
+            if ( nextNonDigit < 0 ) nextNonDigit = i;
+            if ( nextNonTelephoneChar < 0 ) nextNonTelephoneChar = i;
+            if ( nextNonNumericChar < 0 ) nextNonNumericChar = i;
+         }
+         i++;
+      } while ( i < end && !isWhitespace( ch ) );
+      if ( i >= end ) {
+         if ( nextWhitespace < 0 ) nextWhitespace = end;
+         if ( nextNonLetterOrDigit < 0 ) nextNonLetterOrDigit = end;
+         if ( nextNonLetterDigitApostrophe < 0 ) nextNonLetterDigitApostrophe = end;
+         if ( nextNonTelephoneChar < 0 ) nextNonTelephoneChar = end;
+         if ( nextNonNumericChar < 0 ) nextNonNumericChar = end;
+      }
+
+      if ( obviouslyIsNumber ) {
+         return addToken( TokenType.NUMBER, position, nextWhitespace - position );
+      }
+      if ( obviouslyIsWord ) {
+         // "cannot", "gonna" and the like are split into a word and one or two contractions
+         final int index = ContractionsPTB.indexOfMultiTokenWord( text, position, nextWhitespace );
+         if ( index < 0 ) {
+            return addToken( TokenType.WORD, position, nextWhitespace - position );
+         }
+         position = addToken( TokenType.WORD, position, ContractionsPTB.MultiTokenWordLenToken1[ index ] );
+         position = addToken( TokenType.CONTRACTION, position, ContractionsPTB.MultiTokenWordLenToken2[ index ] );
+         final int thirdLength = ContractionsPTB.MultiTokenWordLenToken3[ index ];
+         return thirdLength > 0 ? addToken( TokenType.CONTRACTION, position, thirdLength ) : position;
+      }
+
+      int length;
+      // Check for things like 80's before checking for contractions
+      if ( nextNonLetterOrDigit < end && text[ nextNonLetterOrDigit ] == APOSTROPHE ) {
+         length = ContractionsPTB.tokenLengthCheckingForSingleQuoteWordsToKeepTogether(
+               lowerCase( position, nextWhitespace ) );
+         if ( length > nextNonLetterOrDigit - position ) {
+            return addToken( getWordOrNumberType( position, length ), position, length );
+         }
+         final ContractionResult contraction = ContractionsPTB.getLengthIfNextApostIsMiddleOfContraction(
+               position - _segmentBegin, nextNonLetterOrDigit - _segmentBegin, getLowerCasedSegment() );
+         if ( contraction != null ) {
+            length = contraction.getWordTokenLen();
+            final char c = Character.toLowerCase( text[ position + length ] );
+            if ( c != 'n' && c != APOSTROPHE ) {
+               throw new RuntimeException( "ERROR: getLengthIfNextApostIsMiddleOfContraction returned " + length
+                                           + " but the character (" + c + ") after that is not 'n' or apostrophe " );
+            }
+            if ( length < 0 ) {
+               throw new RuntimeException( "c = " + c + "tokenLen = " + length + " currentPosition = " + position );
+            }
+            if ( length > 0 ) {
+               position = addToken( TokenType.WORD, position, length );
+            }
+            return addToken( TokenType.CONTRACTION, position, contraction.getContractionTokenLen() );
+         }
+      }
+      if ( (length = getLengthIfTelephoneNumber( position, nextNonTelephoneChar )) > 0
+           || (length = getLengthIfPostalCode( position, nextNonTelephoneChar )) > 0
+           || (length = getLengthIfUrl( position, nextWhitespace )) > 0
+           || (length = getLengthIfEmailAddress( position, nextWhitespace )) > 0
+           || (length = getLengthIfAbbreviation( position, nextWhitespace )) > 0 ) {
+         return addToken( TokenType.WORD, position, length );
+      }
+      if ( nextNonLetterOrDigit < end && text[ nextNonLetterOrDigit ] == HYPHEN_OR_MINUS_SIGN ) {
+         length = HyphenatedPTB.tokenLengthCheckingForHyphenatedTerms( lowerCase( position, nextWhitespace ) );
+         if ( length < 0 ) {
+            throw new RuntimeException( "tokenLen = " + length + " currentPosition = " + position
+                                        + " nextNonLetterOrNonDigit = " + nextNonLetterOrDigit );
+         }
+         return addToken( getWordOrNumberType( position, length ), position, length );
+      }
+      if ( nextNonNumericChar > _segmentBegin
+           && (length = getLengthIfNumberContainingComma( position, nextNonNumericChar )) > 0 ) {
+         return addToken( TokenType.NUMBER, position, length );
+      }
+      if ( nextNonLetterDigitApostrophe < end && text[ nextNonLetterDigitApostrophe ] == PERIOD ) {
+         if ( nextNonDigit == end - 1 ) {
+            // The period at the end of a sentence is not part of the number
+            return addToken( TokenType.NUMBER, position, nextNonDigit - position );
+         }
+         if ( nextNonLetterDigitApostrophe == nextNonDigit ) {
+            length = nextNonDigit + 1 + getLengthOfDigits( nextNonDigit + 1 ) - position;
+            return addToken( TokenType.NUMBER, position, length );
+         }
+      }
+      length = nextNonLetterOrDigit - position;
+      return addToken( getWordOrNumberType( position, length ), position, length );
+   }
+
+   private int addToken( final TokenType type, final int begin, final int length ) {
+      if ( length < 0 ) {
+         throw new RuntimeException( "tokenLen = " + length + " currentPosition = " + begin );
+      }
+      if ( _tokenCount == _begins.length ) {
+         final int capacity = _tokenCount * 2;
+         _begins = Arrays.copyOf( _begins, capacity );
+         _ends = Arrays.copyOf( _ends, capacity );
+         _types = Arrays.copyOf( _types, capacity );
+      }
+      _begins[ _tokenCount ] = begin;
+      _ends[ _tokenCount ] = begin + length;
+      _types[ _tokenCount ] = type;
+      _tokenCount++;
+      return begin + length;
+   }
+
+   /**
+    * @return position of the next character that is not whitespace or that is an end of line, or -1
+    */
+   private int findFirstCharOfNextToken( final int start ) {
+      for ( int i = start; i < _segmentEnd; i++ ) {
+         final char c = _text[ i ];
+         if ( !isWhitespace( c ) || c == NEWLINE || c == CR ) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   static private TokenType getSingleCharType( final char c ) {
+      if ( c == NEWLINE || c == CR ) {
+         return TokenType.NEWLINE;
+      } else if ( isDigit( c ) ) {
+         return TokenType.NUMBER;
+      } else if ( isLetter( c ) ) {
+         return TokenType.WORD;
+      } else if ( isPunctuationChar( c ) ) {
+         return TokenType.PUNCTUATION;
+      }
+      return TokenType.SYMBOL;
+   }
+
+   private TokenType getWordOrNumberType( final int begin, final int length ) {
+      for ( int i = begin; i < begin + length; i++ ) {
+         if ( isLetter( _text[ i ] ) ) {
+            return TokenType.WORD;
+         }
+      }
+      return TokenType.NUMBER;
+   }
+
+   private int getLengthIfNumberStartingWithPeriod( final int position ) {
+      final int length = _segmentEnd - position;
+      if ( length < 2 || !isDigit( _text[ position + 1 ] ) ) {
+         return -1;
+      }
+      for ( int i = position + 2; i < _segmentEnd; i++ ) {
+         if ( !isDigit( _text[ i ] ) ) {
+            return i - position;
+         }
+      }
+      return length;
+   }
+
+   private int getLengthIfNameStartingWithApostrophe( final int position ) {
+      if ( position + 1 >= _segmentEnd || !isLetter( _text[ position + 1 ] ) ) {
+         return -1;
+      }
+      for ( String name : TokenizerPTB.nameStartingWithApostrophe ) {
+         if ( regionMatches( position, _segmentEnd, name, true ) ) {
+            return name.length();
+         }
+      }
+      return -1;
+   }
+
+   private boolean isContractionStartingWithApostrophe( final int position ) {
+      for ( String contraction : ContractionsPTB.contractionsStartingWithApostrophe ) {
+         if ( regionMatches( position, _segmentEnd, contraction, true ) ) {
+            final int after = position + contraction.length();
+            if ( after == _segmentEnd || !isLetter( Character.toLowerCase( _text[ after ] ) ) ) {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private int getLengthIfTelephoneNumber( final int position, final int nextNonTelephoneChar ) {
+      final int length = nextNonTelephoneChar - position;
+      // 4-5555, 555-1212, 507-555-1212, 1-507-555-1212
+      switch ( length ) {
+         case 6:
+            return matchesDigitPattern( position, "#-####" ) ? length : -1;
+         case 8:
+            return matchesDigitPattern( position, "###-####" ) ? length : -1;
+         case 12:
+            return matchesDigitPattern( position, "###-###-####" ) ? length : -1;
+         case 14:
+            return matchesDigitPattern( position, "#-###-###-####" ) ? length : -1;
+      }
+      return -1;
+   }
+
+   private int getLengthIfPostalCode( final int position, final int nextNonPostalChar ) {
+      final int length = nextNonPostalChar - position;
+      return length == 10 && matchesDigitPattern( position, "#####-####" ) ? length : -1;
+   }
+
+   /**
+    * @param pattern '#' for a digit, any other character for itself
+    */
+   private boolean matchesDigitPattern( final int position, final String pattern ) {
+      for ( int i = 0; i < pattern.length(); i++ ) {
+         final char p = pattern.charAt( i );
+         final char c = _text[ position + i ];
+         if ( p == '#' ? !isDigit( c ) : p != c ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private int getLengthIfUrl( final int position, final int end ) {
+      for ( String starter : URL_STARTERS ) {
+         if ( end - position > starter.length() && regionMatches( position, end, starter, true ) ) {
+            return end - position;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Same rules as {@link TokenizerPTB} lenIfIsEmailAddress, which does not accept an address
+    * that is followed by punctuation in the same token.
+    */
+   private int getLengthIfEmailAddress( final int position, final int end ) {
+      int at = -1;
+      for ( int i = position; i < end; i++ ) {
+         if ( _text[ i ] == '@' ) {
+            at = i;
+            break;
+         }
+      }
+      final int localLength = at - position;
+      if ( at < 0 || localLength < 1 || at + 1 == end || localLength > MAX_EMAIL_LOCAL_LENGTH ) {
+         return -1;
+      }
+      for ( int i = position; i < at; i++ ) {
+         final char ch = _text[ i ];
+         if ( !isLetterOrDigit( ch ) && EMAIL_CHARACTERS.indexOf( ch ) < 0 ) {
+            return -1;
+         }
+         if ( ch == PERIOD && (i == position || i == at - 1) ) {
+            return -1;
+         }
+      }
+      for ( int i = at + 1; i < end; i++ ) {
+         final char ch = _text[ i ];
+         if ( !isLetterOrDigit( ch )
+              && (ch != HYPHEN_OR_MINUS_SIGN && ch != PERIOD || i + 1 >= end || !isLetterOrDigit( _text[ i + 1 ] )) ) {
+            return -1;
+         }
+      }
+      final int length = end - position;
+      return length > MAX_EMAIL_LENGTH ? -1 : length;
+   }
+
+   /**
+    * Same rules as {@link TokenizerPTB} lenIfIsAbbreviation.
+    */
+   private int getLengthIfAbbreviation( final int position, final int end ) {
+      if ( end - position >= WWW.length() && regionMatches( position, end, WWW, true ) ) {
+         return -1;
+      }
+      boolean containsLetter = false;
+      for ( int i = position; i < end; i++ ) {
+         final char ch = _text[ i ];
+         if ( isLetter( ch ) ) {
+            containsLetter = true;
+         } else if ( ch != PERIOD ) {
+            return -1;
+         } else if ( !containsLetter || i + 1 == _segmentEnd ) {
+            return -1;
+         } else {
+            final int soFar = i + 1 - position;
+            final int length = getLengthIfAbbreviation( i + 1, end );
+            if ( length > 0 ) {
+               return soFar + length;
+            }
+            final char peekAhead = i + 1 < end ? _text[ i + 1 ] : ' ';
+            if ( isWhitespace( peekAhead ) || FINAL_PUNCTUATION.indexOf( peekAhead ) > -1 ) {
+               return soFar;
+            } else if ( !isLetterOrDigit( peekAhead ) ) {
+               return soFar - 1;
+            }
+            return -1;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Same rules as {@link TokenizerPTB} lenIfIsNumberContainingComma, e.g. 4,000,153 or 3,456.56
+    */
+   private int getLengthIfNumberContainingComma( final int position, final int nextNonNumericChar ) {
+      final int comma = indexOf( COMMA, position, nextNonNumericChar );
+      if ( comma < 0 ) {
+         return -1;
+      }
+      final int period = indexOf( PERIOD, position, nextNonNumericChar );
+      final int endOfWholeNumber = period < 0 ? nextNonNumericChar : period;
+      if ( comma > endOfWholeNumber || comma == _segmentBegin ) {
+         return -1;
+      }
+      int length = -1;
+      int i = comma;
+      boolean threeDigitsAfterComma = true;
+      while ( threeDigitsAfterComma ) {
+         // don't include the comma unless also can include next 3 digits
+         length = i - position;
+         if ( i < endOfWholeNumber && _text[ i ] == COMMA ) {
+            i++;
+         }
+         for ( int j = 0; j < 3; j++ ) {
+            if ( i < endOfWholeNumber && isDigit( _text[ i ] ) ) {
+               i++;
+            } else {
+               threeDigitsAfterComma = false;
+            }
+         }
+         if ( i < endOfWholeNumber && isDigit( _text[ i ] ) ) {
+            threeDigitsAfterComma = false;
+         }
+      }
+      if ( length <= 0 ) {
+         return -1;
+      }
+      // A period right after the whole number continues the number, unless it ends the sentence
+      if ( period != _segmentEnd - 1 && period == position + length ) {
+         length++;
+         while ( length < nextNonNumericChar - position && isDigit( _text[ position + length ] ) ) {
+            length++;
+         }
+      }
+      return length;
+   }
+
+   private int getLengthOfDigits( final int start ) {
+      for ( int i = start; i < _segmentEnd; i++ ) {
+         if ( !isDigit( _text[ i ] ) ) {
+            return i - start;
+         }
+      }
+      return _segmentEnd - start;
+   }
+
+   private int indexOf( final char c, final int start, final int end ) {
+      for ( int i = start; i < end; i++ ) {
+         if ( _text[ i ] == c ) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @param lowerCase true if the text should be lower cased before comparison.  The string must be lower case.
+    * @return true if the text at the position starts with the string, without going past the end
+    */
+   private boolean regionMatches( final int position, final int end, final String string, final boolean lowerCase ) {
+      if ( end - position < string.length() ) {
+         return false;
+      }
+      for ( int i = 0; i < string.length(); i++ ) {
+         final char c = _text[ position + i ];
+         if ( (lowerCase ? Character.toLowerCase( c ) : c) != string.charAt( i ) ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private String lowerCase( final int begin, final int end ) {
+      final char[] chars = new char[ end - begin ];
+      for ( int i = 0; i < chars.length; i++ ) {
+         chars[ i ] = Character.toLowerCase( _text[ begin + i ] );
+      }
+      return new String( chars );
+   }
+
+   private String getLowerCasedSegment() {
+      if ( _lowerCasedSegment == null ) {
+         _lowerCasedSegment = lowerCase( _segmentBegin, _segmentEnd );
+      }
+      return _lowerCasedSegment;
+   }
+
+   static private boolean isWhitespace( final char c ) {
+      return c < 128 ? (ASCII_CLASSES[ c ] & WHITESPACE) != 0 : Character.isWhitespace( c );
+   }
+
+   static private boolean isLetter( final char c ) {
+      return c < 128 ? (ASCII_CLASSES[ c ] & LETTER) != 0 : Character.isLetter( c );
+   }
+
+   static private boolean isDigit( final char c ) {
+      return c < 128 ? (ASCII_CLASSES[ c ] & DIGIT) != 0 : Character.isDigit( c );
+   }
+
+   static private boolean isLetterOrDigit( final char c ) {
+      return c < 128 ? (ASCII_CLASSES[ c ] & (LETTER | DIGIT)) != 0 : Character.isLetterOrDigit( c );
+   }
+
+   static private boolean isPunctuationChar( final char c ) {
+      return c < 128 && (ASCII_CLASSES[ c ] & PUNCTUATION) != 0;
+   }
+
+   static private boolean isTelephoneNumberChar( final char c ) {
+      return isDigit( c ) || c == HYPHEN_OR_MINUS_SIGN;
+   }
+
+   static private boolean isNumericChar( final char c ) {
+      return isDigit( c ) || c == COMMA || c == PERIOD;
+   }
+
+   /**
+    * @return capitalization of a word token, one of the TokenizerAnnotator TOKEN_CAP constants
+    */
+   static public int getCapitalization( final char[] text, final int begin, final int end ) {
+      int upperCaseCount = 0;
+      for ( int i = begin; i < end; i++ ) {
+         if ( Character.isUpperCase( text[ i ] ) ) {
+            upperCaseCount++;
+         }
+      }
+      if ( upperCaseCount == 0 ) {
+         return TokenizerAnnotator.TOKEN_CAP_NONE;
+      } else if ( upperCaseCount == end - begin ) {
+         return TokenizerAnnotator.TOKEN_CAP_ALL;
+      } else if ( upperCaseCount == 1 && Character.isUpperCase( text[ begin ] ) ) {
+         return TokenizerAnnotator.TOKEN_CAP_FIRST_ONLY;
+      }
+      return TokenizerAnnotator.TOKEN_CAP_MIXED;
+   }
+
+   /**
+    * @return position of digits in a word token, one of the TokenizerAnnotator TOKEN_NUM_POS constants
+    */
+   static public int getNumPosition( final char[] text, final int begin, final int end ) {
+      if ( begin == end ) {
+         return TokenizerAnnotator.TOKEN_NUM_POS_NONE;
+      } else if ( isDigit( text[ begin ] ) ) {
+         return TokenizerAnnotator.TOKEN_NUM_POS_FIRST;
+      } else if ( isDigit( text[ end - 1 ] ) ) {
+         return TokenizerAnnotator.TOKEN_NUM_POS_LAST;
+      }
+      for ( int i = begin + 1; i < end - 1; i++ ) {
+         if ( isDigit( text[ i ] ) ) {
+            return TokenizerAnnotator.TOKEN_NUM_POS_MIDDLE;
+         }
+      }
+      return TokenizerAnnotator.TOKEN_NUM_POS_NONE;
+   }
+
+   /**
+    * Same rules as {@link Tokenizer#isNumber(String)}: digits with at most one period and commas every three digits.
+    *
+    * @return number type of a number token, one of the TokenizerAnnotator TOKEN_NUM_TYPE constants
+    */
+   static public int getNumType( final char[] text, final int begin, final int end ) {
+      boolean foundPeriod = false;
+      int digitCount = 0;
+      for ( int i = end - 1; i >= begin; i-- ) {
+         final char c = text[ i ];
+         if ( isDigit( c ) ) {
+            digitCount++;
+         } else if ( c == PERIOD && !foundPeriod ) {
+            foundPeriod = true;
+            digitCount = 0;
+         } else if ( c != COMMA || digitCount % 3 != 0 ) {
+            return TokenizerAnnotator.TOKEN_NUM_TYPE_DECIMAL;
+         }
+      }
+      return foundPeriod ? TokenizerAnnotator.TOKEN_NUM_TYPE_DECIMAL : TokenizerAnnotator.TOKEN_NUM_TYPE_INTEGER;
+   }
+
+}
@@ -2,9 +2,15 @@ package org.apache.ctakes.core.patient;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Sends document cas to the {@link PatientNoteStore} to be cached
@@ -23,6 +29,43 @@ final public class PatientNoteCollector extends JCasAnnotator_ImplBase {
 
    static private final Logger LOGGER = Logger.getLogger( "PatientNoteCollector" );
 
+   static public final String PARAM_SPILL_DIRECTORY = "SpillDirectory";
+   @ConfigurationParameter(
+         name = PARAM_SPILL_DIRECTORY,
+         description = "Directory for stored views beyond the memory budget.  If not set all views stay in memory.",
+         mandatory = false
+   )
+   private String _spillDirectory;
+
+   static public final String PARAM_MEMORY_BUDGET_MB = "MemoryBudgetMb";
+   @ConfigurationParameter(
+         name = PARAM_MEMORY_BUDGET_MB,
+         description = "Megabytes of compressed stored views to keep in memory when a spill directory is set.",
+         mandatory = false,
+         defaultValue = "512"
+   )
+   private int _memoryBudgetMb;
+
+   // True if this engine turned on spilling, and should turn it off
+   private boolean _spilling;
+
+   /**
+    * Turns on spilling in the {@link PatientNoteStore} if a spill directory is set.
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      if ( _spillDirectory == null || _spillDirectory.isEmpty() || PatientNoteStore.getInstance().isSpilling() ) {
+         return;
+      }
+      try {
+         PatientNoteStore.getInstance().setSpilling( _memoryBudgetMb * 1024L * 1024L, new File( _spillDirectory ) );
+         _spilling = true;
+      } catch ( IOException ioE ) {
+         throw new ResourceInitializationException( ioE );
+      }
+   }
 
    /**
     * Adds the primary view of this cas to a cache of views for patients.
@@ -39,5 +82,20 @@ final public class PatientNoteCollector extends JCasAnnotator_ImplBase {
       LOGGER.info( "Finished." );
    }
 
+   /**
+    * Turns off spilling if this engine turned it on, deleting the spill directory.
+    * This is done on destroy rather than collectionProcessComplete as patient consumers may still pop patients
+    * when the collection is complete.
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      if ( _spilling ) {
+         PatientNoteStore.getInstance().stopSpilling();
+         _spilling = false;
+      }
+      super.destroy();
+   }
+
 
 }
@@ -15,11 +15,20 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.util.CasCopier;
 
 import javax.annotation.concurrent.Immutable;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
- * Cache for multi-document patient cas objects
+ * Cache for multi-document patient cas objects.
+ * <p>
+ * Each patient has its own lock, so threads storing or popping different patients do not wait for each other.
+ * By default views are copied into a patient cas as they are stored.  For patients with many notes the store can
+ * instead keep each view as compressed binary cas under a memory budget, spilling views to disk beyond the budget
+ * and creating the patient cas only when it is requested.  See {@link #setSpilling(long, File)}.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -41,22 +50,85 @@ public enum PatientNoteStore {
    private final Collection<String> _registeredEngines;
    // Map of Patient Name (id) to registered engines that have already consumed the patient
    private final Map<String, Collection<String>> _enginesRun;
-   // Map of patient id to patient jcas
-   private final Map<String, JCas> _patientMap;
-   // Map of Patient Name (id) to ViewInfo objects - metadata for jCas views
-   private final Map<String, Collection<ViewInfo>> _patientViewInfos;
+   // Map of patient id to patient views, each patient with its own lock
+   private final Map<String, PatientEntry> _patients;
    // Map of Patient Name (id) to document count for that patient.  Required to remove cached patient after last pop()
    private final Map<String, Integer> _wantedDocCounts;
+   // Serialized view store, or null if views are copied directly into patient cas objects
+   private volatile PatientViewSpiller _spiller;
 
    /**
     * private
     */
    PatientNoteStore() {
-      _registeredEngines = new HashSet<>();
-      _enginesRun = new HashMap<>();
-      _patientMap = new HashMap<>();
-      _patientViewInfos = new HashMap<>();
-      _wantedDocCounts = new HashMap<>();
+      _registeredEngines = ConcurrentHashMap.newKeySet();
+      _enginesRun = new ConcurrentHashMap<>();
+      _patients = new ConcurrentHashMap<>();
+      _wantedDocCounts = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Keep stored views as compressed binary cas instead of copying them into patient cas objects.
+    * Serialized views over the memory budget are written to disk, least recently used first.
+    * A patient cas is created when it is popped or requested.
+    * Should be called before any views are stored, and not while views are being stored.
+    * If spilling is already on, views spilled so far are first read into patient cas objects as by {@link #stopSpilling()}.
+    *
+    * @param memoryBudget   maximum bytes of serialized views to keep in memory
+    * @param spillDirectory directory for views beyond the memory budget
+    * @throws IOException if the spill directory cannot be created
+    */
+   public void setSpilling( final long memoryBudget, final File spillDirectory ) throws IOException {
+      final PatientViewSpiller previous = _spiller;
+      if ( previous == null && !_patients.isEmpty() ) {
+         LOGGER.warn( "Views have already been stored, only views stored from now on will be spilled." );
+      }
+      _spiller = new PatientViewSpiller( memoryBudget, spillDirectory );
+      if ( previous != null ) {
+         materializeSpilledViews( previous );
+         previous.close();
+      }
+   }
+
+   /**
+    * Stop spilling and delete the spill directory.
+    * Views that are still stored are first read into patient cas objects, so they stay available in memory.
+    * Should not be called while views are being stored.
+    */
+   public void stopSpilling() {
+      final PatientViewSpiller spiller = _spiller;
+      _spiller = null;
+      if ( spiller != null ) {
+         materializeSpilledViews( spiller );
+         spiller.close();
+      }
+   }
+
+   /**
+    * Creates the patient cas of every patient with views in the spiller, then releases those views.
+    *
+    * @param spiller serialized view store that is about to be closed
+    */
+   private void materializeSpilledViews( final PatientViewSpiller spiller ) {
+      for ( PatientEntry patient : _patients.values() ) {
+         synchronized ( patient ) {
+            if ( patient.__spilledViews.isEmpty() ) {
+               continue;
+            }
+            if ( patient.getPatientCas( spiller ) == null ) {
+               LOGGER.error( "Could not keep the stored views of patient " + patient.__patientId );
+            }
+            patient.__spilledViews.values().forEach( spiller::remove );
+            patient.__spilledViews.clear();
+         }
+      }
+   }
+
+   /**
+    * @return true if stored views are kept as binary cas that can be spilled to disk
+    */
+   public boolean isSpilling() {
+      return _spiller != null;
    }
 
    /////////////////    Get available patient, document, view names   ///////////////
@@ -64,7 +136,7 @@ public enum PatientNoteStore {
    /**
     * @param engineName name of engine that consumes patients
     */
-   synchronized public void registerEngine( final String engineName ) {
+   public void registerEngine( final String engineName ) {
       if ( !_registeredEngines.add( engineName ) ) {
          throw new IllegalArgumentException( engineName
                                              + " already Registered!  To add an engine twice, please use the parameter "
@@ -78,7 +150,7 @@ public enum PatientNoteStore {
     *
     * @param namedEngine engine that consumes patients
     */
-   synchronized public void registerEngine( final NamedEngine namedEngine ) {
+   public void registerEngine( final NamedEngine namedEngine ) {
       registerEngine( namedEngine.getEngineName() );
    }
 
@@ -87,17 +159,17 @@ public enum PatientNoteStore {
     * @return identifiers for all stored patients
     */
    @Deprecated
-   synchronized public Collection<String> getStoredPatientIds() {
-      return _patientMap.keySet().stream()
-                        .sorted()
-                        .collect( Collectors.toList() );
+   public Collection<String> getStoredPatientIds() {
+      return _patients.keySet().stream()
+                      .sorted()
+                      .collect( Collectors.toList() );
    }
 
    /**
     * @param patientId -
     * @return identifiers for all stored documents for the given patient
     */
-   synchronized public Collection<String> getStoredDocIds( final String patientId ) {
+   public Collection<String> getStoredDocIds( final String patientId ) {
       return getViewInfos( patientId ).stream()
             .map( ViewInfo::getDocId )
             .sorted()
@@ -110,7 +182,7 @@ public enum PatientNoteStore {
     * @param docId     -
     * @return names for all stored views for the given patient and document
     */
-   synchronized public Collection<String> getStoredViewNames( final String patientId, final String docId ) {
+   public Collection<String> getStoredViewNames( final String patientId, final String docId ) {
       return getViewInfos( patientId ).stream()
             .filter( vi -> vi.getDocId().equals( docId ) )
             .map( ViewInfo::getViewName )
@@ -123,7 +195,7 @@ public enum PatientNoteStore {
    /**
     * @return all completed patient identifiers in the cache
     */
-   synchronized public Collection<String> getCompletedPatientIds() {
+   public Collection<String> getCompletedPatientIds() {
       return getStoredPatientIds().stream()
             .filter( pid -> getWantedDocCount( pid ) == getStoredDocCount( pid ) )
             .sorted()
@@ -134,7 +206,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return number of documents for the patient that have been completed and stored in the cache
     */
-   synchronized public int getStoredDocCount( final String patientId ) {
+   public int getStoredDocCount( final String patientId ) {
       return getStoredDocIds( patientId ).size();
    }
 
@@ -143,7 +215,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return number of documents that exist for the patient or -1 if unknown
     */
-   synchronized public int getWantedDocCount( final String patientId ) {
+   public int getWantedDocCount( final String patientId ) {
       return _wantedDocCounts.getOrDefault( patientId, -1 );
    }
 
@@ -152,7 +224,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @param count number of documents that exist for the patient
     */
-   synchronized public void setWantedDocCount( final String patientId, final int count ) {
+   public void setWantedDocCount( final String patientId, final int count ) {
       _wantedDocCounts.put( patientId, count );
    }
 
@@ -187,8 +259,8 @@ public enum PatientNoteStore {
     * Store all views in the source cas.  Patient Id and Document Id will be determined from the source cas.
     * @param sourceCas source (document) cas
     */
-   synchronized public void storeAllViews( final JCas sourceCas ) {
-      PatientViewUtil.getAllViewNames( sourceCas ).forEach( n -> storeView( n, sourceCas ) );
+   public void storeAllViews( final JCas sourceCas ) {
+      storeAllViews( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ), sourceCas );
    }
 
    /**
@@ -197,7 +269,7 @@ public enum PatientNoteStore {
     * @param docId -
     * @param sourceCas source (document) cas
     */
-   synchronized public void storeAllViews( final String patientId, final String docId, final JCas sourceCas ) {
+   public void storeAllViews( final String patientId, final String docId, final JCas sourceCas ) {
       PatientViewUtil.getAllViewNames( sourceCas ).forEach( n -> storeView( patientId, docId, n, sourceCas ) );
    }
 
@@ -206,7 +278,7 @@ public enum PatientNoteStore {
     * @param storeViewName the name to use to store the primary view
     * @param sourceCas source (document) cas
     */
-   synchronized public void storePrimaryAsView( final String storeViewName, final JCas sourceCas ) {
+   public void storePrimaryAsView( final String storeViewName, final JCas sourceCas ) {
       storePrimaryAsView( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ),
             storeViewName, sourceCas );
    }
@@ -218,8 +290,8 @@ public enum PatientNoteStore {
     * @param storeViewName the name to use to store the primary view
     * @param sourceCas source (document) cas
     */
-   synchronized public void storePrimaryAsView( final String patientId, final String docId, final String storeViewName,
-                                                final JCas sourceCas ) {
+   public void storePrimaryAsView( final String patientId, final String docId, final String storeViewName,
+                                   final JCas sourceCas ) {
       storeView( patientId, docId, storeViewName, PatientViewUtil.DEFAULT_VIEW, sourceCas );
    }
 
@@ -229,7 +301,7 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String sourceViewName, final JCas sourceCas ) {
+   public void storeView( final String sourceViewName, final JCas sourceCas ) {
       storeView( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ),
             sourceViewName, sourceViewName, sourceCas );
    }
@@ -242,7 +314,7 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String patientId, final String docId, final String sourceViewName, final JCas sourceCas ) {
+   public void storeView( final String patientId, final String docId, final String sourceViewName, final JCas sourceCas ) {
       storeView( patientId, docId, sourceViewName, sourceViewName, sourceCas );
    }
 
@@ -255,36 +327,58 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String patientId, final String docId, final String storeViewName,
-                                       final String sourceViewName, final JCas sourceCas ) {
-      if ( getStoredViewNames( patientId, docId ).contains( storeViewName ) ) {
-         LOGGER.warn( "View already stored as " + patientId + " " + docId + " " + storeViewName );
-         LOGGER.warn( "Previously stored view will be replaced." );
-      }
-      // don't use putIfAbsent or computeIfAbsent to better handle exceptions and lazy instantiation
-      JCas patientCas = _patientMap.get( patientId );
-      if ( patientCas == null ) {
-         try {
-            patientCas = JCasFactory.createJCas();
-            setPatientId( patientCas, patientId );
-            _patientMap.put( patientId, patientCas );
-         } catch ( UIMAException uE ) {
-            LOGGER.error( uE.getMessage() );
-            return;
-         }
-      }
+   public void storeView( final String patientId, final String docId, final String storeViewName,
+                          final String sourceViewName, final JCas sourceCas ) {
       // Cache view into patient using encoded view name
       LOGGER.info( "Caching view for" + patientId + " " + docId + " " + sourceViewName
             + (sourceViewName.equals( storeViewName ) ? "" : " as " + storeViewName) + " ..." );
       final ViewInfo viewInfo = new ViewInfo( patientId, docId, storeViewName );
+      final PatientViewSpiller spiller = _spiller;
       try {
          final JCas sourceView = sourceCas.getView( sourceViewName );
-         final CasCopier copier = new CasCopier( sourceCas.getCas(), patientCas.getCas() );
-         copier.copyCasView( sourceView.getCas(), viewInfo.getViewCode(), true );
-         _patientViewInfos.putIfAbsent( patientId, new ArrayList<>() );
-         _patientViewInfos.get( patientId ).add( viewInfo );
-      } catch ( CASException | CASRuntimeException casE ) {
-         LOGGER.error( casE.getMessage() );
+         // Serialize before taking the patient lock
+         final PatientViewSpiller.SpilledView spilledView
+               = spiller == null ? null : spiller.store( sourceCas, sourceView, viewInfo.getViewCode() );
+         while ( true ) {
+            final PatientEntry patient = _patients.computeIfAbsent( patientId, PatientEntry::new );
+            synchronized ( patient ) {
+               if ( patient.__removed ) {
+                  // Removed by another thread after it was fetched, store to a new entry
+                  continue;
+               }
+               warnIfStored( patient, viewInfo );
+               if ( spilledView == null ) {
+                  final JCas patientCas = patient.getPatientCas( null );
+                  if ( patientCas == null ) {
+                     return;
+                  }
+                  final CasCopier copier = new CasCopier( sourceCas.getCas(), patientCas.getCas() );
+                  copier.copyCasView( sourceView.getCas(), viewInfo.getViewCode(), true );
+               } else {
+                  final PatientViewSpiller.SpilledView replaced = patient.__spilledViews.put( viewInfo, spilledView );
+                  if ( replaced != null ) {
+                     spiller.remove( replaced );
+                     patient.dropViewsCas();
+                  }
+                  if ( patient.__patientCas != null ) {
+                     // The patient cas has already been requested, keep it complete
+                     spiller.copyInto( spilledView, patient.__patientCas );
+                  }
+               }
+               patient.__viewInfos.add( viewInfo );
+               return;
+            }
+         }
+      } catch ( CASException | CASRuntimeException | IOException multE ) {
+         LOGGER.error( multE.getMessage() );
+      }
+   }
+
+   static private void warnIfStored( final PatientEntry patient, final ViewInfo viewInfo ) {
+      if ( patient.__viewInfos.contains( viewInfo ) ) {
+         LOGGER.warn( "View already stored as " + viewInfo.getPid() + " " + viewInfo.getDocId() + " "
+                      + viewInfo.getViewName() );
+         LOGGER.warn( "Previously stored view will be replaced." );
       }
    }
 
@@ -310,16 +404,19 @@ public enum PatientNoteStore {
     * @param viewName -
     * @return Stored view for the parameters
     */
-   synchronized public JCas getStoredView( final String patientId, final String docId, final String viewName ) {
-      final JCas patientCas = _patientMap.get( patientId );
-      if ( patientCas == null ) {
+   public JCas getStoredView( final String patientId, final String docId, final String viewName ) {
+      final PatientEntry patient = _patients.get( patientId );
+      if ( patient == null ) {
          LOGGER.warn( "No patient with id " + patientId );
          return null;
       }
       final ViewInfo viewInfo = new ViewInfo( patientId, docId, viewName );
       try {
-         return patientCas.getView( viewInfo.getViewCode() );
-      } catch ( CASException casE ) {
+         synchronized ( patient ) {
+            final JCas viewsCas = patient.getViewsCas( _spiller, Collections.singletonList( viewInfo ) );
+            return viewsCas == null ? null : viewsCas.getView( viewInfo.getViewCode() );
+         }
+      } catch ( CASException | CASRuntimeException casE ) {
          LOGGER.error( casE.getMessage() );
       }
       return null;
@@ -330,20 +427,27 @@ public enum PatientNoteStore {
     * @param docId     -
     * @return Map of ViewNames to Views
     */
-   synchronized public Map<String, JCas> getStoredViews( final String patientId, final String docId ) {
-      final JCas patientCas = _patientMap.get( patientId );
-      if ( patientCas == null ) {
+   public Map<String, JCas> getStoredViews( final String patientId, final String docId ) {
+      final PatientEntry patient = _patients.get( patientId );
+      if ( patient == null ) {
          LOGGER.warn( "No patient with id " + patientId );
          return null;
       }
-      final Collection<String> viewNames = getStoredViewNames( patientId, docId );
       final Map<String, JCas> viewMap = new HashMap<>();
       try {
-         for ( String viewName : viewNames ) {
-            final ViewInfo viewInfo = new ViewInfo( viewName );
-            viewMap.put( viewInfo.getViewName(), patientCas.getView( viewName ) );
+         synchronized ( patient ) {
+            final Collection<ViewInfo> viewInfos = patient.__viewInfos.stream()
+                  .filter( vi -> vi.getDocId().equals( docId ) )
+                  .collect( Collectors.toList() );
+            final JCas viewsCas = patient.getViewsCas( _spiller, viewInfos );
+            if ( viewsCas == null ) {
+               return viewMap;
+            }
+            for ( ViewInfo viewInfo : viewInfos ) {
+               viewMap.put( viewInfo.getViewName(), viewsCas.getView( viewInfo.getViewCode() ) );
+            }
          }
-      } catch ( CASException casE ) {
+      } catch ( CASException | CASRuntimeException casE ) {
          LOGGER.error( casE.getMessage() );
       }
       return viewMap;
@@ -353,7 +457,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return Map of docIds to Map of ViewNames to Views
     */
-   synchronized public Map<String, Map<String, JCas>> getStoredViews( final String patientId ) {
+   public Map<String, Map<String, JCas>> getStoredViews( final String patientId ) {
       final Map<String, Map<String, JCas>> viewMap = new HashMap<>();
       final Collection<String> docIds = getStoredDocIds( patientId );
       for ( String docId : docIds ) {
@@ -379,15 +483,21 @@ public enum PatientNoteStore {
     * Use popPatientCas instead to automate cleanup
     * @param patientId -
     */
-   synchronized public JCas getFullPatientCas( final String patientId ) {
-      return _patientMap.get( patientId );
+   public JCas getFullPatientCas( final String patientId ) {
+      final PatientEntry patient = _patients.get( patientId );
+      if ( patient == null ) {
+         return null;
+      }
+      synchronized ( patient ) {
+         return patient.getPatientCas( _spiller );
+      }
    }
 
    /**
     * @param engineName engine requesting a completed patient jcas
     * @return a patient jcas or null if none is available for the given engine
     */
-   synchronized public JCas popPatientCas( final String engineName ) {
+   public JCas popPatientCas( final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
@@ -405,7 +515,7 @@ public enum PatientNoteStore {
     * @param engineName engine requesting a completed patient jcas
     * @return a patient jcas or null if none is available for the given engine
     */
-   synchronized public Collection<JCas> popPatientCases( final String engineName ) {
+   public Collection<JCas> popPatientCases( final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
@@ -421,30 +531,48 @@ public enum PatientNoteStore {
     * @param engineName engine requesting a completed patient jcas
     * @return the patient jcas for the patient id or null if it isn't available for the given engine
     */
-   synchronized public JCas popPatientCas( final String patientId, final String engineName ) {
+   public JCas popPatientCas( final String patientId, final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
-      final Collection<String> enginesRun = _enginesRun.computeIfAbsent( patientId, n -> new HashSet<>() );
-      final boolean newRun = enginesRun.add( engineName );
-      if ( !newRun ) {
+      final PatientEntry patient = _patients.get( patientId );
+      if ( patient == null ) {
          return null;
       }
-      final JCas patientCas = _patientMap.get( patientId );
-      if ( enginesRun.size() == _registeredEngines.size() ) {
-         removePatient( patientId );
+      synchronized ( patient ) {
+         final Collection<String> enginesRun = _enginesRun.computeIfAbsent( patientId,
+               n -> ConcurrentHashMap.newKeySet() );
+         final boolean newRun = enginesRun.add( engineName );
+         if ( !newRun ) {
+            return null;
+         }
+         final JCas patientCas = patient.getPatientCas( _spiller );
+         if ( enginesRun.size() == _registeredEngines.size() ) {
+            removePatient( patientId );
+         }
+         return patientCas;
       }
-      return patientCas;
    }
 
 
    /**
     * @param patientId identifier of patient to remove from cache
     */
-   synchronized public void removePatient( final String patientId ) {
-      _patientMap.remove( patientId );
-      _patientViewInfos.remove( patientId );
+   public void removePatient( final String patientId ) {
+      final PatientEntry patient = _patients.remove( patientId );
       _wantedDocCounts.remove( patientId );
+      if ( patient == null ) {
+         return;
+      }
+      synchronized ( patient ) {
+         patient.__removed = true;
+         final PatientViewSpiller spiller = _spiller;
+         if ( spiller != null ) {
+            patient.__spilledViews.values().forEach( spiller::remove );
+         }
+         patient.__spilledViews.clear();
+         patient.dropViewsCas();
+      }
    }
 
    /////////////////    Encoding for cached patient view names   ///////////////
@@ -453,13 +581,96 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return all encoded
     */
-   synchronized private Collection<ViewInfo> getViewInfos( final String patientId ) {
-      final Collection<ViewInfo> viewInfos = _patientViewInfos.get( patientId );
-      if ( viewInfos == null ) {
+   private Collection<ViewInfo> getViewInfos( final String patientId ) {
+      final PatientEntry patient = _patients.get( patientId );
+      if ( patient == null ) {
          LOGGER.debug( "No patient with id " + patientId );
          return Collections.emptyList();
       }
-      return viewInfos;
+      synchronized ( patient ) {
+         return new ArrayList<>( patient.__viewInfos );
+      }
+   }
+
+   /**
+    * Stored views of a single patient.  Synchronize on the entry to use it.
+    */
+   static private final class PatientEntry {
+      private final String __patientId;
+      private final Collection<ViewInfo> __viewInfos = new LinkedHashSet<>();
+      // Views stored as binary cas when spilling
+      private final Map<ViewInfo, PatientViewSpiller.SpilledView> __spilledViews = new LinkedHashMap<>();
+      // Patient cas with all stored views, created when first needed
+      private JCas __patientCas;
+      // Patient cas with the spilled views that have been looked up, reused for lookups until the patient cas exists
+      private JCas __viewsCas;
+      private final Collection<ViewInfo> __viewsCasInfos = new HashSet<>();
+      private boolean __removed;
+
+      private PatientEntry( final String patientId ) {
+         __patientId = patientId;
+      }
+
+      /**
+       * @param spiller serialized view store, or null if views are copied directly into the patient cas
+       * @return patient cas with all stored views, or null if it could not be created
+       */
+      private JCas getPatientCas( final PatientViewSpiller spiller ) {
+         if ( __patientCas == null ) {
+            __patientCas = spiller == null ? createPatientCas() : getViewsCas( spiller, __spilledViews.keySet() );
+            dropViewsCas();
+         }
+         return __patientCas;
+      }
+
+      /**
+       * @param spiller   serialized view store, or null if views are copied directly into the patient cas
+       * @param viewInfos wanted views
+       * @return the patient cas if it exists, otherwise a patient cas holding at least the wanted views
+       */
+      private JCas getViewsCas( final PatientViewSpiller spiller, final Collection<ViewInfo> viewInfos ) {
+         if ( __patientCas != null || spiller == null ) {
+            return getPatientCas( spiller );
+         }
+         if ( __viewsCas == null ) {
+            __viewsCas = createPatientCas();
+            if ( __viewsCas == null ) {
+               return null;
+            }
+         }
+         try {
+            for ( ViewInfo viewInfo : viewInfos ) {
+               final PatientViewSpiller.SpilledView spilledView = __spilledViews.get( viewInfo );
+               if ( spilledView != null && !__viewsCasInfos.contains( viewInfo ) ) {
+                  spiller.copyInto( spilledView, __viewsCas );
+                  __viewsCasInfos.add( viewInfo );
+               }
+            }
+         } catch ( IOException ioE ) {
+            LOGGER.error( ioE.getMessage() );
+            return null;
+         }
+         return __viewsCas;
+      }
+
+      /**
+       * Forget the lookup cas, for instance when one of its views has been replaced.
+       */
+      private void dropViewsCas() {
+         __viewsCas = null;
+         __viewsCasInfos.clear();
+      }
+
+      private JCas createPatientCas() {
+         try {
+            final JCas patientCas = JCasFactory.createJCas();
+            setPatientId( patientCas, __patientId );
+            return patientCas;
+         } catch ( UIMAException uE ) {
+            LOGGER.error( uE.getMessage() );
+         }
+         return null;
+      }
    }
 
    /**
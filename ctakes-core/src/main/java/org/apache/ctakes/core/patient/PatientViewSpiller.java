@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.patient;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.CasCopier;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps stored patient views as compressed binary cas (form 6) under a memory budget.
+ * <p>
+ * When the serialized views in memory exceed the budget the least recently used views are written to files
+ * in a spill directory.  A spilled view that is read again is kept in memory again, so views that are in use
+ * stay in memory and views of patients that are still being collected move to disk.
+ * </p>
+ * Serialization is done outside of any shared lock.  Only the bookkeeping of the memory budget is shared.
+ * <p>
+ * A spill file is deleted when its view is read back into memory or removed.
+ * {@link #close()} deletes the spill directory, and is run at jvm shutdown if it has not been called.
+ * </p>
+ */
+final class PatientViewSpiller {
+
+   static private final Logger LOGGER = Logger.getLogger( "PatientViewSpiller" );
+
+   private final long _memoryBudget;
+   private final File _spillDirectory;
+
+   // Views held in memory, in order of last access
+   private final LinkedHashMap<SpilledView, SpilledView> _inMemory = new LinkedHashMap<>( 256, 0.75f, true );
+   private long _inMemoryBytes;
+
+   // Scratch cas for serialization, reused across calls and threads
+   private final Queue<JCas> _scratchPool = new ConcurrentLinkedQueue<>();
+   private final Thread _shutdownHook;
+   private volatile boolean _closed;
+
+   /**
+    * @param memoryBudget   maximum bytes of serialized views to keep in memory
+    * @param spillDirectory directory in which a new directory for spilled views is created
+    * @throws IOException if the spill directory cannot be created
+    */
+   PatientViewSpiller( final long memoryBudget, final File spillDirectory ) throws IOException {
+      _memoryBudget = memoryBudget;
+      spillDirectory.mkdirs();
+      _spillDirectory = Files.createTempDirectory( spillDirectory.toPath(), "patient_views" ).toFile();
+      _shutdownHook = new Thread( this::deleteSpillDirectory, "PatientViewSpiller shutdown" );
+      Runtime.getRuntime().addShutdownHook( _shutdownHook );
+      LOGGER.info( "Spilling patient views over " + (memoryBudget / 1024 / 1024) + " MB to " + _spillDirectory );
+   }
+
+   /**
+    * @return bytes of serialized views currently in memory
+    */
+   synchronized long getInMemoryBytes() {
+      return _inMemoryBytes;
+   }
+
+   /**
+    * @param sourceCas  source (document) cas
+    * @param sourceView view in the source cas
+    * @param viewCode   name under which the view is stored
+    * @return serialized view
+    * @throws IOException if the view cannot be serialized
+    */
+   SpilledView store( final JCas sourceCas, final JCas sourceView, final String viewCode ) throws IOException {
+      final JCas scratch = borrowScratch();
+      final CasCopier copier = new CasCopier( sourceCas.getCas(), scratch.getCas() );
+      copier.copyCasView( sourceView.getCas(), viewCode, true );
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try {
+         Serialization.serializeWithCompression( scratch.getCas(), bytes, scratch.getTypeSystem() );
+      } catch ( UIMAException uE ) {
+         throw new IOException( uE );
+      } finally {
+         returnScratch( scratch );
+      }
+      final SpilledView view = new SpilledView( viewCode, bytes.toByteArray() );
+      keepInMemory( view );
+      return view;
+   }
+
+   /**
+    * Copies a stored view into a cas, reading it from disk if it has been spilled.
+    *
+    * @param view      stored view
+    * @param targetCas cas to hold the view, with the same type system
+    * @throws IOException if the view cannot be read
+    */
+   void copyInto( final SpilledView view, final JCas targetCas ) throws IOException {
+      final byte[] bytes = view.getBytes();
+      keepInMemory( view );
+      final JCas scratch = borrowScratch();
+      try {
+         Serialization.deserializeCAS( scratch.getCas(), new ByteArrayInputStream( bytes ), null, null );
+         final CAS scratchView = scratch.getCas().getView( view.__viewCode );
+         new CasCopier( scratch.getCas(), targetCas.getCas() ).copyCasView( scratchView, view.__viewCode, true );
+      } catch ( UIMAException uE ) {
+         throw new IOException( uE );
+      } finally {
+         returnScratch( scratch );
+      }
+   }
+
+   /**
+    * @param view stored view that is no longer needed
+    */
+   void remove( final SpilledView view ) {
+      synchronized ( this ) {
+         if ( _inMemory.remove( view ) != null ) {
+            _inMemoryBytes -= view.__length;
+         }
+      }
+      view.delete();
+   }
+
+   /**
+    * Deletes all spill files and the spill directory.  Views that are still stored can no longer be read.
+    */
+   void close() {
+      if ( _closed ) {
+         return;
+      }
+      try {
+         Runtime.getRuntime().removeShutdownHook( _shutdownHook );
+      } catch ( IllegalStateException isE ) {
+         // Already shutting down, the hook deletes the directory
+         return;
+      }
+      deleteSpillDirectory();
+      _scratchPool.clear();
+   }
+
+   private void deleteSpillDirectory() {
+      synchronized ( this ) {
+         _closed = true;
+      }
+      final File[] files = _spillDirectory.listFiles();
+      if ( files != null ) {
+         for ( File file : files ) {
+            if ( !file.delete() ) {
+               LOGGER.debug( "Could not delete " + file );
+            }
+         }
+      }
+      if ( !_spillDirectory.delete() ) {
+         LOGGER.warn( "Could not delete spill directory " + _spillDirectory );
+      }
+   }
+
+   /**
+    * @return an empty scratch cas from the pool, or a new one if all are in use
+    */
+   private JCas borrowScratch() throws IOException {
+      final JCas scratch = _scratchPool.poll();
+      if ( scratch != null ) {
+         return scratch;
+      }
+      try {
+         return JCasFactory.createJCas();
+      } catch ( UIMAException uE ) {
+         throw new IOException( uE );
+      }
+   }
+
+   private void returnScratch( final JCas scratch ) {
+      scratch.reset();
+      _scratchPool.offer( scratch );
+   }
+
+   /**
+    * Marks the view as used and spills least recently used views while memory is over budget.
+    */
+   private void keepInMemory( final SpilledView view ) throws IOException {
+      final Collection<SpilledView> spills = new ArrayList<>();
+      synchronized ( this ) {
+         if ( _closed ) {
+            throw new IOException( "Spill directory " + _spillDirectory + " has been closed" );
+         }
+         if ( _inMemory.put( view, view ) == null ) {
+            _inMemoryBytes += view.__length;
+            // A view read back before its pending spill is written stays in memory
+            view.__spillPending = false;
+         }
+         final Iterator<SpilledView> eldest = _inMemory.keySet().iterator();
+         while ( _inMemoryBytes > _memoryBudget && eldest.hasNext() ) {
+            final SpilledView spill = eldest.next();
+            if ( spill == view ) {
+               break;
+            }
+            eldest.remove();
+            _inMemoryBytes -= spill.__length;
+            spill.__spillPending = true;
+            spills.add( spill );
+         }
+      }
+      for ( SpilledView spill : spills ) {
+         spill.spill( this );
+      }
+   }
+
+
+   /**
+    * A serialized view, held either in memory or in a file
+    */
+   static final class SpilledView {
+      private final String __viewCode;
+      private final int __length;
+      private byte[] __bytes;
+      private File __file;
+      private boolean __removed;
+      // Set when the view leaves the memory count, cleared if it is counted again before it is written.
+      // Guarded by the spiller
+      private boolean __spillPending;
+
+      private SpilledView( final String viewCode, final byte[] bytes ) {
+         __viewCode = viewCode;
+         __length = bytes.length;
+         __bytes = bytes;
+      }
+
+      /**
+       * @return serialized view, read from disk and held in memory again if it was spilled.  The file is deleted.
+       */
+      synchronized private byte[] getBytes() throws IOException {
+         if ( __bytes == null ) {
+            __bytes = Files.readAllBytes( __file.toPath() );
+            deleteFile();
+         }
+         return __bytes;
+      }
+
+      /**
+       * Writes the view to a file, then drops it from memory unless it has been put back in memory meanwhile.
+       * The view is locked before the spiller, never the other way around.
+       */
+      synchronized private void spill( final PatientViewSpiller spiller ) throws IOException {
+         if ( __bytes == null || __removed ) {
+            return;
+         }
+         synchronized ( spiller ) {
+            if ( !__spillPending ) {
+               return;
+            }
+         }
+         final File file = File.createTempFile( "view", ".bcas", spiller._spillDirectory );
+         Files.write( file.toPath(), __bytes );
+         final boolean stillPending;
+         synchronized ( spiller ) {
+            stillPending = __spillPending;
+            __spillPending = false;
+         }
+         if ( !stillPending ) {
+            deleteFile( file );
+            return;
+         }
+         __file = file;
+         __bytes = null;
+      }
+
+      /**
+       * @return true if the serialized view is held in memory
+       */
+      synchronized boolean hasBytes() {
+         return __bytes != null;
+      }
+
+      int getLength() {
+         return __length;
+      }
+
+      synchronized private void delete() {
+         __removed = true;
+         __bytes = null;
+         deleteFile();
+      }
+
+      private void deleteFile() {
+         if ( __file != null ) {
+            deleteFile( __file );
+         }
+         __file = null;
+      }
+
+      static private void deleteFile( final File file ) {
+         if ( !file.delete() ) {
+            LOGGER.debug( "Could not delete " + file );
+         }
+      }
+   }
+
+}
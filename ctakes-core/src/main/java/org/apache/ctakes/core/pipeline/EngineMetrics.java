@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.ctakes.core.util.LogHistogram;
+
+/**
+ * Wall time, cpu time and allocated bytes of each document processed by one engine in a pipeline.
+ * Values are recorded by {@link PipelineMetrics} and may be recorded by several threads at once.
+ */
+final public class EngineMetrics implements EngineMetricsMBean {
+
+   static private final double NANOS_PER_MILLI = 1000000d;
+
+   final private String _name;
+   final private LogHistogram _wallNanos = new LogHistogram();
+   final private LogHistogram _cpuNanos = new LogHistogram();
+   final private LogHistogram _allocatedBytes = new LogHistogram();
+   final private LogHistogram _wallNanosPerKiloChar = new LogHistogram();
+
+   EngineMetrics( final String name ) {
+      _name = name;
+   }
+
+   /**
+    * @param wallNanos      wall time for the document
+    * @param cpuNanos       cpu time for the document, negative if unknown
+    * @param allocatedBytes bytes allocated for the document, negative if unknown
+    * @param textLength     length of the document text
+    */
+   void record( final long wallNanos, final long cpuNanos, final long allocatedBytes, final int textLength ) {
+      _wallNanos.record( wallNanos );
+      if ( cpuNanos >= 0 ) {
+         _cpuNanos.record( cpuNanos );
+      }
+      if ( allocatedBytes >= 0 ) {
+         _allocatedBytes.record( allocatedBytes );
+      }
+      _wallNanosPerKiloChar.record( wallNanos * 1000 / Math.max( 1, textLength ) );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String getName() {
+      return _name;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long getDocumentCount() {
+      return _wallNanos.getCount();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getTotalWallMillis() {
+      return _wallNanos.getSum() / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getWallMillisP50() {
+      return _wallNanos.getPercentile( 50 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getWallMillisP95() {
+      return _wallNanos.getPercentile( 95 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getWallMillisP99() {
+      return _wallNanos.getPercentile( 99 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getCpuMillisP50() {
+      return _cpuNanos.getPercentile( 50 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getCpuMillisP95() {
+      return _cpuNanos.getPercentile( 95 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getCpuMillisP99() {
+      return _cpuNanos.getPercentile( 99 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long getAllocatedBytesP50() {
+      return _allocatedBytes.getPercentile( 50 );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long getAllocatedBytesP95() {
+      return _allocatedBytes.getPercentile( 95 );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long getAllocatedBytesP99() {
+      return _allocatedBytes.getPercentile( 99 );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public double getWallMillisPerKiloCharP50() {
+      return _wallNanosPerKiloChar.getPercentile( 50 ) / NANOS_PER_MILLI;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void reset() {
+      _wallNanos.reset();
+      _cpuNanos.reset();
+      _allocatedBytes.reset();
+      _wallNanosPerKiloChar.reset();
+   }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.pipeline;
+
+/**
+ * JMX view of the metrics for one engine in a pipeline.  Times are in milliseconds.
+ */
+public interface EngineMetricsMBean {
+
+   String getName();
+
+   long getDocumentCount();
+
+   double getTotalWallMillis();
+
+   double getWallMillisP50();
+
+   double getWallMillisP95();
+
+   double getWallMillisP99();
+
+   double getCpuMillisP50();
+
+   double getCpuMillisP95();
+
+   double getCpuMillisP99();
+
+   long getAllocatedBytesP50();
+
+   long getAllocatedBytesP95();
+
+   long getAllocatedBytesP99();
+
+   /**
+    * @return median wall time per thousand characters of document text
+    */
+   double getWallMillisPerKiloCharP50();
+
+   void reset();
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.CasPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a pipeline with several threads, without the collection processing engine.
+ * <p>
+ * A reader thread fills cas instances from a pool and puts them on a bounded queue.
+ * Each worker thread owns an instance of the processing aggregate and takes the next document from the queue
+ * as soon as it is free, so slow documents do not hold up other workers.
+ * Processed documents are passed to the consumer aggregate on the calling thread, either in the order in which
+ * they finish or in the order in which they were read.  Consumers (e.g. writers) do not need to be thread safe.
+ * </p>
+ * The number of cas instances in the pool bounds the number of documents in memory, so a fast reader waits for the workers.
+ * When the collection has been read every worker calls collectionProcessComplete on its own aggregate,
+ * then collectionProcessComplete is called on the consumer aggregate.
+ * The first exception or error stops the run and is thrown by {@link #run()}.
+ */
+final public class ParallelPipelineRunner {
+
+   static private final Logger LOGGER = Logger.getLogger( "ParallelPipelineRunner" );
+
+   // Marks the end of the collection for a worker, or the end of a worker for the consumer
+   static private final Document END_OF_WORK = new Document( -1, null );
+
+   private final CollectionReaderDescription _readerDesc;
+   private final AnalysisEngineDescription _processDesc;
+   private final AnalysisEngineDescription _consumerDesc;
+   private final int _threadCount;
+   private final boolean _ordered;
+
+   private final AtomicReference<Throwable> _failure = new AtomicReference<>();
+
+   /**
+    * @param readerDesc   collection reader
+    * @param processDesc  engines to run on the worker threads, one instance for each thread
+    * @param consumerDesc engines to run on the calling thread after processing.  May be null.
+    * @param threadCount  number of worker threads
+    * @param ordered      true if consumers should receive documents in the order in which they were read
+    */
+   public ParallelPipelineRunner( final CollectionReaderDescription readerDesc,
+                                  final AnalysisEngineDescription processDesc,
+                                  final AnalysisEngineDescription consumerDesc,
+                                  final int threadCount,
+                                  final boolean ordered ) {
+      _readerDesc = readerDesc;
+      _processDesc = processDesc;
+      _consumerDesc = consumerDesc;
+      _threadCount = Math.max( 1, threadCount );
+      _ordered = ordered;
+   }
+
+   /**
+    * Reads and processes the full collection, returning when all documents have been consumed.
+    *
+    * @throws IOException   if the collection reader fails
+    * @throws UIMAException if the pipeline cannot be created or an engine fails
+    */
+   public void run() throws IOException, UIMAException {
+      final CollectionReader reader = CollectionReaderFactory.createReader( _readerDesc );
+      // Engines are created on this thread, one at a time, as some initialize static resources.
+      final List<AnalysisEngine> workerEngines = new ArrayList<>( _threadCount );
+      for ( int i = 0; i < _threadCount; i++ ) {
+         workerEngines.add( AnalysisEngineFactory.createEngine( _processDesc ) );
+      }
+      final AnalysisEngine consumerEngine
+            = _consumerDesc == null ? null : AnalysisEngineFactory.createEngine( _consumerDesc );
+      final Collection<ProcessingResourceMetaData> metaData = new ArrayList<>();
+      metaData.add( reader.getProcessingResourceMetaData() );
+      metaData.add( workerEngines.get( 0 ).getProcessingResourceMetaData() );
+      if ( consumerEngine != null ) {
+         metaData.add( consumerEngine.getProcessingResourceMetaData() );
+      }
+      // Enough cas instances for every worker, a full queue, and a document waiting for each worker in the output.
+      final int queueSize = _threadCount * 2;
+      final CasPool casPool = new CasPool( queueSize + _threadCount * 2, metaData, null, null );
+      final CAS typeCas = casPool.getCas( 0 );
+      reader.typeSystemInit( typeCas.getTypeSystem() );
+      casPool.releaseCas( typeCas );
+
+      final BlockingQueue<Document> workQueue = new ArrayBlockingQueue<>( queueSize );
+      final BlockingQueue<Document> doneQueue = new LinkedBlockingQueue<>();
+      LOGGER.info( "Processing with " + _threadCount + " threads." );
+      final Collection<Thread> threads = new ArrayList<>( _threadCount + 1 );
+      threads.add( new Thread( () -> read( reader, casPool, workQueue ), "PipelineReader" ) );
+      for ( int i = 0; i < _threadCount; i++ ) {
+         final AnalysisEngine engine = workerEngines.get( i );
+         threads.add( new Thread( () -> work( engine, workQueue, doneQueue ), "PipelineWorker_" + (i + 1) ) );
+      }
+      threads.forEach( Thread::start );
+      try {
+         consume( consumerEngine, casPool, doneQueue );
+         for ( Thread thread : threads ) {
+            thread.join();
+         }
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         threads.forEach( Thread::interrupt );
+         fail( new UIMAException( intE ) );
+      } finally {
+         reader.destroy();
+         workerEngines.forEach( AnalysisEngine::destroy );
+         if ( consumerEngine != null ) {
+            consumerEngine.destroy();
+         }
+      }
+      final Throwable failure = _failure.get();
+      if ( failure instanceof Error ) {
+         throw (Error)failure;
+      } else if ( failure instanceof IOException ) {
+         throw (IOException)failure;
+      } else if ( failure instanceof UIMAException ) {
+         throw (UIMAException)failure;
+      } else if ( failure != null ) {
+         throw new UIMAException( failure );
+      }
+   }
+
+   /**
+    * Fills cas instances with documents until the collection is read or the run has failed,
+    * then tells every worker that there is no more work.
+    */
+   private void read( final CollectionReader reader, final CasPool casPool, final BlockingQueue<Document> workQueue ) {
+      try {
+         long index = 0;
+         while ( _failure.get() == null && reader.hasNext() ) {
+            final CAS cas = casPool.getCas( 0 );
+            try {
+               reader.getNext( cas );
+            } catch ( Throwable t ) {
+               casPool.releaseCas( cas );
+               throw t;
+            }
+            workQueue.put( new Document( index, cas ) );
+            index++;
+         }
+      } catch ( InterruptedException intE ) {
+         fail( new UIMAException( intE ) );
+      } catch ( Throwable t ) {
+         fail( t );
+      } finally {
+         endWork( workQueue );
+      }
+   }
+
+   /**
+    * Tells every worker that there is no more work.  Workers never stop taking from the queue, so this only waits
+    * for room in the queue.
+    */
+   private void endWork( final BlockingQueue<Document> workQueue ) {
+      try {
+         for ( int i = 0; i < _threadCount; i++ ) {
+            workQueue.put( END_OF_WORK );
+         }
+      } catch ( InterruptedException intE ) {
+         fail( new UIMAException( intE ) );
+      }
+   }
+
+   /**
+    * Processes documents until the end of the collection, then completes the worker's own aggregate.
+    * Documents are always passed on to the consumer so that their cas instances are returned to the pool.
+    */
+   private void work( final AnalysisEngine engine, final BlockingQueue<Document> workQueue,
+                      final BlockingQueue<Document> doneQueue ) {
+      try {
+         Document document = workQueue.take();
+         while ( document != END_OF_WORK ) {
+            if ( _failure.get() == null ) {
+               try {
+                  engine.process( document.__cas );
+               } catch ( Throwable t ) {
+                  fail( t );
+               }
+            }
+            doneQueue.put( document );
+            document = workQueue.take();
+         }
+         if ( _failure.get() == null ) {
+            engine.collectionProcessComplete();
+         }
+      } catch ( InterruptedException intE ) {
+         fail( new UIMAException( intE ) );
+      } catch ( Throwable t ) {
+         fail( t );
+      } finally {
+         // Never blocks, the done queue is unbounded.
+         doneQueue.offer( END_OF_WORK );
+      }
+   }
+
+   /**
+    * Runs consumers on processed documents until every worker has finished, then completes the consumers.
+    */
+   private void consume( final AnalysisEngine engine, final CasPool casPool, final BlockingQueue<Document> doneQueue )
+         throws InterruptedException {
+      final Map<Long, Document> waiting = new HashMap<>();
+      long nextIndex = 0;
+      int finishedWorkers = 0;
+      while ( finishedWorkers < _threadCount ) {
+         final Document document = doneQueue.take();
+         if ( document == END_OF_WORK ) {
+            finishedWorkers++;
+         } else if ( !_ordered ) {
+            consume( engine, casPool, document );
+         } else {
+            waiting.put( document.__index, document );
+            Document next = waiting.remove( nextIndex );
+            while ( next != null ) {
+               consume( engine, casPool, next );
+               nextIndex++;
+               next = waiting.remove( nextIndex );
+            }
+         }
+      }
+      // Only documents after a failed read can be left waiting.
+      waiting.values().forEach( d -> casPool.releaseCas( d.__cas ) );
+      if ( engine != null && _failure.get() == null ) {
+         try {
+            engine.collectionProcessComplete();
+         } catch ( Throwable t ) {
+            fail( t );
+         }
+      }
+   }
+
+   private void consume( final AnalysisEngine engine, final CasPool casPool, final Document document ) {
+      if ( engine != null && _failure.get() == null ) {
+         try {
+            engine.process( document.__cas );
+         } catch ( Throwable t ) {
+            fail( t );
+         }
+      }
+      // Always returned, the reader may be waiting for a cas.
+      casPool.releaseCas( document.__cas );
+   }
+
+   /**
+    * Keeps the first failure of the run, which stops the reader and the engines
+    */
+   private void fail( final Throwable throwable ) {
+      if ( _failure.compareAndSet( null, throwable ) ) {
+         LOGGER.error( "Stopping the pipeline.  " + throwable.getMessage(), throwable );
+      }
+   }
+
+
+   /**
+    * A cas with the index of the document in the collection
+    */
+   static private final class Document {
+      private final long __index;
+      private final CAS __cas;
+
+      private Document( final long index, final CAS cas ) {
+         __index = index;
+         __cas = cas;
+      }
+   }
+
+}
@@ -1,6 +1,7 @@
 package org.apache.ctakes.core.pipeline;
 
 
+import org.apache.ctakes.core.cc.FileTreeBinaryCasWriter;
 import org.apache.ctakes.core.cc.FileTreeXmiWriter;
 import org.apache.ctakes.core.cc.pretty.html.HtmlTextWriter;
 import org.apache.ctakes.core.config.ConfigParameterConstants;
@@ -10,23 +11,20 @@ import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_component.AnalysisComponent;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
-import org.apache.uima.collection.CollectionProcessingEngine;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.collection.CollectionReaderDescription;
-import org.apache.uima.collection.metadata.CpeDescriptorException;
-import org.apache.uima.fit.cpe.CpeBuilder;
 import org.apache.uima.fit.factory.AggregateBuilder;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
-import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -53,8 +51,14 @@ final public class PipelineBuilder {
 
    // Allow the pipeline to be changed even after it has been built once.
    private AnalysisEngineDescription _analysisEngineDesc;
+   // The same pipeline split for multiple threads: engines run by workers and consumers run after them
+   private AnalysisEngineDescription _processDesc;
+   private AnalysisEngineDescription _consumerDesc;
    private boolean _pipelineChanged;
    private int _threadCount = 1;
+   private boolean _orderedOutput;
+   // Parameters for the metrics reporter, or null if engines should not be measured
+   private Object[] _metricsParameters;
 
    public PipelineBuilder() {
       _aeNameList = new ArrayList<>();
@@ -74,6 +78,8 @@ final public class PipelineBuilder {
       _aeEndViewList.clear();
       _descEndList.clear();
       _threadCount = 1;
+      _orderedOutput = false;
+      _metricsParameters = null;
    }
 
    /**
@@ -312,6 +318,31 @@ final public class PipelineBuilder {
             ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
    }
 
+   /**
+    * Adds ae that writes a compressed binary cas file at the end of the pipeline.
+    * Relies upon {@link ConfigParameterConstants#PARAM_OUTPUTDIR} having been specified
+    * Use of this method is order-specific.
+    *
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the binary cas writer engine cannot be created
+    */
+   public PipelineBuilder writeBinaryCas() throws ResourceInitializationException {
+      return addLast( FileTreeBinaryCasWriter.class, Collections.emptyList() );
+   }
+
+   /**
+    * Adds ae that writes a compressed binary cas file at the end of the pipeline.
+    * Use of this method is order-specific.
+    *
+    * @param outputDirectory directory in which binary cas files should be written
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the binary cas writer engine cannot be created
+    */
+   public PipelineBuilder writeBinaryCas( final String outputDirectory ) throws ResourceInitializationException {
+      return addLast( FileTreeBinaryCasWriter.class, Collections.emptyList(),
+            ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
+   }
+
    /**
     * Adds ae that writes an html file at the end of the pipeline.
     * Relies upon {@link ConfigParameterConstants#PARAM_OUTPUTDIR} having been specified
@@ -337,6 +368,14 @@ final public class PipelineBuilder {
             ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
    }
 
+   /**
+    * Runs the pipeline with more than one thread, each with its own instance of the engines.
+    * Engines added with addLast, e.g. by writeXmis, run on a single thread after processing.
+    * Use of this method is not order-specific.  See {@link ParallelPipelineRunner}.
+    *
+    * @param threadCount number of threads, at most the number of cores
+    * @return this PipelineBuilder
+    */
    public PipelineBuilder threads( final int threadCount ) {
       if ( threadCount <= 1 ) {
          if ( threadCount < 1 ) {
@@ -356,6 +395,33 @@ final public class PipelineBuilder {
       return this;
    }
 
+   /**
+    * With multiple threads, passes documents to the engines added with addLast in the order in which they were read.
+    * By default documents are passed in the order in which they finish processing.
+    * Use of this method is not order-specific.
+    *
+    * @param ordered true if documents should be consumed in the order in which they were read
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder orderedOutput( final boolean ordered ) {
+      _orderedOutput = ordered;
+      return this;
+   }
+
+   /**
+    * Measures wall time, cpu time and allocated bytes of every engine in the pipeline for each document,
+    * and reports percentiles at the end of the run.  See {@link PipelineMetrics}.
+    * Use of this method is not order-specific.
+    *
+    * @param parameters metrics reporter parameter name value pairs.  May be empty.
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder metrics( final Object... parameters ) {
+      _metricsParameters = parameters;
+      _pipelineChanged = true;
+      return this;
+   }
+
    /**
     * Initialize a pipeline that can be used repeatedly using {@link #run} and {@link #run(String)}.
     * A pipeline can be extended between builds, but the full pipeline will be rebuilt on each call.
@@ -366,14 +432,13 @@ final public class PipelineBuilder {
     */
    public PipelineBuilder build() throws IOException, UIMAException {
       if ( _analysisEngineDesc == null || _pipelineChanged ) {
-         final AggregateBuilder builder = new AggregateBuilder();
-         for ( int i = 0; i < _descList.size(); i++ ) {
-            builder.add( _descList.get( i ), _aeViewList.get( i ) );
-         }
-         for ( int i = 0; i < _descEndList.size(); i++ ) {
-            builder.add( _descEndList.get( i ), _aeEndViewList.get( i ) );
-         }
-         _analysisEngineDesc = builder.createAggregateDescription();
+         final Collection<String> metricsNames = new HashSet<>();
+         _analysisEngineDesc = createAggregate( true, true, metricsNames );
+         metricsNames.clear();
+         _processDesc = createAggregate( true, false, metricsNames );
+         _consumerDesc = _descEndList.isEmpty() && _metricsParameters == null
+                         ? null
+                         : createAggregate( false, true, metricsNames );
       }
       _pipelineChanged = false;
       return this;
@@ -397,17 +462,7 @@ final public class PipelineBuilder {
       if ( _threadCount == 1 ) {
          SimplePipeline.runPipeline( _readerDesc, _analysisEngineDesc );
       } else {
-         final CpeBuilder cpeBuilder = new CpeBuilder();
-         try {
-            cpeBuilder.setReader( _readerDesc );
-            cpeBuilder.setAnalysisEngine( _analysisEngineDesc );
-            cpeBuilder.setMaxProcessingUnitThreadCount( _threadCount );
-            final CollectionProcessingEngine cpe = cpeBuilder.createCpe( null );
-            cpe.process();
-         } catch ( CpeDescriptorException | SAXException multE ) {
-            LOGGER.error( multE.getMessage(), multE );
-            throw new UIMAException( multE );
-         }
+         new ParallelPipelineRunner( _readerDesc, _processDesc, _consumerDesc, _threadCount, _orderedOutput ).run();
       }
       return this;
    }
@@ -444,6 +499,75 @@ final public class PipelineBuilder {
       return _analysisEngineDesc;
    }
 
+   /**
+    * @param withProcess   true to add the engines of the main pipeline
+    * @param withConsumers true to add the engines added last and the metrics reporter
+    * @param metricsNames  names already used for measured engines
+    * @return aggregate description of the wanted engines
+    */
+   private AnalysisEngineDescription createAggregate( final boolean withProcess, final boolean withConsumers,
+                                                      final Collection<String> metricsNames )
+         throws ResourceInitializationException {
+      final AggregateBuilder builder = new AggregateBuilder();
+      if ( withProcess ) {
+         for ( int i = 0; i < _descList.size(); i++ ) {
+            addToAggregate( builder, _descList.get( i ), _aeViewList.get( i ), metricsNames );
+         }
+      }
+      if ( withConsumers ) {
+         for ( int i = 0; i < _descEndList.size(); i++ ) {
+            addToAggregate( builder, _descEndList.get( i ), _aeEndViewList.get( i ), metricsNames );
+         }
+         if ( _metricsParameters != null ) {
+            builder.add( PropertyAeFactory.getInstance()
+                  .createDescription( PipelineMetrics.MetricsReporter.class, _metricsParameters ) );
+         }
+      }
+      return builder.createAggregateDescription();
+   }
+
+   /**
+    * Adds a description to the aggregate, between metrics engines if metrics are on
+    *
+    * @param metricsNames names already used for measured engines
+    */
+   private void addToAggregate( final AggregateBuilder builder, final AnalysisEngineDescription description,
+                                final String[] views, final Collection<String> metricsNames )
+         throws ResourceInitializationException {
+      if ( _metricsParameters == null ) {
+         builder.add( description, views );
+         return;
+      }
+      final String metricsName = getMetricsName( description, metricsNames );
+      metricsNames.add( metricsName );
+      builder.add( PipelineMetrics.createStartDescription( metricsName ) );
+      builder.add( description, views );
+      builder.add( PipelineMetrics.createFinishDescription( metricsName ) );
+   }
+
+   /**
+    * @param description  ae or cc description
+    * @param metricsNames names already used for measured engines
+    * @return simple class name of the engine, with a number appended if it is already in the pipeline
+    */
+   static private String getMetricsName( final AnalysisEngineDescription description,
+                                         final Collection<String> metricsNames ) {
+      String name = description.getAnnotatorImplementationName();
+      if ( name == null || name.isEmpty() ) {
+         name = description.getMetaData().getName();
+      } else {
+         name = name.substring( name.lastIndexOf( '.' ) + 1 );
+      }
+      if ( !metricsNames.contains( name ) ) {
+         return name;
+      }
+      int count = 2;
+      while ( metricsNames.contains( name + "_" + count ) ) {
+         count++;
+      }
+      return name + "_" + count;
+   }
+
    static private String[] toStringArray( final Collection<String> things ) {
       return new ArrayList<>( things ).toArray( new String[ things.size() ] );
    }
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores wall time, cpu time and allocated bytes per document for each engine in a pipeline.
+ * <p>
+ * Each measured engine is placed between a {@link MetricsStartEngine} and a {@link MetricsFinishEngine}.
+ * The pair measure the current thread, so the metrics are correct for pipelines run by several threads.
+ * A {@link MetricsReporter} at the end of the pipeline logs a table of percentiles when the collection is complete,
+ * and can register each engine's {@link EngineMetricsMBean} with the platform MBean server.
+ * </p>
+ * Metrics are turned on for all engines in a piper file with the command {@code metrics}.
+ */
+public enum PipelineMetrics {
+   INSTANCE;
+
+   static public PipelineMetrics getInstance() {
+      return INSTANCE;
+   }
+
+   static private final Logger LOGGER = Logger.getLogger( "PipelineMetrics" );
+
+   static private final String JMX_DOMAIN = "org.apache.ctakes";
+
+   private final Map<String, EngineMetrics> _engineMetrics = Collections.synchronizedMap( new LinkedHashMap<>() );
+
+   // Start values of wall time, cpu time and allocated bytes, by engine name, for the current thread
+   private final ThreadLocal<Map<String, long[]>> _startValues = ThreadLocal.withInitial( HashMap::new );
+
+   private final ThreadMXBean _threadBean = ManagementFactory.getThreadMXBean();
+   private final boolean _cpuTimeSupported;
+   private final boolean _allocationSupported;
+
+   private volatile boolean _registerJmx;
+
+   PipelineMetrics() {
+      _cpuTimeSupported = _threadBean.isCurrentThreadCpuTimeSupported();
+      if ( _cpuTimeSupported && !_threadBean.isThreadCpuTimeEnabled() ) {
+         _threadBean.setThreadCpuTimeEnabled( true );
+      }
+      boolean allocationSupported = false;
+      if ( _threadBean instanceof com.sun.management.ThreadMXBean ) {
+         final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)_threadBean;
+         allocationSupported = sunBean.isThreadAllocatedMemorySupported();
+         if ( allocationSupported && !sunBean.isThreadAllocatedMemoryEnabled() ) {
+            sunBean.setThreadAllocatedMemoryEnabled( true );
+         }
+      }
+      _allocationSupported = allocationSupported;
+   }
+
+   /**
+    * @return metrics of all measured engines, in pipeline order
+    */
+   public Collection<EngineMetrics> getEngineMetrics() {
+      synchronized ( _engineMetrics ) {
+         return Collections.unmodifiableList( new ArrayList<>( _engineMetrics.values() ) );
+      }
+   }
+
+   /**
+    * @param engineName name of some measured engine
+    * @return metrics of the engine, or null if the engine has not been measured
+    */
+   public EngineMetrics getEngineMetrics( final String engineName ) {
+      return _engineMetrics.get( engineName );
+   }
+
+   /**
+    * Removes recorded values from all engine metrics
+    */
+   public void reset() {
+      getEngineMetrics().forEach( EngineMetrics::reset );
+   }
+
+   /**
+    * @return table of document count, percentiles of wall time, cpu time and allocated bytes, and share of total time
+    * for each engine
+    */
+   @Override
+   public String toString() {
+      final Collection<EngineMetrics> allMetrics = getEngineMetrics();
+      final double totalMillis = allMetrics.stream().mapToDouble( EngineMetrics::getTotalWallMillis ).sum();
+      final StringBuilder sb = new StringBuilder();
+      sb.append( String.format( "%-40s %8s %10s %10s %10s %10s %10s %10s %10s %10s %10s %10s %6s%n",
+            "ENGINE", "DOCS", "WALL_P50", "WALL_P95", "WALL_P99", "CPU_P50", "CPU_P95", "CPU_P99",
+            "KB_P50", "KB_P95", "KB_P99", "MS/KCHAR", "TIME%" ) );
+      for ( EngineMetrics metrics : allMetrics ) {
+         sb.append( String.format( "%-40s %8d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f %10d %10d %10d %10.3f %6.1f%n",
+               metrics.getName(), metrics.getDocumentCount(),
+               metrics.getWallMillisP50(), metrics.getWallMillisP95(), metrics.getWallMillisP99(),
+               metrics.getCpuMillisP50(), metrics.getCpuMillisP95(), metrics.getCpuMillisP99(),
+               metrics.getAllocatedBytesP50() / 1024, metrics.getAllocatedBytesP95() / 1024,
+               metrics.getAllocatedBytesP99() / 1024,
+               metrics.getWallMillisPerKiloCharP50(),
+               totalMillis == 0 ? 0 : 100 * metrics.getTotalWallMillis() / totalMillis ) );
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @param engineName name of a measured engine
+    * @return metrics for the engine, created and registered with jmx if needed
+    */
+   private EngineMetrics getOrCreate( final String engineName ) {
+      EngineMetrics metrics = _engineMetrics.get( engineName );
+      if ( metrics != null ) {
+         return metrics;
+      }
+      synchronized ( _engineMetrics ) {
+         metrics = _engineMetrics.computeIfAbsent( engineName, EngineMetrics::new );
+      }
+      if ( _registerJmx ) {
+         registerMBean( metrics );
+      }
+      return metrics;
+   }
+
+   private void start( final String engineName ) {
+      final long[] values = _startValues.get().computeIfAbsent( engineName, n -> new long[ 3 ] );
+      values[ 1 ] = getCpuTime();
+      values[ 2 ] = getAllocatedBytes();
+      // Wall time last, so that reading the other values is not measured
+      values[ 0 ] = System.nanoTime();
+   }
+
+   private void finish( final String engineName, final int textLength ) {
+      final long wallNanos = System.nanoTime();
+      final long[] values = _startValues.get().get( engineName );
+      if ( values == null ) {
+         LOGGER.warn( "No start recorded for " + engineName );
+         return;
+      }
+      final long cpuNanos = _cpuTimeSupported ? getCpuTime() - values[ 1 ] : -1;
+      final long allocatedBytes = _allocationSupported ? getAllocatedBytes() - values[ 2 ] : -1;
+      getOrCreate( engineName ).record( wallNanos - values[ 0 ], cpuNanos, allocatedBytes, textLength );
+   }
+
+   private long getCpuTime() {
+      return _cpuTimeSupported ? _threadBean.getCurrentThreadCpuTime() : 0;
+   }
+
+   private long getAllocatedBytes() {
+      if ( !_allocationSupported ) {
+         return 0;
+      }
+      return ((com.sun.management.ThreadMXBean)_threadBean).getThreadAllocatedBytes( Thread.currentThread().getId() );
+   }
+
+   private void registerMBeans() {
+      _registerJmx = true;
+      getEngineMetrics().forEach( this::registerMBean );
+   }
+
+   private void registerMBean( final EngineMetrics metrics ) {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+         final ObjectName name = new ObjectName( JMX_DOMAIN + ":type=EngineMetrics,name="
+                                                 + ObjectName.quote( metrics.getName() ) );
+         synchronized ( server ) {
+            if ( !server.isRegistered( name ) ) {
+               server.registerMBean( metrics, name );
+            }
+         }
+      } catch ( JMException jmE ) {
+         LOGGER.warn( "Could not register metrics for " + metrics.getName() + " " + jmE.getMessage() );
+      }
+   }
+
+   /**
+    * @param engineName name for a measured engine, unique in the pipeline
+    * @return engine to place just before the measured engine
+    * @throws ResourceInitializationException if UimaFit has a problem
+    */
+   static public AnalysisEngineDescription createStartDescription( final String engineName )
+         throws ResourceInitializationException {
+      return AnalysisEngineFactory.createEngineDescription( MetricsStartEngine.class,
+            MetricsStartEngine.PARAM_ENGINE_NAME, engineName );
+   }
+
+   /**
+    * @param engineName name for a measured engine, unique in the pipeline
+    * @return engine to place just after the measured engine
+    * @throws ResourceInitializationException if UimaFit has a problem
+    */
+   static public AnalysisEngineDescription createFinishDescription( final String engineName )
+         throws ResourceInitializationException {
+      return AnalysisEngineFactory.createEngineDescription( MetricsFinishEngine.class,
+            MetricsFinishEngine.PARAM_ENGINE_NAME, engineName );
+   }
+
+
+   /**
+    * Analysis Engine that starts measuring the next engine in the pipeline
+    */
+   @PipeBitInfo(
+         name = "Metrics Start",
+         description = "Starts measuring time and allocation for the next Annotator.",
+         role = PipeBitInfo.Role.SPECIAL
+   )
+   static public final class MetricsStartEngine extends JCasAnnotator_ImplBase {
+      static public final String PARAM_ENGINE_NAME = "MetricsEngineName";
+      @ConfigurationParameter(
+            name = PARAM_ENGINE_NAME,
+            description = "Name of the measured Annotator."
+      )
+      private String _engineName;
+
+      @Override
+      public void initialize( final UimaContext context ) throws ResourceInitializationException {
+         super.initialize( context );
+         PipelineMetrics.getInstance().getOrCreate( _engineName );
+      }
+
+      @Override
+      public void process( final JCas jCas ) {
+         PipelineMetrics.getInstance().start( _engineName );
+      }
+   }
+
+
+   /**
+    * Analysis Engine that finishes measuring the previous engine in the pipeline
+    */
+   @PipeBitInfo(
+         name = "Metrics Finish",
+         description = "Finishes measuring time and allocation for the previous Annotator.",
+         role = PipeBitInfo.Role.SPECIAL
+   )
+   static public final class MetricsFinishEngine extends JCasAnnotator_ImplBase {
+      static public final String PARAM_ENGINE_NAME = "MetricsEngineName";
+      @ConfigurationParameter(
+            name = PARAM_ENGINE_NAME,
+            description = "Name of the measured Annotator."
+      )
+      private String _engineName;
+
+      @Override
+      public void process( final JCas jCas ) {
+         final String text = jCas.getDocumentText();
+         PipelineMetrics.getInstance().finish( _engineName, text == null ? 0 : text.length() );
+      }
+   }
+
+
+   /**
+    * Logs the metrics table when the collection is complete, optionally writing it to a file and registering
+    * metrics with jmx.  When several threads run copies of the pipeline the table is written once, by the last copy.
+    */
+   @PipeBitInfo(
+         name = "Metrics Reporter",
+         description = "Reports time and allocation percentiles of Annotators at the end of a run.",
+         role = PipeBitInfo.Role.SPECIAL
+   )
+   static public final class MetricsReporter extends JCasAnnotator_ImplBase {
+      static public final String PARAM_REGISTER_JMX = "RegisterJmx";
+      @ConfigurationParameter(
+            name = PARAM_REGISTER_JMX,
+            description = "Register the metrics of each Annotator with the platform MBean server.",
+            mandatory = false,
+            defaultValue = "false"
+      )
+      private boolean _registerJmx;
+
+      static public final String PARAM_METRICS_FILE = "MetricsFile";
+      @ConfigurationParameter(
+            name = PARAM_METRICS_FILE,
+            description = "File to which the metrics table should be written.",
+            mandatory = false
+      )
+      private String _metricsFile;
+
+      static private final AtomicInteger RUNNING_COUNT = new AtomicInteger();
+
+      // set while this reporter holds a place in the running count
+      private final AtomicBoolean _running = new AtomicBoolean();
+
+      @Override
+      public void initialize( final UimaContext context ) throws ResourceInitializationException {
+         super.initialize( context );
+         if ( _running.compareAndSet( false, true ) ) {
+            RUNNING_COUNT.incrementAndGet();
+         }
+         if ( _registerJmx ) {
+            PipelineMetrics.getInstance().registerMBeans();
+         }
+      }
+
+      @Override
+      public void process( final JCas jCas ) {
+      }
+
+      @Override
+      public void collectionProcessComplete() throws AnalysisEngineProcessException {
+         super.collectionProcessComplete();
+         if ( !stopRunning() ) {
+            return;
+         }
+         final String table = PipelineMetrics.getInstance().toString();
+         LOGGER.info( "Annotator Metrics:\n" + table );
+         if ( _metricsFile == null || _metricsFile.isEmpty() ) {
+            return;
+         }
+         final File file = new File( _metricsFile );
+         if ( file.getParentFile() != null ) {
+            file.getParentFile().mkdirs();
+         }
+         try ( BufferedWriter writer = new BufferedWriter( new FileWriter( file ) ) ) {
+            writer.write( table );
+         } catch ( IOException ioE ) {
+            throw new AnalysisEngineProcessException( ioE );
+         }
+      }
+
+      /**
+       * A run that fails never completes its collection, so its place in the running count is released here.
+       */
+      @Override
+      public void destroy() {
+         stopRunning();
+         super.destroy();
+      }
+
+      /**
+       * @return true if this was the last running reporter, which should report
+       */
+      private boolean stopRunning() {
+         return _running.compareAndSet( true, false ) && RUNNING_COUNT.decrementAndGet() == 0;
+      }
+   }
+
+}
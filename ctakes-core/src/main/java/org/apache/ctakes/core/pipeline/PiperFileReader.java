@@ -34,6 +34,14 @@ import java.util.regex.Pattern;
  * writeXmis <i>output_directory</i>
  *    <i>output_directory</i> can be empty if
  *    {@link XmiWriterCasConsumerCtakes#PARAM_OUTPUTDIR} ("OutputDirectory") was specified
+ * writeBinaryCas <i>output_directory</i>
+ *    writes compressed binary cas files that can be read with {@link org.apache.ctakes.core.cr.FileTreeBinaryCasReader}.
+ *    <i>output_directory</i> can be empty if "OutputDirectory" was specified
+ * threads <i>thread_count</i> [ordered]
+ *    runs the pipeline with several threads, see {@link ParallelPipelineRunner}.
+ *    With <i>ordered</i> the engines added last receive documents in the order in which they were read
+ * metrics <i>reporter_parameter_name=reporter_parameter_value</i> ...
+ *    measures every ae and cc, see {@link PipelineMetrics}
  * // and # and ! may be used to mark line comments
  * </p>
  * class names must be fully-specified with package unless they are in standard ctakes cr ae or cc packages,
@@ -227,6 +235,9 @@ final public class PiperFileReader {
             return true;
          case "threads":
             return setThreadCount( info );
+         case "metrics":
+            _builder.metrics( splitParameters( info ) );
+            return true;
          case "collectCuis":
             _builder.collectCuis();
             return true;
@@ -240,6 +251,13 @@ final public class PiperFileReader {
                _builder.writeXMIs( info );
             }
             return true;
+         case "writeBinaryCas":
+            if ( info.isEmpty() ) {
+               _builder.writeBinaryCas();
+            } else {
+               _builder.writeBinaryCas( info );
+            }
+            return true;
          case "writeHtml":
             if ( info.isEmpty() ) {
                _builder.writeHtml();
@@ -254,9 +272,11 @@ final public class PiperFileReader {
    }
 
    private boolean setThreadCount( final String info ) {
-      final Object count = attemptParseInt( info );
+      final String[] countOrder = SPACE_PATTERN.split( info );
+      final Object count = attemptParseInt( countOrder[ 0 ] );
       if ( count instanceof Integer ) {
          _builder.threads( (Integer) count );
+         _builder.orderedOutput( countOrder.length > 1 && countOrder[ 1 ].equalsIgnoreCase( "ordered" ) );
          return true;
       }
       LOGGER.error( "Could not parse thread count from " + info );
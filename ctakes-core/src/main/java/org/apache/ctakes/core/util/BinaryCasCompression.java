@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.util;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to a whole binary cas file, named by the file extension.
+ * Uima compressed binary serialization is already compact, so this mostly helps with long document texts.
+ */
+public enum BinaryCasCompression {
+   NONE( ".bcas" ),
+   GZIP( ".bcas.gz" ),
+   ZSTD( ".bcas.zst" );
+
+   final private String _extension;
+
+   BinaryCasCompression( final String extension ) {
+      _extension = extension;
+   }
+
+   /**
+    * @return file extension, including the binary cas extension
+    */
+   public String getExtension() {
+      return _extension;
+   }
+
+   /**
+    * @param outputStream stream to the file
+    * @return stream that compresses into the given stream
+    * @throws IOException if the compressed stream can not be started
+    */
+   public OutputStream compress( final OutputStream outputStream ) throws IOException {
+      switch ( this ) {
+         case GZIP:
+            return new GZIPOutputStream( outputStream, 64 * 1024 );
+         case ZSTD:
+            return new ZstdOutputStream( outputStream );
+         default:
+            return outputStream;
+      }
+   }
+
+   /**
+    * @param inputStream stream from the file
+    * @return stream that decompresses the given stream
+    * @throws IOException if the compressed stream can not be started
+    */
+   public InputStream decompress( final InputStream inputStream ) throws IOException {
+      switch ( this ) {
+         case GZIP:
+            return new GZIPInputStream( inputStream, 64 * 1024 );
+         case ZSTD:
+            return new ZstdInputStream( inputStream );
+         default:
+            return inputStream;
+      }
+   }
+
+   /**
+    * @param name compression name, any case
+    * @return the compression, or NONE for a null or empty name
+    * @throws IllegalArgumentException for an unknown name
+    */
+   static public BinaryCasCompression getCompression( final String name ) {
+      if ( name == null || name.trim().isEmpty() ) {
+         return NONE;
+      }
+      return valueOf( name.trim().toUpperCase() );
+   }
+
+   /**
+    * @param file -
+    * @return the compression named by the file extension, or null if the file is not a binary cas file
+    */
+   static public BinaryCasCompression getFileCompression( final File file ) {
+      final String name = file.getName().toLowerCase();
+      for ( BinaryCasCompression compression : values() ) {
+         if ( name.endsWith( compression._extension ) ) {
+            return compression;
+         }
+      }
+      return null;
+   }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.core.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of non-negative long values with a fixed relative precision.
+ * <p>
+ * Each power of two is split into 16 buckets, so a reported percentile is within about 3% of the true value.
+ * Recording never allocates or locks, and the histogram has the same small size for any number of values.
+ * </p>
+ */
+final public class LogHistogram {
+
+   static private final int SUB_BUCKET_BITS = 4;
+   static private final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   // Values below SUB_BUCKET_COUNT have their own buckets, each higher power of two has SUB_BUCKET_COUNT buckets
+   static private final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+   final private AtomicLongArray _counts = new AtomicLongArray( BUCKET_COUNT );
+   final private LongAdder _count = new LongAdder();
+   final private LongAdder _sum = new LongAdder();
+
+   /**
+    * @param value some value.  Negative values are recorded as 0.
+    */
+   public void record( final long value ) {
+      final long positive = Math.max( 0, value );
+      _counts.incrementAndGet( getBucket( positive ) );
+      _count.increment();
+      _sum.add( positive );
+   }
+
+   /**
+    * @return number of recorded values
+    */
+   public long getCount() {
+      return _count.sum();
+   }
+
+   /**
+    * @return sum of all recorded values
+    */
+   public long getSum() {
+      return _sum.sum();
+   }
+
+   /**
+    * @return mean of all recorded values, or 0 if there are none
+    */
+   public double getMean() {
+      final long count = getCount();
+      return count == 0 ? 0 : (double)getSum() / count;
+   }
+
+   /**
+    * @param percentile percentile between 0 and 100, e.g. 95 for the 95th percentile
+    * @return value at the percentile, or 0 if nothing has been recorded
+    */
+   public long getPercentile( final double percentile ) {
+      final long count = getCount();
+      if ( count == 0 ) {
+         return 0;
+      }
+      final long rank = Math.max( 1, (long)Math.ceil( Math.min( 100, percentile ) / 100 * count ) );
+      long seen = 0;
+      for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+         seen += _counts.get( i );
+         if ( seen >= rank ) {
+            return getBucketValue( i );
+         }
+      }
+      // Values recorded while reading
+      return getBucketValue( BUCKET_COUNT - 1 );
+   }
+
+   /**
+    * Removes all recorded values.  Values recorded during a reset may be lost.
+    */
+   public void reset() {
+      for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+         _counts.set( i, 0 );
+      }
+      _count.reset();
+      _sum.reset();
+   }
+
+   static private int getBucket( final long value ) {
+      if ( value < SUB_BUCKET_COUNT ) {
+         return (int)value;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros( value );
+      final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+   }
+
+   /**
+    * @param bucket some bucket
+    * @return middle value of the bucket
+    */
+   static private long getBucketValue( final int bucket ) {
+      if ( bucket < SUB_BUCKET_COUNT ) {
+         return bucket;
+      }
+      final int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+      final long width = 1L << (exponent - SUB_BUCKET_BITS);
+      final long lowest = (SUB_BUCKET_COUNT + (bucket & (SUB_BUCKET_COUNT - 1))) * width;
+      return lowest + width / 2;
+   }
+
+}
@@ -1,21 +1,72 @@
 package org.apache.ctakes.core.util.regex;
 
 /**
- * A representation of text that can check its container thread for interruptions.
+ * A representation of text that can check a deadline and its container thread for interruptions.
  * This allows a break within tight charAt(..) calling loops, which can otherwise become infinite in a corrupt find.
+ * The clock is only read every {@link #CHECK_INTERVAL} characters, so the check costs little more than the read.
+ * A subsequence shares the deadline of the text that created it.
  */
 final class ThreadString implements CharSequence {
+
+   static private final int CHECK_INTERVAL = 1024;
+
+   /**
+    * Thrown from within a find when the deadline has passed or the thread has been interrupted
+    */
+   static final class RegexTimeoutException extends RuntimeException {
+      private RegexTimeoutException( final String message ) {
+         // No stack trace, it is thrown deep within the matcher and is always caught
+         super( message, null, false, false );
+      }
+   }
+
    private final CharSequence _delegate;
+   private final ThreadString _root;
+   private long _deadlineNanos;
+   private int _readCount;
 
-   ThreadString( final CharSequence delegate ) {
+   /**
+    * @param delegate      text
+    * @param timeoutMillis milliseconds from now at which reading the text should abort a find
+    */
+   ThreadString( final CharSequence delegate, final int timeoutMillis ) {
       _delegate = delegate;
+      _root = this;
+      startTimeout( timeoutMillis );
    }
 
-   @Override
-   public char charAt( final int index ) {
+   private ThreadString( final CharSequence delegate, final ThreadString root ) {
+      _delegate = delegate;
+      _root = root;
+   }
+
+   /**
+    * Sets a new deadline, e.g. before each of several finds
+    *
+    * @param timeoutMillis milliseconds from now at which reading the text should abort a find
+    */
+   void startTimeout( final int timeoutMillis ) {
+      _root._deadlineNanos = System.nanoTime() + timeoutMillis * 1000000L;
+      _root._readCount = 0;
+   }
+
+   private void checkTimeout() {
+      final ThreadString root = _root;
+      if ( ++root._readCount < CHECK_INTERVAL ) {
+         return;
+      }
+      root._readCount = 0;
+      if ( System.nanoTime() - root._deadlineNanos > 0 ) {
+         throw new RegexTimeoutException( "Timed out" );
+      }
       if ( Thread.currentThread().isInterrupted() ) {
-         throw new RuntimeException( new InterruptedException() );
+         throw new RegexTimeoutException( "Interrupted" );
       }
+   }
+
+   @Override
+   public char charAt( final int index ) {
+      checkTimeout();
       return _delegate.charAt( index );
    }
 
@@ -26,10 +77,8 @@ final class ThreadString implements CharSequence {
 
    @Override
    public CharSequence subSequence( final int start, final int end ) {
-      if ( Thread.currentThread().isInterrupted() ) {
-         throw new RuntimeException( new InterruptedException() );
-      }
-      return new ThreadString( _delegate.subSequence( start, end ) );
+      checkTimeout();
+      return new ThreadString( _delegate.subSequence( start, end ), _root );
    }
 
    @Override
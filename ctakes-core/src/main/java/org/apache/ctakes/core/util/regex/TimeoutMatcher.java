@@ -3,14 +3,14 @@ package org.apache.ctakes.core.util.regex;
 import org.apache.log4j.Logger;
 
 import java.io.Closeable;
-import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * Class that can / should be used to find text spans using regular expressions.
- * It runs Matcher find {@link Matcher#find()} in a separate thread so that it may be interrupted at a set timeout.
+ * It runs Matcher find {@link Matcher#find()} on text that aborts the find when it is read after a set timeout.
+ * The find runs on the calling thread, so no thread is created and there is no hand-off for each find.
  * This prevents infinite loop problems that can be caused by poorly-built expressions or unexpected text contents.
  * The timeout can be specified in milliseconds between 100 and 10,000.  Large timeouts are unadvised.  If a large
  * amount of text needs to be parsed then it is better to split up the text logically and use smaller timeouts.
@@ -42,9 +42,10 @@ public class TimeoutMatcher implements Closeable {
    static private final int MIN_TIMEOUT_MILLIS = 100;
    static private final int MAX_TIMEOUT_MILLIS = 10000;
 
-   private final ExecutorService _executor;
    private final int _timeoutMillis;
+   private final ThreadString _text;
    private final Matcher _matcher;
+   private boolean _timedOut;
 
 
    /**
@@ -97,65 +98,39 @@ public class TimeoutMatcher implements Closeable {
          throw new IllegalArgumentException( "Timeout must be between "
                                              + MIN_TIMEOUT_MILLIS + " and " + MAX_TIMEOUT_MILLIS );
       }
-      _matcher = pattern.matcher( new ThreadString( text ) );
       _timeoutMillis = timeoutMillis;
-      _executor = Executors.newSingleThreadExecutor();
+      _text = new ThreadString( text, timeoutMillis );
+      _matcher = pattern.matcher( _text );
    }
 
 
    /**
-    * @return a matcher representing the next call to {@link Matcher#find()}
+    * @return a matcher representing the next call to {@link Matcher#find()}, or null if there is no next match or
+    * the find timed out
     */
    public Matcher nextMatch() {
-      final Callable<Matcher> callable = new RegexCallable();
-      final Future<Matcher> future = _executor.submit( callable );
+      if ( _timedOut ) {
+         return null;
+      }
+      _text.startTimeout( _timeoutMillis );
       try {
-         return future.get( _timeoutMillis, TimeUnit.MILLISECONDS );
-      } catch ( InterruptedException | ExecutionException | TimeoutException multE ) {
-         LOGGER.debug( "Timeout for " + _matcher.pattern() );
-         if ( !future.cancel( true ) ) {
-            LOGGER.error( "Timed out but could not be cancelled while detecting " + _matcher.pattern() );
+         if ( _matcher.find() ) {
+            return _matcher;
          }
-      }
-      if ( future.isCancelled() ) {
-         LOGGER.error( "Cancelled while detecting " + _matcher.pattern() );
-      } else if ( !future.isDone() ) {
-         LOGGER.error( "Not cancelled but didn't complete while detecting " + _matcher.pattern() );
+      } catch ( ThreadString.RegexTimeoutException rtE ) {
+         _timedOut = true;
+         LOGGER.error( rtE.getMessage() + " while detecting " + _matcher.pattern() );
       }
       return null;
    }
 
 
    /**
-    * shut down the executor
+    * Nothing to release, kept so that existing try-with-resources blocks are unchanged.
     * {@inheritDoc}
     */
    @Override
    public void close() {
-      _executor.shutdownNow();
-   }
-
-
-   /**
-    * Simple Callable that runs a {@link Matcher} on text
-    */
-   private final class RegexCallable implements Callable<Matcher> {
-
-      private RegexCallable() {
-      }
-
-      /**
-       * {@inheritDoc}
-       *
-       * @return matcher if there is another find, else null
-       */
-      @Override
-      public Matcher call() {
-         if ( _matcher.find() ) {
-            return _matcher;
-         }
-         return null;
-      }
    }
 
 }
@@ -21,10 +21,17 @@ package org.apache.ctakes.core.ae;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Random;
 
 import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.junit.Test;
@@ -35,6 +42,8 @@ import org.apache.ctakes.typesystem.type.syntax.NumToken;
 import org.apache.ctakes.typesystem.type.syntax.PunctuationToken;
 import org.apache.ctakes.typesystem.type.syntax.SymbolToken;
 import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textspan.Segment;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.ctakes.utils.test.TestUtil;
 
 public class TokenizerAnnotatorPTBTests {
@@ -99,6 +108,75 @@ public class TokenizerAnnotatorPTBTests {
 
     }
 
+    /**
+     * The fast tokenizer must create the same tokens, with the same features, as the original tokenizer.
+     * Checked on the test strings above and on random text built from pieces that exercise each rule.
+     */
+    @Test
+    public void testFastTokenizerPTB() throws UIMAException {
+	AnalysisEngine original = AnalysisEngineFactory.createEngine(TokenizerAnnotatorPTB.class,
+		TokenizerAnnotatorPTB.PARAM_FAST_TOKENIZER, false);
+	AnalysisEngine fast = AnalysisEngineFactory.createEngine(TokenizerAnnotatorPTB.class,
+		TokenizerAnnotatorPTB.PARAM_FAST_TOKENIZER, true);
+	JCas jCas = JCasFactory.createJCas();
+	List<String> inputs = new ArrayList<String>();
+	for (TestData<SimpleToken []> test : tests) {
+	    inputs.add(test.getTestInput());
+	}
+	String [] pieces = { "cannot", "Gonna", "whatcha", "can't", "I'LL", "more'n", "'tis", "'Twas", "'Assad", "80's",
+		"80's-esque", "P'yongyang", "James'", "n't", "555-1212", "1-507-555-1212", "55901-0000", "4-5555",
+		"http://ctakes.apache.org", "mailto:x", "www.nlm.nih.gov", "masanz@mayo.edu", "m@l", "a-b@c.d",
+		"e.g.", "b.i.d.", "A.D.", "mg.", "x-ray", "mega-huge-esque", "salon-o-torium", "uh-oh", "-400",
+		"3,456.56", "4,000,153", "2,000,13", ".5", "5.5", "2J3.", "...", "..", "1/2", "$", "(", "[1]",
+		"\u00e9t\u00e9", "\u00c5", "\u0663", "\r\n", "\r", "\n", "\t", " ", "  ", ".", ",", "'", "-", "?", ":", "a", "Z", "9" };
+	Random random = new Random(12345);
+	for (int i = 0; i < 2000; i++) {
+	    StringBuilder sb = new StringBuilder();
+	    int count = 1 + random.nextInt(12);
+	    for (int j = 0; j < count; j++) {
+		sb.append(pieces[random.nextInt(pieces.length)]);
+		if (random.nextBoolean()) {
+		    sb.append(' ');
+		}
+	    }
+	    inputs.add(sb.toString());
+	}
+	for (String input : inputs) {
+	    assertEquals(input, getTokens(original, jCas, input), getTokens(fast, jCas, input));
+	}
+	original.destroy();
+	fast.destroy();
+    }
+
+    /**
+     * Tokenizes the text as up to three sentences, with or without space between them
+     * @return type, offsets and features of each token
+     */
+    static private List<String> getTokens(AnalysisEngine engine, JCas jCas, String text) throws UIMAException {
+	jCas.reset();
+	jCas.setDocumentText(text);
+	Segment segment = new Segment(jCas, 0, text.length());
+	segment.setId("SIMPLE_SEGMENT");
+	segment.addToIndexes();
+	int third = text.length() / 3;
+	new Sentence(jCas, 0, third).addToIndexes();
+	new Sentence(jCas, third, 2 * third).addToIndexes();
+	new Sentence(jCas, Math.min(2 * third + 1, text.length()), text.length()).addToIndexes();
+	engine.process(jCas);
+	List<String> tokens = new ArrayList<String>();
+	for (BaseToken token : JCasUtil.select(jCas, BaseToken.class)) {
+	    String features = token.getClass().getSimpleName() + " " + token.getBegin() + "," + token.getEnd()
+		    + " #" + token.getTokenNumber();
+	    if (token instanceof WordToken) {
+		features += " cap=" + ((WordToken) token).getCapitalization() + " num=" + ((WordToken) token).getNumPosition();
+	    } else if (token instanceof NumToken) {
+		features += " type=" + ((NumToken) token).getNumType();
+	    }
+	    tokens.add(features);
+	}
+	return tokens;
+    }
+
     private void testTokenizerAnnotatorPTB(boolean throwAssertionErrors) throws ResourceInitializationException {
     	String aePath =  "desc/test/analysis_engine/AggregateForTokenizerPTB.xml";
     	AnalysisEngine ae = TestUtil.getAE(new File(aePath));
@@ -0,0 +1,288 @@
+package org.apache.ctakes.core.cc;
+
+import org.apache.ctakes.core.resource.JdbcConnectionResource;
+import org.apache.ctakes.core.resource.JdbcConnectionResourceImpl;
+import org.apache.ctakes.core.util.SourceMetadataUtil;
+import org.apache.ctakes.typesystem.type.structured.SourceData;
+import org.apache.uima.Constants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.CasConsumer;
+import org.apache.uima.collection.CasConsumerDescription;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.ResourceCreationSpecifierFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ExternalResourceDependency;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.ResourceProcessException;
+import org.apache.uima.resource.metadata.ExternalResourceBinding;
+import org.apache.uima.resource.metadata.ResourceManagerConfiguration;
+import org.apache.uima.resource.impl.ExternalResourceDependency_impl;
+import org.apache.uima.resource.metadata.impl.ExternalResourceBinding_impl;
+import org.apache.uima.resource.metadata.impl.ResourceManagerConfiguration_impl;
+import org.apache.uima.util.impl.ProcessTrace_impl;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks commits, rollbacks and the final flush of background batches of the jdbc writer
+ * against an in-memory database.
+ */
+public class AbstractJdbcWriterTest {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:AbstractJdbcWriterTest";
+   static private final String USER = "sa";
+   static private final String PASS = "";
+
+   static private final String TABLE_NAME = "NOTE_ROWS";
+   static private final int ROWS_PER_NOTE = 3;
+   // A note with this number writes the same row twice, which breaks the primary key
+   static private final int BAD_NOTE = -1;
+
+   static private Connection _connection;
+
+   @BeforeClass
+   static public void createTable() throws Exception {
+      Class.forName( DRIVER );
+      _connection = DriverManager.getConnection( URL, USER, PASS );
+      try ( Statement statement = _connection.createStatement() ) {
+         statement.execute( "CREATE TABLE " + TABLE_NAME
+                            + " (NOTE_NUM INTEGER, ROW_NUM INTEGER, ROW_TEXT VARCHAR(100),"
+                            + " PRIMARY KEY (NOTE_NUM, ROW_NUM))" );
+      }
+   }
+
+   @Before
+   public void clearTable() throws SQLException {
+      try ( Statement statement = _connection.createStatement() ) {
+         statement.execute( "DELETE FROM " + TABLE_NAME );
+      }
+   }
+
+   @Test
+   public void testDirectRows() throws Exception {
+      final CasConsumer writer = createWriter( 0 );
+      process( writer, 1 );
+      // Without batches the rows of each note are executed with auto-commit when the note is done
+      assertEquals( ROWS_PER_NOTE, countRows() );
+      process( writer, 2 );
+      writer.collectionProcessComplete( new ProcessTrace_impl() );
+      writer.destroy();
+      assertEquals( 2 * ROWS_PER_NOTE, countRows() );
+   }
+
+   @Test
+   public void testBatchCommits() throws Exception {
+      // Two notes in each batch
+      final CasConsumer writer = createWriter( 2 * ROWS_PER_NOTE );
+      for ( int i = 1; i <= 4; i++ ) {
+         process( writer, i );
+      }
+      // Two full batches are committed by the background thread without waiting for the end of the collection
+      waitForRows( 4 * ROWS_PER_NOTE );
+      process( writer, 5 );
+      writer.collectionProcessComplete( new ProcessTrace_impl() );
+      writer.destroy();
+      assertEquals( 5 * ROWS_PER_NOTE, countRows() );
+   }
+
+   @Test
+   public void testFinalFlush() throws Exception {
+      // The batch is never full, so all rows are written when the collection is complete
+      final CasConsumer writer = createWriter( 1000 );
+      for ( int i = 1; i <= 5; i++ ) {
+         process( writer, i );
+      }
+      assertEquals( 0, countRows() );
+      writer.collectionProcessComplete( new ProcessTrace_impl() );
+      writer.destroy();
+      assertEquals( 5 * ROWS_PER_NOTE, countRows() );
+   }
+
+   @Test
+   public void testRollback() throws Exception {
+      final CasConsumer writer = createWriter( 2 * ROWS_PER_NOTE );
+      try {
+         // Notes 1 and 2 are committed, the batch of notes 3 and the bad note fails
+         for ( int note : new int[] { 1, 2, 3, BAD_NOTE, 5, 6, 7, 8 } ) {
+            process( writer, note );
+         }
+         writer.collectionProcessComplete( new ProcessTrace_impl() );
+         fail( "The failed batch was not reported" );
+      } catch ( ResourceProcessException rpE ) {
+         assertTrue( rpE.getCause() instanceof SQLException );
+      } finally {
+         writer.destroy();
+      }
+      // The rows of the failed batch were rolled back, and later batches were discarded
+      assertEquals( 2 * ROWS_PER_NOTE, countRows() );
+      assertEquals( 0, countRows( "NOTE_NUM = 3" ) );
+   }
+
+   @Test( expected = IllegalStateException.class )
+   public void testDirectStatementsRejected() throws Exception {
+      final CasConsumer writer = createWriter( 10, DirectNoteWriter.class );
+      try {
+         process( writer, 1 );
+      } finally {
+         writer.destroy();
+      }
+   }
+
+   static private void process( final CasConsumer writer, final int noteNum ) throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "Note " + noteNum );
+      final SourceData sourceData = SourceMetadataUtil.getOrCreateSourceData( jCas );
+      sourceData.setSourceEncounterId( String.valueOf( noteNum ) );
+      sourceData.setSourceOriginalDate( "2016-01-08 00:00:00" );
+      writer.processCas( jCas.getCas() );
+   }
+
+   static private void waitForRows( final int rowCount ) throws Exception {
+      final long end = System.currentTimeMillis() + 10000;
+      while ( countRows() < rowCount && System.currentTimeMillis() < end ) {
+         Thread.sleep( 20 );
+      }
+      assertEquals( rowCount, countRows() );
+   }
+
+   static private int countRows() throws SQLException {
+      return countRows( "1 = 1" );
+   }
+
+   static private int countRows( final String where ) throws SQLException {
+      try ( Statement statement = _connection.createStatement();
+            ResultSet resultSet = statement.executeQuery( "SELECT COUNT(*) FROM " + TABLE_NAME + " WHERE " + where ) ) {
+         resultSet.next();
+         return resultSet.getInt( 1 );
+      }
+   }
+
+   static private CasConsumer createWriter( final int batchRows ) throws Exception {
+      return createWriter( batchRows, NoteWriter.class );
+   }
+
+   static private CasConsumer createWriter( final int batchRows,
+                                            final Class<? extends AbstractJdbcWriter> writerClass ) throws Exception {
+      final CasConsumerDescription description
+            = UIMAFramework.getResourceSpecifierFactory().createCasConsumerDescription();
+      description.setFrameworkImplementation( Constants.JAVA_FRAMEWORK_NAME );
+      description.setImplementationName( writerClass.getName() );
+      description.getCasConsumerMetaData().setName( writerClass.getSimpleName() );
+      description.getCasConsumerMetaData()
+                 .setTypeSystem( TypeSystemDescriptionFactory.createTypeSystemDescription() );
+      ResourceCreationSpecifierFactory.setConfigurationParameters( description,
+            AbstractJdbcWriter.PARAM_DB_CONN_RESRC, "DbConnection",
+            AbstractJdbcWriter.PARAM_BATCH_ROWS, batchRows,
+            AbstractJdbcWriter.PARAM_QUEUED_BATCHES, 1 );
+      final ExternalResourceDependency dependency = new ExternalResourceDependency_impl();
+      dependency.setKey( "DbConnection" );
+      dependency.setInterfaceName( JdbcConnectionResource.class.getName() );
+      description.setExternalResourceDependencies( new ExternalResourceDependency[] { dependency } );
+      final ExternalResourceDescription connection = ExternalResourceFactory.createExternalResourceDescription(
+            JdbcConnectionResourceImpl.class, "file:" + System.getProperty( "java.io.tmpdir" ),
+            JdbcConnectionResourceImpl.PARAM_DRIVER_CLASS, DRIVER,
+            JdbcConnectionResourceImpl.PARAM_URL, URL,
+            JdbcConnectionResourceImpl.PARAM_USERNAME, USER,
+            JdbcConnectionResourceImpl.PARAM_PASSWORD, PASS );
+      final ResourceManagerConfiguration configuration = new ResourceManagerConfiguration_impl();
+      configuration.addExternalResource( connection );
+      final ExternalResourceBinding binding = new ExternalResourceBinding_impl();
+      binding.setKey( "DbConnection" );
+      binding.setResourceName( connection.getName() );
+      configuration.addExternalResourceBinding( binding );
+      description.setResourceManagerConfiguration( configuration );
+      return UIMAFramework.produceCasConsumer( description );
+   }
+
+
+   /**
+    * Writes a few rows for each note with {@link #addTableRow(String, Map)}
+    */
+   static public class NoteWriter extends AbstractJdbcWriter {
+
+      protected enum NoteField implements FieldInfo {
+         NOTE_NUM( 1, Integer.class ),
+         ROW_NUM( 2, Integer.class ),
+         ROW_TEXT( 3, String.class );
+         final private int __index;
+         final private Class<?> __class;
+
+         NoteField( final int index, final Class<?> valueClass ) {
+            __index = index;
+            __class = valueClass;
+         }
+
+         @Override
+         public String getFieldName() {
+            return name();
+         }
+
+         @Override
+         public int getFieldIndex() {
+            return __index;
+         }
+
+         @Override
+         public Class<?> getValueClass() {
+            return __class;
+         }
+      }
+
+      @Override
+      protected Collection<TableInfo> getTableInfos() {
+         final TableInfo tableInfo = new TableInfo() {
+            @Override
+            public String getTableName() {
+               return TABLE_NAME;
+            }
+
+            @Override
+            public FieldInfo[] getFieldInfos() {
+               return NoteField.values();
+            }
+         };
+         return Collections.singletonList( tableInfo );
+      }
+
+      @Override
+      protected void writeJCasInformation( final JCas jcas, final int encounterNum, final long patientNum,
+                                           final String providerId, final Timestamp startDate )
+            throws SQLException {
+         final Map<NoteField, Object> row = new EnumMap<>( NoteField.class );
+         for ( int i = 0; i < ROWS_PER_NOTE; i++ ) {
+            row.put( NoteField.NOTE_NUM, encounterNum == BAD_NOTE ? 3 : encounterNum );
+            row.put( NoteField.ROW_NUM, encounterNum == BAD_NOTE ? 0 : i );
+            row.put( NoteField.ROW_TEXT, jcas.getDocumentText() + " row " + i );
+            addTableRow( TABLE_NAME, row );
+         }
+      }
+   }
+
+   /**
+    * Writes rows directly to the prepared statement, which is not allowed with background batches
+    */
+   static public class DirectNoteWriter extends NoteWriter {
+      @Override
+      protected void writeJCasInformation( final JCas jcas, final int encounterNum, final long patientNum,
+                                           final String providerId, final Timestamp startDate )
+            throws SQLException {
+         final TableSqlInfo tableSqlInfo = getTableSqlInfoMap().get( TABLE_NAME );
+         final Map<NoteField, Object> row = new EnumMap<>( NoteField.class );
+         row.put( NoteField.NOTE_NUM, encounterNum );
+         row.put( NoteField.ROW_NUM, 0 );
+         row.put( NoteField.ROW_TEXT, jcas.getDocumentText() );
+         tableSqlInfo.setBatchCount( writeTableRow( tableSqlInfo.getPreparedStatement(), tableSqlInfo.getBatchCount(),
+               row ) );
+      }
+   }
+
+}
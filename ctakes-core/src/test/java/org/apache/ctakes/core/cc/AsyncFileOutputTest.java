@@ -0,0 +1,220 @@
+package org.apache.ctakes.core.cc;
+
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.typesystem.type.structured.DocumentID;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks failures, the full queue and synced batches of the background file output,
+ * and the file writer streams with and without it.
+ */
+public class AsyncFileOutputTest {
+
+   @Rule
+   public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+   @Test
+   public void testWriterStreams() throws Exception {
+      for ( int asyncQueueSize : new int[]{ 0, 2 } ) {
+         for ( boolean syncFiles : new boolean[]{ false, true } ) {
+            final File outputDir = _tempFolder.newFolder();
+            final AnalysisEngine writer = createWriter( outputDir, asyncQueueSize, syncFiles );
+            for ( int i = 0; i < 5; i++ ) {
+               writer.process( createDocument( "doc" + i ) );
+            }
+            writer.collectionProcessComplete();
+            writer.destroy();
+            for ( int i = 0; i < 5; i++ ) {
+               assertEquals( "Queue " + asyncQueueSize + " sync " + syncFiles + " should write every file",
+                     "Text of doc" + i, readFile( new File( outputDir, "doc" + i + ".txt" ) ) );
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testWriterFailure() throws Exception {
+      final File outputDir = _tempFolder.newFolder();
+      // A directory in place of the file cannot be opened for writing
+      new File( outputDir, "bad.txt" ).mkdir();
+      final AnalysisEngine writer = createWriter( outputDir, 1, false );
+      writer.process( createDocument( "bad" ) );
+      // The failure is found in the background, so it is thrown by a later document
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+      boolean thrown = false;
+      for ( int i = 0; !thrown && System.nanoTime() < deadline; i++ ) {
+         try {
+            writer.process( createDocument( "doc" + i ) );
+            Thread.sleep( 10 );
+         } catch ( AnalysisEngineProcessException aepE ) {
+            thrown = true;
+         }
+      }
+      assertTrue( "A failed write should be thrown by a later process", thrown );
+      try {
+         writer.collectionProcessComplete();
+         fail( "A failed write should be thrown when the collection is complete" );
+      } catch ( AnalysisEngineProcessException aepE ) {
+         assertTrue( aepE.getCause() instanceof IOException );
+      }
+      writer.destroy();
+   }
+
+   @Test
+   public void testFailureDiscardsLaterFiles() throws Exception {
+      final File outputDir = _tempFolder.newFolder();
+      final AsyncFileOutput output = new AsyncFileOutput( "testFailure", 4, false );
+      writeText( output, new File( outputDir, "missing/bad.txt" ), "Cannot be written" );
+      try {
+         output.close();
+         fail( "A failed write should be thrown by close" );
+      } catch ( IOException ioE ) {
+         assertTrue( ioE.getCause() instanceof FileNotFoundException );
+      }
+      try {
+         writeText( output, new File( outputDir, "later.txt" ), "Discarded" );
+         fail( "A failed write should be thrown when a later stream is closed" );
+      } catch ( IOException ioE ) {
+         assertFalse( new File( outputDir, "later.txt" ).exists() );
+      }
+   }
+
+   @Test
+   public void testFullQueueBlocks() throws Exception {
+      final File outputDir = _tempFolder.newFolder();
+      final File pipe = new File( outputDir, "pipe" );
+      // Opening a named pipe for writing waits for a reader, which holds the background thread
+      Assume.assumeTrue( "Needs mkfifo", makePipe( pipe ) );
+      final AsyncFileOutput output = new AsyncFileOutput( "testFullQueue", 1, false );
+      writeText( output, pipe, "Held" );
+      writeText( output, new File( outputDir, "queued.txt" ), "Queued" );
+      final Thread blocked = new Thread( () -> {
+         try {
+            writeText( output, new File( outputDir, "blocked.txt" ), "Blocked" );
+         } catch ( IOException ioE ) {
+            throw new UncheckedIOException( ioE );
+         }
+      } );
+      blocked.start();
+      blocked.join( 500 );
+      assertTrue( "Closing a stream should wait while the queue is full", blocked.isAlive() );
+      assertEquals( "Held", readFile( pipe ) );
+      blocked.join( 10000 );
+      assertFalse( "Closing a stream should continue when the queue has room", blocked.isAlive() );
+      output.close();
+      assertEquals( "Queued", readFile( new File( outputDir, "queued.txt" ) ) );
+      assertEquals( "Blocked", readFile( new File( outputDir, "blocked.txt" ) ) );
+   }
+
+   @Test
+   public void testSyncBatches() throws Exception {
+      final File outputDir = _tempFolder.newFolder();
+      final int fileCount = 150;
+      final AsyncFileOutput synced = new AsyncFileOutput( "testSynced", fileCount, true );
+      for ( int i = 0; i < fileCount; i++ ) {
+         writeText( synced, new File( outputDir, "synced" + i + ".txt" ), "Synced " + i );
+      }
+      synced.close();
+      assertEquals( "Every file should be synced", fileCount, synced.getSyncedCount() );
+      assertTrue( "Batches should hold at most 64 files", synced.getSyncBatchCount() >= 3 );
+      assertTrue( synced.getSyncBatchCount() <= fileCount );
+      for ( int i = 0; i < fileCount; i++ ) {
+         assertEquals( "Synced " + i, readFile( new File( outputDir, "synced" + i + ".txt" ) ) );
+      }
+
+      final AsyncFileOutput unsynced = new AsyncFileOutput( "testUnsynced", fileCount, false );
+      writeText( unsynced, new File( outputDir, "unsynced.txt" ), "Unsynced" );
+      unsynced.close();
+      assertEquals( "Files should not be synced unless asked", 0, unsynced.getSyncBatchCount() );
+      assertEquals( "Unsynced", readFile( new File( outputDir, "unsynced.txt" ) ) );
+   }
+
+   static private void writeText( final AsyncFileOutput output, final File file, final String text )
+         throws IOException {
+      try ( OutputStream stream = output.createOutputStream( file ) ) {
+         stream.write( text.getBytes( StandardCharsets.UTF_8 ) );
+      }
+   }
+
+   static private String readFile( final File file ) throws IOException {
+      try ( InputStream stream = new FileInputStream( file ) ) {
+         final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         final byte[] buffer = new byte[ 1024 ];
+         int count;
+         while ( (count = stream.read( buffer )) >= 0 ) {
+            bytes.write( buffer, 0, count );
+         }
+         return new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+      }
+   }
+
+   static private boolean makePipe( final File file ) {
+      try {
+         return new ProcessBuilder( "mkfifo", file.getPath() ).start().waitFor() == 0 && file.exists();
+      } catch ( IOException | InterruptedException e ) {
+         return false;
+      }
+   }
+
+   static private AnalysisEngine createWriter( final File outputDir, final int asyncQueueSize,
+                                               final boolean syncFiles ) throws Exception {
+      return AnalysisEngineFactory.createEngine( TextWriter.class,
+            ConfigParameterConstants.PARAM_OUTPUTDIR, outputDir.getPath(),
+            AbstractFileWriter.PARAM_ASYNC_QUEUE_SIZE, asyncQueueSize,
+            AbstractFileWriter.PARAM_SYNC_FILES, syncFiles );
+   }
+
+   static private JCas createDocument( final String documentId ) throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "Text of " + documentId );
+      final DocumentID docId = new DocumentID( jCas );
+      docId.setDocumentID( documentId );
+      docId.addToIndexes();
+      return jCas;
+   }
+
+   /**
+    * Writes the document text to a file named for the document.
+    */
+   static public final class TextWriter extends AbstractFileWriter<String> {
+      private String _text;
+
+      @Override
+      protected void createData( final JCas jCas ) {
+         _text = jCas.getDocumentText();
+      }
+
+      @Override
+      protected String getData() {
+         return _text;
+      }
+
+      @Override
+      protected void writeComplete( final String data ) {
+      }
+
+      @Override
+      public void writeFile( final String data, final String outputDir, final String documentId,
+                             final String fileName ) throws IOException {
+         try ( Writer writer = createWriter( new File( outputDir, fileName + ".txt" ) ) ) {
+            writer.write( data );
+         }
+      }
+   }
+
+}
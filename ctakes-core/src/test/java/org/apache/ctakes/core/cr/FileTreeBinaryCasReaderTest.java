@@ -0,0 +1,153 @@
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.cc.FileTreeBinaryCasWriter;
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.util.BinaryCasCompression;
+import org.apache.ctakes.core.util.DocumentIDAnnotationUtil;
+import org.apache.ctakes.typesystem.type.structured.DocumentID;
+import org.apache.ctakes.typesystem.type.structured.DocumentIdPrefix;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileTreeBinaryCasReaderTest {
+
+   static private final String TEXT = "The patient has a cough.  There is no fever.";
+
+   @Rule
+   public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+   @Test
+   public void testRoundTrip() throws UIMAException, IOException {
+      for ( BinaryCasCompression compression : BinaryCasCompression.values() ) {
+         for ( boolean embedTypeSystem : new boolean[]{ true, false } ) {
+            final String setting = compression + ( embedTypeSystem ? " with" : " without" ) + " type system";
+            final File outputDir = _tempFolder.newFolder();
+            final AnalysisEngine writer = AnalysisEngineFactory.createEngine( FileTreeBinaryCasWriter.class,
+                  ConfigParameterConstants.PARAM_OUTPUTDIR, outputDir.getPath(),
+                  FileTreeBinaryCasWriter.PARAM_COMPRESSION, compression.name(),
+                  FileTreeBinaryCasWriter.PARAM_EMBED_TYPE_SYSTEM, embedTypeSystem );
+            final JCas jCas = JCasFactory.createJCas();
+            for ( String id : new String[]{ "note1", "note2" } ) {
+               jCas.reset();
+               createNote( jCas, id );
+               writer.process( jCas );
+            }
+            writer.collectionProcessComplete();
+            assertTrue( setting + " file in patient directory",
+                  new File( outputDir, "patientA/note1" + compression.getExtension() ).isFile() );
+            assertEquals( setting + " separate type system file", !embedTypeSystem,
+                  new File( outputDir, FileTreeBinaryCasWriter.TYPE_SYSTEM_FILE ).isFile() );
+
+            final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeBinaryCasReader.class,
+                  ConfigParameterConstants.PARAM_INPUTDIR, outputDir.getPath() );
+            final List<String> ids = new ArrayList<>();
+            while ( reader.hasNext() ) {
+               jCas.reset();
+               reader.getNext( jCas.getCas() );
+               ids.add( DocumentIDAnnotationUtil.getDocumentID( jCas ) );
+               assertEquals( setting + " text", TEXT, jCas.getDocumentText() );
+               assertEquals( setting + " single document id", 1, JCasUtil.select( jCas, DocumentID.class ).size() );
+               final List<Sentence> sentences = new ArrayList<>( JCasUtil.select( jCas, Sentence.class ) );
+               assertEquals( setting + " sentences", 2, sentences.size() );
+               assertEquals( setting + " sentence text", "There is no fever.", sentences.get( 1 ).getCoveredText() );
+            }
+            reader.close();
+            assertEquals( setting + " documents", 2, ids.size() );
+            assertEquals( setting + " order", "note1", ids.get( 0 ) );
+            assertEquals( setting + " order", "note2", ids.get( 1 ) );
+         }
+      }
+   }
+
+   @Test
+   public void testAsyncOutput() throws UIMAException, IOException {
+      final File outputDir = _tempFolder.newFolder();
+      final AnalysisEngine writer = AnalysisEngineFactory.createEngine( FileTreeBinaryCasWriter.class,
+            ConfigParameterConstants.PARAM_OUTPUTDIR, outputDir.getPath(),
+            FileTreeBinaryCasWriter.PARAM_COMPRESSION, BinaryCasCompression.ZSTD.name(),
+            FileTreeBinaryCasWriter.PARAM_ASYNC_QUEUE_SIZE, 2,
+            FileTreeBinaryCasWriter.PARAM_SYNC_FILES, true );
+      final JCas jCas = JCasFactory.createJCas();
+      for ( int i = 1; i <= 10; i++ ) {
+         jCas.reset();
+         createNote( jCas, "note" + i );
+         writer.process( jCas );
+      }
+      writer.collectionProcessComplete();
+
+      final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeBinaryCasReader.class,
+            ConfigParameterConstants.PARAM_INPUTDIR, outputDir.getPath() );
+      final List<String> ids = new ArrayList<>();
+      while ( reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         ids.add( DocumentIDAnnotationUtil.getDocumentID( jCas ) );
+         assertEquals( "text", TEXT, jCas.getDocumentText() );
+      }
+      reader.close();
+      assertEquals( "documents", 10, ids.size() );
+      assertEquals( "order", "note10", ids.get( 9 ) );
+   }
+
+   @Test
+   public void testTreeOrder() throws UIMAException, IOException {
+      final File outputDir = _tempFolder.newFolder();
+      final AnalysisEngine writer = AnalysisEngineFactory.createEngine( FileTreeBinaryCasWriter.class,
+            ConfigParameterConstants.PARAM_OUTPUTDIR, outputDir.getPath() );
+      final JCas jCas = JCasFactory.createJCas();
+      // A subdirectory whose name sorts before the files of its parent directory
+      jCas.reset();
+      createNote( jCas, "aNote", "patientA/aVisit" );
+      writer.process( jCas );
+      jCas.reset();
+      createNote( jCas, "bNote", "patientA" );
+      writer.process( jCas );
+      writer.collectionProcessComplete();
+
+      final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeBinaryCasReader.class,
+            ConfigParameterConstants.PARAM_INPUTDIR, outputDir.getPath() );
+      final List<String> ids = new ArrayList<>();
+      while ( reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         ids.add( DocumentIDAnnotationUtil.getDocumentID( jCas ) );
+      }
+      reader.close();
+      assertEquals( "files before subdirectories", Arrays.asList( "bNote", "aNote" ), ids );
+   }
+
+   static private void createNote( final JCas jCas, final String id ) {
+      createNote( jCas, id, "patientA" );
+   }
+
+   static private void createNote( final JCas jCas, final String id, final String prefixText ) {
+      jCas.setDocumentText( TEXT );
+      final DocumentID documentId = new DocumentID( jCas );
+      documentId.setDocumentID( id );
+      documentId.addToIndexes();
+      final DocumentIdPrefix prefix = new DocumentIdPrefix( jCas );
+      prefix.setDocumentIdPrefix( prefixText );
+      prefix.addToIndexes();
+      new Sentence( jCas, 0, 24 ).addToIndexes();
+      new Sentence( jCas, 26, TEXT.length() ).addToIndexes();
+   }
+
+}
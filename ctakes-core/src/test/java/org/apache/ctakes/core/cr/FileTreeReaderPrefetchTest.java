@@ -0,0 +1,105 @@
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.util.DocumentIDAnnotationUtil;
+import org.apache.ctakes.core.util.SourceMetadataUtil;
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that prefetching and mapping files in the {@link FileTreeReader} do not change the documents read
+ * or their order, and that prefetching fails on a patient split across directories.
+ */
+public class FileTreeReaderPrefetchTest {
+
+   @Rule
+   public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+   @Test
+   public void testPrefetchOrder() throws IOException, UIMAException {
+      final File rootDir = _tempFolder.newFolder( "notes" );
+      writeNote( new File( rootDir, "top.txt" ), "Above the patients." );
+      for ( int patient = 0; patient < 4; patient++ ) {
+         final File patientDir = new File( rootDir, "patient" + patient );
+         for ( int note = 0; note < patient + 1; note++ ) {
+            writeNote( new File( patientDir, "note" + note + ".txt" ), "Patient " + patient + " note " + note );
+         }
+         writeNote( new File( patientDir, "visit/later.txt" ), "Patient " + patient + " later note\r\n" );
+         writeNote( new File( patientDir, "skipped.bsv" ), "Not text" );
+      }
+      final List<String> expected = readAll( rootDir, 0, 0 );
+      assertEquals( "Every text file should be read", 15, expected.size() );
+      assertEquals( "Prefetching files should not change the documents or their order",
+            expected, readAll( rootDir, 3, 0 ) );
+      assertEquals( "Mapping files should not change the documents or their order",
+            expected, readAll( rootDir, 1, 1 ) );
+   }
+
+   @Test
+   public void testPrefetchSplitPatient() throws IOException, UIMAException {
+      final File rootDir = _tempFolder.newFolder( "split" );
+      writeNote( new File( rootDir, "siteA/patient0/note0.txt" ), "Patient 0 at site A" );
+      writeNote( new File( rootDir, "siteB/patient0/note1.txt" ), "Patient 0 at site B" );
+      final List<String> documents = readAll( rootDir, 0, 0, 2 );
+      assertEquals( "Every note of a split patient should be read without prefetching", 2, documents.size() );
+      try {
+         readAll( rootDir, 1, 0, 2 );
+         fail( "Prefetching should fail on a patient split across directories" );
+      } catch ( IllegalStateException isE ) {
+         assertTrue( isE.getMessage().contains( "patient0" ) );
+      }
+   }
+
+   static private void writeNote( final File file, final String text ) throws IOException {
+      file.getParentFile().mkdirs();
+      Files.write( file.toPath(), text.getBytes( StandardCharsets.UTF_8 ) );
+   }
+
+   static private List<String> readAll( final File rootDir, final int prefetchCount, final int mapFileSize )
+         throws UIMAException, IOException {
+      return readAll( rootDir, prefetchCount, mapFileSize, 1 );
+   }
+
+   static private List<String> readAll( final File rootDir, final int prefetchCount, final int mapFileSize,
+                                        final int patientLevel )
+         throws UIMAException, IOException {
+      final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeReader.class,
+            ConfigParameterConstants.PARAM_INPUTDIR, rootDir.getPath(),
+            FileTreeReader.PATIENT_LEVEL, patientLevel,
+            FileTreeReader.PARAM_EXTENSIONS, new String[]{ "txt" },
+            FileTreeReader.PARAM_ENCODING, "UTF-8",
+            FileTreeReader.PARAM_PREFETCH_COUNT, prefetchCount,
+            FileTreeReader.PARAM_MAP_FILE_SIZE, mapFileSize );
+      final JCas jCas = JCasFactory.createJCas();
+      final List<String> documents = new ArrayList<>();
+      while ( reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         documents.add( DocumentIDAnnotationUtil.getDocumentIdPrefix( jCas ) + " "
+               + DocumentIDAnnotationUtil.getDocumentID( jCas ) + " "
+               + SourceMetadataUtil.getPatientIdentifier( jCas ) + " " + jCas.getDocumentText() );
+         assertEquals( "Progress should count the documents read",
+               documents.size(), reader.getProgress()[ 0 ].getCompleted() );
+      }
+      assertEquals( "Progress should end with the total number of documents",
+            documents.size(), reader.getProgress()[ 0 ].getTotal() );
+      reader.close();
+      return documents;
+   }
+
+}
@@ -0,0 +1,248 @@
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.resource.JdbcConnectionResource;
+import org.apache.ctakes.core.resource.JdbcConnectionResourceImpl;
+import org.apache.ctakes.core.util.DocumentIDAnnotationUtil;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.metadata.ExternalResourceBinding;
+import org.apache.uima.resource.metadata.ResourceManagerConfiguration;
+import org.apache.uima.resource.metadata.impl.ExternalResourceBinding_impl;
+import org.apache.uima.resource.metadata.impl.ResourceManagerConfiguration_impl;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks key partitions, key paging and checkpoint resume of the jdbc reader against an in-memory database.
+ */
+public class JdbcCollectionReaderTest {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcCollectionReaderTest";
+   static private final String USER = "sa";
+   static private final String PASS = "";
+
+   // Note ids 1 to 50, with group keys that repeat and skip
+   static private final int NOTE_COUNT = 50;
+   static private final String NOTE_SQL = "SELECT NOTE_ID, GROUP_KEY, NOTE_TEXT FROM NOTES";
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @BeforeClass
+   static public void createTables() throws Exception {
+      Class.forName( DRIVER );
+      try ( Connection connection = DriverManager.getConnection( URL, USER, PASS );
+            Statement statement = connection.createStatement() ) {
+         statement.execute( "CREATE TABLE NOTES (NOTE_ID BIGINT, GROUP_KEY BIGINT, NOTE_TEXT VARCHAR(100))" );
+         try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO NOTES VALUES (?, ?, ?)" ) ) {
+            for ( int i = 1; i <= NOTE_COUNT; i++ ) {
+               insert.setLong( 1, i );
+               insert.setLong( 2, getGroupKey( i ) );
+               insert.setString( 3, "Note " + i );
+               insert.executeUpdate();
+            }
+         }
+      }
+   }
+
+   /**
+    * @return keys with runs of one to five equal keys and gaps of up to a thousand between runs
+    */
+   static private long getGroupKey( final int noteId ) {
+      final int group = (noteId - 1) / ((noteId % 5) + 1);
+      return -500 + group * group * 37L;
+   }
+
+   @Test
+   public void testPartitionBounds() {
+      final long[][] ranges = { { 1, 100 }, { -7, 12 }, { 10, 12 }, { 5, 5 }, { 1_000, 1_000_000_000_000L } };
+      final int[] partitionCounts = { 1, 2, 3, 7, 10, 64 };
+      for ( long[] range : ranges ) {
+         final long minKey = range[ 0 ];
+         final long maxKey = range[ 1 ];
+         for ( int partitionCount : partitionCounts ) {
+            final String name = minKey + ".." + maxKey + " in " + partitionCount;
+            final long[] bounds = new long[ partitionCount + 1 ];
+            for ( int i = 0; i <= partitionCount; i++ ) {
+               bounds[ i ] = JdbcCollectionReader.getPartitionBound( minKey, maxKey, partitionCount, i );
+            }
+            assertEquals( name, minKey - 1, bounds[ 0 ] );
+            assertEquals( name, maxKey, bounds[ partitionCount ] );
+            for ( int i = 0; i < partitionCount; i++ ) {
+               // Partitions are (bound i, bound i+1], so ordered bounds cover every key exactly once
+               assertTrue( name + " partition " + i, bounds[ i ] <= bounds[ i + 1 ] );
+            }
+            if ( maxKey - minKey < 1000 ) {
+               for ( long key = minKey; key <= maxKey; key++ ) {
+                  int owners = 0;
+                  for ( int i = 0; i < partitionCount; i++ ) {
+                     if ( key > bounds[ i ] && key <= bounds[ i + 1 ] ) {
+                        owners++;
+                     }
+                  }
+                  assertEquals( name + " key " + key, 1, owners );
+               }
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testPages() throws Exception {
+      final List<String> expected = getAllNoteIds();
+      for ( int pageSize : new int[] { 1, 2, 3, 7, NOTE_COUNT, NOTE_COUNT * 2 } ) {
+         final CollectionReader reader = createReader( pageSize, 1, 0, null );
+         final List<String> noteIds = readAll( reader, Integer.MAX_VALUE );
+         reader.close();
+         assertEquals( "Page size " + pageSize, expected, sorted( noteIds ) );
+      }
+   }
+
+   @Test
+   public void testPartitions() throws Exception {
+      final List<String> expected = getAllNoteIds();
+      // More partitions than distinct keys leaves some partitions empty
+      for ( int partitionCount : new int[] { 2, 3, 9, 200 } ) {
+         final List<String> noteIds = new ArrayList<>();
+         for ( int i = 0; i < partitionCount; i++ ) {
+            final CollectionReader reader = createReader( 4, partitionCount, i, null );
+            noteIds.addAll( readAll( reader, Integer.MAX_VALUE ) );
+            reader.close();
+         }
+         assertEquals( partitionCount + " partitions", expected, sorted( noteIds ) );
+      }
+   }
+
+   @Test
+   public void testCheckpointResume() throws Exception {
+      final List<String> expected = getAllNoteIds();
+      final int pageSize = 5;
+      for ( int stopCount : new int[] { 1, 4, 5, 6, 13, 26 } ) {
+         final File checkpoint = new File( _folder.getRoot(), "resume" + stopCount + ".key" );
+         // The first reader stops without being closed, as after a crash
+         final List<String> firstIds = readAll( createReader( pageSize, 1, 0, checkpoint ), stopCount );
+         final CollectionReader resumed = createReader( pageSize, 1, 0, checkpoint );
+         final List<String> resumedIds = readAll( resumed, Integer.MAX_VALUE );
+         resumed.close();
+         // Nothing is skipped, and only rows of the last two pages before the crash are read again
+         final Set<String> allIds = new HashSet<>( firstIds );
+         allIds.addAll( resumedIds );
+         assertEquals( "Stopped after " + stopCount, new HashSet<>( expected ), allIds );
+         assertEquals( "Stopped after " + stopCount, new HashSet<>( resumedIds ).size(), resumedIds.size() );
+         final Set<String> repeated = new HashSet<>( firstIds );
+         repeated.retainAll( resumedIds );
+         assertTrue( "Stopped after " + stopCount + " repeated " + repeated.size(),
+               repeated.size() <= firstIds.size() && repeated.size() <= getLargestPages( pageSize ) );
+
+         // A run that was closed after the last row leaves nothing to read
+         final CollectionReader finished = createReader( pageSize, 1, 0, checkpoint );
+         assertTrue( readAll( finished, Integer.MAX_VALUE ).isEmpty() );
+         finished.close();
+      }
+   }
+
+   @Test
+   public void testPartitionCheckpoints() throws Exception {
+      final File checkpoint = new File( _folder.getRoot(), "partition.key" );
+      final CollectionReader first = createReader( 3, 2, 0, checkpoint );
+      final List<String> firstIds = readAll( first, Integer.MAX_VALUE );
+      first.close();
+      assertTrue( new File( checkpoint.getPath() + ".0" ).isFile() );
+      assertFalse( checkpoint.exists() );
+      // The second partition has its own checkpoint, so it still reads all of its rows
+      final CollectionReader second = createReader( 3, 2, 1, checkpoint );
+      final List<String> secondIds = readAll( second, Integer.MAX_VALUE );
+      second.close();
+      final List<String> noteIds = new ArrayList<>( firstIds );
+      noteIds.addAll( secondIds );
+      assertEquals( getAllNoteIds(), sorted( noteIds ) );
+   }
+
+   /**
+    * @return the most rows that two pages of the page size can hold, as pages are extended to whole key groups
+    */
+   static private int getLargestPages( final int pageSize ) {
+      final Map<Long, Integer> groupSizes = new TreeMap<>();
+      for ( int i = 1; i <= NOTE_COUNT; i++ ) {
+         groupSizes.merge( getGroupKey( i ), 1, Integer::sum );
+      }
+      final int largestGroup = Collections.max( groupSizes.values() );
+      return 2 * (pageSize + largestGroup - 1);
+   }
+
+   static private List<String> getAllNoteIds() {
+      final List<String> noteIds = new ArrayList<>();
+      for ( int i = 1; i <= NOTE_COUNT; i++ ) {
+         noteIds.add( String.valueOf( i ) );
+      }
+      return sorted( noteIds );
+   }
+
+   static private List<String> sorted( final List<String> noteIds ) {
+      final List<String> sorted = new ArrayList<>( noteIds );
+      Collections.sort( sorted );
+      return sorted;
+   }
+
+   static private List<String> readAll( final CollectionReader reader, final int maxCount ) throws Exception {
+      final List<String> noteIds = new ArrayList<>();
+      final JCas jCas = JCasFactory.createJCas();
+      while ( noteIds.size() < maxCount && reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         final String noteId = DocumentIDAnnotationUtil.getDocumentID( jCas );
+         assertEquals( "Note " + noteId, jCas.getDocumentText() );
+         noteIds.add( noteId );
+      }
+      return noteIds;
+   }
+
+   private CollectionReader createReader( final int pageSize, final int partitionCount, final int partitionIndex,
+                                          final File checkpoint ) throws Exception {
+      final CollectionReaderDescription description = CollectionReaderFactory.createReaderDescription(
+            JdbcCollectionReader.class,
+            JdbcCollectionReader.PARAM_SQL, NOTE_SQL,
+            JdbcCollectionReader.PARAM_DOCTEXT_COL, "NOTE_TEXT",
+            JdbcCollectionReader.PARAM_DB_CONN_RESRC, "DbConnection",
+            JdbcCollectionReader.PARAM_DOCID_COLS, new String[] { "NOTE_ID" },
+            JdbcCollectionReader.PARAM_KEY_COL, "GROUP_KEY",
+            JdbcCollectionReader.PARAM_PAGE_SIZE, pageSize,
+            JdbcCollectionReader.PARAM_PARTITION_COUNT, partitionCount,
+            JdbcCollectionReader.PARAM_PARTITION_INDEX, partitionIndex,
+            JdbcCollectionReader.PARAM_CHECKPOINT_FILE, checkpoint == null ? "" : checkpoint.getPath() );
+      ExternalResourceFactory.createDependency( description, "DbConnection", JdbcConnectionResource.class );
+      final ExternalResourceDescription connection = ExternalResourceFactory.createExternalResourceDescription(
+            JdbcConnectionResourceImpl.class, _folder.getRoot().toURI().toURL().toString(),
+            JdbcConnectionResourceImpl.PARAM_DRIVER_CLASS, DRIVER,
+            JdbcConnectionResourceImpl.PARAM_URL, URL,
+            JdbcConnectionResourceImpl.PARAM_USERNAME, USER,
+            JdbcConnectionResourceImpl.PARAM_PASSWORD, PASS );
+      // Collection reader descriptions are not bound by uimafit, so bind in the resource manager configuration
+      final ResourceManagerConfiguration configuration = new ResourceManagerConfiguration_impl();
+      configuration.addExternalResource( connection );
+      final ExternalResourceBinding binding = new ExternalResourceBinding_impl();
+      binding.setKey( "DbConnection" );
+      binding.setResourceName( connection.getName() );
+      configuration.addExternalResourceBinding( binding );
+      description.setResourceManagerConfiguration( configuration );
+      return CollectionReaderFactory.createReader( description );
+   }
+
+}
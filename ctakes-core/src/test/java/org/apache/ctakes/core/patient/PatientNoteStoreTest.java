@@ -0,0 +1,104 @@
+package org.apache.ctakes.core.patient;
+
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that patients are the same whether views are kept in a patient cas or spilled to disk,
+ * and that spilled views are kept when spilling is stopped.
+ */
+public class PatientNoteStoreTest {
+
+   static private final int DOC_COUNT = 20;
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @BeforeClass
+   static public void registerEngine() {
+      PatientNoteStore.getInstance().registerEngine( "PatientNoteStoreTest" );
+   }
+
+   @Test
+   public void testStoreAndSpill() throws Exception {
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      // Views are copied into the patient cas
+      storePatient( store, "memoryPatient" );
+      checkPatient( store.popPatientCas( "memoryPatient", "PatientNoteStoreTest" ) );
+      assertTrue( store.getStoredDocIds( "memoryPatient" ).isEmpty() );
+
+      // A budget of one byte spills every view but the last
+      store.setSpilling( 1, _folder.getRoot() );
+      storePatient( store, "spillPatient" );
+      final File[] spillDirectories = _folder.getRoot().listFiles();
+      assertNotNull( spillDirectories );
+      assertEquals( 1, spillDirectories.length );
+      assertEquals( DOC_COUNT * 2 - 1, spillDirectories[ 0 ].listFiles().length );
+      // Reading a view back deletes its file and spills the view that was in memory
+      final JCas view = store.getStoredView( "spillPatient", "doc3", PatientViewUtil.DEFAULT_VIEW );
+      assertEquals( "Note 3 for spillPatient", view.getDocumentText() );
+      assertEquals( DOC_COUNT * 2 - 1, spillDirectories[ 0 ].listFiles().length );
+      // Lookups reuse one cas for the patient
+      final JCas otherView = store.getStoredView( "spillPatient", "doc4", PatientViewUtil.DEFAULT_VIEW );
+      assertEquals( "Note 4 for spillPatient", otherView.getDocumentText() );
+      assertSame( view.getCasImpl().getBaseCAS(), otherView.getCasImpl().getBaseCAS() );
+      checkPatient( store.popPatientCas( "spillPatient", "PatientNoteStoreTest" ) );
+      assertEquals( 0, spillDirectories[ 0 ].listFiles().length );
+      store.stopSpilling();
+      assertFalse( spillDirectories[ 0 ].exists() );
+   }
+
+   @Test
+   public void testStopSpillingKeepsViews() throws Exception {
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      store.setSpilling( 1, _folder.getRoot() );
+      storePatient( store, "stoppedPatient" );
+      final File[] spillDirectories = _folder.getRoot().listFiles();
+      assertNotNull( spillDirectories );
+      // Spilled views are read back before the spill directory is deleted
+      store.stopSpilling();
+      assertFalse( spillDirectories[ 0 ].exists() );
+      checkPatient( store.popPatientCas( "stoppedPatient", "PatientNoteStoreTest" ) );
+      assertTrue( store.getStoredDocIds( "stoppedPatient" ).isEmpty() );
+   }
+
+   static private void storePatient( final PatientNoteStore store, final String patientId ) throws Exception {
+      store.setWantedDocCount( patientId, DOC_COUNT );
+      for ( int i = 0; i < DOC_COUNT; i++ ) {
+         final JCas jCas = JCasFactory.createJCas();
+         jCas.setDocumentText( "Note " + i + " for " + patientId );
+         new WordToken( jCas, 0, 4 ).addToIndexes();
+         final JCas goldView = jCas.createView( PatientViewUtil.GOLD_PREFIX );
+         goldView.setDocumentText( "Gold " + i );
+         store.storeAllViews( patientId, "doc" + i, jCas );
+      }
+      assertTrue( store.getCompletedPatientIds().contains( patientId ) );
+   }
+
+   static private void checkPatient( final JCas patientCas ) {
+      assertNotNull( patientCas );
+      final Collection<JCas> views = PatientViewUtil.getAllViews( patientCas );
+      // Each document has two views, the patient cas has its own default view
+      assertEquals( DOC_COUNT * 2 + 1, views.size() );
+      int tokenCount = 0;
+      for ( JCas view : views ) {
+         if ( view.getViewName().contains( "<viewName>" + PatientViewUtil.DEFAULT_VIEW ) ) {
+            assertTrue( view.getDocumentText().startsWith( "Note " ) );
+            tokenCount += JCasUtil.select( view, WordToken.class ).size();
+         }
+      }
+      assertEquals( DOC_COUNT, tokenCount );
+   }
+
+}
@@ -0,0 +1,90 @@
+package org.apache.ctakes.core.patient;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the memory count of the spiller matches the views held in memory when views are stored
+ * and read back from several threads.
+ */
+public class PatientViewSpillerTest {
+
+   static private final int THREAD_COUNT = 8;
+   static private final int VIEWS_PER_THREAD = 4;
+   static private final int READS_PER_THREAD = 500;
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @Test
+   public void testConcurrentMemoryCount() throws Exception {
+      // A budget of a few views keeps views moving between memory and disk
+      final PatientViewSpiller spiller = new PatientViewSpiller( 2048, _folder.getRoot() );
+      final List<PatientViewSpiller.SpilledView> views = Collections.synchronizedList( new ArrayList<>() );
+      final List<String> texts = Collections.synchronizedList( new ArrayList<>() );
+      final ExecutorService executor = Executors.newFixedThreadPool( THREAD_COUNT );
+      try {
+         final List<Future<?>> futures = new ArrayList<>();
+         for ( int t = 0; t < THREAD_COUNT; t++ ) {
+            final int thread = t;
+            futures.add( executor.submit( () -> {
+               final Random random = new Random( thread );
+               final JCas jCas = JCasFactory.createJCas();
+               for ( int i = 0; i < VIEWS_PER_THREAD; i++ ) {
+                  jCas.reset();
+                  final String text = "Note " + i + " from thread " + thread;
+                  jCas.setDocumentText( text );
+                  final PatientViewSpiller.SpilledView view = spiller.store( jCas, jCas, "view" );
+                  synchronized ( views ) {
+                     views.add( view );
+                     texts.add( text );
+                  }
+               }
+               final JCas target = JCasFactory.createJCas();
+               for ( int i = 0; i < READS_PER_THREAD; i++ ) {
+                  final int index;
+                  synchronized ( views ) {
+                     index = random.nextInt( views.size() );
+                  }
+                  target.reset();
+                  spiller.copyInto( views.get( index ), target );
+                  final CAS targetView = target.getCas().getView( "view" );
+                  assertEquals( texts.get( index ), targetView.getDocumentText() );
+               }
+               return null;
+            } ) );
+         }
+         for ( Future<?> future : futures ) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+         executor.awaitTermination( 1, TimeUnit.MINUTES );
+      }
+      long heldBytes = 0;
+      for ( PatientViewSpiller.SpilledView view : views ) {
+         if ( view.hasBytes() ) {
+            heldBytes += view.getLength();
+         }
+      }
+      assertEquals( heldBytes, spiller.getInMemoryBytes() );
+      assertTrue( spiller.getInMemoryBytes() <= 2048 );
+      spiller.close();
+   }
+
+}
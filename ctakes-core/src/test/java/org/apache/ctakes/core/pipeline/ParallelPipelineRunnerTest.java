@@ -0,0 +1,159 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.Progress;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the parallel runner processes every document, keeps order when asked,
+ * completes every engine instance and stops at the first failure or error.
+ */
+public class ParallelPipelineRunnerTest {
+
+   static private final int DOCUMENT_COUNT = 50;
+   static private final int THREAD_COUNT = 3;
+
+   static private final AtomicInteger PROCESS_COMPLETE_COUNT = new AtomicInteger();
+   static private final AtomicInteger CONSUMER_COMPLETE_COUNT = new AtomicInteger();
+   static private final List<String> CONSUMED = Collections.synchronizedList( new ArrayList<>() );
+
+   @Before
+   public void reset() {
+      PROCESS_COMPLETE_COUNT.set( 0 );
+      CONSUMER_COMPLETE_COUNT.set( 0 );
+      CONSUMED.clear();
+   }
+
+   @Test
+   public void testOrdered() throws Exception {
+      run( true, -1 );
+      final List<String> expected = new ArrayList<>();
+      for ( int i = 0; i < DOCUMENT_COUNT; i++ ) {
+         expected.add( Integer.toString( i ) );
+      }
+      assertEquals( expected, CONSUMED );
+      assertEquals( THREAD_COUNT, PROCESS_COMPLETE_COUNT.get() );
+      assertEquals( 1, CONSUMER_COMPLETE_COUNT.get() );
+   }
+
+   @Test
+   public void testUnordered() throws Exception {
+      run( false, -1 );
+      assertEquals( DOCUMENT_COUNT, new HashSet<>( CONSUMED ).size() );
+      assertEquals( THREAD_COUNT, PROCESS_COMPLETE_COUNT.get() );
+      assertEquals( 1, CONSUMER_COMPLETE_COUNT.get() );
+   }
+
+   @Test( expected = AnalysisEngineProcessException.class )
+   public void testFailure() throws Exception {
+      try {
+         run( true, 13 );
+      } finally {
+         assertTrue( CONSUMED.size() <= 13 );
+         assertEquals( 0, CONSUMER_COMPLETE_COUNT.get() );
+      }
+   }
+
+   @Test( expected = Error.class, timeout = 60000 )
+   public void testError() throws Exception {
+      try {
+         run( true, 13, true );
+      } finally {
+         assertEquals( 0, CONSUMER_COMPLETE_COUNT.get() );
+      }
+   }
+
+   static private void run( final boolean ordered, final int failIndex ) throws IOException, UIMAException {
+      run( ordered, failIndex, false );
+   }
+
+   static private void run( final boolean ordered, final int failIndex, final boolean error )
+         throws IOException, UIMAException {
+      new ParallelPipelineRunner(
+            CollectionReaderFactory.createReaderDescription( NumberReader.class ),
+            AnalysisEngineFactory.createEngineDescription( SlowProcessor.class,
+                  SlowProcessor.PARAM_FAIL, failIndex,
+                  SlowProcessor.PARAM_ERROR, error ),
+            AnalysisEngineFactory.createEngineDescription( RecordingConsumer.class ),
+            THREAD_COUNT, ordered ).run();
+   }
+
+
+   static public class NumberReader extends JCasCollectionReader_ImplBase {
+      private int _index;
+
+      @Override
+      public void getNext( final JCas jCas ) throws IOException, CollectionException {
+         jCas.setDocumentText( Integer.toString( _index ) );
+         _index++;
+      }
+
+      @Override
+      public boolean hasNext() {
+         return _index < DOCUMENT_COUNT;
+      }
+
+      @Override
+      public Progress[] getProgress() {
+         return new Progress[ 0 ];
+      }
+   }
+
+   static public class SlowProcessor extends JCasAnnotator_ImplBase {
+      static public final String PARAM_FAIL = "Fail";
+      @ConfigurationParameter( name = PARAM_FAIL )
+      private int _failIndex;
+      static public final String PARAM_ERROR = "Error";
+      @ConfigurationParameter( name = PARAM_ERROR, mandatory = false )
+      private boolean _error;
+
+      @Override
+      public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+         if ( Integer.parseInt( jCas.getDocumentText() ) == _failIndex ) {
+            if ( _error ) {
+               throw new Error( "Failed " + _failIndex );
+            }
+            throw new AnalysisEngineProcessException( new IllegalStateException( "Failed " + _failIndex ) );
+         }
+         try {
+            Thread.sleep( ThreadLocalRandom.current().nextInt( 5 ) );
+         } catch ( InterruptedException intE ) {
+            throw new AnalysisEngineProcessException( intE );
+         }
+      }
+
+      @Override
+      public void collectionProcessComplete() {
+         PROCESS_COMPLETE_COUNT.incrementAndGet();
+      }
+   }
+
+   static public class RecordingConsumer extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         CONSUMED.add( jCas.getDocumentText() );
+      }
+
+      @Override
+      public void collectionProcessComplete() {
+         CONSUMER_COMPLETE_COUNT.incrementAndGet();
+      }
+   }
+
+}
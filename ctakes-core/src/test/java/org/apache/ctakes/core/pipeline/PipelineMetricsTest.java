@@ -0,0 +1,73 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.ctakes.core.ae.SimpleSegmentAnnotator;
+import org.apache.ctakes.core.util.LogHistogram;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks percentiles of the metrics histogram and that a pipeline with metrics measures every engine.
+ */
+public class PipelineMetricsTest {
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @Test
+   public void testPercentiles() {
+      final LogHistogram histogram = new LogHistogram();
+      assertEquals( 0, histogram.getPercentile( 50 ) );
+      for ( long i = 1; i <= 10000; i++ ) {
+         histogram.record( i * 1000 );
+      }
+      assertEquals( 10000, histogram.getCount() );
+      assertEquals( 5000000, histogram.getPercentile( 50 ), 5000000 * 0.04 );
+      assertEquals( 9500000, histogram.getPercentile( 95 ), 9500000 * 0.04 );
+      assertEquals( 9900000, histogram.getPercentile( 99 ), 9900000 * 0.04 );
+      assertEquals( 5000500, histogram.getMean(), 0.1 );
+      histogram.record( -5 );
+      assertEquals( 0, histogram.getPercentile( 0 ) );
+      histogram.reset();
+      assertEquals( 0, histogram.getCount() );
+   }
+
+   @Test
+   public void testPipelineMetrics() throws Exception {
+      new PipelineBuilder()
+            .add( SimpleSegmentAnnotator.class )
+            .add( SimpleSegmentAnnotator.class, Collections.emptyList(),
+                  SimpleSegmentAnnotator.PARAM_SEGMENT_ID, "OTHER" )
+            .metrics()
+            .run( "Patient denies chest pain.  No history of diabetes." );
+      final EngineMetrics first = PipelineMetrics.getInstance().getEngineMetrics( "SimpleSegmentAnnotator" );
+      final EngineMetrics second = PipelineMetrics.getInstance().getEngineMetrics( "SimpleSegmentAnnotator_2" );
+      assertNotNull( first );
+      assertNotNull( second );
+      assertEquals( 1, first.getDocumentCount() );
+      assertEquals( 1, second.getDocumentCount() );
+      assertTrue( first.getWallMillisP99() > 0 );
+      assertTrue( PipelineMetrics.getInstance().toString().contains( "SimpleSegmentAnnotator_2" ) );
+   }
+
+   @Test
+   public void testFailedRunStillReports() throws Exception {
+      final File metricsFile = new File( _folder.getRoot(), "metrics.txt" );
+      // a run that fails is destroyed without completing its collection
+      final AnalysisEngine failed = AnalysisEngineFactory.createEngine( PipelineMetrics.MetricsReporter.class );
+      failed.destroy();
+      final AnalysisEngine reporter = AnalysisEngineFactory.createEngine( PipelineMetrics.MetricsReporter.class,
+            PipelineMetrics.MetricsReporter.PARAM_METRICS_FILE, metricsFile.getPath() );
+      reporter.collectionProcessComplete();
+      reporter.destroy();
+      assertTrue( metricsFile.exists() );
+   }
+
+}
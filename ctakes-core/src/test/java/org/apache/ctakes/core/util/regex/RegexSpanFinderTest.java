@@ -0,0 +1,63 @@
+package org.apache.ctakes.core.util.regex;
+
+import org.apache.ctakes.core.util.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that finds run on the calling thread and that catastrophic backtracking is stopped at the timeout.
+ */
+public class RegexSpanFinderTest {
+
+   // Each extra 'a' doubles the time of a find
+   static private final String CATASTROPHIC_REGEX = "(a+)+b";
+   static private final String CATASTROPHIC_TEXT = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaac";
+
+   @Test
+   public void testFindSpans() {
+      try ( RegexSpanFinder finder = new RegexSpanFinder( "\\s+" ) ) {
+         final List<Pair<Integer>> spans = finder.findSpans( "Hello  World !" );
+         assertEquals( Arrays.asList( new Pair<>( 5, 7 ), new Pair<>( 12, 13 ) ), spans );
+      }
+   }
+
+   @Test
+   public void testFindSpansTimeout() {
+      final long start = System.currentTimeMillis();
+      try ( RegexSpanFinder finder = new RegexSpanFinder( CATASTROPHIC_REGEX, 200 ) ) {
+         assertTrue( finder.findSpans( CATASTROPHIC_TEXT ).isEmpty() );
+         // The finder can be used again after a timeout
+         assertEquals( 1, finder.findSpans( "aab" ).size() );
+      }
+      assertTrue( "Find was not stopped", System.currentTimeMillis() - start < 5000 );
+   }
+
+   @Test
+   public void testNextMatch() {
+      try ( TimeoutMatcher finder = new TimeoutMatcher( "o", "Hello World !" ) ) {
+         int count = 0;
+         Matcher matcher = finder.nextMatch();
+         while ( matcher != null ) {
+            count++;
+            matcher = finder.nextMatch();
+         }
+         assertEquals( 2, count );
+      }
+   }
+
+   @Test
+   public void testNextMatchTimeout() {
+      final long start = System.currentTimeMillis();
+      try ( TimeoutMatcher finder = new TimeoutMatcher( CATASTROPHIC_REGEX, CATASTROPHIC_TEXT, 200 ) ) {
+         assertNull( finder.nextMatch() );
+         assertNull( finder.nextMatch() );
+      }
+      assertTrue( "Find was not stopped", System.currentTimeMillis() - start < 5000 );
+   }
+
+}
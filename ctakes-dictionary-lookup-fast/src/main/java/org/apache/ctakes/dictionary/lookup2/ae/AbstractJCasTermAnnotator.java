@@ -166,11 +166,31 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
 //               processWindow( jcas, (Annotation)window, dictionaryTermsMap );
 //            }
 //         }
+         // Gather the lookup tokens of all windows first so that dictionaries can prefetch the whole document
+         final List<List<FastLookupToken>> windowAllTokens = new ArrayList<>( windowTokens.size() );
+         final List<List<Integer>> windowLookupTokenIndices = new ArrayList<>( windowTokens.size() );
+         final Collection<String> lookupTexts = new HashSet<>();
          for ( Map.Entry<Annotation, Collection<BaseToken>> entry : windowTokens.entrySet() ) {
 //            if ( isWindowOk( entry.getKey() ) ) {
-            processWindow( jcas, entry.getValue(), dictionaryTermsMap );
+            final List<FastLookupToken> allTokens = new ArrayList<>();
+            final List<Integer> lookupTokenIndices = new ArrayList<>();
+            getAnnotationsInWindow( jcas, entry.getValue(), allTokens, lookupTokenIndices );
+            windowAllTokens.add( allTokens );
+            windowLookupTokenIndices.add( lookupTokenIndices );
+            for ( Integer lookupTokenIndex : lookupTokenIndices ) {
+               final FastLookupToken lookupToken = allTokens.get( lookupTokenIndex );
+               lookupTexts.add( lookupToken.getText() );
+               if ( lookupToken.getVariant() != null ) {
+                  lookupTexts.add( lookupToken.getVariant() );
+               }
+            }
 //            }
          }
+         prefetchRareWordHits( lookupTexts );
+         for ( int i = 0; i < windowAllTokens.size(); i++ ) {
+            findTerms( getDictionaries(), windowAllTokens.get( i ), windowLookupTokenIndices.get( i ),
+                  dictionaryTermsMap );
+         }
       } catch ( ArrayIndexOutOfBoundsException iobE ) {
          // JCasHashMap will throw this every once in a while.  Assume the windows are done and move on
          LOGGER.warn( iobE.getMessage() );
@@ -207,6 +227,26 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
       return _dictionarySpec.getDictionaries();
    }
 
+   /**
+    * All per-document state (window tokens, span to cui maps) is created on the calling thread in {@link #process}.
+    * The remaining shared state is the set of dictionaries and concept factories, which must support concurrent use.
+    *
+    * @return true if the dictionaries and concept factories of this annotator can be used by multiple threads at once
+    */
+   public boolean isThreadSafe() {
+      for ( RareWordDictionary dictionary : _dictionarySpec.getDictionaries() ) {
+         if ( !dictionary.isThreadSafe() ) {
+            return false;
+         }
+      }
+      for ( ConceptFactory conceptFactory : _dictionarySpec.getConceptFactories() ) {
+         if ( !conceptFactory.isThreadSafe() ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
 //   /**
 //    * Skip windows that are section headers/footers.  Kludge, but worth doing
 //    *  read these string values as parameters from uimaContext ?
@@ -246,6 +286,17 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
       findTerms( getDictionaries(), allTokens, lookupTokenIndices, dictionaryTerms );
    }
 
+   /**
+    * Lets each dictionary prefetch terms for all lookup texts of a document
+    *
+    * @param lookupTexts texts of all lookup tokens and their variants in a document
+    */
+   protected void prefetchRareWordHits( final Collection<String> lookupTexts ) {
+      for ( RareWordDictionary dictionary : getDictionaries() ) {
+         dictionary.prefetchRareWordHits( lookupTexts );
+      }
+   }
+
    /**
     * Given a set of dictionaries, tokens, and lookup token indices, populate a terms map with discovered terms
     *
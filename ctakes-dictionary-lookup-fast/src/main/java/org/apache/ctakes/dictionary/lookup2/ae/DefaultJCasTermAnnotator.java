@@ -21,15 +21,18 @@ package org.apache.ctakes.dictionary.lookup2.ae;
 import org.apache.ctakes.core.config.ConfigParameterConstants;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
 import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
 import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
 import org.apache.ctakes.dictionary.lookup2.textspan.DefaultTextSpan;
 import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
 import org.apache.ctakes.dictionary.lookup2.util.FastLookupToken;
+import org.apache.ctakes.dictionary.lookup2.util.TokenIdTable;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -47,6 +50,9 @@ import java.util.List;
 )
 public class DefaultJCasTermAnnotator extends AbstractJCasTermAnnotator {
 
+   // marks a token id that has not yet been fetched from a compact dictionary
+   static private final int NO_ID = -2;
+
    /**
     * {@inheritDoc}
     */
@@ -55,6 +61,10 @@ public class DefaultJCasTermAnnotator extends AbstractJCasTermAnnotator {
                           final List<FastLookupToken> allTokens,
                           final List<Integer> lookupTokenIndices,
                           final CollectionMap<TextSpan, Long, ? extends Collection<Long>> termsFromDictionary ) {
+      if ( dictionary instanceof CompactRareWordDictionary ) {
+         findCompactTerms( (CompactRareWordDictionary)dictionary, allTokens, lookupTokenIndices, termsFromDictionary );
+         return;
+      }
       Collection<RareWordTerm> rareWordHits;
       for ( Integer lookupTokenIndex : lookupTokenIndices ) {
          final FastLookupToken lookupToken = allTokens.get( lookupTokenIndex );
@@ -86,6 +96,91 @@ public class DefaultJCasTermAnnotator extends AbstractJCasTermAnnotator {
       }
    }
 
+   /**
+    * Same as {@link #findTerms(RareWordDictionary, List, List, CollectionMap)}, but compares token ids instead of text.
+    * Token ids for the window are only fetched when they are needed, and no term objects are created.
+    *
+    * @param dictionary          dictionary with terms stored as token ids
+    * @param allTokens           all tokens in a window
+    * @param lookupTokenIndices  indices of tokens in allTokens to use for rare word lookup
+    * @param termsFromDictionary map to fill with discovered term spans and cuis
+    */
+   private void findCompactTerms( final CompactRareWordDictionary dictionary,
+                                  final List<FastLookupToken> allTokens,
+                                  final List<Integer> lookupTokenIndices,
+                                  final CollectionMap<TextSpan, Long, ? extends Collection<Long>> termsFromDictionary ) {
+      final int[] textIds = new int[ allTokens.size() ];
+      final int[] variantIds = new int[ allTokens.size() ];
+      Arrays.fill( textIds, NO_ID );
+      for ( Integer lookupTokenIndex : lookupTokenIndices ) {
+         fillTokenIds( dictionary, allTokens, lookupTokenIndex, textIds, variantIds );
+         findCompactTerms( dictionary, textIds[ lookupTokenIndex ], allTokens, lookupTokenIndex,
+               textIds, variantIds, termsFromDictionary );
+         if ( variantIds[ lookupTokenIndex ] != TokenIdTable.UNKNOWN_ID ) {
+            findCompactTerms( dictionary, variantIds[ lookupTokenIndex ], allTokens, lookupTokenIndex,
+                  textIds, variantIds, termsFromDictionary );
+         }
+      }
+   }
+
+   private void findCompactTerms( final CompactRareWordDictionary dictionary, final int rareWordId,
+                                  final List<FastLookupToken> allTokens, final int lookupTokenIndex,
+                                  final int[] textIds, final int[] variantIds,
+                                  final CollectionMap<TextSpan, Long, ? extends Collection<Long>> termsFromDictionary ) {
+      if ( rareWordId == TokenIdTable.UNKNOWN_ID ) {
+         return;
+      }
+      final int termEnd = dictionary.getTermEnd( rareWordId );
+      for ( int term = dictionary.getTermStart( rareWordId ); term < termEnd; term++ ) {
+         if ( dictionary.getTextLength( term ) < _minimumLookupSpan ) {
+            continue;
+         }
+         final int tokenCount = dictionary.getTokenCount( term );
+         if ( tokenCount == 1 ) {
+            // Single word term, add and move on
+            termsFromDictionary.placeValue( allTokens.get( lookupTokenIndex ).getTextSpan(),
+                  dictionary.getCuiCode( term ) );
+            continue;
+         }
+         final int termStartIndex = lookupTokenIndex - dictionary.getRareWordIndex( term );
+         if ( termStartIndex < 0 || termStartIndex + tokenCount > allTokens.size() ) {
+            // term will extend beyond window
+            continue;
+         }
+         boolean isMatch = true;
+         for ( int i = 0; i < tokenCount; i++ ) {
+            final int tokenIndex = termStartIndex + i;
+            fillTokenIds( dictionary, allTokens, tokenIndex, textIds, variantIds );
+            final int termTokenId = dictionary.getTermTokenId( term, i );
+            // A term token that is not in the dictionary (malformed term) never matches, as in the TermTrie
+            if ( termTokenId == TokenIdTable.UNKNOWN_ID
+                 || (termTokenId != textIds[ tokenIndex ] && termTokenId != variantIds[ tokenIndex ]) ) {
+               isMatch = false;
+               break;
+            }
+         }
+         if ( isMatch ) {
+            final int spanStart = allTokens.get( termStartIndex ).getStart();
+            final int spanEnd = allTokens.get( termStartIndex + tokenCount - 1 ).getEnd();
+            termsFromDictionary.placeValue( new DefaultTextSpan( spanStart, spanEnd ), dictionary.getCuiCode( term ) );
+         }
+      }
+   }
+
+   /**
+    * Fetch the token ids for the text and variant of a token if they have not already been fetched
+    */
+   static private void fillTokenIds( final CompactRareWordDictionary dictionary,
+                                     final List<FastLookupToken> allTokens, final int tokenIndex,
+                                     final int[] textIds, final int[] variantIds ) {
+      if ( textIds[ tokenIndex ] != NO_ID ) {
+         return;
+      }
+      final FastLookupToken token = allTokens.get( tokenIndex );
+      textIds[ tokenIndex ] = dictionary.getTokenId( token.getText() );
+      variantIds[ tokenIndex ] = dictionary.getTokenId( token.getVariant() );
+   }
+
    /**
     * Hopefully the jit will inline this method
     *
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.ae;
+
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.textspan.DefaultTextSpan;
+import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
+import org.apache.ctakes.dictionary.lookup2.util.FastLookupToken;
+import org.apache.ctakes.dictionary.lookup2.util.TermTrie;
+import org.apache.ctakes.dictionary.lookup2.util.TokenIdTable;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the same terms as {@link DefaultJCasTermAnnotator}, but with a token trie of all dictionary terms.
+ * <p>
+ * Each window is read once from left to right.  Every token starts a new path at the trie root and extends
+ * all paths that reached the previous token, following an edge for the token text and another for its variant.
+ * A term at a reached node is kept under the same rules as the rare word lookup: its rare word must fall on
+ * a lookup token and its text must not be shorter than the minimum span.
+ * </p>
+ * Tries are built at initialization from any dictionary that can be made a {@link CompactRareWordDictionary}.
+ * Other dictionaries use the rare word lookup of {@link DefaultJCasTermAnnotator}.
+ * <p>
+ * Memory: compact and image dictionaries are used as they are.  Any other dictionary (in-memory bsv or jdbc)
+ * is first copied into a heap compact dictionary, and the source dictionary is kept because the dictionary
+ * spec still hands it to the term consumer.  An in-memory dictionary therefore costs its own term map plus the
+ * compact copy and the trie, so use a compact or image dictionary with this annotator on large term sets.
+ * </p>
+ */
+@PipeBitInfo(
+      name = "Dictionary Lookup (Trie)",
+      description = "Annotates clinically-relevant terms.  Terms must match dictionary entries exactly.",
+      dependencies = { PipeBitInfo.TypeProduct.SENTENCE, PipeBitInfo.TypeProduct.BASE_TOKEN },
+      products = PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION
+)
+public class TrieJCasTermAnnotator extends DefaultJCasTermAnnotator {
+
+   static private final Logger LOGGER = Logger.getLogger( "TrieJCasTermAnnotator" );
+
+   final private Map<RareWordDictionary, TermTrie> _termTries = new ConcurrentHashMap<>();
+   final private Collection<RareWordDictionary> _noTrieDictionaries = ConcurrentHashMap.newKeySet();
+
+   /**
+    * Builds a trie for each dictionary.
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext uimaContext ) throws ResourceInitializationException {
+      super.initialize( uimaContext );
+      for ( RareWordDictionary dictionary : getDictionaries() ) {
+         getTermTrie( dictionary );
+      }
+   }
+
+   /**
+    * Dictionaries with a trie are not asked to prefetch.
+    * {@inheritDoc}
+    */
+   @Override
+   protected void prefetchRareWordHits( final Collection<String> lookupTexts ) {
+      for ( RareWordDictionary dictionary : getDictionaries() ) {
+         if ( getTermTrie( dictionary ) == null ) {
+            dictionary.prefetchRareWordHits( lookupTexts );
+         }
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void findTerms( final RareWordDictionary dictionary,
+                          final List<FastLookupToken> allTokens,
+                          final List<Integer> lookupTokenIndices,
+                          final CollectionMap<TextSpan, Long, ? extends Collection<Long>> termsFromDictionary ) {
+      final TermTrie termTrie = getTermTrie( dictionary );
+      if ( termTrie == null ) {
+         super.findTerms( dictionary, allTokens, lookupTokenIndices, termsFromDictionary );
+         return;
+      }
+      final CompactRareWordDictionary compact = termTrie.getDictionary();
+      final int tokenCount = allTokens.size();
+      final int[] textIds = new int[ tokenCount ];
+      final int[] variantIds = new int[ tokenCount ];
+      for ( int i = 0; i < tokenCount; i++ ) {
+         final FastLookupToken token = allTokens.get( i );
+         textIds[ i ] = compact.getTokenId( token.getText() );
+         variantIds[ i ] = compact.getTokenId( token.getVariant() );
+         if ( variantIds[ i ] == textIds[ i ] ) {
+            variantIds[ i ] = TokenIdTable.UNKNOWN_ID;
+         }
+      }
+      final boolean[] isLookupToken = new boolean[ tokenCount ];
+      for ( Integer lookupTokenIndex : lookupTokenIndices ) {
+         isLookupToken[ lookupTokenIndex ] = true;
+      }
+      // Paths in progress, as parallel arrays of trie node and window index of the first token
+      PathList paths = new PathList();
+      PathList nextPaths = new PathList();
+      for ( int tokenIndex = 0; tokenIndex < tokenCount; tokenIndex++ ) {
+         nextPaths.clear();
+         // Extend every path and start a new one at the root
+         for ( int i = 0; i <= paths.__size; i++ ) {
+            final int node = i < paths.__size ? paths.__nodes[ i ] : TermTrie.ROOT;
+            final int startIndex = i < paths.__size ? paths.__startIndices[ i ] : tokenIndex;
+            extendPath( termTrie, node, textIds[ tokenIndex ], startIndex, tokenIndex, nextPaths,
+                  allTokens, textIds, variantIds, isLookupToken, termsFromDictionary );
+            extendPath( termTrie, node, variantIds[ tokenIndex ], startIndex, tokenIndex, nextPaths,
+                  allTokens, textIds, variantIds, isLookupToken, termsFromDictionary );
+         }
+         final PathList swap = paths;
+         paths = nextPaths;
+         nextPaths = swap;
+      }
+   }
+
+   /**
+    * Follows a token edge from a node.  If the edge exists the path is kept and all terms at the child node are
+    * checked.
+    */
+   private void extendPath( final TermTrie termTrie, final int node, final int tokenId,
+                            final int startIndex, final int endIndex, final PathList nextPaths,
+                            final List<FastLookupToken> allTokens, final int[] textIds, final int[] variantIds,
+                            final boolean[] isLookupToken,
+                            final CollectionMap<TextSpan, Long, ? extends Collection<Long>> termsFromDictionary ) {
+      final int child = termTrie.getChild( node, tokenId );
+      if ( child == TermTrie.NO_NODE ) {
+         return;
+      }
+      nextPaths.add( child, startIndex );
+      final CompactRareWordDictionary compact = termTrie.getDictionary();
+      for ( int i = termTrie.getTermStart( child ); i < termTrie.getTermEnd( child ); i++ ) {
+         final int term = termTrie.getTerm( i );
+         if ( compact.getTextLength( term ) < _minimumLookupSpan ) {
+            continue;
+         }
+         final int rareWordIndex = startIndex + compact.getRareWordIndex( term );
+         final int rareWordId = termTrie.getRareWordId( term );
+         if ( !isLookupToken[ rareWordIndex ]
+              || (rareWordId != textIds[ rareWordIndex ] && rareWordId != variantIds[ rareWordIndex ]) ) {
+            // The rare word lookup would never have found this term
+            continue;
+         }
+         if ( startIndex == endIndex ) {
+            termsFromDictionary.placeValue( allTokens.get( startIndex ).getTextSpan(), compact.getCuiCode( term ) );
+         } else {
+            termsFromDictionary.placeValue( new DefaultTextSpan( allTokens.get( startIndex ).getStart(),
+                  allTokens.get( endIndex ).getEnd() ), compact.getCuiCode( term ) );
+         }
+      }
+   }
+
+   /**
+    * @param dictionary some dictionary
+    * @return trie for the dictionary, or null if a trie cannot be built for the dictionary
+    */
+   private TermTrie getTermTrie( final RareWordDictionary dictionary ) {
+      final TermTrie termTrie = _termTries.get( dictionary );
+      if ( termTrie != null || _noTrieDictionaries.contains( dictionary ) ) {
+         return termTrie;
+      }
+      return createTermTrie( dictionary );
+   }
+
+   synchronized private TermTrie createTermTrie( final RareWordDictionary dictionary ) {
+      if ( _termTries.containsKey( dictionary ) || _noTrieDictionaries.contains( dictionary ) ) {
+         return _termTries.get( dictionary );
+      }
+      final CompactRareWordDictionary compact = CompactRareWordDictionary.createCompactDictionary( dictionary, false );
+      if ( compact == null ) {
+         LOGGER.warn( "Cannot create a Trie for Dictionary " + dictionary.getName() + ", using rare word lookup" );
+         _noTrieDictionaries.add( dictionary );
+         return null;
+      }
+      if ( compact != dictionary ) {
+         LOGGER.info( "Copied Dictionary " + dictionary.getName() + " into a Compact Dictionary of "
+                      + compact.getTermBuffer().capacity() + " term bytes for the Trie" );
+      }
+      final TermTrie termTrie = new TermTrie( compact );
+      LOGGER.info( "Dictionary " + dictionary.getName() + " Trie has " + termTrie.getNodeCount() + " nodes" );
+      _termTries.put( dictionary, termTrie );
+      return termTrie;
+   }
+
+
+   /**
+    * Growable parallel arrays of trie nodes and path start indices
+    */
+   static private final class PathList {
+      private int[] __nodes = new int[ 16 ];
+      private int[] __startIndices = new int[ 16 ];
+      private int __size;
+
+      private void add( final int node, final int startIndex ) {
+         if ( __size == __nodes.length ) {
+            __nodes = Arrays.copyOf( __nodes, __size * 2 );
+            __startIndices = Arrays.copyOf( __startIndices, __size * 2 );
+         }
+         __nodes[ __size ] = node;
+         __startIndices[ __size ] = startIndex;
+         __size++;
+      }
+
+      private void clear() {
+         __size = 0;
+      }
+   }
+
+
+   static public AnalysisEngineDescription createAnnotatorDescription() throws ResourceInitializationException {
+      return AnalysisEngineFactory.createEngineDescription( TrieJCasTermAnnotator.class );
+   }
+
+   static public AnalysisEngineDescription createAnnotatorDescription( final String descriptorPath )
+         throws ResourceInitializationException {
+      return AnalysisEngineFactory.createEngineDescription( TrieJCasTermAnnotator.class,
+            ConfigParameterConstants.PARAM_LOOKUP_XML, descriptorPath );
+   }
+
+}
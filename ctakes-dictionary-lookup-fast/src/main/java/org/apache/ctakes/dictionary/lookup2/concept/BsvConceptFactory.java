@@ -70,6 +70,14 @@ final public class BsvConceptFactory implements ConceptFactory {
       return _delegateFactory.createConcepts( cuiCodes );
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isThreadSafe() {
+      return _delegateFactory.isThreadSafe();
+   }
+
 
    /**
     * Create a collection of {@link org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm} Objects
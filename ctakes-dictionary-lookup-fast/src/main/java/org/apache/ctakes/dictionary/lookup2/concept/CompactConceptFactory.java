@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.concept;
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.util.BufferUtil;
+import org.apache.ctakes.dictionary.lookup2.util.CuiCodeUtil;
+import org.apache.ctakes.dictionary.lookup2.util.DictionaryImage;
+import org.apache.ctakes.dictionary.lookup2.util.TokenIdTable;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+import static org.apache.ctakes.dictionary.lookup2.util.DictionaryImage.CuiCodeMap;
+
+/**
+ * A ConceptFactory that keeps all concepts in a {@link ByteBuffer}, usually memory-mapped from a
+ * {@link DictionaryImage}.
+ * <p>
+ * All strings (preferred terms, code names and codes) are stored once in a {@link TokenIdTable}.
+ * Concepts are sorted by cui code and found with a binary search.
+ * Concept objects are only created when they are requested.
+ * </p>
+ * Concept buffer layout, all values big-endian:
+ * <pre>
+ *    int   concept count  (c)
+ *    int   data length  (d)
+ *    long[c]  cui codes, sorted
+ *    int[c+1] start of each concept in the data
+ *    int[d]   data.  For each concept: preferred term string id (-1 for none), code name count,
+ *             then for each code name: name string id, code count, code string ids
+ * </pre>
+ */
+final public class CompactConceptFactory extends AbstractConceptFactory {
+
+   static private final Logger LOGGER = Logger.getLogger( "CompactConceptFactory" );
+
+   static private final String IMAGE_PATH = "imagePath";
+   static private final String IMAGE_ENTRY = "imageEntry";
+
+   static private final int HEADER_BYTES = 2 * Integer.BYTES;
+
+   final private TokenIdTable _stringTable;
+   final private CuiCodeMap _cuiCodeMap;
+   final private ByteBuffer _conceptBuffer;
+   final private int _conceptCount;
+   final private LongBuffer _cuiCodes;
+   final private IntBuffer _dataStarts;
+   final private IntBuffer _data;
+
+   /**
+    * Properties are {@code imagePath} for a dictionary image created by
+    * {@link org.apache.ctakes.dictionary.lookup2.util.DictionaryImageCompiler} and optional {@code imageEntry}
+    * (default is the concept factory name).
+    *
+    * @param name        simple name for the concept factory
+    * @param uimaContext -
+    * @param properties  -
+    * @throws IOException if the dictionary image could not be read
+    */
+   public CompactConceptFactory( final String name, final UimaContext uimaContext, final Properties properties )
+         throws IOException {
+      this( name, DictionaryImage.getImage( properties.getProperty( IMAGE_PATH ).trim() ),
+            properties.getProperty( IMAGE_ENTRY, name ).trim() );
+   }
+
+   private CompactConceptFactory( final String name, final DictionaryImage image, final String entry )
+         throws IOException {
+      this( name, image.getConceptStringTable( entry ), image.getConceptBuffer( entry ), image.getCuiCodeMap() );
+   }
+
+   /**
+    * @param name       simple name for the concept factory
+    * @param conceptMap map of cui codes to concepts
+    * @param offHeap    true to keep the concepts in direct (off-heap) memory
+    */
+   public CompactConceptFactory( final String name, final Map<Long, Concept> conceptMap, final boolean offHeap ) {
+      this( name, new CompactBuilder( conceptMap, offHeap ) );
+   }
+
+   private CompactConceptFactory( final String name, final CompactBuilder builder ) {
+      this( name, builder.__stringTable, builder.__conceptBuffer, CuiCodeMap.IDENTITY );
+   }
+
+   /**
+    * @param name          simple name for the concept factory
+    * @param stringTable   table of strings used by concepts
+    * @param conceptBuffer buffer with concept data, positioned at the start of the concept data
+    * @param cuiCodeMap    map of cui codes in the concept buffer to cui codes in this jvm
+    */
+   public CompactConceptFactory( final String name, final TokenIdTable stringTable, final ByteBuffer conceptBuffer,
+                                 final CuiCodeMap cuiCodeMap ) {
+      super( name );
+      _stringTable = stringTable;
+      _cuiCodeMap = cuiCodeMap;
+      final ByteBuffer buffer = conceptBuffer.slice();
+      _conceptCount = buffer.getInt( 0 );
+      final int dataLength = buffer.getInt( Integer.BYTES );
+      int start = HEADER_BYTES;
+      _cuiCodes = BufferUtil.slice( buffer, start, _conceptCount * Long.BYTES ).asLongBuffer();
+      start += _conceptCount * Long.BYTES;
+      _dataStarts = BufferUtil.slice( buffer, start, (_conceptCount + 1) * Integer.BYTES ).asIntBuffer();
+      start += (_conceptCount + 1) * Integer.BYTES;
+      _data = BufferUtil.slice( buffer, start, dataLength * Integer.BYTES ).asIntBuffer();
+      start += dataLength * Integer.BYTES;
+      _conceptBuffer = BufferUtil.slice( buffer, 0, start );
+      LOGGER.info( "Concept Factory " + name + " has " + _conceptCount + " concepts" );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Concept createConcept( final Long cuiCode ) {
+      final int index = findConcept( _cuiCodeMap.toImageCode( cuiCode ) );
+      if ( index < 0 ) {
+         return new DefaultConcept( CuiCodeUtil.getInstance().getAsCui( cuiCode ) );
+      }
+      int position = _dataStarts.get( index );
+      final int preferredTermId = _data.get( position++ );
+      final String preferredTerm = preferredTermId < 0 ? null : _stringTable.getText( preferredTermId );
+      final CollectionMap<String, String, ? extends Collection<String>> codes = new HashSetMap<>();
+      final int codeNameCount = _data.get( position++ );
+      for ( int i = 0; i < codeNameCount; i++ ) {
+         final String codeName = _stringTable.getText( _data.get( position++ ) );
+         final int codeCount = _data.get( position++ );
+         for ( int j = 0; j < codeCount; j++ ) {
+            codes.placeValue( codeName, _stringTable.getText( _data.get( position++ ) ) );
+         }
+      }
+      return new DefaultConcept( CuiCodeUtil.getInstance().getAsCui( cuiCode ), preferredTerm, codes );
+   }
+
+   /**
+    * The buffers are never changed after construction and are only read with absolute indices.
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isThreadSafe() {
+      return true;
+   }
+
+   /**
+    * @return table of strings used by concepts
+    */
+   public TokenIdTable getStringTable() {
+      return _stringTable;
+   }
+
+   /**
+    * @return a read only view of the concept data, suitable for writing to a file
+    */
+   public ByteBuffer getConceptBuffer() {
+      return _conceptBuffer.asReadOnlyBuffer();
+   }
+
+   /**
+    * @param imageCode cui code as stored in the buffer
+    * @return index of the concept or -1 if it does not exist
+    */
+   private int findConcept( final long imageCode ) {
+      int low = 0;
+      int high = _conceptCount - 1;
+      while ( low <= high ) {
+         final int middle = (low + high) >>> 1;
+         final long middleCode = _cuiCodes.get( middle );
+         if ( middleCode < imageCode ) {
+            low = middle + 1;
+         } else if ( middleCode > imageCode ) {
+            high = middle - 1;
+         } else {
+            return middle;
+         }
+      }
+      return -1;
+   }
+
+
+   /**
+    * Creates the string table and the concept buffer from concepts.
+    */
+   static private final class CompactBuilder {
+      private final TokenIdTable __stringTable;
+      private final ByteBuffer __conceptBuffer;
+
+      private CompactBuilder( final Map<Long, Concept> conceptMap, final boolean offHeap ) {
+         final Map<String, Integer> stringIds = new HashMap<>();
+         final List<String> strings = new ArrayList<>();
+         final List<Long> cuiCodes = new ArrayList<>( conceptMap.keySet() );
+         Collections.sort( cuiCodes );
+         final List<Integer> data = new ArrayList<>();
+         final int[] dataStarts = new int[ cuiCodes.size() + 1 ];
+         for ( int i = 0; i < cuiCodes.size(); i++ ) {
+            dataStarts[ i ] = data.size();
+            final Concept concept = conceptMap.get( cuiCodes.get( i ) );
+            final String preferredText = concept.getPreferredText();
+            data.add( preferredText == null || preferredText.equals( Concept.PREFERRED_TERM_UNKNOWN )
+                      ? -1 : getStringId( preferredText, stringIds, strings ) );
+            final Collection<String> codeNames = concept.getCodeNames();
+            data.add( codeNames.size() );
+            for ( String codeName : codeNames ) {
+               final Collection<String> codes = concept.getCodes( codeName );
+               data.add( getStringId( codeName, stringIds, strings ) );
+               data.add( codes.size() );
+               for ( String code : codes ) {
+                  data.add( getStringId( code, stringIds, strings ) );
+               }
+            }
+         }
+         dataStarts[ cuiCodes.size() ] = data.size();
+         __stringTable = TokenIdTable.createTable( strings, offHeap );
+         final int byteCount = HEADER_BYTES + cuiCodes.size() * Long.BYTES
+                               + (dataStarts.length + data.size()) * Integer.BYTES;
+         final ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect( byteCount ) : ByteBuffer.allocate( byteCount );
+         buffer.putInt( cuiCodes.size() );
+         buffer.putInt( data.size() );
+         for ( Long cuiCode : cuiCodes ) {
+            buffer.putLong( cuiCode );
+         }
+         for ( int dataStart : dataStarts ) {
+            buffer.putInt( dataStart );
+         }
+         for ( Integer value : data ) {
+            buffer.putInt( value );
+         }
+         buffer.flip();
+         __conceptBuffer = buffer;
+      }
+
+      static private int getStringId( final String text, final Map<String, Integer> stringIds,
+                                      final List<String> strings ) {
+         final Integer id = stringIds.get( text );
+         if ( id != null ) {
+            return id;
+         }
+         stringIds.put( text, strings.size() );
+         strings.add( text );
+         return strings.size() - 1;
+      }
+   }
+
+}
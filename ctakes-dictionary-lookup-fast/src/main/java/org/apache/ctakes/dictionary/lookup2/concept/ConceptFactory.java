@@ -32,4 +32,14 @@ public interface ConceptFactory {
     */
    public Map<Long, Concept> createConcepts( final Collection<Long> cuiCodes );
 
+   /**
+    * A concept factory is thread safe if {@link #createConcept} can be called by multiple threads at the same time
+    * without any external locking.  Factories backed by a shared jdbc statement are not.
+    *
+    * @return true if this concept factory can be shared by multiple threads without locking
+    */
+   default boolean isThreadSafe() {
+      return false;
+   }
+
 }
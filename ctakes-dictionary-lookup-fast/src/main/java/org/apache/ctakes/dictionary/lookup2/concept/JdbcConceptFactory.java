@@ -4,6 +4,7 @@ import org.apache.ctakes.core.util.collection.CollectionMap;
 import org.apache.ctakes.core.util.collection.HashSetMap;
 import org.apache.ctakes.dictionary.lookup2.util.CuiCodeUtil;
 import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.apache.ctakes.dictionary.lookup2.util.LruCache;
 import org.apache.ctakes.dictionary.lookup2.util.TuiCodeUtil;
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -14,6 +15,11 @@ import java.util.*;
 import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
 
 /**
+ * {@link #createConcepts(Collection)} queries each concept table with {@code WHERE CUI IN (...)}
+ * for {@code batchSize} cuis at a time.
+ * Concepts are kept in a least recently used cache of {@code cacheSize} concepts.
+ * A concept is not cached if any of its queries failed, so it is queried again for the next document.
+ * <p>
  * Author: SPF
  * Affiliation: CHIP-NLP
  * Date: 11/20/13
@@ -30,8 +36,17 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
    static private final String TUI_CLASS = Concept.TUI;
    static private final String PREFTERM_CLASS = Concept.PREFTERM;
 
+   static public final String BATCH_SIZE = "batchSize";
+   static public final String CACHE_SIZE = "cacheSize";
+
+   static private final int DEFAULT_BATCH_SIZE = 100;
+   static private final int DEFAULT_CACHE_SIZE = 50000;
+
 
    private final Collection<ConceptTableInfo> _conceptTableInfos;
+   private final int _batchSize;
+   private final LruCache<Long, Concept> _conceptCache;
+   private long _queryCount;
 
 
    static private class ConceptTableInfo {
@@ -39,13 +54,15 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
       private final String __conceptName;
       private final String __classType;
       private final PreparedStatement __preparedStatement;
+      private final PreparedStatement __batchStatement;
 
       private ConceptTableInfo( final String tableName, final String conceptName, final String classType,
-                                final PreparedStatement preparedStatement ) {
+                                final PreparedStatement preparedStatement, final PreparedStatement batchStatement ) {
 //         __tableName = tableName;
          __conceptName = conceptName;
          __classType = classType;
          __preparedStatement = preparedStatement;
+         __batchStatement = batchStatement;
       }
    }
 
@@ -112,7 +129,9 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
       this( name,
             properties.getProperty( JDBC_DRIVER ), properties.getProperty( JDBC_URL ),
             properties.getProperty( JDBC_USER ), properties.getProperty( JDBC_PASS ),
-            getConceptTables( properties ) );
+            getConceptTables( properties ),
+            parseInt( properties, BATCH_SIZE, DEFAULT_BATCH_SIZE ),
+            parseInt( properties, CACHE_SIZE, DEFAULT_CACHE_SIZE ) );
    }
 
    public JdbcConceptFactory( final String name,
@@ -120,7 +139,18 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
                               final String jdbcUser, final String jdbcPass,
                               final Map<String, String> conceptTables )
          throws SQLException {
+      this( name, jdbcDriver, jdbcUrl, jdbcUser, jdbcPass, conceptTables, DEFAULT_BATCH_SIZE, DEFAULT_CACHE_SIZE );
+   }
+
+   public JdbcConceptFactory( final String name,
+                              final String jdbcDriver, final String jdbcUrl,
+                              final String jdbcUser, final String jdbcPass,
+                              final Map<String, String> conceptTables,
+                              final int batchSize, final int cacheSize )
+         throws SQLException {
       super( name );
+      _batchSize = batchSize;
+      _conceptCache = new LruCache<>( cacheSize );
       boolean connected = false;
       try {
          // DO NOT use try with resources here.
@@ -128,7 +158,7 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
          final Connection connection
                = JdbcConnectionFactory.getInstance().getConnection( jdbcDriver, jdbcUrl, jdbcUser, jdbcPass );
          connected = connection != null;
-         _conceptTableInfos = createTableInfos( connection, conceptTables );
+         _conceptTableInfos = createTableInfos( connection, conceptTables, batchSize );
       } catch ( SQLException sqlE ) {
          if ( !connected ) {
             LOGGER.error( "Could not Connect to Concept Factory " + name );
@@ -144,58 +174,189 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     */
    @Override
    public Concept createConcept( final Long cuiCode ) {
+      final Concept cachedConcept = _conceptCache.get( cuiCode );
+      if ( cachedConcept != null ) {
+         return cachedConcept;
+      }
       final CollectionMap<String, String, ? extends Collection<String>> codes = new HashSetMap<>();
       String prefTerm = null;
+      boolean failed = false;
       for ( ConceptTableInfo conceptTableInfo : _conceptTableInfos ) {
-         switch ( conceptTableInfo.__classType ) {
-            case TUI_CLASS: {
-               codes.addAllValues( conceptTableInfo.__conceptName,
-                     getTuiCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
-               break;
-            }
-            case PREFTERM_CLASS: {
-               prefTerm = getPreferredTerm( conceptTableInfo.__preparedStatement, cuiCode );
-               break;
-            }
-            case INT_CLASS: {
-               codes.addAllValues( conceptTableInfo.__conceptName,
-                     getIntegerCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
-               break;
+         _queryCount++;
+         try {
+            switch ( conceptTableInfo.__classType ) {
+               case TUI_CLASS: {
+                  codes.addAllValues( conceptTableInfo.__conceptName,
+                        getTuiCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
+                  break;
+               }
+               case PREFTERM_CLASS: {
+                  prefTerm = getPreferredTerm( conceptTableInfo.__preparedStatement, cuiCode );
+                  break;
+               }
+               case INT_CLASS: {
+                  codes.addAllValues( conceptTableInfo.__conceptName,
+                        getIntegerCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
+                  break;
+               }
+               case LONG_CLASS: {
+                  codes.addAllValues( conceptTableInfo.__conceptName,
+                        getLongCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
+                  break;
+               }
+               case TEXT_CLASS: {
+                  codes.addAllValues( conceptTableInfo.__conceptName,
+                        getStringCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
+                  break;
+               }
             }
-            case LONG_CLASS: {
-               codes.addAllValues( conceptTableInfo.__conceptName,
-                     getLongCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
-               break;
+         } catch ( SQLException sqlE ) {
+            LOGGER.error( sqlE.getMessage() );
+            failed = true;
+         }
+      }
+      final Concept concept = new DefaultConcept( CuiCodeUtil.getInstance().getAsCui( cuiCode ), prefTerm, codes );
+      // A concept missing the codes of a failed query is not cached, so a later document queries again.
+      if ( !failed ) {
+         _conceptCache.put( cuiCode, concept );
+      }
+      return concept;
+   }
+
+   /**
+    * Concepts that are not cached are created with one query per concept table per {@code batchSize} cuis.
+    * {@inheritDoc}
+    */
+   @Override
+   public Map<Long, Concept> createConcepts( final Collection<Long> cuiCodes ) {
+      if ( _batchSize <= 1 ) {
+         return super.createConcepts( cuiCodes );
+      }
+      final Map<Long, Concept> conceptMap = new HashMap<>( cuiCodes.size() );
+      final List<Long> uncached = new ArrayList<>();
+      for ( Long cuiCode : new HashSet<>( cuiCodes ) ) {
+         final Concept cachedConcept = _conceptCache.get( cuiCode );
+         if ( cachedConcept == null ) {
+            uncached.add( cuiCode );
+         } else if ( !cachedConcept.isEmpty() ) {
+            conceptMap.put( cuiCode, cachedConcept );
+         }
+      }
+      for ( int i = 0; i < uncached.size(); i += _batchSize ) {
+         final List<Long> batch = uncached.subList( i, Math.min( i + _batchSize, uncached.size() ) );
+         final Map<Long, CollectionMap<String, String, ? extends Collection<String>>> batchCodes
+               = new HashMap<>( batch.size() );
+         final Map<Long, String> batchPrefTerms = new HashMap<>( batch.size() );
+         for ( Long cuiCode : batch ) {
+            batchCodes.put( cuiCode, new HashSetMap<>() );
+         }
+         boolean filled = true;
+         for ( ConceptTableInfo conceptTableInfo : _conceptTableInfos ) {
+            _queryCount++;
+            filled &= fillBatchCodes( conceptTableInfo, batch, batchCodes, batchPrefTerms );
+         }
+         for ( Long cuiCode : batch ) {
+            final Concept concept = new DefaultConcept( CuiCodeUtil.getInstance().getAsCui( cuiCode ),
+                  batchPrefTerms.get( cuiCode ), batchCodes.get( cuiCode ) );
+            if ( filled ) {
+               _conceptCache.put( cuiCode, concept );
             }
-            case TEXT_CLASS: {
-               codes.addAllValues( conceptTableInfo.__conceptName,
-                     getStringCodes( conceptTableInfo.__preparedStatement, cuiCode ) );
-               break;
+            if ( !concept.isEmpty() ) {
+               conceptMap.put( cuiCode, concept );
             }
          }
       }
-      return new DefaultConcept( CuiCodeUtil.getInstance().getAsCui( cuiCode ), prefTerm, codes );
+      return conceptMap;
    }
 
    /**
-    * @param selectCall jdbc selection call
-    * @param cuiCode    cui of interest
-    * @return collection of tuis that are related to cui as obtained with the selectCall
+    * @return number of queries sent to the database by this concept factory
     */
-   static private Collection<String> getTuiCodes( PreparedStatement selectCall, final Long cuiCode ) {
-      final Collection<String> codes = new HashSet<>();
+   public long getQueryCount() {
+      return _queryCount;
+   }
+
+   /**
+    * Fills codes and preferred terms for a batch of cuis in the same way as {@link #createConcept(Long)}.
+    * As with a single cui, the preferred term is an empty string when a preferred term table has no row for the cui.
+    *
+    * @param conceptTableInfo table to query
+    * @param cuiCodes         cuis of interest, no more than the batch size
+    * @param batchCodes       map of cui to codes, filled with codes from the table
+    * @param batchPrefTerms   map of cui to preferred term, filled with preferred terms from the table
+    * @return false if the query failed, in which case the codes for the batch may be incomplete and should not be cached
+    */
+   private boolean fillBatchCodes( final ConceptTableInfo conceptTableInfo, final List<Long> cuiCodes,
+                                   final Map<Long, CollectionMap<String, String, ? extends Collection<String>>> batchCodes,
+                                   final Map<Long, String> batchPrefTerms ) {
+      final PreparedStatement selectCall = conceptTableInfo.__batchStatement;
+      final boolean isPrefTerm = conceptTableInfo.__classType.equals( PREFTERM_CLASS );
+      final Collection<Long> prefTermCuis = new HashSet<>();
+      if ( isPrefTerm ) {
+         cuiCodes.forEach( c -> batchPrefTerms.put( c, "" ) );
+      }
       try {
-         fillSelectCall( selectCall, cuiCode );
+         fillBatchSelectCall( selectCall, cuiCodes, _batchSize );
          final ResultSet resultSet = selectCall.executeQuery();
          while ( resultSet.next() ) {
-            codes.add( TuiCodeUtil.getAsTui( resultSet.getInt( 2 ) ) );
+            final Long cuiCode = resultSet.getLong( 1 );
+            final CollectionMap<String, String, ? extends Collection<String>> codes = batchCodes.get( cuiCode );
+            if ( codes == null ) {
+               continue;
+            }
+            switch ( conceptTableInfo.__classType ) {
+               case TUI_CLASS: {
+                  codes.placeValue( conceptTableInfo.__conceptName, TuiCodeUtil.getAsTui( resultSet.getInt( 2 ) ) );
+                  break;
+               }
+               case PREFTERM_CLASS: {
+                  // Only use the first preferred term, as is done for a single cui
+                  if ( prefTermCuis.add( cuiCode ) ) {
+                     batchPrefTerms.put( cuiCode, resultSet.getString( 2 ) );
+                  }
+                  break;
+               }
+               case INT_CLASS: {
+                  codes.placeValue( conceptTableInfo.__conceptName, Integer.toString( resultSet.getInt( 2 ) ) );
+                  break;
+               }
+               case LONG_CLASS: {
+                  codes.placeValue( conceptTableInfo.__conceptName, Long.toString( resultSet.getLong( 2 ) ) );
+                  break;
+               }
+               case TEXT_CLASS: {
+                  codes.placeValue( conceptTableInfo.__conceptName, resultSet.getString( 2 ) );
+                  break;
+               }
+            }
          }
          // Though the ResultSet interface documentation states that there are automatic closures,
          // it is up to the driver to implement this behavior ...  historically some drivers have not done so
          resultSet.close();
       } catch ( SQLException e ) {
          LOGGER.error( e.getMessage() );
+         return false;
       }
+      return true;
+   }
+
+   /**
+    * @param selectCall jdbc selection call
+    * @param cuiCode    cui of interest
+    * @return collection of tuis that are related to cui as obtained with the selectCall
+    * @throws SQLException if the query fails
+    */
+   static private Collection<String> getTuiCodes( PreparedStatement selectCall, final Long cuiCode )
+         throws SQLException {
+      final Collection<String> codes = new HashSet<>();
+      fillSelectCall( selectCall, cuiCode );
+      final ResultSet resultSet = selectCall.executeQuery();
+      while ( resultSet.next() ) {
+         codes.add( TuiCodeUtil.getAsTui( resultSet.getInt( 2 ) ) );
+      }
+      // Though the ResultSet interface documentation states that there are automatic closures,
+      // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+      resultSet.close();
       return codes;
    }
 
@@ -203,21 +364,19 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     * @param selectCall jdbc selection call
     * @param cuiCode    cui of interest
     * @return preferred term for the cui as obtained with the selectCall
+    * @throws SQLException if the query fails
     */
-   static private String getPreferredTerm( PreparedStatement selectCall, final Long cuiCode ) {
+   static private String getPreferredTerm( PreparedStatement selectCall, final Long cuiCode )
+         throws SQLException {
       String preferredName = "";
-      try {
-         fillSelectCall( selectCall, cuiCode );
-         final ResultSet resultSet = selectCall.executeQuery();
-         if ( resultSet.next() ) {
-            preferredName = resultSet.getString( 2 );
-         }
-         // Though the ResultSet interface documentation states that there are automatic closures,
-         // it is up to the driver to implement this behavior ...  historically some drivers have not done so
-         resultSet.close();
-      } catch ( SQLException e ) {
-         LOGGER.error( e.getMessage() );
+      fillSelectCall( selectCall, cuiCode );
+      final ResultSet resultSet = selectCall.executeQuery();
+      if ( resultSet.next() ) {
+         preferredName = resultSet.getString( 2 );
       }
+      // Though the ResultSet interface documentation states that there are automatic closures,
+      // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+      resultSet.close();
       return preferredName;
    }
 
@@ -225,21 +384,19 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     * @param selectCall jdbc selection call
     * @param cuiCode    cui of interest
     * @return collection of ints (as strings) that are related to cui as obtained with the selectCall
+    * @throws SQLException if the query fails
     */
-   static private Collection<String> getIntegerCodes( PreparedStatement selectCall, final Long cuiCode ) {
+   static private Collection<String> getIntegerCodes( PreparedStatement selectCall, final Long cuiCode )
+         throws SQLException {
       final Collection<String> codes = new HashSet<>();
-      try {
-         fillSelectCall( selectCall, cuiCode );
-         final ResultSet resultSet = selectCall.executeQuery();
-         while ( resultSet.next() ) {
-            codes.add( Integer.toString( resultSet.getInt( 2 ) ) );
-         }
-         // Though the ResultSet interface documentation states that there are automatic closures,
-         // it is up to the driver to implement this behavior ...  historically some drivers have not done so
-         resultSet.close();
-      } catch ( SQLException e ) {
-         LOGGER.error( e.getMessage() );
+      fillSelectCall( selectCall, cuiCode );
+      final ResultSet resultSet = selectCall.executeQuery();
+      while ( resultSet.next() ) {
+         codes.add( Integer.toString( resultSet.getInt( 2 ) ) );
       }
+      // Though the ResultSet interface documentation states that there are automatic closures,
+      // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+      resultSet.close();
       return codes;
    }
 
@@ -247,21 +404,19 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     * @param selectCall jdbc selection call
     * @param cuiCode    cui of interest
     * @return collection of longs (as strings) that are related to cui as obtained with the selectCall
+    * @throws SQLException if the query fails
     */
-   static private Collection<String> getLongCodes( PreparedStatement selectCall, final Long cuiCode ) {
+   static private Collection<String> getLongCodes( PreparedStatement selectCall, final Long cuiCode )
+         throws SQLException {
       final Collection<String> codes = new HashSet<>();
-      try {
-         fillSelectCall( selectCall, cuiCode );
-         final ResultSet resultSet = selectCall.executeQuery();
-         while ( resultSet.next() ) {
-            codes.add( Long.toString( resultSet.getLong( 2 ) ) );
-         }
-         // Though the ResultSet interface documentation states that there are automatic closures,
-         // it is up to the driver to implement this behavior ...  historically some drivers have not done so
-         resultSet.close();
-      } catch ( SQLException e ) {
-         LOGGER.error( e.getMessage() );
+      fillSelectCall( selectCall, cuiCode );
+      final ResultSet resultSet = selectCall.executeQuery();
+      while ( resultSet.next() ) {
+         codes.add( Long.toString( resultSet.getLong( 2 ) ) );
       }
+      // Though the ResultSet interface documentation states that there are automatic closures,
+      // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+      resultSet.close();
       return codes;
    }
 
@@ -269,21 +424,19 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     * @param selectCall jdbc selection call
     * @param cuiCode    cui of interest
     * @return collection of strings that are related to cui as obtained with the selectCall
+    * @throws SQLException if the query fails
     */
-   static private Collection<String> getStringCodes( PreparedStatement selectCall, final Long cuiCode ) {
+   static private Collection<String> getStringCodes( PreparedStatement selectCall, final Long cuiCode )
+         throws SQLException {
       final Collection<String> codes = new HashSet<>();
-      try {
-         fillSelectCall( selectCall, cuiCode );
-         final ResultSet resultSet = selectCall.executeQuery();
-         while ( resultSet.next() ) {
-            codes.add( resultSet.getString( 2 ) );
-         }
-         // Though the ResultSet interface documentation states that there are automatic closures,
-         // it is up to the driver to implement this behavior ...  historically some drivers have not done so
-         resultSet.close();
-      } catch ( SQLException e ) {
-         LOGGER.error( e.getMessage() );
+      fillSelectCall( selectCall, cuiCode );
+      final ResultSet resultSet = selectCall.executeQuery();
+      while ( resultSet.next() ) {
+         codes.add( resultSet.getString( 2 ) );
       }
+      // Though the ResultSet interface documentation states that there are automatic closures,
+      // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+      resultSet.close();
       return codes;
    }
 
@@ -291,11 +444,13 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
     * Creates table information objects with table name, concept name, jdbc prepared statement call
     * @param connection -
     * @param conceptTables map of table names to table value types
+    * @param batchSize number of cuis in a batch call, batch calls are not created if 1 or less
     * @return table information objects with table name, concept name, jdbc prepared statement call
     * @throws SQLException
     */
    static private Collection<ConceptTableInfo> createTableInfos( final Connection connection,
-                                                                 final Map<String,String> conceptTables )
+                                                                 final Map<String,String> conceptTables,
+                                                                 final int batchSize )
          throws SQLException {
       if ( conceptTables == null || conceptTables.isEmpty() ) {
          return Collections.emptyList();
@@ -328,7 +483,17 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
          conceptName = conceptName.substring( 0, conceptName.length() - 5 );
          final String lookupSql = "SELECT * FROM " + tableName + " WHERE CUI = ?";
          final PreparedStatement statement = connection.prepareStatement( lookupSql );
-         tableInfos.add( new ConceptTableInfo( tableName, conceptName, tableClass, statement ) );
+         PreparedStatement batchStatement = null;
+         if ( batchSize > 1 ) {
+            final StringBuilder sb = new StringBuilder( "SELECT * FROM " ).append( tableName )
+                  .append( " WHERE CUI IN (?" );
+            for ( int i = 1; i < batchSize; i++ ) {
+               sb.append( ",?" );
+            }
+            sb.append( ')' );
+            batchStatement = connection.prepareStatement( sb.toString() );
+         }
+         tableInfos.add( new ConceptTableInfo( tableName, conceptName, tableClass, statement, batchStatement ) );
          LOGGER.info( "Connected to concept table " + tableName + " with class " + tableClass );
       }
       return tableInfos;
@@ -361,5 +526,33 @@ public class JdbcConceptFactory extends AbstractConceptFactory {
       selectCall.setLong( 1, cuiCode );
    }
 
+   /**
+    * A short batch repeats its last cui so that a single prepared statement can be used for all batches
+    *
+    * @param cuiCodes  cuis, no more than the batch size
+    * @param batchSize number of parameters in the call
+    * @throws SQLException if the {@code PreparedStatement} could not be changed
+    */
+   static private void fillBatchSelectCall( final PreparedStatement selectCall, final List<Long> cuiCodes,
+                                            final int batchSize ) throws SQLException {
+      selectCall.clearParameters();
+      final Long lastCode = cuiCodes.get( cuiCodes.size() - 1 );
+      for ( int i = 0; i < batchSize; i++ ) {
+         selectCall.setLong( i + 1, i < cuiCodes.size() ? cuiCodes.get( i ) : lastCode );
+      }
+   }
+
+   static private int parseInt( final Properties properties, final String key, final int defaultValue ) {
+      final String value = properties.getProperty( key );
+      if ( value == null || value.trim().isEmpty() ) {
+         return defaultValue;
+      }
+      try {
+         return Integer.parseInt( value.trim() );
+      } catch ( NumberFormatException nfE ) {
+         LOGGER.error( "Could not parse " + key + " " + value + " , using " + defaultValue );
+         return defaultValue;
+      }
+   }
 
 }
@@ -15,6 +15,11 @@ import org.apache.uima.resource.ResourceInitializationException;
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
  * Made a singleton mostly for dictionary memory.
+ * <p>
+ * When all dictionaries and concept factories are thread safe (e.g. bsv or in-memory) the single instance is used by
+ * all threads at the same time without locking.  All per-document state is kept on the calling thread.
+ * When any dictionary or concept factory is not thread safe (e.g. jdbc) then calls to process are serialized.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -74,6 +79,7 @@ final public class ThreadSafeFastLookup extends DefaultJCasTermAnnotator {
 
       private final DefaultJCasTermAnnotator _delegate;
       private boolean _initialized;
+      private volatile boolean _concurrent;
 
       DlSingleton() {
          _delegate = new DefaultJCasTermAnnotator();
@@ -99,6 +105,27 @@ final public class ThreadSafeFastLookup extends DefaultJCasTermAnnotator {
       @Override
       public void setInitialized( final boolean initialized ) {
          _initialized = initialized;
+         _concurrent = initialized && _delegate.isThreadSafe();
+         if ( _concurrent ) {
+            LOGGER.info( "Dictionaries are thread safe, lookup will run concurrently." );
+         } else if ( initialized ) {
+            LOGGER.info( "Dictionaries are not thread safe, lookup will run one document at a time." );
+         }
+      }
+
+      /**
+       * Calls process on the single instance without locking if the dictionaries are thread safe.
+       * {@inheritDoc}
+       */
+      @Override
+      public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+         if ( _concurrent ) {
+            _delegate.process( jCas );
+            return;
+         }
+         synchronized ( getLock() ) {
+            _delegate.process( jCas );
+         }
       }
    }
 
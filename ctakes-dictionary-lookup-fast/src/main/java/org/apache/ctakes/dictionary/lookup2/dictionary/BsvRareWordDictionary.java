@@ -89,6 +89,21 @@ final public class BsvRareWordDictionary implements RareWordDictionary {
       return _delegateDictionary.getRareWordHits( rareWordText );
    }
 
+   /**
+    * @return the dictionary used for lookup
+    */
+   RareWordDictionary getDelegateDictionary() {
+      return _delegateDictionary;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isThreadSafe() {
+      return _delegateDictionary.isThreadSafe();
+   }
+
 
    /**
     * Create a collection of {@link org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm} Objects
@@ -110,7 +125,7 @@ final public class BsvRareWordDictionary implements RareWordDictionary {
     * @param bsvFilePath path to file containing term rows and bsv columns
     * @return collection of all valid terms read from the bsv file
     */
-   static private Collection<CuiTerm> parseBsvFile( final String bsvFilePath ) {
+   static Collection<CuiTerm> parseBsvFile( final String bsvFilePath ) {
       final Collection<CuiTerm> cuiTerms = new ArrayList<>();
       try ( final BufferedReader reader
                   = new BufferedReader( new InputStreamReader( FileLocator.getAsStream( bsvFilePath ) ) ) ) {
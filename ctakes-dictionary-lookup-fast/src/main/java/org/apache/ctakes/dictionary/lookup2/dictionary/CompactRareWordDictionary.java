@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.util.BufferUtil;
+import org.apache.ctakes.dictionary.lookup2.util.DictionaryImage;
+import org.apache.ctakes.dictionary.lookup2.util.TokenIdTable;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+
+import static org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import static org.apache.ctakes.dictionary.lookup2.util.DictionaryImage.CuiCodeMap;
+
+/**
+ * A RareWordDictionary that keeps all terms as arrays of token ids in a {@link ByteBuffer}.
+ * <p>
+ * Each unique token in the dictionary is stored once in a {@link TokenIdTable}.
+ * Terms are grouped by rare word id, and each term is stored as a cui code, a rare word index,
+ * a text length and a run of token ids.  The buffers may be on the java heap, off-heap or memory-mapped
+ * from a {@link DictionaryImage}, and no java objects are kept per term.
+ * </p>
+ * {@link org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator} matches terms by comparing token ids.
+ * {@link #getRareWordHits(String)} is still supported, but creates {@link RareWordTerm} objects for each call.
+ * <p>
+ * Term buffer layout, all values big-endian:
+ * <pre>
+ *    int   term count  (t)
+ *    int   term token count  (k)
+ *    int   rare word count  (n, equal to the token table token count)
+ *    int   padding
+ *    long[t]  cui codes
+ *    int[t+1] start of each term in the term token ids
+ *    int[t]   text length of each term
+ *    int[t]   rare word index of each term
+ *    int[n+1] first term for each rare word id
+ *    int[k]   term token ids
+ * </pre>
+ * </p>
+ */
+final public class CompactRareWordDictionary extends AbstractRareWordDictionary {
+
+   static private final Logger LOGGER = Logger.getLogger( "CompactRareWordDictionary" );
+
+   static private final String BSV_FILE_PATH = "bsvPath";
+   static private final String OFF_HEAP = "offHeap";
+   static private final String IMAGE_PATH = "imagePath";
+   static private final String IMAGE_ENTRY = "imageEntry";
+
+   static private final int HEADER_BYTES = 4 * Integer.BYTES;
+
+   final private TokenIdTable _tokenIdTable;
+   final private CuiCodeMap _cuiCodeMap;
+   final private ByteBuffer _termBuffer;
+   final private int _termCount;
+   final private LongBuffer _cuiCodes;
+   final private IntBuffer _termStarts;
+   final private IntBuffer _textLengths;
+   final private IntBuffer _rareWordIndices;
+   final private IntBuffer _rareWordTermStarts;
+   final private IntBuffer _termTokenIds;
+
+
+   /**
+    * Properties are either {@code imagePath} for a dictionary image created by
+    * {@link org.apache.ctakes.dictionary.lookup2.util.DictionaryImageCompiler} with optional {@code imageEntry}
+    * (default is the dictionary name), or {@code bsvPath} with optional {@code offHeap} (default true).
+    *
+    * @param name        simple name for the dictionary
+    * @param uimaContext -
+    * @param properties  -
+    * @throws IOException if a dictionary image could not be read
+    */
+   public CompactRareWordDictionary( final String name, final UimaContext uimaContext, final Properties properties )
+         throws IOException {
+      this( name, createBuilder( name, properties ) );
+   }
+
+   /**
+    * @param name        simple name for the dictionary
+    * @param bsvFilePath path to file containing term rows and bsv columns
+    * @param offHeap     true to keep the dictionary in direct (off-heap) memory
+    */
+   public CompactRareWordDictionary( final String name, final String bsvFilePath, final boolean offHeap ) {
+      this( name, createRareWordTermMap( bsvFilePath ), offHeap );
+   }
+
+   /**
+    * @param name            simple name for the dictionary
+    * @param rareWordTermMap Map with a Rare Word (tokens) as key, and RareWordTerm Collection as value
+    * @param offHeap         true to keep the dictionary in direct (off-heap) memory
+    */
+   public CompactRareWordDictionary( final String name,
+                                     final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap,
+                                     final boolean offHeap ) {
+      this( name, new CompactBuilder( rareWordTermMap, offHeap ) );
+   }
+
+   private CompactRareWordDictionary( final String name, final CompactBuilder builder ) {
+      this( name, builder.__tokenIdTable, builder.__termBuffer, builder.__cuiCodeMap );
+   }
+
+   /**
+    * @param name         simple name for the dictionary
+    * @param tokenIdTable table of token ids
+    * @param termBuffer   buffer with term data, positioned at the start of the term data
+    * @param cuiCodeMap   map of cui codes in the term buffer to cui codes in this jvm
+    */
+   public CompactRareWordDictionary( final String name, final TokenIdTable tokenIdTable, final ByteBuffer termBuffer,
+                                     final CuiCodeMap cuiCodeMap ) {
+      super( name );
+      _tokenIdTable = tokenIdTable;
+      _cuiCodeMap = cuiCodeMap;
+      final ByteBuffer buffer = termBuffer.slice();
+      _termCount = buffer.getInt( 0 );
+      final int termTokenCount = buffer.getInt( Integer.BYTES );
+      final int rareWordCount = buffer.getInt( 2 * Integer.BYTES );
+      int start = HEADER_BYTES;
+      _cuiCodes = BufferUtil.slice( buffer, start, _termCount * Long.BYTES ).asLongBuffer();
+      start += _termCount * Long.BYTES;
+      _termStarts = BufferUtil.slice( buffer, start, (_termCount + 1) * Integer.BYTES ).asIntBuffer();
+      start += (_termCount + 1) * Integer.BYTES;
+      _textLengths = BufferUtil.slice( buffer, start, _termCount * Integer.BYTES ).asIntBuffer();
+      start += _termCount * Integer.BYTES;
+      _rareWordIndices = BufferUtil.slice( buffer, start, _termCount * Integer.BYTES ).asIntBuffer();
+      start += _termCount * Integer.BYTES;
+      _rareWordTermStarts = BufferUtil.slice( buffer, start, (rareWordCount + 1) * Integer.BYTES ).asIntBuffer();
+      start += (rareWordCount + 1) * Integer.BYTES;
+      _termTokenIds = BufferUtil.slice( buffer, start, termTokenCount * Integer.BYTES ).asIntBuffer();
+      start += termTokenCount * Integer.BYTES;
+      _termBuffer = BufferUtil.slice( buffer, 0, start );
+      LOGGER.info( "Dictionary " + name + " has " + _termCount + " terms with "
+                   + _tokenIdTable.getTokenCount() + " unique tokens" );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Collection<RareWordTerm> getRareWordHits( final String rareWordText ) {
+      final int rareWordId = getTokenId( rareWordText );
+      if ( rareWordId == TokenIdTable.UNKNOWN_ID ) {
+         return Collections.emptyList();
+      }
+      final int termStart = getTermStart( rareWordId );
+      final int termEnd = getTermEnd( rareWordId );
+      final Collection<RareWordTerm> rareWordTerms = new ArrayList<>( termEnd - termStart );
+      for ( int term = termStart; term < termEnd; term++ ) {
+         rareWordTerms.add( createRareWordTerm( term ) );
+      }
+      return rareWordTerms;
+   }
+
+   /**
+    * The buffers are never changed after construction and are only read with absolute indices.
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isThreadSafe() {
+      return true;
+   }
+
+   /**
+    * @param text token text
+    * @return id of the token or {@link TokenIdTable#UNKNOWN_ID} if the token is not in the dictionary
+    */
+   public int getTokenId( final String text ) {
+      return _tokenIdTable.getId( text );
+   }
+
+   /**
+    * @param rareWordId token id of a rare word
+    * @return index of the first term with the rare word
+    */
+   public int getTermStart( final int rareWordId ) {
+      return _rareWordTermStarts.get( rareWordId );
+   }
+
+   /**
+    * @param rareWordId token id of a rare word
+    * @return index after the last term with the rare word
+    */
+   public int getTermEnd( final int rareWordId ) {
+      return _rareWordTermStarts.get( rareWordId + 1 );
+   }
+
+   /**
+    * @param term term index
+    * @return cui code of the term
+    */
+   public long getCuiCode( final int term ) {
+      return _cuiCodeMap.toCurrentCode( _cuiCodes.get( term ) );
+   }
+
+   /**
+    * @return number of terms in the dictionary
+    */
+   public int getTermCount() {
+      return _termCount;
+   }
+
+   /**
+    * @param term term index
+    * @return number of tokens in the term
+    */
+   public int getTokenCount( final int term ) {
+      return _termStarts.get( term + 1 ) - _termStarts.get( term );
+   }
+
+   /**
+    * @param term term index
+    * @return number of characters in the full text of the term
+    */
+   public int getTextLength( final int term ) {
+      return _textLengths.get( term );
+   }
+
+   /**
+    * @param term term index
+    * @return index of the rare word within the term
+    */
+   public int getRareWordIndex( final int term ) {
+      return _rareWordIndices.get( term );
+   }
+
+   /**
+    * @param term       term index
+    * @param tokenIndex index of a token within the term
+    * @return id of the token, or {@link TokenIdTable#UNKNOWN_ID} for a term with fewer tokens than its token count
+    */
+   public int getTermTokenId( final int term, final int tokenIndex ) {
+      return _termTokenIds.get( _termStarts.get( term ) + tokenIndex );
+   }
+
+   /**
+    * @return table of token ids used by this dictionary
+    */
+   public TokenIdTable getTokenIdTable() {
+      return _tokenIdTable;
+   }
+
+   /**
+    * @return a read only view of the term data, suitable for writing to a file
+    */
+   public ByteBuffer getTermBuffer() {
+      return _termBuffer.asReadOnlyBuffer();
+   }
+
+   private RareWordTerm createRareWordTerm( final int term ) {
+      final int tokenCount = getTokenCount( term );
+      final StringBuilder sb = new StringBuilder( getTextLength( term ) );
+      for ( int i = 0; i < tokenCount; i++ ) {
+         if ( i > 0 ) {
+            sb.append( ' ' );
+         }
+         sb.append( _tokenIdTable.getText( getTermTokenId( term, i ) ) );
+      }
+      final int rareWordIndex = getRareWordIndex( term );
+      return new RareWordTerm( sb.toString(), getCuiCode( term ),
+            _tokenIdTable.getText( getTermTokenId( term, rareWordIndex ) ), rareWordIndex, tokenCount );
+   }
+
+   /**
+    * Converts another dictionary to a compact dictionary.
+    * Bsv, in-memory and jdbc dictionaries can be converted; jdbc dictionaries are read with a full table scan.
+    *
+    * @param dictionary some dictionary
+    * @param offHeap    true to keep the dictionary in direct (off-heap) memory
+    * @return a compact dictionary with the same name and terms, or null if the dictionary cannot be converted
+    */
+   static public CompactRareWordDictionary createCompactDictionary( final RareWordDictionary dictionary,
+                                                                    final boolean offHeap ) {
+      if ( dictionary instanceof CompactRareWordDictionary ) {
+         return (CompactRareWordDictionary)dictionary;
+      } else if ( dictionary instanceof BsvRareWordDictionary ) {
+         return createCompactDictionary( ((BsvRareWordDictionary)dictionary).getDelegateDictionary(), offHeap );
+      } else if ( dictionary instanceof UmlsJdbcRareWordDictionary ) {
+         return createCompactDictionary( ((UmlsJdbcRareWordDictionary)dictionary).getDelegateDictionary(), offHeap );
+      } else if ( dictionary instanceof MemRareWordDictionary ) {
+         return new CompactRareWordDictionary( dictionary.getName(),
+               ((MemRareWordDictionary)dictionary).getRareWordTermMap(), offHeap );
+      } else if ( dictionary instanceof JdbcRareWordDictionary ) {
+         return new CompactRareWordDictionary( dictionary.getName(),
+               ((JdbcRareWordDictionary)dictionary).createRareWordTermMap(), offHeap );
+      }
+      LOGGER.error( "Cannot convert dictionary " + dictionary.getName() + " of type "
+                    + dictionary.getClass().getName() + " to a compact dictionary" );
+      return null;
+   }
+
+   static private CompactBuilder createBuilder( final String name, final Properties properties ) throws IOException {
+      final String imagePath = properties.getProperty( IMAGE_PATH );
+      if ( imagePath != null && !imagePath.trim().isEmpty() ) {
+         final DictionaryImage image = DictionaryImage.getImage( imagePath.trim() );
+         final String entry = properties.getProperty( IMAGE_ENTRY, name ).trim();
+         return new CompactBuilder( image.getDictionaryTokenTable( entry ), image.getDictionaryTermBuffer( entry ),
+               image.getCuiCodeMap() );
+      }
+      final boolean offHeap = !"false".equalsIgnoreCase( properties.getProperty( OFF_HEAP ) );
+      return new CompactBuilder( createRareWordTermMap( properties.getProperty( BSV_FILE_PATH ) ), offHeap );
+   }
+
+   static private CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> createRareWordTermMap(
+         final String bsvFilePath ) {
+      final Collection<CuiTerm> cuiTerms = BsvRareWordDictionary.parseBsvFile( bsvFilePath );
+      return RareWordTermMapCreator.createRareWordTermMap( cuiTerms );
+   }
+
+
+   /**
+    * Creates the token id table and the term buffer from rare word terms.
+    * Terms are only held on the java heap while the buffers are being filled.
+    */
+   static private final class CompactBuilder {
+      private final TokenIdTable __tokenIdTable;
+      private final ByteBuffer __termBuffer;
+      private final CuiCodeMap __cuiCodeMap;
+
+      private CompactBuilder( final TokenIdTable tokenIdTable, final ByteBuffer termBuffer,
+                              final CuiCodeMap cuiCodeMap ) {
+         __tokenIdTable = tokenIdTable;
+         __termBuffer = termBuffer;
+         __cuiCodeMap = cuiCodeMap;
+      }
+
+      private CompactBuilder( final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap,
+                              final boolean offHeap ) {
+         final Map<String, Integer> tokenIds = new HashMap<>();
+         final List<String> tokens = new ArrayList<>();
+         int termCount = 0;
+         int termTokenCount = 0;
+         for ( Map.Entry<String, ? extends Collection<RareWordTerm>> entry : rareWordTermMap ) {
+            addToken( entry.getKey(), tokenIds, tokens );
+            for ( RareWordTerm rareWordTerm : entry.getValue() ) {
+               for ( String token : rareWordTerm.getTokens() ) {
+                  addToken( token, tokenIds, tokens );
+               }
+               termCount++;
+               termTokenCount += rareWordTerm.getTokenCount();
+            }
+         }
+         __tokenIdTable = TokenIdTable.createTable( tokens, offHeap );
+         // Group terms by rare word id
+         final List<List<RareWordTerm>> rareWordIdTerms = new ArrayList<>( tokens.size() );
+         for ( int i = 0; i < tokens.size(); i++ ) {
+            rareWordIdTerms.add( null );
+         }
+         for ( Map.Entry<String, ? extends Collection<RareWordTerm>> entry : rareWordTermMap ) {
+            final int rareWordId = tokenIds.get( entry.getKey() );
+            List<RareWordTerm> terms = rareWordIdTerms.get( rareWordId );
+            if ( terms == null ) {
+               terms = new ArrayList<>();
+               rareWordIdTerms.set( rareWordId, terms );
+            }
+            terms.addAll( entry.getValue() );
+         }
+         final int rareWordCount = tokens.size();
+         final int byteCount = HEADER_BYTES + termCount * Long.BYTES
+                               + (termCount + 1 + termCount + termCount + rareWordCount + 1 + termTokenCount)
+                                 * Integer.BYTES;
+         final ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect( byteCount ) : ByteBuffer.allocate( byteCount );
+         buffer.putInt( termCount );
+         buffer.putInt( termTokenCount );
+         buffer.putInt( rareWordCount );
+         buffer.putInt( 0 );
+         final int cuiStart = buffer.position();
+         final int termStartStart = cuiStart + termCount * Long.BYTES;
+         final int textLengthStart = termStartStart + (termCount + 1) * Integer.BYTES;
+         final int rareIndexStart = textLengthStart + termCount * Integer.BYTES;
+         final int rareTermStart = rareIndexStart + termCount * Integer.BYTES;
+         final int tokenIdStart = rareTermStart + (rareWordCount + 1) * Integer.BYTES;
+         int term = 0;
+         int termToken = 0;
+         for ( int rareWordId = 0; rareWordId < rareWordCount; rareWordId++ ) {
+            buffer.putInt( rareTermStart + rareWordId * Integer.BYTES, term );
+            final List<RareWordTerm> terms = rareWordIdTerms.get( rareWordId );
+            if ( terms == null ) {
+               continue;
+            }
+            for ( RareWordTerm rareWordTerm : terms ) {
+               buffer.putLong( cuiStart + term * Long.BYTES, rareWordTerm.getCuiCode() );
+               buffer.putInt( termStartStart + term * Integer.BYTES, termToken );
+               buffer.putInt( textLengthStart + term * Integer.BYTES, rareWordTerm.getText().length() );
+               buffer.putInt( rareIndexStart + term * Integer.BYTES, rareWordTerm.getRareWordIndex() );
+               for ( String token : rareWordTerm.getTokens() ) {
+                  final int tokenId = token == null ? TokenIdTable.UNKNOWN_ID : tokenIds.get( token );
+                  buffer.putInt( tokenIdStart + termToken * Integer.BYTES, tokenId );
+                  termToken++;
+               }
+               term++;
+            }
+         }
+         buffer.putInt( termStartStart + termCount * Integer.BYTES, termToken );
+         buffer.putInt( rareTermStart + rareWordCount * Integer.BYTES, term );
+         buffer.position( 0 );
+         __termBuffer = buffer;
+         __cuiCodeMap = CuiCodeMap.IDENTITY;
+      }
+
+      static private void addToken( final String token, final Map<String, Integer> tokenIds,
+                                    final List<String> tokens ) {
+         if ( token != null && !tokenIds.containsKey( token ) ) {
+            tokenIds.put( token, tokens.size() );
+            tokens.add( token );
+         }
+      }
+   }
+
+}
@@ -18,8 +18,11 @@
  */
 package org.apache.ctakes.dictionary.lookup2.dictionary;
 
+import org.apache.ctakes.core.util.collection.ArrayListMap;
+import org.apache.ctakes.core.util.collection.CollectionMap;
 import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
 import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.apache.ctakes.dictionary.lookup2.util.LruCache;
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
 
@@ -27,10 +30,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Properties;
+import java.sql.Statement;
+import java.util.*;
 
 import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
 
@@ -38,6 +39,11 @@ import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
  * Preferred dictionary to use for large collections of terms.
  * Column indices within the database are constant and not configurable: CUI TUI RINDEX TCOUNT TEXT RWORD
  * If a configurable implementation is desired then create an extension.
+ * <p>
+ * Lookups for a whole document can be prefetched with {@link #prefetchRareWordHits(Collection)},
+ * which uses {@code WHERE RWORD IN (...)} queries of {@code batchSize} rare words.
+ * Results are kept in a least recently used cache of {@code cacheSize} rare words.
+ * </p>
  * Author: SPF
  * Affiliation: CHIP-NLP
  * Date: 3/26/13
@@ -62,9 +68,19 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
 
 
    static public final String RARE_WORD_TABLE = "rareWordTable";
+   static public final String BATCH_SIZE = "batchSize";
+   static public final String CACHE_SIZE = "cacheSize";
+
+   static private final int DEFAULT_BATCH_SIZE = 100;
+   static private final int DEFAULT_CACHE_SIZE = 50000;
 
 
    private PreparedStatement _selectTermCall;
+   private PreparedStatement _selectBatchCall;
+   final private String _tableName;
+   final private int _batchSize;
+   final private LruCache<String, Collection<RareWordTerm>> _termCache;
+   private long _queryCount;
 
 
    public JdbcRareWordDictionary( final String name, final UimaContext uimaContext, final Properties properties )
@@ -72,10 +88,11 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
       this( name,
             properties.getProperty( JDBC_DRIVER ), properties.getProperty( JDBC_URL ),
             properties.getProperty( JDBC_USER ), properties.getProperty( JDBC_PASS ),
-            properties.getProperty( RARE_WORD_TABLE ) );
+            properties.getProperty( RARE_WORD_TABLE ),
+            parseInt( properties, BATCH_SIZE, DEFAULT_BATCH_SIZE ),
+            parseInt( properties, CACHE_SIZE, DEFAULT_CACHE_SIZE ) );
    }
 
-
    public JdbcRareWordDictionary( final String name,
                                   final String jdbcDriver,
                                   final String jdbcUrl,
@@ -83,7 +100,23 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
                                   final String jdbcPass,
                                   final String tableName )
          throws SQLException {
+      this( name, jdbcDriver, jdbcUrl, jdbcUser, jdbcPass, tableName, DEFAULT_BATCH_SIZE, DEFAULT_CACHE_SIZE );
+   }
+
+
+   public JdbcRareWordDictionary( final String name,
+                                  final String jdbcDriver,
+                                  final String jdbcUrl,
+                                  final String jdbcUser,
+                                  final String jdbcPass,
+                                  final String tableName,
+                                  final int batchSize,
+                                  final int cacheSize )
+         throws SQLException {
       super( name );
+      _tableName = tableName;
+      _batchSize = batchSize;
+      _termCache = new LruCache<>( cacheSize );
       boolean connected = false;
       try {
          // DO NOT use try with resources here.  Try with resources uses a closable and closes it when exiting the try
@@ -91,6 +124,9 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
                .getConnection( jdbcDriver, jdbcUrl, jdbcUser, jdbcPass );
          connected = connection != null;
          _selectTermCall = createSelectCall( connection, tableName );
+         if ( batchSize > 1 ) {
+            _selectBatchCall = createBatchSelectCall( connection, tableName, batchSize );
+         }
       } catch ( SQLException sqlE ) {
          if ( !connected ) {
             LOGGER.error( "Could not Connect to Dictionary " + name );
@@ -100,6 +136,9 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
          throw sqlE;
       }
       LOGGER.info( "Connected to cui and term table " + tableName.toUpperCase() );
+      if ( batchSize > 1 ) {
+         LOGGER.info( "Using batches of " + batchSize + " rare words and a cache of " + cacheSize + " rare words" );
+      }
    }
 
 
@@ -108,25 +147,111 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
     */
    @Override
    public Collection<RareWordTerm> getRareWordHits( final String rareWordText ) {
+      final Collection<RareWordTerm> cachedTerms = _termCache.get( rareWordText );
+      if ( cachedTerms != null ) {
+         return cachedTerms;
+      }
       final List<RareWordTerm> rareWordTerms = new ArrayList<>();
       try {
          fillSelectCall( rareWordText );
+         _queryCount++;
          final ResultSet resultSet = _selectTermCall.executeQuery();
          while ( resultSet.next() ) {
-            final RareWordTerm rareWordTerm = new RareWordTerm( resultSet.getString( FIELD_INDEX.TEXT.__index ),
-                  resultSet.getLong( FIELD_INDEX.CUI.__index ),
-                  resultSet.getString( FIELD_INDEX.RWORD.__index ),
-                  resultSet.getInt( FIELD_INDEX.RINDEX.__index ),
-                  resultSet.getInt( FIELD_INDEX.TCOUNT.__index ) );
-            rareWordTerms.add( rareWordTerm );
+            rareWordTerms.add( createRareWordTerm( resultSet ) );
          }
          // Though the ResultSet interface documentation states that there are automatic closures,
          // it is up to the driver to implement this behavior ...  historically some drivers have not done so
          resultSet.close();
       } catch ( SQLException e ) {
          LOGGER.error( e.getMessage() );
+         return rareWordTerms;
+      }
+      final Collection<RareWordTerm> terms = Collections.unmodifiableList( rareWordTerms );
+      _termCache.put( rareWordText, terms );
+      return terms;
+   }
+
+   /**
+    * Fetches the terms for all rare words that are not already cached with one query per {@code batchSize} words.
+    * Rare words without terms are cached as well, so they are not queried again.
+    * {@inheritDoc}
+    */
+   @Override
+   public void prefetchRareWordHits( final Collection<String> rareWordTexts ) {
+      if ( _selectBatchCall == null || !_termCache.isEnabled() ) {
+         return;
+      }
+      final List<String> uncached = new ArrayList<>();
+      for ( String rareWordText : new HashSet<>( rareWordTexts ) ) {
+         if ( rareWordText != null && _termCache.get( rareWordText ) == null ) {
+            uncached.add( rareWordText );
+         }
+      }
+      for ( int i = 0; i < uncached.size(); i += _batchSize ) {
+         final List<String> batch = uncached.subList( i, Math.min( i + _batchSize, uncached.size() ) );
+         final Map<String, List<RareWordTerm>> batchTerms = new HashMap<>( batch.size() );
+         for ( String rareWordText : batch ) {
+            batchTerms.put( rareWordText, new ArrayList<>() );
+         }
+         try {
+            fillBatchSelectCall( batch );
+            _queryCount++;
+            final ResultSet resultSet = _selectBatchCall.executeQuery();
+            while ( resultSet.next() ) {
+               final RareWordTerm rareWordTerm = createRareWordTerm( resultSet );
+               final List<RareWordTerm> terms = batchTerms.get( rareWordTerm.getRareWord() );
+               if ( terms != null ) {
+                  terms.add( rareWordTerm );
+               }
+            }
+            resultSet.close();
+         } catch ( SQLException e ) {
+            LOGGER.error( e.getMessage() );
+            return;
+         }
+         for ( Map.Entry<String, List<RareWordTerm>> entry : batchTerms.entrySet() ) {
+            _termCache.put( entry.getKey(), Collections.unmodifiableList( entry.getValue() ) );
+         }
+      }
+   }
+
+   /**
+    * @return number of queries sent to the database by this dictionary
+    */
+   public long getQueryCount() {
+      return _queryCount;
+   }
+
+   /**
+    * Reads every term in the table.  Used to convert the table to other dictionary formats.
+    *
+    * @return Map with a Rare Word (tokens) as key, and RareWordTerm Collection as value
+    */
+   CollectionMap<String, RareWordTerm, List<RareWordTerm>> createRareWordTermMap() {
+      final CollectionMap<String, RareWordTerm, List<RareWordTerm>> rareWordTermMap = new ArrayListMap<>();
+      try ( Statement statement = _selectTermCall.getConnection().createStatement();
+            ResultSet resultSet = statement.executeQuery( "SELECT * FROM " + _tableName ) ) {
+         while ( resultSet.next() ) {
+            final RareWordTerm rareWordTerm = createRareWordTerm( resultSet );
+            rareWordTermMap.placeValue( rareWordTerm.getRareWord(), rareWordTerm );
+         }
+      } catch ( SQLException sqlE ) {
+         LOGGER.error( "Could not read all terms from " + _tableName, sqlE );
       }
-      return rareWordTerms;
+      return rareWordTermMap;
+   }
+
+   /**
+    * @param resultSet result set positioned at a term row
+    * @return term for the row
+    * @throws SQLException if the row could not be read
+    */
+   static private RareWordTerm createRareWordTerm( final ResultSet resultSet ) throws SQLException {
+      return new RareWordTerm( resultSet.getString( FIELD_INDEX.TEXT.__index ),
+            resultSet.getLong( FIELD_INDEX.CUI.__index ),
+            resultSet.getString( FIELD_INDEX.RWORD.__index ),
+            resultSet.getInt( FIELD_INDEX.RINDEX.__index ),
+            resultSet.getInt( FIELD_INDEX.TCOUNT.__index ) );
    }
 
    /**
@@ -150,5 +275,45 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
       return _selectTermCall;
    }
 
+   /**
+    * @return an sql call to use for term lookup of several rare words
+    * @throws SQLException if the {@code PreparedStatement} could not be created or changed
+    */
+   static private PreparedStatement createBatchSelectCall( final Connection connection, final String tableName,
+                                                           final int batchSize ) throws SQLException {
+      final StringBuilder sb = new StringBuilder( "SELECT * FROM " ).append( tableName ).append( " WHERE RWORD IN (?" );
+      for ( int i = 1; i < batchSize; i++ ) {
+         sb.append( ",?" );
+      }
+      sb.append( ')' );
+      return connection.prepareStatement( sb.toString() );
+   }
+
+   /**
+    * A short batch repeats its last rare word so that a single prepared statement can be used for all batches
+    *
+    * @param rareWordTexts texts of the rare words to use for term lookup, no more than the batch size
+    * @throws SQLException if the {@code PreparedStatement} could not be changed
+    */
+   private void fillBatchSelectCall( final List<String> rareWordTexts ) throws SQLException {
+      _selectBatchCall.clearParameters();
+      final String lastText = rareWordTexts.get( rareWordTexts.size() - 1 );
+      for ( int i = 0; i < _batchSize; i++ ) {
+         _selectBatchCall.setString( i + 1, i < rareWordTexts.size() ? rareWordTexts.get( i ) : lastText );
+      }
+   }
+
+   static private int parseInt( final Properties properties, final String key, final int defaultValue ) {
+      final String value = properties.getProperty( key );
+      if ( value == null || value.trim().isEmpty() ) {
+         return defaultValue;
+      }
+      try {
+         return Integer.parseInt( value.trim() );
+      } catch ( NumberFormatException nfE ) {
+         LOGGER.error( "Could not parse " + key + " " + value + " , using " + defaultValue );
+         return defaultValue;
+      }
+   }
 
 }
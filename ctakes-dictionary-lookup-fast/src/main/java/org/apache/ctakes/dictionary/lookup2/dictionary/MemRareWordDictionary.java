@@ -19,6 +19,7 @@
 package org.apache.ctakes.dictionary.lookup2.dictionary;
 
 import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.ImmutableCollectionMap;
 import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
 
 import java.util.Collection;
@@ -43,7 +44,7 @@ final public class MemRareWordDictionary extends AbstractRareWordDictionary {
    public MemRareWordDictionary( final String name,
                                  final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap ) {
       super( name );
-      _rareWordTermMap = rareWordTermMap;
+      _rareWordTermMap = new ImmutableCollectionMap<>( rareWordTermMap );
    }
 
    /**
@@ -54,4 +55,20 @@ final public class MemRareWordDictionary extends AbstractRareWordDictionary {
       return _rareWordTermMap.getCollection( rareWordText );
    }
 
+   /**
+    * @return Map with a Rare Word (tokens) as key, and RareWordTerm Collection as value
+    */
+   CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> getRareWordTermMap() {
+      return _rareWordTermMap;
+   }
+
+   /**
+    * The rare word map is never changed after construction, so lookups can be made by any number of threads.
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isThreadSafe() {
+      return true;
+   }
+
 }
@@ -56,4 +56,24 @@ public interface RareWordDictionary {
     */
    public Collection<RareWordTerm> getRareWordHits( final String rareWordText );
 
+   /**
+    * Called with all lookup texts of a document before any calls to {@link #getRareWordHits}.
+    * Dictionaries with a high per-lookup cost (e.g. a database round trip) can resolve all texts at once
+    * and answer the following calls from memory.  The default does nothing.
+    *
+    * @param rareWordTexts texts of all lookup tokens and their variants in a document
+    */
+   default void prefetchRareWordHits( final Collection<String> rareWordTexts ) {
+   }
+
+   /**
+    * A dictionary is thread safe if {@link #getRareWordHits} can be called by multiple threads at the same time
+    * without any external locking.  Dictionaries backed by a shared jdbc statement are not.
+    *
+    * @return true if this dictionary can be shared by multiple threads without locking
+    */
+   default boolean isThreadSafe() {
+      return false;
+   }
+
 }
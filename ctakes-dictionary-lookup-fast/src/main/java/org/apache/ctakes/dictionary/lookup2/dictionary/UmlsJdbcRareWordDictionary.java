@@ -56,5 +56,20 @@ final public class UmlsJdbcRareWordDictionary implements RareWordDictionary {
       return _delegateDictionary.getRareWordHits( rareWordText );
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void prefetchRareWordHits( final Collection<String> rareWordTexts ) {
+      _delegateDictionary.prefetchRareWordHits( rareWordTexts );
+   }
+
+   /**
+    * @return the dictionary used for lookup
+    */
+   RareWordDictionary getDelegateDictionary() {
+      return _delegateDictionary;
+   }
+
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utilities for the buffers that hold compact and memory-mapped dictionary data.
+ */
+final public class BufferUtil {
+
+   private BufferUtil() {
+   }
+
+   /**
+    * The position and limit of the given buffer are not changed, so a buffer shared by several threads
+    * can be sliced at any time.
+    *
+    * @param buffer buffer to slice
+    * @param start  position of the first byte of the slice in the buffer
+    * @param length number of bytes in the slice
+    * @return a buffer over the bytes start to start + length of the given buffer
+    * @throws ArithmeticException if the slice ends beyond the largest int position of a buffer
+    */
+   static public ByteBuffer slice( final ByteBuffer buffer, final long start, final int length ) {
+      final ByteBuffer duplicate = buffer.duplicate();
+      duplicate.limit( Math.toIntExact( start + length ) );
+      duplicate.position( (int)start );
+      return duplicate.slice();
+   }
+
+}
@@ -5,6 +5,7 @@ import org.apache.log4j.Logger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Author: SPF
@@ -19,9 +20,10 @@ public enum CuiCodeUtil {
    }
 
    static private final Logger LOGGER = Logger.getLogger( "CuiCodeUtil" );
-   static private final long PREFIX_MULTIPLIER = 100000000;
+   static public final long PREFIX_MULTIPLIER = 100000000;
 
-   final private List<PrefixerPair> _prefixerPairList = new ArrayList<>();
+   // Prefixes are only added while dictionaries load, lookups read the list from many threads without locking
+   final private List<PrefixerPair> _prefixerPairList = new CopyOnWriteArrayList<>();
 
    private CuiCodeUtil() {
       // Add the standard C as the default encoding prefix
@@ -42,13 +44,33 @@ public enum CuiCodeUtil {
       final PrefixerPair prefixerPair = new PrefixerPair( cui );
       int prefixerIndex = _prefixerPairList.indexOf( prefixerPair );
       if ( prefixerIndex < 0 ) {
-         prefixerIndex = _prefixerPairList.size();
-         _prefixerPairList.add( prefixerPair );
+         synchronized ( _prefixerPairList ) {
+            prefixerIndex = _prefixerPairList.indexOf( prefixerPair );
+            if ( prefixerIndex < 0 ) {
+               prefixerIndex = _prefixerPairList.size();
+               _prefixerPairList.add( prefixerPair );
+            }
+         }
       }
       return prefixerPair.getCuiCode( cui, prefixerIndex );
    }
 
 
+   /**
+    * Cui codes depend upon the order in which cui prefixes are registered.
+    * The returned list can be used to register the same prefixes in another jvm.
+    *
+    * @return a cui with a zero code for each registered prefix, in order of registration
+    */
+   public List<String> getPrefixCuis() {
+      final List<String> prefixCuis = new ArrayList<>( _prefixerPairList.size() );
+      for ( int i = 0; i < _prefixerPairList.size(); i++ ) {
+         prefixCuis.add( _prefixerPairList.get( i ).getAsCui( 0L ) );
+      }
+      return prefixCuis;
+   }
+
+
    static private final class PrefixerPair {
       final private int __digitCount;
       final private char[] __prefix;
@@ -49,6 +49,10 @@ final public class DefaultDictionarySpec implements DictionarySpec {
       public Collection<RareWordTerm> getRareWordHits( final String rareWordText ) {
          return Collections.emptySet();
       }
+
+      public boolean isThreadSafe() {
+         return true;
+      }
    };
 
    static private final ConceptFactory EMPTY_CONCEPT_FACTORY = new ConceptFactory() {
@@ -63,6 +67,10 @@ final public class DefaultDictionarySpec implements DictionarySpec {
       public Map<Long, Concept> createConcepts( final Collection<Long> cuiCodes ) {
          return Collections.emptyMap();
       }
+
+      public boolean isThreadSafe() {
+         return true;
+      }
    };
 
    final private Collection<String> _pairNames;
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * A single versioned binary file holding prebuilt dictionaries and concept tables.
+ * <p>
+ * The file is memory-mapped read only.  Dictionaries and concept factories read directly from the mapped pages,
+ * so nothing is parsed and no objects are created per term or per concept when the image is opened.
+ * Every jvm on a host that opens the same image shares the same pages in the operating system page cache.
+ * Within a jvm each image file is mapped only once.
+ * </p>
+ * Images are created with {@link DictionaryImageCompiler}.
+ * <p>
+ * File layout, all values big-endian:
+ * <pre>
+ *    long  magic "cTAKESDI"
+ *    int   version
+ *    int   cui prefix count
+ *    per prefix:  int length, char[] zero-code cui with the prefix, in order of prefix registration
+ *    int   entry count
+ *    per entry:   int type (1 dictionary, 2 concepts), int name length, char[] name,
+ *                 long first section offset, int first section length,
+ *                 long second section offset, int second section length
+ *    sections, each starting on an 8 byte boundary
+ * </pre>
+ * For dictionaries the sections are a {@link TokenIdTable} and the term buffer of a compact dictionary.
+ * For concept tables the sections are a {@link TokenIdTable} of strings and the concept buffer of a compact
+ * concept factory.
+ * </p>
+ */
+final public class DictionaryImage {
+
+   static private final Logger LOGGER = Logger.getLogger( "DictionaryImage" );
+
+   // "cTAKESDI"
+   static private final long MAGIC = 0x6354414b45534449L;
+   static public final int VERSION = 1;
+
+   static private final int DICTIONARY_ENTRY = 1;
+   static private final int CONCEPT_ENTRY = 2;
+
+   static private final Map<String, DictionaryImage> OPEN_IMAGES = new HashMap<>();
+
+   final private String _imagePath;
+   final private Map<String, ByteBuffer[]> _dictionarySections = new HashMap<>();
+   final private Map<String, ByteBuffer[]> _conceptSections = new HashMap<>();
+   final private CuiCodeMap _cuiCodeMap;
+
+   /**
+    * @param imagePath path to an image file
+    * @return the image, mapped only once per jvm
+    * @throws IOException if the image cannot be found, read or has the wrong version
+    */
+   static public DictionaryImage getImage( final String imagePath ) throws IOException {
+      final File file = FileLocator.getFile( imagePath );
+      final String canonicalPath = file.getCanonicalPath();
+      synchronized ( OPEN_IMAGES ) {
+         DictionaryImage image = OPEN_IMAGES.get( canonicalPath );
+         if ( image == null ) {
+            image = new DictionaryImage( canonicalPath, mapFile( file ) );
+            OPEN_IMAGES.put( canonicalPath, image );
+         }
+         return image;
+      }
+   }
+
+   private DictionaryImage( final String imagePath, final ByteBuffer buffer ) throws IOException {
+      _imagePath = imagePath;
+      if ( buffer.getLong() != MAGIC ) {
+         throw new IOException( imagePath + " is not a dictionary image" );
+      }
+      final int version = buffer.getInt();
+      if ( version != VERSION ) {
+         throw new IOException( imagePath + " has image version " + version + ", expected " + VERSION
+                                + ".  Please recompile the image with DictionaryImageCompiler." );
+      }
+      final int prefixCount = buffer.getInt();
+      final List<String> prefixCuis = new ArrayList<>( prefixCount );
+      for ( int i = 0; i < prefixCount; i++ ) {
+         prefixCuis.add( getString( buffer ) );
+      }
+      _cuiCodeMap = new CuiCodeMap( prefixCuis );
+      final int entryCount = buffer.getInt();
+      for ( int i = 0; i < entryCount; i++ ) {
+         final int type = buffer.getInt();
+         final String name = getString( buffer );
+         final ByteBuffer first = BufferUtil.slice( buffer, buffer.getLong(), buffer.getInt() );
+         final ByteBuffer second = BufferUtil.slice( buffer, buffer.getLong(), buffer.getInt() );
+         if ( type == DICTIONARY_ENTRY ) {
+            _dictionarySections.put( name, new ByteBuffer[] { first, second } );
+         } else if ( type == CONCEPT_ENTRY ) {
+            _conceptSections.put( name, new ByteBuffer[] { first, second } );
+         } else {
+            LOGGER.warn( "Unknown entry type " + type + " for " + name + " in " + imagePath );
+         }
+      }
+      LOGGER.info( "Mapped dictionary image " + imagePath + " with dictionaries " + _dictionarySections.keySet()
+                   + " and concept tables " + _conceptSections.keySet() );
+   }
+
+   /**
+    * @param name name of a dictionary in the image
+    * @return the token table of the dictionary
+    * @throws IOException if the dictionary is not in the image
+    */
+   public TokenIdTable getDictionaryTokenTable( final String name ) throws IOException {
+      return new TokenIdTable( getSection( _dictionarySections, name, "dictionary" )[ 0 ] );
+   }
+
+   /**
+    * @param name name of a dictionary in the image
+    * @return the term buffer of the dictionary
+    * @throws IOException if the dictionary is not in the image
+    */
+   public ByteBuffer getDictionaryTermBuffer( final String name ) throws IOException {
+      return getSection( _dictionarySections, name, "dictionary" )[ 1 ].duplicate();
+   }
+
+   /**
+    * @param name name of a concept table in the image
+    * @return the string table of the concept table
+    * @throws IOException if the concept table is not in the image
+    */
+   public TokenIdTable getConceptStringTable( final String name ) throws IOException {
+      return new TokenIdTable( getSection( _conceptSections, name, "concept table" )[ 0 ] );
+   }
+
+   /**
+    * @param name name of a concept table in the image
+    * @return the concept buffer of the concept table
+    * @throws IOException if the concept table is not in the image
+    */
+   public ByteBuffer getConceptBuffer( final String name ) throws IOException {
+      return getSection( _conceptSections, name, "concept table" )[ 1 ].duplicate();
+   }
+
+   /**
+    * @return map of cui codes in the image to cui codes in this jvm
+    */
+   public CuiCodeMap getCuiCodeMap() {
+      return _cuiCodeMap;
+   }
+
+   private ByteBuffer[] getSection( final Map<String, ByteBuffer[]> sections, final String name,
+                                    final String type ) throws IOException {
+      final ByteBuffer[] section = sections.get( name );
+      if ( section == null ) {
+         throw new IOException( "No " + type + " named " + name + " in " + _imagePath
+                                + ", available are " + sections.keySet() );
+      }
+      return section;
+   }
+
+   /**
+    * Write an image file
+    *
+    * @param file            file to write
+    * @param dictionaries    map of dictionary names to token table and term buffer
+    * @param conceptSections map of concept table names to string table and concept buffer
+    * @throws IOException if the file cannot be written
+    */
+   static public void writeImage( final File file,
+                                  final Map<String, ByteBuffer[]> dictionaries,
+                                  final Map<String, ByteBuffer[]> conceptSections ) throws IOException {
+      final List<String> prefixCuis = CuiCodeUtil.getInstance().getPrefixCuis();
+      int headerLength = Long.BYTES + 3 * Integer.BYTES;
+      for ( String prefixCui : prefixCuis ) {
+         headerLength += Integer.BYTES + prefixCui.length() * Character.BYTES;
+      }
+      final Collection<String> names = new ArrayList<>( dictionaries.keySet() );
+      names.addAll( conceptSections.keySet() );
+      for ( String name : names ) {
+         headerLength += 2 * Integer.BYTES + name.length() * Character.BYTES + 2 * (Long.BYTES + Integer.BYTES);
+      }
+      final ByteBuffer header = ByteBuffer.allocate( headerLength );
+      header.putLong( MAGIC );
+      header.putInt( VERSION );
+      header.putInt( prefixCuis.size() );
+      for ( String prefixCui : prefixCuis ) {
+         putString( header, prefixCui );
+      }
+      header.putInt( dictionaries.size() + conceptSections.size() );
+      final List<ByteBuffer> sections = new ArrayList<>();
+      long offset = align( headerLength );
+      for ( int type = DICTIONARY_ENTRY; type <= CONCEPT_ENTRY; type++ ) {
+         final Map<String, ByteBuffer[]> entries = type == DICTIONARY_ENTRY ? dictionaries : conceptSections;
+         for ( Map.Entry<String, ByteBuffer[]> entry : entries.entrySet() ) {
+            header.putInt( type );
+            putString( header, entry.getKey() );
+            for ( ByteBuffer section : entry.getValue() ) {
+               header.putLong( offset );
+               header.putInt( section.remaining() );
+               sections.add( section );
+               offset = align( offset + section.remaining() );
+            }
+         }
+      }
+      header.flip();
+      try ( RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" );
+            FileChannel channel = randomAccessFile.getChannel() ) {
+         channel.truncate( 0 );
+         writeFully( channel, header, 0 );
+         long position = align( headerLength );
+         for ( ByteBuffer section : sections ) {
+            final int length = section.remaining();
+            writeFully( channel, section.duplicate(), position );
+            position = align( position + length );
+         }
+         // pad the final section
+         if ( channel.size() < position ) {
+            writeFully( channel, ByteBuffer.allocate( (int)(position - channel.size()) ), channel.size() );
+         }
+         channel.force( true );
+      }
+   }
+
+   static private void writeFully( final FileChannel channel, final ByteBuffer buffer, final long position )
+         throws IOException {
+      long writePosition = position;
+      while ( buffer.hasRemaining() ) {
+         writePosition += channel.write( buffer, writePosition );
+      }
+   }
+
+   static private ByteBuffer mapFile( final File file ) throws IOException {
+      try ( RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+            FileChannel channel = randomAccessFile.getChannel() ) {
+         if ( channel.size() > Integer.MAX_VALUE ) {
+            throw new IOException( file.getPath() + " is larger than the 2GB that can be mapped at once" );
+         }
+         // The mapping remains valid after the channel is closed
+         return channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      }
+   }
+
+   static private long align( final long offset ) {
+      return (offset + 7) & ~7L;
+   }
+
+   static private void putString( final ByteBuffer buffer, final String text ) {
+      buffer.putInt( text.length() );
+      for ( int i = 0; i < text.length(); i++ ) {
+         buffer.putChar( text.charAt( i ) );
+      }
+   }
+
+   static private String getString( final ByteBuffer buffer ) {
+      final char[] chars = new char[ buffer.getInt() ];
+      for ( int i = 0; i < chars.length; i++ ) {
+         chars[ i ] = buffer.getChar();
+      }
+      return new String( chars );
+   }
+
+
+   /**
+    * Cui codes depend upon the order in which cui prefixes were registered with {@link CuiCodeUtil}.
+    * Maps codes stored in an image to codes in the current jvm and back.
+    * When all prefixes were registered in the same order, as is normal with only "C" prefixes, codes are unchanged.
+    */
+   static public final class CuiCodeMap {
+      static public final CuiCodeMap IDENTITY = new CuiCodeMap( Collections.emptyList() );
+
+      final private long[] __toCurrent;
+      final private Map<Long, Long> __toImage;
+
+      private CuiCodeMap( final List<String> prefixCuis ) {
+         final long[] toCurrent = new long[ prefixCuis.size() ];
+         final Map<Long, Long> toImage = new HashMap<>();
+         boolean identity = true;
+         for ( int i = 0; i < prefixCuis.size(); i++ ) {
+            final long current = CuiCodeUtil.getInstance().getCuiCode( prefixCuis.get( i ) )
+                                 / CuiCodeUtil.PREFIX_MULTIPLIER;
+            toCurrent[ i ] = current;
+            toImage.put( current, (long)i );
+            identity &= current == i;
+         }
+         __toCurrent = identity ? null : toCurrent;
+         __toImage = identity ? null : toImage;
+      }
+
+      /**
+       * @param imageCode cui code stored in the image
+       * @return cui code for the same cui in this jvm
+       */
+      public long toCurrentCode( final long imageCode ) {
+         if ( __toCurrent == null ) {
+            return imageCode;
+         }
+         final int prefix = (int)(imageCode / CuiCodeUtil.PREFIX_MULTIPLIER);
+         return __toCurrent[ prefix ] * CuiCodeUtil.PREFIX_MULTIPLIER + imageCode % CuiCodeUtil.PREFIX_MULTIPLIER;
+      }
+
+      /**
+       * @param currentCode cui code in this jvm
+       * @return cui code for the same cui in the image, or -1 if the image does not contain the cui prefix
+       */
+      public long toImageCode( final long currentCode ) {
+         if ( __toImage == null ) {
+            return currentCode;
+         }
+         final Long prefix = __toImage.get( currentCode / CuiCodeUtil.PREFIX_MULTIPLIER );
+         if ( prefix == null ) {
+            return -1;
+         }
+         return prefix * CuiCodeUtil.PREFIX_MULTIPLIER + currentCode % CuiCodeUtil.PREFIX_MULTIPLIER;
+      }
+   }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.dictionary.lookup2.concept.CompactConceptFactory;
+import org.apache.ctakes.dictionary.lookup2.concept.Concept;
+import org.apache.ctakes.dictionary.lookup2.concept.ConceptFactory;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.DictionaryDescriptorParser;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.log4j.Logger;
+import org.apache.uima.analysis_engine.annotator.AnnotatorContextException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Compiles all dictionaries and concept factories in a dictionary lookup xml into a single
+ * {@link DictionaryImage} file.
+ * <p>
+ * The image can then be memory-mapped by {@link CompactRareWordDictionary} and {@link CompactConceptFactory}
+ * using the {@code imagePath} property.  Start-up needs no parsing or database access,
+ * and all pipelines in all jvms on a machine that use the same image share a single copy in the os page cache.
+ * </p>
+ * Usage: {@code DictionaryImageCompiler lookupXml imageFile}
+ */
+final public class DictionaryImageCompiler {
+
+   static private final Logger LOGGER = Logger.getLogger( "DictionaryImageCompiler" );
+
+   private DictionaryImageCompiler() {
+   }
+
+   /**
+    * @param lookupXml path to a dictionary lookup xml
+    * @param imageFile image file to write
+    * @throws AnnotatorContextException if the dictionary lookup xml could not be parsed
+    * @throws IOException               if the lookup xml could not be found or the image could not be written
+    */
+   static public void compileImage( final String lookupXml, final File imageFile )
+         throws AnnotatorContextException, IOException {
+      final DictionarySpec spec = parseSpec( lookupXml );
+      final Map<String, ByteBuffer[]> dictionaries = new HashMap<>();
+      final Map<String, CompactRareWordDictionary> compactDictionaries = new HashMap<>();
+      for ( RareWordDictionary dictionary : spec.getDictionaries() ) {
+         LOGGER.info( "Compiling Dictionary " + dictionary.getName() + " ..." );
+         final CompactRareWordDictionary compact
+               = CompactRareWordDictionary.createCompactDictionary( dictionary, false );
+         if ( compact == null ) {
+            throw new IOException( "Could not compile Dictionary " + dictionary.getName() );
+         }
+         compactDictionaries.put( dictionary.getName(), compact );
+         dictionaries.put( dictionary.getName(),
+               new ByteBuffer[] { compact.getTokenIdTable().getBuffer(), compact.getTermBuffer() } );
+      }
+      final Map<String, ByteBuffer[]> conceptSections = new HashMap<>();
+      for ( ConceptFactory conceptFactory : spec.getConceptFactories() ) {
+         LOGGER.info( "Compiling Concept Factory " + conceptFactory.getName() + " ..." );
+         final Collection<Long> cuiCodes = new HashSet<>();
+         for ( RareWordDictionary dictionary : spec.getPairedDictionaries( conceptFactory.getName() ) ) {
+            final CompactRareWordDictionary compact = compactDictionaries.get( dictionary.getName() );
+            for ( int i = 0; i < compact.getTermCount(); i++ ) {
+               cuiCodes.add( compact.getCuiCode( i ) );
+            }
+         }
+         final Map<Long, Concept> concepts = conceptFactory.createConcepts( cuiCodes );
+         final CompactConceptFactory compact
+               = new CompactConceptFactory( conceptFactory.getName(), concepts, false );
+         conceptSections.put( conceptFactory.getName(),
+               new ByteBuffer[] { compact.getStringTable().getBuffer(), compact.getConceptBuffer() } );
+      }
+      DictionaryImage.writeImage( imageFile, dictionaries, conceptSections );
+      LOGGER.info( "Wrote " + imageFile.getPath() );
+      LOGGER.info( "Use implementation " + CompactRareWordDictionary.class.getName() + " and "
+                   + CompactConceptFactory.class.getName() + " with property imagePath to load the image." );
+   }
+
+   static private DictionarySpec parseSpec( final String lookupXml )
+         throws AnnotatorContextException, FileNotFoundException {
+      return DictionaryDescriptorParser.parseDescriptor( FileLocator.getAsStream( lookupXml ), null );
+   }
+
+   /**
+    * @param args dictionary lookup xml path, image file path
+    */
+   public static void main( final String... args ) {
+      if ( args.length != 2 ) {
+         System.out.println( "Usage: DictionaryImageCompiler lookupXml imageFile" );
+         System.exit( 1 );
+      }
+      try {
+         compileImage( args[ 0 ], new File( args[ 1 ] ) );
+      } catch ( AnnotatorContextException | IOException multE ) {
+         LOGGER.error( multE.getMessage(), multE );
+         System.exit( 1 );
+      }
+   }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache that discards the least recently used entry when it is full.
+ * A maximum size of 0 or less disables the cache.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@ThreadSafe
+final public class LruCache<K, V> {
+
+   final private int _maxSize;
+   final private Map<K, V> _delegate;
+
+   /**
+    * @param maxSize maximum number of entries to keep
+    */
+   public LruCache( final int maxSize ) {
+      _maxSize = maxSize;
+      _delegate = new LinkedHashMap<K, V>( 16, 0.75f, true ) {
+         @Override
+         protected boolean removeEldestEntry( final Map.Entry<K, V> eldest ) {
+            return size() > _maxSize;
+         }
+      };
+   }
+
+   /**
+    * @return true if entries are kept
+    */
+   public boolean isEnabled() {
+      return _maxSize > 0;
+   }
+
+   /**
+    * @param key -
+    * @return cached value or null if there is none
+    */
+   synchronized public V get( final K key ) {
+      return _delegate.get( key );
+   }
+
+   /**
+    * @param key   -
+    * @param value -
+    */
+   synchronized public void put( final K key, final V value ) {
+      if ( _maxSize > 0 ) {
+         _delegate.put( key, value );
+      }
+   }
+
+   /**
+    * @return number of cached entries
+    */
+   synchronized public int size() {
+      return _delegate.size();
+   }
+
+   synchronized public void clear() {
+      _delegate.clear();
+   }
+
+}
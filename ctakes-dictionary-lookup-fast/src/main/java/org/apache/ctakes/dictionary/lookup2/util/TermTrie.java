@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+
+/**
+ * A token-level trie of all terms in a {@link CompactRareWordDictionary}.
+ * <p>
+ * Each edge is a token id of the dictionary's {@link TokenIdTable}.  Each node lists the terms whose tokens
+ * spell the path from the root to the node.  Edges are kept in an open-addressing hash table of
+ * (parent node, token id) keys, and node terms in a flat array, so no object is created for each node.
+ * </p>
+ */
+@Immutable
+final public class TermTrie {
+
+   static public final int ROOT = 0;
+   static public final int NO_NODE = -1;
+
+   static private final long EMPTY_KEY = -1L;
+
+   final private CompactRareWordDictionary _dictionary;
+   final private int _nodeCount;
+   final private long[] _edgeKeys;
+   final private int[] _edgeChildren;
+   final private int _edgeMask;
+   final private int[] _nodeTermStarts;
+   final private int[] _nodeTerms;
+   final private int[] _termRareWordIds;
+
+   /**
+    * @param dictionary dictionary with all terms to place in the trie
+    */
+   public TermTrie( final CompactRareWordDictionary dictionary ) {
+      _dictionary = dictionary;
+      final int termCount = dictionary.getTermCount();
+      final EdgeBuilder edges = new EdgeBuilder( Math.max( 16, termCount ) );
+      final int[] termNodes = new int[ termCount ];
+      for ( int term = 0; term < termCount; term++ ) {
+         int node = ROOT;
+         for ( int i = 0; i < dictionary.getTokenCount( term ) && node != NO_NODE; i++ ) {
+            final int tokenId = dictionary.getTermTokenId( term, i );
+            node = tokenId < 0 ? NO_NODE : edges.addChild( node, tokenId );
+         }
+         termNodes[ term ] = node;
+      }
+      _nodeCount = edges.__nodeCount;
+      _edgeKeys = edges.__keys;
+      _edgeChildren = edges.__children;
+      _edgeMask = _edgeKeys.length - 1;
+      // Counting sort of terms by node
+      _nodeTermStarts = new int[ _nodeCount + 1 ];
+      for ( int node : termNodes ) {
+         if ( node > ROOT ) {
+            _nodeTermStarts[ node + 1 ]++;
+         }
+      }
+      for ( int node = 0; node < _nodeCount; node++ ) {
+         _nodeTermStarts[ node + 1 ] += _nodeTermStarts[ node ];
+      }
+      _nodeTerms = new int[ _nodeTermStarts[ _nodeCount ] ];
+      final int[] nextTermIndex = Arrays.copyOf( _nodeTermStarts, _nodeCount );
+      for ( int term = 0; term < termCount; term++ ) {
+         if ( termNodes[ term ] > ROOT ) {
+            _nodeTerms[ nextTermIndex[ termNodes[ term ] ]++ ] = term;
+         }
+      }
+      _termRareWordIds = new int[ termCount ];
+      for ( int rareWordId = 0; rareWordId < dictionary.getTokenIdTable().getTokenCount(); rareWordId++ ) {
+         for ( int term = dictionary.getTermStart( rareWordId ); term < dictionary.getTermEnd( rareWordId ); term++ ) {
+            _termRareWordIds[ term ] = rareWordId;
+         }
+      }
+   }
+
+   /**
+    * @return dictionary with the terms in this trie
+    */
+   public CompactRareWordDictionary getDictionary() {
+      return _dictionary;
+   }
+
+   /**
+    * @return number of nodes in the trie, including the root
+    */
+   public int getNodeCount() {
+      return _nodeCount;
+   }
+
+   /**
+    * @param node    some node
+    * @param tokenId id of the next token
+    * @return child node along the token edge, or {@link #NO_NODE} if there is none
+    */
+   public int getChild( final int node, final int tokenId ) {
+      if ( tokenId < 0 ) {
+         return NO_NODE;
+      }
+      final long key = createKey( node, tokenId );
+      int slot = spread( key ) & _edgeMask;
+      while ( _edgeKeys[ slot ] != EMPTY_KEY ) {
+         if ( _edgeKeys[ slot ] == key ) {
+            return _edgeChildren[ slot ];
+         }
+         slot = (slot + 1) & _edgeMask;
+      }
+      return NO_NODE;
+   }
+
+   /**
+    * @param node some node
+    * @return index of the first term at the node, for use with {@link #getTerm(int)}
+    */
+   public int getTermStart( final int node ) {
+      return _nodeTermStarts[ node ];
+   }
+
+   /**
+    * @param node some node
+    * @return index after the last term at the node, for use with {@link #getTerm(int)}
+    */
+   public int getTermEnd( final int node ) {
+      return _nodeTermStarts[ node + 1 ];
+   }
+
+   /**
+    * @param index index between {@link #getTermStart(int)} and {@link #getTermEnd(int)} of a node
+    * @return term index in the dictionary
+    */
+   public int getTerm( final int index ) {
+      return _nodeTerms[ index ];
+   }
+
+   /**
+    * @param term term index in the dictionary
+    * @return token id of the rare word that the dictionary uses to look up the term
+    */
+   public int getRareWordId( final int term ) {
+      return _termRareWordIds[ term ];
+   }
+
+   static private long createKey( final int node, final int tokenId ) {
+      return ((long)node << 32) | tokenId;
+   }
+
+   static private int spread( final long key ) {
+      final int hash = (int)(key ^ (key >>> 32)) * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+   }
+
+
+   /**
+    * Growable edge table used while the trie is built
+    */
+   static private final class EdgeBuilder {
+      private long[] __keys;
+      private int[] __children;
+      private int __edgeCount;
+      private int __nodeCount = 1;
+
+      private EdgeBuilder( final int expectedEdges ) {
+         int capacity = 16;
+         while ( capacity < expectedEdges * 2 ) {
+            capacity <<= 1;
+         }
+         __keys = new long[ capacity ];
+         Arrays.fill( __keys, EMPTY_KEY );
+         __children = new int[ capacity ];
+      }
+
+      private int addChild( final int node, final int tokenId ) {
+         final long key = createKey( node, tokenId );
+         final int mask = __keys.length - 1;
+         int slot = spread( key ) & mask;
+         while ( __keys[ slot ] != EMPTY_KEY ) {
+            if ( __keys[ slot ] == key ) {
+               return __children[ slot ];
+            }
+            slot = (slot + 1) & mask;
+         }
+         __keys[ slot ] = key;
+         __children[ slot ] = __nodeCount;
+         __nodeCount++;
+         __edgeCount++;
+         if ( __edgeCount * 2 > __keys.length ) {
+            grow();
+         }
+         return __nodeCount - 1;
+      }
+
+      private void grow() {
+         final long[] oldKeys = __keys;
+         final int[] oldChildren = __children;
+         __keys = new long[ oldKeys.length * 2 ];
+         Arrays.fill( __keys, EMPTY_KEY );
+         __children = new int[ oldKeys.length * 2 ];
+         final int mask = __keys.length - 1;
+         for ( int i = 0; i < oldKeys.length; i++ ) {
+            if ( oldKeys[ i ] == EMPTY_KEY ) {
+               continue;
+            }
+            int slot = spread( oldKeys[ i ] ) & mask;
+            while ( __keys[ slot ] != EMPTY_KEY ) {
+               slot = (slot + 1) & mask;
+            }
+            __keys[ slot ] = oldKeys[ i ];
+            __children[ slot ] = oldChildren[ i ];
+         }
+      }
+   }
+
+}
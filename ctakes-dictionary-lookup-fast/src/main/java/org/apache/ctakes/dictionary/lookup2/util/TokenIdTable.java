@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.util;
+
+import javax.annotation.concurrent.Immutable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Maps token text to an integer id and back.
+ * <p>
+ * All data is kept in a single {@link ByteBuffer}, which can be on the java heap, direct (off-heap)
+ * or memory-mapped from a file.  Nothing is created on the java heap for each token.
+ * Lookup uses an open-addressing hash table with linear probing.  Only absolute buffer reads are used,
+ * so a single table can be used by any number of threads.
+ * </p>
+ * Buffer layout, all values big-endian:
+ * <pre>
+ *    int   token count  (n)
+ *    int   slot count   (s, power of 2)
+ *    int[s]   slots, token id + 1 or 0 for an empty slot
+ *    int[n+1] offsets of each token text in the character table
+ *    char[]   character table
+ * </pre>
+ */
+@Immutable
+final public class TokenIdTable {
+
+   static public final int UNKNOWN_ID = -1;
+
+   static private final int HEADER_BYTES = 2 * Integer.BYTES;
+
+   final private ByteBuffer _buffer;
+   final private int _tokenCount;
+   final private int _slotMask;
+   final private IntBuffer _slots;
+   final private IntBuffer _offsets;
+   final private CharBuffer _chars;
+
+   /**
+    * @param buffer buffer with table data, positioned at the start of the table.  Only the table bytes are used.
+    */
+   public TokenIdTable( final ByteBuffer buffer ) {
+      final ByteBuffer tableBuffer = buffer.slice();
+      _tokenCount = tableBuffer.getInt( 0 );
+      final int slotCount = tableBuffer.getInt( Integer.BYTES );
+      _slotMask = slotCount - 1;
+      _slots = BufferUtil.slice( tableBuffer, HEADER_BYTES, slotCount * Integer.BYTES ).asIntBuffer();
+      final int offsetsStart = HEADER_BYTES + slotCount * Integer.BYTES;
+      _offsets = BufferUtil.slice( tableBuffer, offsetsStart, (_tokenCount + 1) * Integer.BYTES ).asIntBuffer();
+      final int charsStart = offsetsStart + (_tokenCount + 1) * Integer.BYTES;
+      final int charCount = _offsets.get( _tokenCount );
+      _chars = BufferUtil.slice( tableBuffer, charsStart, charCount * Character.BYTES ).asCharBuffer();
+      _buffer = BufferUtil.slice( tableBuffer, 0, charsStart + charCount * Character.BYTES );
+   }
+
+   /**
+    * @param tokens  unique token texts.  The id of each token is its index in the list.
+    * @param offHeap true to place the table in direct (off-heap) memory
+    * @return a table for the given tokens
+    */
+   static public TokenIdTable createTable( final List<String> tokens, final boolean offHeap ) {
+      final int tokenCount = tokens.size();
+      final int slotCount = getSlotCount( tokenCount );
+      int charCount = 0;
+      for ( String token : tokens ) {
+         charCount += token.length();
+      }
+      final int byteCount = HEADER_BYTES + slotCount * Integer.BYTES + (tokenCount + 1) * Integer.BYTES
+                            + charCount * Character.BYTES;
+      final ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect( byteCount ) : ByteBuffer.allocate( byteCount );
+      buffer.putInt( tokenCount );
+      buffer.putInt( slotCount );
+      final int slotsStart = buffer.position();
+      final int slotMask = slotCount - 1;
+      for ( int id = 0; id < tokenCount; id++ ) {
+         int slot = spread( tokens.get( id ).hashCode() ) & slotMask;
+         while ( buffer.getInt( slotsStart + slot * Integer.BYTES ) != 0 ) {
+            slot = (slot + 1) & slotMask;
+         }
+         buffer.putInt( slotsStart + slot * Integer.BYTES, id + 1 );
+      }
+      buffer.position( slotsStart + slotCount * Integer.BYTES );
+      int offset = 0;
+      for ( String token : tokens ) {
+         buffer.putInt( offset );
+         offset += token.length();
+      }
+      buffer.putInt( offset );
+      for ( String token : tokens ) {
+         for ( int i = 0; i < token.length(); i++ ) {
+            buffer.putChar( token.charAt( i ) );
+         }
+      }
+      buffer.flip();
+      return new TokenIdTable( buffer );
+   }
+
+   /**
+    * @param text some token text
+    * @return the id of the text or {@link #UNKNOWN_ID} if the text is not in the table
+    */
+   public int getId( final String text ) {
+      if ( text == null ) {
+         return UNKNOWN_ID;
+      }
+      int slot = spread( text.hashCode() ) & _slotMask;
+      int slotValue = _slots.get( slot );
+      while ( slotValue != 0 ) {
+         if ( isText( slotValue - 1, text ) ) {
+            return slotValue - 1;
+         }
+         slot = (slot + 1) & _slotMask;
+         slotValue = _slots.get( slot );
+      }
+      return UNKNOWN_ID;
+   }
+
+   /**
+    * @param id token id
+    * @return text of the token with the given id
+    */
+   public String getText( final int id ) {
+      final int start = _offsets.get( id );
+      final int end = _offsets.get( id + 1 );
+      final char[] chars = new char[ end - start ];
+      for ( int i = 0; i < chars.length; i++ ) {
+         chars[ i ] = _chars.get( start + i );
+      }
+      return new String( chars );
+   }
+
+   /**
+    * @param id token id
+    * @return number of characters in the token with the given id
+    */
+   public int getTextLength( final int id ) {
+      return _offsets.get( id + 1 ) - _offsets.get( id );
+   }
+
+   /**
+    * @return number of tokens in the table
+    */
+   public int getTokenCount() {
+      return _tokenCount;
+   }
+
+   /**
+    * @return a read only view of the table data, suitable for writing to a file
+    */
+   public ByteBuffer getBuffer() {
+      return _buffer.asReadOnlyBuffer();
+   }
+
+   private boolean isText( final int id, final String text ) {
+      final int start = _offsets.get( id );
+      if ( _offsets.get( id + 1 ) - start != text.length() ) {
+         return false;
+      }
+      for ( int i = 0; i < text.length(); i++ ) {
+         if ( _chars.get( start + i ) != text.charAt( i ) ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @param tokenCount number of tokens
+    * @return power of 2 slot count that keeps the table at most half full
+    */
+   static private int getSlotCount( final int tokenCount ) {
+      int slotCount = 2;
+      while ( slotCount < tokenCount * 2 ) {
+         slotCount <<= 1;
+      }
+      return slotCount;
+   }
+
+   /**
+    * String hash codes are weak in the lower bits, so spread the upper bits downward as is done by HashMap
+    *
+    * @param hashCode string hash code
+    * @return spread hash code
+    */
+   static private int spread( final int hashCode ) {
+      return hashCode ^ (hashCode >>> 16);
+   }
+
+}
@@ -0,0 +1,139 @@
+package org.apache.ctakes.dictionary.lookup2.ae;
+
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.dictionary.CompactRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.MemRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
+import org.apache.ctakes.dictionary.lookup2.util.FastLookupToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the trie annotator finds exactly the same terms as the default annotator,
+ * and that neither matches a term with unknown tokens.
+ */
+final public class TrieJCasTermAnnotatorTest {
+
+   static private final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> RARE_WORD_TERM_MAP
+         = RareWordTermMapCreator.createRareWordTermMap( Arrays.asList(
+         new CuiTerm( "C0027051", "myocardial infarction" ),
+         new CuiTerm( "C0027051", "heart attack" ),
+         new CuiTerm( "C0018787", "heart" ),
+         new CuiTerm( "C0018802", "congestive heart failure" ),
+         new CuiTerm( "C0018801", "heart failure" ),
+         new CuiTerm( "C0011849", "diabetes mellitus" ),
+         new CuiTerm( "C0011860", "type 2 diabetes mellitus" ),
+         new CuiTerm( "C0020538", "hypertension" ),
+         new CuiTerm( "C0020538", "high blood pressure" ),
+         new CuiTerm( "C0005767", "blood" ),
+         new CuiTerm( "C0001234", "ab" ) ) );
+
+   static private final String[] WORDS = { "myocardial", "infarction", "heart", "attack", "congestive", "failure",
+                                           "diabetes", "mellitus", "type", "2", "hypertension", "high", "blood",
+                                           "pressure", "ab", "the", "of", ",", "with", "hearts", "attacks" };
+
+   static private final Map<String, String> VARIANTS = new HashMap<>();
+
+   static {
+      VARIANTS.put( "hearts", "heart" );
+      VARIANTS.put( "attacks", "attack" );
+      VARIANTS.put( "pressure", "pressures" );
+   }
+
+   @Test
+   public void testSameTerms() throws UIMAException {
+      final Random random = new Random( 17 );
+      final JCas jcas = JCasFactory.createJCas();
+      final List<List<FastLookupToken>> windows = new ArrayList<>();
+      final StringBuilder sb = new StringBuilder();
+      final List<int[]> windowBounds = new ArrayList<>();
+      for ( int w = 0; w < 200; w++ ) {
+         final int first = windowBounds.isEmpty() ? 0 : windowBounds.get( windowBounds.size() - 1 )[ 1 ];
+         final int length = 1 + random.nextInt( 12 );
+         for ( int i = 0; i < length; i++ ) {
+            sb.append( WORDS[ random.nextInt( WORDS.length ) ] ).append( ' ' );
+         }
+         windowBounds.add( new int[] { first, first + length } );
+      }
+      jcas.setDocumentText( sb.toString() );
+      final List<WordToken> wordTokens = new ArrayList<>();
+      int begin = 0;
+      for ( String word : sb.toString().split( " " ) ) {
+         final WordToken wordToken = new WordToken( jcas, begin, begin + word.length() );
+         wordToken.setCanonicalForm( VARIANTS.get( word ) );
+         wordTokens.add( wordToken );
+         begin += word.length() + 1;
+      }
+      for ( int[] bounds : windowBounds ) {
+         final List<FastLookupToken> window = new ArrayList<>();
+         for ( int i = bounds[ 0 ]; i < bounds[ 1 ]; i++ ) {
+            window.add( new FastLookupToken( wordTokens.get( i ) ) );
+         }
+         windows.add( window );
+      }
+      final RareWordDictionary memDictionary = new MemRareWordDictionary( "mem", RARE_WORD_TERM_MAP );
+      final RareWordDictionary compactDictionary
+            = new CompactRareWordDictionary( "compact", RARE_WORD_TERM_MAP, false );
+      final JCasTermAnnotator defaultAnnotator = new DefaultJCasTermAnnotator();
+      final JCasTermAnnotator trieAnnotator = new TrieJCasTermAnnotator();
+      int foundCount = 0;
+      for ( RareWordDictionary dictionary : Arrays.asList( memDictionary, compactDictionary ) ) {
+         for ( List<FastLookupToken> window : windows ) {
+            final List<Integer> lookupTokenIndices = new ArrayList<>();
+            for ( int i = 0; i < window.size(); i++ ) {
+               // skip some tokens, as is done for excluded parts of speech
+               if ( random.nextInt( 5 ) != 0 ) {
+                  lookupTokenIndices.add( i );
+               }
+            }
+            final CollectionMap<TextSpan, Long, ? extends Collection<Long>> defaultTerms = new HashSetMap<>();
+            final CollectionMap<TextSpan, Long, ? extends Collection<Long>> trieTerms = new HashSetMap<>();
+            defaultAnnotator.findTerms( dictionary, window, lookupTokenIndices, defaultTerms );
+            trieAnnotator.findTerms( dictionary, window, lookupTokenIndices, trieTerms );
+            assertEquals( "Different spans", defaultTerms.keySet(), trieTerms.keySet() );
+            foundCount += defaultTerms.size();
+            for ( TextSpan textSpan : defaultTerms.keySet() ) {
+               assertEquals( "Different cuis", new HashSet<>( defaultTerms.getCollection( textSpan ) ),
+                     new HashSet<>( trieTerms.getCollection( textSpan ) ) );
+            }
+         }
+      }
+      assertTrue( "No terms found", foundCount > 100 );
+   }
+
+   @Test
+   public void testMalformedTerm() throws UIMAException {
+      // A token count beyond the tokens in the text leaves the middle token of the term unknown
+      final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap = new HashSetMap<>();
+      rareWordTermMap.placeValue( "attack", new RareWordTerm( "heart attack", 27051L, "attack", 2, 3 ) );
+      final JCas jcas = JCasFactory.createJCas();
+      jcas.setDocumentText( "heart the attack" );
+      final List<FastLookupToken> window = Arrays.asList(
+            new FastLookupToken( new WordToken( jcas, 0, 5 ) ),
+            new FastLookupToken( new WordToken( jcas, 6, 9 ) ),
+            new FastLookupToken( new WordToken( jcas, 10, 16 ) ) );
+      final RareWordDictionary compactDictionary
+            = new CompactRareWordDictionary( "compact", rareWordTermMap, false );
+      for ( JCasTermAnnotator annotator : Arrays.asList( new DefaultJCasTermAnnotator(),
+            new TrieJCasTermAnnotator() ) ) {
+         final CollectionMap<TextSpan, Long, ? extends Collection<Long>> terms = new HashSetMap<>();
+         annotator.findTerms( compactDictionary, window, Arrays.asList( 0, 1, 2 ), terms );
+         assertTrue( "Malformed term matched", terms.keySet().isEmpty() );
+      }
+   }
+
+}
@@ -0,0 +1,98 @@
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.concept.CompactConceptFactory;
+import org.apache.ctakes.dictionary.lookup2.concept.Concept;
+import org.apache.ctakes.dictionary.lookup2.concept.DefaultConcept;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.util.CuiCodeUtil;
+import org.apache.ctakes.dictionary.lookup2.util.DictionaryImage;
+import org.apache.ctakes.dictionary.lookup2.util.TokenIdTable;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the compact dictionary returns the same terms as the standard in-memory dictionary.
+ */
+final public class CompactRareWordDictionaryTest {
+
+   static private final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> RARE_WORD_TERM_MAP
+         = RareWordTermMapCreator.createRareWordTermMap( Arrays.asList(
+         new CuiTerm( "C0027051", "myocardial infarction" ),
+         new CuiTerm( "C0027051", "heart attack" ),
+         new CuiTerm( "C0018787", "heart" ),
+         new CuiTerm( "C0018802", "congestive heart failure" ),
+         new CuiTerm( "C0011849", "diabetes mellitus" ),
+         new CuiTerm( "C0011860", "type 2 diabetes mellitus" ),
+         new CuiTerm( "C0020538", "hypertension" ) ) );
+
+   @Test
+   public void testSameHits() {
+      final RareWordDictionary memDictionary = new MemRareWordDictionary( "mem", RARE_WORD_TERM_MAP );
+      for ( boolean offHeap : new boolean[] { true, false } ) {
+         final CompactRareWordDictionary compactDictionary
+               = new CompactRareWordDictionary( "compact", RARE_WORD_TERM_MAP, offHeap );
+         for ( String rareWord : RARE_WORD_TERM_MAP.keySet() ) {
+            assertEquals( "Different terms for " + rareWord,
+                  new HashSet<>( memDictionary.getRareWordHits( rareWord ) ),
+                  new HashSet<>( compactDictionary.getRareWordHits( rareWord ) ) );
+         }
+         assertTrue( "Unknown word has hits", compactDictionary.getRareWordHits( "xyzzy" ).isEmpty() );
+      }
+   }
+
+   @Test
+   public void testImage() throws IOException {
+      final CompactRareWordDictionary original = new CompactRareWordDictionary( "compact", RARE_WORD_TERM_MAP, false );
+      final Long cuiCode = CuiCodeUtil.getInstance().getCuiCode( "C0027051" );
+      final Map<Long, Concept> concepts = new HashMap<>();
+      final CollectionMap<String, String, ? extends Collection<String>> codes = new HashSetMap<>();
+      codes.placeValue( Concept.TUI, "T047" );
+      concepts.put( cuiCode, new DefaultConcept( "C0027051", "Myocardial Infarction", codes ) );
+      final CompactConceptFactory conceptFactory = new CompactConceptFactory( "concepts", concepts, false );
+      final File imageFile = File.createTempFile( "CompactRareWordDictionaryTest", ".img" );
+      imageFile.deleteOnExit();
+      DictionaryImage.writeImage( imageFile,
+            Collections.singletonMap( "compact",
+                  new ByteBuffer[] { original.getTokenIdTable().getBuffer(), original.getTermBuffer() } ),
+            Collections.singletonMap( "concepts",
+                  new ByteBuffer[] { conceptFactory.getStringTable().getBuffer(), conceptFactory.getConceptBuffer() } ) );
+      final DictionaryImage image = DictionaryImage.getImage( imageFile.getPath() );
+      final CompactRareWordDictionary mapped = new CompactRareWordDictionary( "compact",
+            image.getDictionaryTokenTable( "compact" ), image.getDictionaryTermBuffer( "compact" ),
+            image.getCuiCodeMap() );
+      for ( String rareWord : RARE_WORD_TERM_MAP.keySet() ) {
+         assertEquals( "Different terms for " + rareWord,
+               new HashSet<>( original.getRareWordHits( rareWord ) ),
+               new HashSet<>( mapped.getRareWordHits( rareWord ) ) );
+      }
+      final CompactConceptFactory mappedConcepts = new CompactConceptFactory( "concepts",
+            image.getConceptStringTable( "concepts" ), image.getConceptBuffer( "concepts" ), image.getCuiCodeMap() );
+      final Concept concept = mappedConcepts.createConcept( cuiCode );
+      assertEquals( "Wrong preferred text", "Myocardial Infarction", concept.getPreferredText() );
+      assertEquals( "Wrong codes", Collections.singleton( "T047" ), new HashSet<>( concept.getCodes( Concept.TUI ) ) );
+   }
+
+   @Test
+   public void testTokenIds() {
+      final List<String> tokens = Arrays.asList( "heart", "attack", "failure", "a", "" );
+      final TokenIdTable table = TokenIdTable.createTable( tokens, true );
+      for ( int i = 0; i < tokens.size(); i++ ) {
+         assertEquals( "Wrong id for " + tokens.get( i ), i, table.getId( tokens.get( i ) ) );
+         assertEquals( "Wrong text for " + i, tokens.get( i ), table.getText( i ) );
+      }
+      assertEquals( "Unknown token has an id", TokenIdTable.UNKNOWN_ID, table.getId( "hearts" ) );
+      assertEquals( "Null token has an id", TokenIdTable.UNKNOWN_ID, table.getId( null ) );
+   }
+
+}
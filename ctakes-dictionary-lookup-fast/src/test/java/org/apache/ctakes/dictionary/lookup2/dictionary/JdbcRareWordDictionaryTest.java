@@ -0,0 +1,126 @@
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+
+import org.apache.ctakes.dictionary.lookup2.concept.Concept;
+import org.apache.ctakes.dictionary.lookup2.concept.JdbcConceptFactory;
+import org.apache.ctakes.dictionary.lookup2.util.CuiCodeUtil;
+import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that batched lookups return the same terms and concepts as single lookups, with fewer queries.
+ */
+final public class JdbcRareWordDictionaryTest {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcRareWordDictionaryTest";
+   static private final String USER = "sa";
+   static private final String PASS = "";
+
+   static private final List<String> RARE_WORDS = Arrays.asList( "infarction", "attack", "heart", "diabetes",
+         "hypertension", "xyzzy" );
+
+   @BeforeClass
+   static public void createTables() throws SQLException {
+      final Connection connection = JdbcConnectionFactory.getInstance().getConnection( DRIVER, URL, USER, PASS );
+      try ( Statement statement = connection.createStatement() ) {
+         statement.execute( "CREATE TABLE CUI_TERMS (CUI BIGINT, RINDEX INTEGER, TCOUNT INTEGER,"
+                            + " TEXT VARCHAR(255), RWORD VARCHAR(48))" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (27051, 1, 2, 'myocardial infarction', 'infarction')" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (27051, 1, 2, 'heart attack', 'attack')" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (18787, 0, 1, 'heart', 'heart')" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (18802, 2, 3, 'congestive heart failure', 'heart')" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (11849, 0, 2, 'diabetes mellitus', 'diabetes')" );
+         statement.execute( "INSERT INTO CUI_TERMS VALUES (20538, 0, 1, 'hypertension', 'hypertension')" );
+         statement.execute( "CREATE TABLE TUI (CUI BIGINT, TUI INTEGER)" );
+         statement.execute( "INSERT INTO TUI VALUES (27051, 47)" );
+         statement.execute( "INSERT INTO TUI VALUES (18787, 23)" );
+         statement.execute( "INSERT INTO TUI VALUES (11849, 47)" );
+         statement.execute( "CREATE TABLE PREFTERM (CUI BIGINT, PREFTERM VARCHAR(255))" );
+         statement.execute( "INSERT INTO PREFTERM VALUES (27051, 'Myocardial Infarction')" );
+         statement.execute( "INSERT INTO PREFTERM VALUES (18787, 'Heart')" );
+      }
+   }
+
+   @Test
+   public void testBatchedTerms() throws SQLException {
+      final JdbcRareWordDictionary single
+            = new JdbcRareWordDictionary( "single", DRIVER, URL, USER, PASS, "CUI_TERMS", 1, 0 );
+      final JdbcRareWordDictionary batched
+            = new JdbcRareWordDictionary( "batched", DRIVER, URL, USER, PASS, "CUI_TERMS", 4, 100 );
+      batched.prefetchRareWordHits( RARE_WORDS );
+      assertEquals( "Wrong number of batch queries", 2, batched.getQueryCount() );
+      for ( String rareWord : RARE_WORDS ) {
+         assertEquals( "Different terms for " + rareWord,
+               new HashSet<>( single.getRareWordHits( rareWord ) ),
+               new HashSet<>( batched.getRareWordHits( rareWord ) ) );
+      }
+      assertEquals( "Prefetched words were queried again", 2, batched.getQueryCount() );
+      assertEquals( "Wrong number of single queries", RARE_WORDS.size(), single.getQueryCount() );
+   }
+
+   @Test
+   public void testBatchedConcepts() throws SQLException {
+      final Map<String, String> conceptTables = new HashMap<>();
+      conceptTables.put( "TUITABLE", Concept.TUI );
+      conceptTables.put( "PREFTERMTABLE", Concept.PREFTERM );
+      final JdbcConceptFactory single
+            = new JdbcConceptFactory( "single", DRIVER, URL, USER, PASS, conceptTables, 1, 0 );
+      final JdbcConceptFactory batched
+            = new JdbcConceptFactory( "batched", DRIVER, URL, USER, PASS, conceptTables, 100, 100 );
+      final Collection<Long> cuiCodes = new HashSet<>();
+      for ( String cui : Arrays.asList( "C0027051", "C0018787", "C0018802", "C0011849", "C0020538" ) ) {
+         cuiCodes.add( CuiCodeUtil.getInstance().getCuiCode( cui ) );
+      }
+      final Map<Long, Concept> singleConcepts = single.createConcepts( cuiCodes );
+      final Map<Long, Concept> batchedConcepts = batched.createConcepts( cuiCodes );
+      assertEquals( "Wrong number of batch queries", 2, batched.getQueryCount() );
+      assertEquals( "Different concepts", singleConcepts.keySet(), batchedConcepts.keySet() );
+      for ( Long cuiCode : singleConcepts.keySet() ) {
+         final Concept singleConcept = singleConcepts.get( cuiCode );
+         final Concept batchedConcept = batchedConcepts.get( cuiCode );
+         assertEquals( "Different preferred text", singleConcept.getPreferredText(), batchedConcept.getPreferredText() );
+         assertEquals( "Different code names", singleConcept.getCodeNames(), batchedConcept.getCodeNames() );
+         for ( String codeName : singleConcept.getCodeNames() ) {
+            assertEquals( "Different codes", new HashSet<>( singleConcept.getCodes( codeName ) ),
+                  new HashSet<>( batchedConcept.getCodes( codeName ) ) );
+         }
+      }
+      batched.createConcepts( cuiCodes );
+      assertTrue( "Cached concepts were queried again", batched.getQueryCount() == 2 );
+   }
+
+   @Test
+   public void testFailedConceptsNotCached() throws SQLException {
+      final Connection connection = JdbcConnectionFactory.getInstance().getConnection( DRIVER, URL, USER, PASS );
+      try ( Statement statement = connection.createStatement() ) {
+         statement.execute( "CREATE TABLE LOSTTUI (CUI BIGINT, TUI INTEGER)" );
+      }
+      final JdbcConceptFactory single
+            = new JdbcConceptFactory( "single", DRIVER, URL, USER, PASS,
+            Collections.singletonMap( "LOSTTUITABLE", Concept.TUI ), 1, 100 );
+      final JdbcConceptFactory batched
+            = new JdbcConceptFactory( "batched", DRIVER, URL, USER, PASS,
+            Collections.singletonMap( "LOSTTUITABLE", Concept.TUI ), 100, 100 );
+      try ( Statement statement = connection.createStatement() ) {
+         statement.execute( "DROP TABLE LOSTTUI" );
+      }
+      final Long cuiCode = CuiCodeUtil.getInstance().getCuiCode( "C0027051" );
+      single.createConcept( cuiCode );
+      single.createConcept( cuiCode );
+      assertEquals( "Failed concept was cached", 2, single.getQueryCount() );
+      batched.createConcepts( Collections.singletonList( cuiCode ) );
+      batched.createConcepts( Collections.singletonList( cuiCode ) );
+      assertEquals( "Failed batch was cached", 2, batched.getQueryCount() );
+   }
+
+}
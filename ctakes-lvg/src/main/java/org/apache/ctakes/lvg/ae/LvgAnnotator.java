@@ -18,8 +18,6 @@
  */
 package org.apache.ctakes.lvg.ae;
 
-import gov.nih.nlm.nls.lvg.Api.LvgCmdApi;
-import gov.nih.nlm.nls.lvg.Api.LvgLexItemApi;
 import gov.nih.nlm.nls.lvg.Lib.Category;
 import gov.nih.nlm.nls.lvg.Lib.LexItem;
 
@@ -43,8 +41,10 @@ import java.util.Vector;
 import org.apache.commons.io.FileUtils;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.util.ListFactory;
+import org.apache.ctakes.lvg.resource.LvgApiPool;
 import org.apache.ctakes.lvg.resource.LvgCmdApiResource;
 import org.apache.ctakes.lvg.resource.LvgCmdApiResourceImpl;
+import org.apache.ctakes.lvg.util.LvgCache;
 import org.apache.ctakes.typesystem.type.syntax.Lemma;
 import org.apache.ctakes.typesystem.type.syntax.WordToken;
 import org.apache.ctakes.typesystem.type.textspan.Segment;
@@ -198,6 +198,45 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 	    )
 	private String[] wordsToExclude = defaultExclusionWords;
   private Set<String> exclusionSet;
+
+	/**
+	 * Value is "LvgCacheSize". This parameter sets the number of words whose
+	 * lvg results are remembered, for canonical forms and again for lemmas.
+	 */
+	public static final String PARAM_CACHE_SIZE = "LvgCacheSize";
+	@ConfigurationParameter(
+	    name = PARAM_CACHE_SIZE,
+	    mandatory = false,
+	    defaultValue = "100000",
+	    description = "Number of words whose lvg results are kept in memory, 0 to always call lvg"
+	    )
+  private int cacheSize;
+
+	/**
+	 * Value is "LvgCacheFile". This parameter sets a file from which lvg
+	 * results are loaded at initialization and to which they are saved when
+	 * the collection is complete, so later runs start with a warm cache.
+	 */
+	public static final String PARAM_CACHE_FILE = "LvgCacheFile";
+	@ConfigurationParameter(
+	    name = PARAM_CACHE_FILE,
+	    mandatory = false,
+	    description = "File to load lvg results from and save them to between runs"
+	    )
+  private String cacheFilePath;
+
+	/**
+	 * Value is "LvgPoolSize". This parameter sets the maximum number of lvg
+	 * instances used when several threads share this annotator.
+	 */
+	public static final String PARAM_POOL_SIZE = "LvgPoolSize";
+	@ConfigurationParameter(
+	    name = PARAM_POOL_SIZE,
+	    mandatory = false,
+	    defaultValue = "4",
+	    description = "Maximum number of lvg instances used by concurrent threads"
+	    )
+  private int poolSize;
   
 	// LOG4J logger based on class name
 	private Logger logger = Logger.getLogger(getClass().getName());
@@ -209,9 +248,11 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
       )
   private LvgCmdApiResource lvgResource;
       
-	private LvgCmdApi lvgCmd;
+	// lvg is not thread safe, so calls borrow an instance from the pool
+	private LvgApiPool lvgPool;
 
-	private LvgLexItemApi lvgLexItem;
+	// lvg results of words seen in this and previous runs
+	private LvgCache lvgCache;
 
 	// key = word, value = canonical word
 	private Map<String, String> normCacheMap;
@@ -232,7 +273,14 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 
 		configInit();
 		try {
-			lvgCmd = lvgResource.getLvg();
+			lvgPool = new LvgApiPool(lvgResource, poolSize);
+			lvgCache = new LvgCache(cacheSize);
+			if (cacheFilePath != null && lvgCache.isEnabled()
+					&& new File(cacheFilePath).isFile()) {
+				logger.info("Loading Lvg cache=" + cacheFilePath);
+				lvgCache.load(new File(cacheFilePath));
+				logger.info("Loaded " + lvgCache.size() + " entries");
+			}
 
 			if (useCmdCache) {
 				logger.info("Loading Cmd cache=" + cmdCacheFileLocation);
@@ -241,7 +289,6 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 			}
 
 			if (postLemmas) {
-				lvgLexItem = lvgResource.getLvgLex();
 				if (useLemmaCache) {
 					logger.info("Loading Lemma cache=" + lemmaCacheFileLocation);
 					loadLemmaCacheFile(lemmaCacheFileLocation);
@@ -253,6 +300,30 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	/**
+	 * Saves the lvg cache if a cache file was configured and logs how well the
+	 * cache worked.
+	 */
+	@Override
+	public void collectionProcessComplete()
+			throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		long hits = lvgCache.getHitCount();
+		long lookups = hits + lvgCache.getMissCount();
+		if (lookups > 0) {
+			logger.info("Lvg cache hit rate " + (100 * hits / lookups) + "% of "
+					+ lookups + " lookups, " + lvgCache.size() + " entries");
+		}
+		if (cacheFilePath != null && lvgCache.isEnabled()) {
+			try {
+				lvgCache.save(new File(cacheFilePath));
+				logger.info("Saved Lvg cache=" + cacheFilePath);
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+
 	/**
 	 * Sets configuration parameters with values from the descriptor.
 	 */
@@ -363,14 +434,8 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		// only apply LVG processing if not found in cache first
 		if (canonicalForm == null) {
 			try {
-				String out = lvgCmd.MutateToString(word);
-
-				String[] output = out.split("\\|");
-
-				if ((output != null) && (output.length >= 2)
-						&& (!output[1].matches("No Output"))) {
-					canonicalForm = output[1];
-				}
+				canonicalForm = lvgCache.getCanonicalForm(word,
+						this::getLvgCanonicalForm);
 			} catch (Exception e) {
 				throw new AnalysisEngineProcessException(e);
 			}
@@ -404,34 +469,8 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		}
 
 		if (lemmaMap == null) {
-			lemmaMap = new HashMap<>();
 			try {
-				Vector<?> lexItems = lvgLexItem.MutateLexItem(word);
-				Iterator<?> lexItemItr = lexItems.iterator();
-				while (lexItemItr.hasNext()) {
-					LexItem li = (LexItem) lexItemItr.next();
-
-					Category c = li.GetTargetCategory();
-					String lemmaStr = li.GetTargetTerm();
-					long[] bitValues = Category.ToValuesArray(c.GetValue());
-					for (int i = 0; i < bitValues.length; i++) {
-						// note that POS is Xerox tagset
-						String lemmaPos = Category.ToName(bitValues[i]);
-						// convert Xerox tagset to PennTreebank tagset
-						String treebankTag = xeroxTreebankMap
-								.get(lemmaPos);
-						if (treebankTag != null) {
-							Set<String> posSet = null;
-							if (lemmaMap.containsKey(lemmaStr)) {
-								posSet = lemmaMap.get(lemmaStr);
-							} else {
-								posSet = new HashSet<>();
-							}
-							posSet.add(treebankTag);
-							lemmaMap.put(lemmaStr, posSet);
-						}
-					}
-				}
+				lemmaMap = lvgCache.getLemmas(word, this::getLvgLemmas);
 			} catch (Exception e) {
 				throw new AnalysisEngineProcessException(e);
 			}
@@ -459,6 +498,59 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		wordAnnotation.setLemmaEntries(fsList);
 	}
 
+	/**
+	 * Calls lvg for the canonical form of a word.
+	 * 
+	 * @return the canonical form, or null if lvg has none
+	 */
+	private String getLvgCanonicalForm(String word) throws Exception {
+		String out = lvgPool.mutateToString(word);
+
+		String[] output = out.split("\\|");
+
+		if ((output != null) && (output.length >= 2)
+				&& (!output[1].matches("No Output"))) {
+			return output[1];
+		}
+		return null;
+	}
+
+	/**
+	 * Calls lvg for the lemmas of a word.
+	 * 
+	 * @return map of lemma string to Set of Treebank POS tags
+	 */
+	private Map<String, Set<String>> getLvgLemmas(String word)
+			throws Exception {
+		Map<String, Set<String>> lemmaMap = new HashMap<>();
+		Vector<?> lexItems = lvgPool.mutateLexItem(word);
+		Iterator<?> lexItemItr = lexItems.iterator();
+		while (lexItemItr.hasNext()) {
+			LexItem li = (LexItem) lexItemItr.next();
+
+			Category c = li.GetTargetCategory();
+			String lemmaStr = li.GetTargetTerm();
+			long[] bitValues = Category.ToValuesArray(c.GetValue());
+			for (int i = 0; i < bitValues.length; i++) {
+				// note that POS is Xerox tagset
+				String lemmaPos = Category.ToName(bitValues[i]);
+				// convert Xerox tagset to PennTreebank tagset
+				String treebankTag = xeroxTreebankMap.get(lemmaPos);
+				if (treebankTag != null) {
+					Set<String> posSet = null;
+					if (lemmaMap.containsKey(lemmaStr)) {
+						posSet = lemmaMap.get(lemmaStr);
+					} else {
+						posSet = new HashSet<>();
+					}
+					posSet.add(treebankTag);
+					lemmaMap.put(lemmaStr, posSet);
+				}
+			}
+		}
+		return lemmaMap;
+	}
+
 	/**
 	 * Helper method that loads a Norm cache file.
 	 * 
@@ -56,9 +56,20 @@ enum LvgSingleton {
       }
    }
 
+   /**
+    * The lvg annotator caches results in a concurrent cache and calls lvg through a pool of lvg instances,
+    * so threads can process at the same time.
+    */
    public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      _lvgAnnotator.process( jCas );
+   }
+
+   /**
+    * Saves the cache of the single LVG instance if it has a cache file.
+    */
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
       synchronized ( LOCK ) {
-         _lvgAnnotator.process( jCas );
+         _lvgAnnotator.collectionProcessComplete();
       }
    }
 
@@ -48,6 +48,16 @@ final public class ThreadSafeLvg extends JCasAnnotator_ImplBase {
       LvgSingleton.getInstance().process( jCas );
    }
 
+   /**
+    * Calls collectionProcessComplete on the LvgSingleton.
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      LvgSingleton.getInstance().collectionProcessComplete();
+   }
+
 
    /**
     * Necessary if the lvg.properties need to be copied into a temporary file.  Otherwise all defaults are fine.
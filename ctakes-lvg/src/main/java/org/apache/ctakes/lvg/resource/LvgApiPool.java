@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.lvg.resource;
+
+import gov.nih.nlm.nls.lvg.Api.LvgCmdApi;
+import gov.nih.nlm.nls.lvg.Api.LvgLexItemApi;
+import gov.nih.nlm.nls.lvg.Lib.LexItem;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A small pool of lvg instances so that threads can call lvg at the same time.
+ * Lvg instances are not thread safe, so each call borrows an instance and returns it when done.
+ * The instances of the resource are used first, and more are only created when all are in use,
+ * up to the maximum pool size.  A single thread never creates more than the resource instances.
+ */
+@ThreadSafe
+final public class LvgApiPool {
+
+   static private final Logger LOGGER = Logger.getLogger( "LvgApiPool" );
+
+   final private Pool<LvgCmdApi> _lvgPool;
+   final private Pool<LvgLexItemApi> _lexPool;
+
+   /**
+    * @param resource lvg resource that holds the first instances and creates more
+    * @param maxSize  maximum number of instances of each lvg api.  Values less than 1 are treated as 1
+    */
+   public LvgApiPool( final LvgCmdApiResource resource, final int maxSize ) {
+      _lvgPool = new Pool<>( resource.getLvg(), resource::createLvg, maxSize );
+      _lexPool = new Pool<>( resource.getLvgLex(), resource::createLvgLex, maxSize );
+   }
+
+   /**
+    * @param word -
+    * @return the output of {@link LvgCmdApi#MutateToString(String)}
+    * @throws Exception if lvg could not process the word
+    */
+   public String mutateToString( final String word ) throws Exception {
+      final LvgCmdApi lvg = _lvgPool.borrow();
+      try {
+         return lvg.MutateToString( word );
+      } finally {
+         _lvgPool.release( lvg );
+      }
+   }
+
+   /**
+    * @param word -
+    * @return the output of {@link LvgLexItemApi#MutateLexItem(String)}
+    * @throws Exception if lvg could not process the word
+    */
+   public Vector<LexItem> mutateLexItem( final String word ) throws Exception {
+      final LvgLexItemApi lexItem = _lexPool.borrow();
+      try {
+         return lexItem.MutateLexItem( word );
+      } finally {
+         _lexPool.release( lexItem );
+      }
+   }
+
+
+   /**
+    * Lazily filled pool of one lvg api type.  Package private for tests.
+    *
+    * @param <T> lvg api type
+    */
+   static final class Pool<T> {
+      final private BlockingQueue<T> _idle = new LinkedBlockingQueue<>();
+      final private Supplier<T> _creator;
+      final private int _maxSize;
+      private int _size;
+
+      Pool( final T first, final Supplier<T> creator, final int maxSize ) {
+         _creator = creator;
+         _maxSize = Math.max( 1, maxSize );
+         if ( first != null ) {
+            _idle.add( first );
+            _size = 1;
+         }
+      }
+
+      T borrow() throws InterruptedException {
+         final T idle = _idle.poll();
+         if ( idle != null ) {
+            return idle;
+         }
+         if ( reserve() ) {
+            LOGGER.info( "Creating another lvg instance, at most " + _maxSize + " will be created" );
+            try {
+               return _creator.get();
+            } catch ( RuntimeException rtE ) {
+               unreserve();
+               throw rtE;
+            }
+         }
+         return _idle.take();
+      }
+
+      synchronized private boolean reserve() {
+         if ( _size >= _maxSize ) {
+            return false;
+         }
+         _size++;
+         return true;
+      }
+
+      synchronized private void unreserve() {
+         _size--;
+      }
+
+      void release( final T instance ) {
+         _idle.add( instance );
+      }
+   }
+
+}
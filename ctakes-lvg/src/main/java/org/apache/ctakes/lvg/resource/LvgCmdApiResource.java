@@ -34,4 +34,14 @@ public interface LvgCmdApiResource {
     
     public LvgLexItemApi getLvgLex();
 
+    /**
+     * @return a new LvgCmdApi configured like {@link #getLvg()}, for use by another thread
+     */
+    public LvgCmdApi createLvg();
+
+    /**
+     * @return a new LvgLexItemApi configured like {@link #getLvgLex()}, for use by another thread
+     */
+    public LvgLexItemApi createLvgLex();
+
 }
@@ -19,10 +19,12 @@
 package org.apache.ctakes.lvg.resource;
 
 import java.io.File;
+import java.net.URL;
 
 import gov.nih.nlm.nls.lvg.Api.LvgCmdApi;
 import gov.nih.nlm.nls.lvg.Api.LvgLexItemApi;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import org.apache.uima.resource.DataResource;
@@ -53,54 +55,111 @@ public class LvgCmdApiResourceImpl
     private LvgCmdApi lvg;
     private LvgLexItemApi lvgLexItem;
     
+    private String configFileName;
+    private String lvgDir;
+    
     private static String CWD_PROPERTY = "user.dir"; // Name of property for current working directory
+    // The current working directory is global, so only one thread at a time may change it to create lvg
+    private static final Object CWD_LOCK = new Object();
     
     public void load(DataResource dr) throws ResourceInitializationException
     {
-    	String configFileName = null;
-    	String cwd = null;
-    	try
-    	{
-    		
-    		File configFile = new File(dr.getUrl().toExternalForm());
-	        configFileName = configFile.getPath();
-	         
-	        logger.info("Loading NLM Norm and Lvg with config file = " + configFileName);
-	        logger.info("  config file absolute path = " + configFile.getAbsolutePath());
+        File configFile = getConfigFile(dr.getUrl());
+        configFileName = configFile.getPath();
+         
+        logger.info("Loading NLM Norm and Lvg with config file = " + configFileName);
+        logger.info("  config file absolute path = " + configFile.getAbsolutePath());
 
-	    	// Set the current working directory appropriately so the lvg files
-	        // will be found if the lvg properties file contains LVG_DIR=AUTO_MODE
-	        // If unable to change the current working directory, continue, so that
-	        // if the properties file LVG_DIR value was changed to a hardcoded path,
-	        // we allow that path to be used.
-	    	String lvgDir = getLvgDir(configFile);
-	    	cwd = getCurrentWorkingDirectory();
-	    	if (cwd!=null) {
-	    		logger.info("cwd = " + cwd);
-	    		changeCurrentWorkingDirectory(lvgDir);
-	    	}
+        lvgDir = getLvgDir(configFile);
+        lvg = createLvg();
+        lvgLexItem = createLvgLex();
+    }
 
-	    	// See http://lexsrv2.nlm.nih.gov/SPECIALIST/Projects/ctakes-lvg/2008/docs/userDoc/index.html
-	        // See http://lexsrv3.nlm.nih.gov/SPECIALIST/Projects/ctakes-lvg/2008/docs/designDoc/UDF/flow/index.html        
-	        // Lower-case the terms and then uninflect
-	        // f = using flow components (in this order) 
-	        //     l = lower case
-	        //     b = uninflect a term
-	        lvg = new LvgCmdApi("-f:l:b", configFileName);
-	        // Generate inflectional variants and get categories as strings rather than bit vectors
-	        // f = using flow components (only one (i) used here) 
-	        //     i = generate inflectional variants
-	        // -SC = Show category names (returns the categories as strings rather than bit vectors)
-	        lvgLexItem = new LvgLexItemApi("-f:i -SC", configFileName);
+    /**
+     * A file url, e.g. from getResource, is converted to a path, decoding escapes such as %20.
+     * Lvg reads its config and its tables from the file system, so other urls, e.g. an entry
+     * of a resource jar, cannot be used.
+     * @param url url of the lvg properties file
+     * @return the lvg properties file
+     * @throws ResourceInitializationException if the url is not a file url
+     */
+    static File getConfigFile(URL url) throws ResourceInitializationException
+    {
+        File configFile = FileUtils.toFile(url);
+        if (configFile == null) {
+            throw new ResourceInitializationException(new IllegalArgumentException(
+                    "Lvg config must be a file, unpack the lvg resources to the file system: " + url));
+        }
+        return configFile;
+    }
 
+    /**
+     * Creates another LvgCmdApi with the same configuration as {@link #getLvg()}.
+     * An LvgCmdApi is not thread safe, so each thread that uses lvg concurrently needs its own.
+     * @see org.apache.ctakes.lvg.resource.LvgCmdApiResource#createLvg()
+     */
+    public LvgCmdApi createLvg() {
+    	synchronized (CWD_LOCK) {
+    		String cwd = changeToLvgDir();
+    		try {
+    	    	// See http://lexsrv2.nlm.nih.gov/SPECIALIST/Projects/ctakes-lvg/2008/docs/userDoc/index.html
+    	        // See http://lexsrv3.nlm.nih.gov/SPECIALIST/Projects/ctakes-lvg/2008/docs/designDoc/UDF/flow/index.html        
+    	        // Lower-case the terms and then uninflect
+    	        // f = using flow components (in this order) 
+    	        //     l = lower case
+    	        //     b = uninflect a term
+    			return new LvgCmdApi("-f:l:b", configFileName);
+    		}
+    		finally {
+    			restoreWorkingDirectory(cwd);
+    		}
     	}
-    	finally {
-    		// try to change the current working directory back to what it was
-			if (cwd!=null) {
-				changeCurrentWorkingDirectory(cwd);
-			}
-			
-	    }
+    }
+
+    /**
+     * Creates another LvgLexItemApi with the same configuration as {@link #getLvgLex()}.
+     * @see org.apache.ctakes.lvg.resource.LvgCmdApiResource#createLvgLex()
+     */
+    public LvgLexItemApi createLvgLex() {
+    	synchronized (CWD_LOCK) {
+    		String cwd = changeToLvgDir();
+    		try {
+    	        // Generate inflectional variants and get categories as strings rather than bit vectors
+    	        // f = using flow components (only one (i) used here) 
+    	        //     i = generate inflectional variants
+    	        // -SC = Show category names (returns the categories as strings rather than bit vectors)
+    			return new LvgLexItemApi("-f:i -SC", configFileName);
+    		}
+    		finally {
+    			restoreWorkingDirectory(cwd);
+    		}
+    	}
+    }
+
+    /**
+     * Set the current working directory appropriately so the lvg files
+     * will be found if the lvg properties file contains LVG_DIR=AUTO_MODE
+     * If unable to change the current working directory, continue, so that
+     * if the properties file LVG_DIR value was changed to a hardcoded path,
+     * we allow that path to be used.
+     * @return the previous working directory, or null if it is unknown
+     */
+    private String changeToLvgDir() {
+    	String cwd = getCurrentWorkingDirectory();
+    	if (cwd!=null) {
+    		logger.info("cwd = " + cwd);
+    		changeCurrentWorkingDirectory(lvgDir);
+    	}
+    	return cwd;
+    }
+
+    /**
+     * try to change the current working directory back to what it was
+     */
+    private void restoreWorkingDirectory(String cwd) {
+		if (cwd!=null) {
+			changeCurrentWorkingDirectory(cwd);
+		}
     }
 
     private String getCurrentWorkingDirectory() {
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.lvg.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers lvg canonical forms and lemmas of words so that lvg is only called once for each word.
+ * <p>
+ * The cache is split into stripes that are locked separately, so threads seldom wait for each other.
+ * Each stripe discards its least recently used entry when it is full.
+ * Lvg is called outside of any lock, so two threads that miss the same word may both call lvg.
+ * </p>
+ * <p>
+ * The cache can be saved to a file and loaded in a later run.  The file keeps the number of hits of each word,
+ * so counts accumulate over runs and the least used words are the first discarded when a loaded cache is full.
+ * </p>
+ * A maximum size of 0 or less disables the cache.
+ */
+@ThreadSafe
+final public class LvgCache {
+
+   /**
+    * A call to lvg for one word.
+    *
+    * @param <V> lvg result type
+    */
+   @FunctionalInterface
+   public interface LvgCall<V> {
+      V call( String word ) throws Exception;
+   }
+
+   static private final int STRIPE_COUNT = 16;
+   static private final int FILE_VERSION = 1;
+
+   final private int _maxSize;
+   final private Stripes<String> _canonicalForms;
+   final private Stripes<Map<String, Set<String>>> _lemmas;
+   final private AtomicLong _hits = new AtomicLong();
+   final private AtomicLong _misses = new AtomicLong();
+
+   /**
+    * @param maxSize maximum number of words to keep for canonical forms, and again for lemmas
+    */
+   public LvgCache( final int maxSize ) {
+      _maxSize = maxSize;
+      _canonicalForms = new Stripes<>( maxSize );
+      _lemmas = new Stripes<>( maxSize );
+   }
+
+   /**
+    * @return true if entries are kept
+    */
+   public boolean isEnabled() {
+      return _maxSize > 0;
+   }
+
+   /**
+    * @param word -
+    * @param lvg  call that normalizes the word if it is not in the cache
+    * @return the canonical form of the word, or null if lvg has none
+    * @throws Exception if the lvg call failed
+    */
+   public String getCanonicalForm( final String word, final LvgCall<String> lvg ) throws Exception {
+      return get( _canonicalForms, word, lvg );
+   }
+
+   /**
+    * @param word -
+    * @param lvg  call that finds lemmas of the word if it is not in the cache
+    * @return map of lemma to part of speech tags.  The map is shared and must not be changed
+    * @throws Exception if the lvg call failed
+    */
+   public Map<String, Set<String>> getLemmas( final String word,
+                                              final LvgCall<Map<String, Set<String>>> lvg ) throws Exception {
+      return get( _lemmas, word, lvg );
+   }
+
+   private <V> V get( final Stripes<V> stripes, final String word, final LvgCall<V> lvg ) throws Exception {
+      if ( !isEnabled() ) {
+         return lvg.call( word );
+      }
+      final Cached<V> cached = stripes.get( word );
+      if ( cached != null ) {
+         _hits.incrementAndGet();
+         return cached._value;
+      }
+      _misses.incrementAndGet();
+      final V value = lvg.call( word );
+      stripes.put( word, new Cached<>( value, 0 ) );
+      return value;
+   }
+
+   /**
+    * @return number of lookups that were answered by the cache
+    */
+   public long getHitCount() {
+      return _hits.get();
+   }
+
+   /**
+    * @return number of lookups that called lvg
+    */
+   public long getMissCount() {
+      return _misses.get();
+   }
+
+   /**
+    * @return number of cached canonical forms and lemma sets
+    */
+   public int size() {
+      return _canonicalForms.size() + _lemmas.size();
+   }
+
+   /**
+    * Replaces the file with the cache contents.  The file is written beside the old one and then moved,
+    * so an interrupted save or another process does not see a partial file.
+    *
+    * @param file -
+    * @throws IOException if the file could not be written
+    */
+   public void save( final File file ) throws IOException {
+      final File parent = file.getAbsoluteFile().getParentFile();
+      if ( parent != null && !parent.exists() && !parent.mkdirs() ) {
+         throw new IOException( "Could not create directory " + parent );
+      }
+      final File temp = File.createTempFile( file.getName(), ".tmp", parent );
+      try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) ) ) {
+         out.writeInt( FILE_VERSION );
+         final List<Map.Entry<String, Cached<String>>> forms = _canonicalForms.byHits();
+         out.writeInt( forms.size() );
+         for ( Map.Entry<String, Cached<String>> entry : forms ) {
+            out.writeUTF( entry.getKey() );
+            out.writeInt( entry.getValue()._hits );
+            final String form = entry.getValue()._value;
+            out.writeBoolean( form != null );
+            if ( form != null ) {
+               out.writeUTF( form );
+            }
+         }
+         final List<Map.Entry<String, Cached<Map<String, Set<String>>>>> lemmas = _lemmas.byHits();
+         out.writeInt( lemmas.size() );
+         for ( Map.Entry<String, Cached<Map<String, Set<String>>>> entry : lemmas ) {
+            out.writeUTF( entry.getKey() );
+            out.writeInt( entry.getValue()._hits );
+            final Map<String, Set<String>> lemmaMap = entry.getValue()._value;
+            out.writeInt( lemmaMap.size() );
+            for ( Map.Entry<String, Set<String>> lemma : lemmaMap.entrySet() ) {
+               out.writeUTF( lemma.getKey() );
+               out.writeInt( lemma.getValue().size() );
+               for ( String pos : lemma.getValue() ) {
+                  out.writeUTF( pos );
+               }
+            }
+         }
+      } catch ( IOException ioE ) {
+         Files.deleteIfExists( temp.toPath() );
+         throw ioE;
+      }
+      Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+   }
+
+   /**
+    * Adds the contents of a file written by {@link #save(File)}.
+    * Words are added from the least used to the most used, so the most used are kept if the cache is full.
+    *
+    * @param file -
+    * @throws IOException if the file could not be read or is not an lvg cache file
+    */
+   public void load( final File file ) throws IOException {
+      if ( !isEnabled() ) {
+         return;
+      }
+      try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+         final int version = in.readInt();
+         if ( version != FILE_VERSION ) {
+            throw new IOException( file.getPath() + " is not an lvg cache file of version " + FILE_VERSION );
+         }
+         final int formCount = in.readInt();
+         for ( int i = 0; i < formCount; i++ ) {
+            final String word = in.readUTF();
+            final int hits = in.readInt();
+            final String form = in.readBoolean() ? in.readUTF() : null;
+            _canonicalForms.put( word, new Cached<>( form, hits ) );
+         }
+         final int lemmaCount = in.readInt();
+         for ( int i = 0; i < lemmaCount; i++ ) {
+            final String word = in.readUTF();
+            final int hits = in.readInt();
+            final int lemmaSize = in.readInt();
+            final Map<String, Set<String>> lemmaMap = new HashMap<>();
+            for ( int j = 0; j < lemmaSize; j++ ) {
+               final String lemma = in.readUTF();
+               final int posSize = in.readInt();
+               final Set<String> posSet = new HashSet<>();
+               for ( int k = 0; k < posSize; k++ ) {
+                  posSet.add( in.readUTF() );
+               }
+               lemmaMap.put( lemma, posSet );
+            }
+            _lemmas.put( word, new Cached<>( lemmaMap, hits ) );
+         }
+      }
+   }
+
+
+   /**
+    * A cached lvg result and the number of times that it has been used.
+    *
+    * @param <V> lvg result type
+    */
+   static private final class Cached<V> {
+      final private V _value;
+      private int _hits;
+
+      private Cached( final V value, final int hits ) {
+         _value = value;
+         _hits = hits;
+      }
+   }
+
+   /**
+    * Least recently used maps, each locked separately and holding an equal share of the entries.
+    *
+    * @param <V> lvg result type
+    */
+   static private final class Stripes<V> {
+      final private List<Map<String, Cached<V>>> _stripes;
+
+      private Stripes( final int maxSize ) {
+         final int stripeSize = Math.max( 1, (maxSize + STRIPE_COUNT - 1) / STRIPE_COUNT );
+         _stripes = new ArrayList<>( STRIPE_COUNT );
+         for ( int i = 0; i < STRIPE_COUNT; i++ ) {
+            _stripes.add( new LinkedHashMap<String, Cached<V>>( 16, 0.75f, true ) {
+               @Override
+               protected boolean removeEldestEntry( final Map.Entry<String, Cached<V>> eldest ) {
+                  return size() > stripeSize;
+               }
+            } );
+         }
+      }
+
+      private Map<String, Cached<V>> getStripe( final String word ) {
+         return _stripes.get( (word.hashCode() & Integer.MAX_VALUE) % STRIPE_COUNT );
+      }
+
+      private Cached<V> get( final String word ) {
+         final Map<String, Cached<V>> stripe = getStripe( word );
+         synchronized ( stripe ) {
+            final Cached<V> cached = stripe.get( word );
+            if ( cached != null && cached._hits < Integer.MAX_VALUE ) {
+               cached._hits++;
+            }
+            return cached;
+         }
+      }
+
+      private void put( final String word, final Cached<V> cached ) {
+         final Map<String, Cached<V>> stripe = getStripe( word );
+         synchronized ( stripe ) {
+            stripe.put( word, cached );
+         }
+      }
+
+      private int size() {
+         int size = 0;
+         for ( Map<String, Cached<V>> stripe : _stripes ) {
+            synchronized ( stripe ) {
+               size += stripe.size();
+            }
+         }
+         return size;
+      }
+
+      /**
+       * @return copies of all entries, from the least used to the most used
+       */
+      private List<Map.Entry<String, Cached<V>>> byHits() {
+         final List<Map.Entry<String, Cached<V>>> entries = new ArrayList<>();
+         for ( Map<String, Cached<V>> stripe : _stripes ) {
+            synchronized ( stripe ) {
+               for ( Map.Entry<String, Cached<V>> entry : stripe.entrySet() ) {
+                  final Cached<V> cached = entry.getValue();
+                  entries.add( new AbstractMap.SimpleImmutableEntry<>( entry.getKey(),
+                        new Cached<>( cached._value, cached._hits ) ) );
+               }
+            }
+         }
+         entries.sort( Comparator.comparingInt( e -> e.getValue()._hits ) );
+         return entries;
+      }
+   }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.lvg.resource;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the lvg pool lends at most its maximum number of instances and reuses returned instances.
+ */
+public class LvgApiPoolTest {
+
+   static private final int POOL_SIZE = 3;
+   static private final int THREAD_COUNT = 8;
+   static private final int BORROW_COUNT = 200;
+
+   @Test
+   public void testSingleBorrower() throws Exception {
+      final AtomicInteger created = new AtomicInteger();
+      final Object first = new Object();
+      final LvgApiPool.Pool<Object> pool = new LvgApiPool.Pool<>( first, () -> {
+         created.incrementAndGet();
+         return new Object();
+      }, POOL_SIZE );
+      for ( int i = 0; i < 10; i++ ) {
+         final Object instance = pool.borrow();
+         assertSame( first, instance );
+         pool.release( instance );
+      }
+      assertEquals( 0, created.get() );
+   }
+
+   @Test
+   public void testConcurrentBorrowers() throws Exception {
+      final Set<Object> created = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+      final Object first = new Object();
+      final LvgApiPool.Pool<Object> pool = new LvgApiPool.Pool<>( first, () -> {
+         final Object instance = new Object();
+         created.add( instance );
+         return instance;
+      }, POOL_SIZE );
+      final Set<Object> lent = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+      final Set<Object> used = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+      final AtomicInteger maxLent = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch( 1 );
+      final ExecutorService executor = Executors.newFixedThreadPool( THREAD_COUNT );
+      try {
+         final List<Future<?>> futures = new ArrayList<>();
+         for ( int t = 0; t < THREAD_COUNT; t++ ) {
+            futures.add( executor.submit( () -> {
+               start.await();
+               for ( int i = 0; i < BORROW_COUNT; i++ ) {
+                  final Object instance = pool.borrow();
+                  assertTrue( "Instance lent twice", lent.add( instance ) );
+                  used.add( instance );
+                  maxLent.accumulateAndGet( lent.size(), Math::max );
+                  Thread.yield();
+                  lent.remove( instance );
+                  pool.release( instance );
+               }
+               return null;
+            } ) );
+         }
+         start.countDown();
+         for ( Future<?> future : futures ) {
+            future.get( 1, TimeUnit.MINUTES );
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertTrue( created.size() <= POOL_SIZE - 1 );
+      assertTrue( maxLent.get() <= POOL_SIZE );
+      // Every lent instance is the first instance or a created one, so returned instances are reused
+      final Set<Object> expected = new HashSet<>( created );
+      expected.add( first );
+      assertEquals( expected, used );
+      // All instances are back in the pool and no more are created
+      final List<Object> borrowed = new ArrayList<>();
+      for ( int i = 0; i < expected.size(); i++ ) {
+         borrowed.add( pool.borrow() );
+      }
+      assertEquals( expected, new HashSet<>( borrowed ) );
+      assertEquals( expected.size() - 1, created.size() );
+   }
+
+   @Test
+   public void testFailedCreation() throws Exception {
+      final AtomicInteger attempts = new AtomicInteger();
+      final LvgApiPool.Pool<Object> pool = new LvgApiPool.Pool<>( null, () -> {
+         if ( attempts.incrementAndGet() == 1 ) {
+            throw new IllegalStateException( "No lvg" );
+         }
+         return new Object();
+      }, 1 );
+      try {
+         pool.borrow();
+         fail( "Creation failure was not passed on" );
+      } catch ( IllegalStateException isE ) {
+         // The failed creation does not count against the pool size
+         final Object instance = pool.borrow();
+         assertNotNull( instance );
+         pool.release( instance );
+         assertSame( instance, pool.borrow() );
+      }
+   }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.lvg.resource;
+
+import org.apache.uima.resource.ResourceInitializationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the lvg config url is converted to the file that lvg reads.
+ */
+public class LvgCmdApiResourceImplTest {
+
+   static private final String CONFIG_PATH = "data/config/lvg.properties";
+   static private final String CONFIG_TEXT = "LVG_DIR=AUTO_MODE\n";
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @Test
+   public void testFileUrl() throws Exception {
+      // A space is escaped as %20 in the url, which is not part of the path
+      final File lvgDir = _folder.newFolder( "lvg dir" );
+      final File configFile = new File( lvgDir, CONFIG_PATH );
+      assertTrue( configFile.getParentFile().mkdirs() );
+      Files.write( configFile.toPath(), CONFIG_TEXT.getBytes( StandardCharsets.UTF_8 ) );
+      final URL url = configFile.toURI().toURL();
+      assertTrue( url.toExternalForm().contains( "%20" ) );
+      final File converted = LvgCmdApiResourceImpl.getConfigFile( url );
+      assertEquals( configFile.getCanonicalFile(), converted.getCanonicalFile() );
+      assertTrue( converted.isFile() );
+   }
+
+   @Test
+   public void testJarUrl() throws Exception {
+      final File jarFile = _folder.newFile( "lvg-res.jar" );
+      try ( JarOutputStream jar = new JarOutputStream( new FileOutputStream( jarFile ) ) ) {
+         jar.putNextEntry( new JarEntry( CONFIG_PATH ) );
+         jar.write( CONFIG_TEXT.getBytes( StandardCharsets.UTF_8 ) );
+         jar.closeEntry();
+      }
+      final URL url = new URL( "jar:" + jarFile.toURI() + "!/" + CONFIG_PATH );
+      // The url is valid, but lvg can only read its config and tables from files
+      try ( InputStream stream = url.openStream() ) {
+         assertTrue( stream.read() >= 0 );
+      }
+      try {
+         LvgCmdApiResourceImpl.getConfigFile( url );
+         fail( "A jar url was accepted as the lvg config file" );
+      } catch ( ResourceInitializationException riE ) {
+         assertTrue( riE.getCause().getMessage().contains( url.toString() ) );
+      }
+   }
+
+}
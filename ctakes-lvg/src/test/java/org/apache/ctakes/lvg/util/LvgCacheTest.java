@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.lvg.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks eviction within cache stripes and saving and loading of the cache.
+ */
+public class LvgCacheTest {
+
+   // Must match the stripe count of the cache
+   static private final int STRIPE_COUNT = 16;
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @Test
+   public void testStripeEviction() throws Exception {
+      // Two words for each stripe
+      final LvgCache cache = new LvgCache( STRIPE_COUNT * 2 );
+      final List<String> words = wordsInStripe( 0, 3 );
+      final CountingCall lvg = new CountingCall();
+      cache.getCanonicalForm( words.get( 0 ), lvg );
+      cache.getCanonicalForm( words.get( 1 ), lvg );
+      // Use the first word again so that the second is the least recently used
+      cache.getCanonicalForm( words.get( 0 ), lvg );
+      assertEquals( 2, lvg._calls );
+      cache.getCanonicalForm( words.get( 2 ), lvg );
+      assertEquals( 2, cache.size() );
+      cache.getCanonicalForm( words.get( 0 ), lvg );
+      cache.getCanonicalForm( words.get( 2 ), lvg );
+      assertEquals( 3, lvg._calls );
+      cache.getCanonicalForm( words.get( 1 ), lvg );
+      assertEquals( 4, lvg._calls );
+
+      // A full stripe does not evict words of other stripes
+      final LvgCache other = new LvgCache( STRIPE_COUNT * 2 );
+      final CountingCall otherLvg = new CountingCall();
+      final List<String> otherWords = new ArrayList<>();
+      for ( int stripe = 0; stripe < STRIPE_COUNT; stripe++ ) {
+         otherWords.addAll( wordsInStripe( stripe, 2 ) );
+      }
+      for ( String word : otherWords ) {
+         other.getCanonicalForm( word, otherLvg );
+      }
+      for ( String word : wordsInStripe( 5, 4 ) ) {
+         other.getCanonicalForm( word, otherLvg );
+      }
+      for ( String word : otherWords ) {
+         if ( getStripe( word ) != 5 ) {
+            other.getCanonicalForm( word, otherLvg );
+         }
+      }
+      assertEquals( STRIPE_COUNT * 2 + 2, otherLvg._calls );
+      assertEquals( STRIPE_COUNT * 2, other.size() );
+   }
+
+   @Test
+   public void testDisabled() throws Exception {
+      final LvgCache cache = new LvgCache( 0 );
+      final CountingCall lvg = new CountingCall();
+      cache.getCanonicalForm( "word", lvg );
+      cache.getCanonicalForm( "word", lvg );
+      assertFalse( cache.isEnabled() );
+      assertEquals( 2, lvg._calls );
+      assertEquals( 0, cache.size() );
+   }
+
+   @Test
+   public void testSaveAndLoad() throws Exception {
+      final LvgCache cache = new LvgCache( 1000 );
+      cache.getCanonicalForm( "walked", w -> "walk" );
+      cache.getCanonicalForm( "xyzzy", w -> null );
+      final Map<String, Set<String>> lemmas = new HashMap<>();
+      lemmas.put( "run", new HashSet<>( Arrays.asList( "noun", "verb" ) ) );
+      lemmas.put( "running", Collections.singleton( "adj" ) );
+      cache.getLemmas( "running", w -> lemmas );
+      cache.getLemmas( "nothing", w -> Collections.emptyMap() );
+      final File file = new File( _folder.getRoot(), "sub/lvg.cache" );
+      cache.save( file );
+
+      final LvgCache loaded = new LvgCache( 1000 );
+      loaded.load( file );
+      assertEquals( cache.size(), loaded.size() );
+      final LvgCache.LvgCall<String> noForm = w -> {
+         throw new AssertionError( "Lvg called for cached word " + w );
+      };
+      final LvgCache.LvgCall<Map<String, Set<String>>> noLemmas = w -> {
+         throw new AssertionError( "Lvg called for cached word " + w );
+      };
+      assertEquals( "walk", loaded.getCanonicalForm( "walked", noForm ) );
+      assertNull( loaded.getCanonicalForm( "xyzzy", noForm ) );
+      assertEquals( lemmas, loaded.getLemmas( "running", noLemmas ) );
+      assertTrue( loaded.getLemmas( "nothing", noLemmas ).isEmpty() );
+      assertEquals( 4, loaded.getHitCount() );
+      assertEquals( 0, loaded.getMissCount() );
+   }
+
+   @Test
+   public void testLoadKeepsMostUsed() throws Exception {
+      final List<String> words = wordsInStripe( 3, 2 );
+      final LvgCache.LvgCall<String> upper = String::toUpperCase;
+      final LvgCache cache = new LvgCache( STRIPE_COUNT * 2 );
+      cache.getCanonicalForm( words.get( 1 ), upper );
+      cache.getCanonicalForm( words.get( 1 ), upper );
+      cache.getCanonicalForm( words.get( 0 ), upper );
+      final File file = _folder.newFile();
+      cache.save( file );
+
+      // Only one word fits in the stripe, the word with more hits is kept although it was used first
+      final LvgCache loaded = new LvgCache( STRIPE_COUNT );
+      loaded.load( file );
+      final CountingCall lvg = new CountingCall();
+      assertEquals( words.get( 1 ).toUpperCase(), loaded.getCanonicalForm( words.get( 1 ), lvg ) );
+      assertEquals( 0, lvg._calls );
+      loaded.getCanonicalForm( words.get( 0 ), lvg );
+      assertEquals( 1, lvg._calls );
+   }
+
+   @Test
+   public void testCorruptFile() throws Exception {
+      final File badVersion = _folder.newFile();
+      try ( DataOutputStream out = new DataOutputStream( new FileOutputStream( badVersion ) ) ) {
+         out.writeInt( 99 );
+         out.writeInt( 0 );
+         out.writeInt( 0 );
+      }
+      final LvgCache cache = new LvgCache( 1000 );
+      try {
+         cache.load( badVersion );
+         fail( "Loaded a file of an unknown version" );
+      } catch ( IOException ioE ) {
+         assertEquals( 0, cache.size() );
+      }
+   }
+
+   @Test
+   public void testTruncatedFile() throws Exception {
+      final LvgCache cache = new LvgCache( 1000 );
+      for ( int i = 0; i < 100; i++ ) {
+         cache.getCanonicalForm( "word" + i, w -> w + "_form" );
+      }
+      final File file = _folder.newFile();
+      cache.save( file );
+      try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) ) {
+         raf.setLength( raf.length() / 2 );
+      }
+      final LvgCache loaded = new LvgCache( 1000 );
+      try {
+         loaded.load( file );
+         fail( "Loaded a truncated file" );
+      } catch ( IOException ioE ) {
+         // Entries read before the end of the file are complete
+         final CountingCall lvg = new CountingCall();
+         for ( int i = 0; i < 100; i++ ) {
+            assertEquals( "word" + i + "_form", loaded.getCanonicalForm( "word" + i, w -> lvg.call( w ) + "_form" ) );
+         }
+         assertEquals( 100 - loaded.getHitCount(), lvg._calls );
+         assertTrue( loaded.getHitCount() > 0 );
+      }
+   }
+
+   static private int getStripe( final String word ) {
+      return (word.hashCode() & Integer.MAX_VALUE) % STRIPE_COUNT;
+   }
+
+   static private List<String> wordsInStripe( final int stripe, final int count ) {
+      final List<String> words = new ArrayList<>();
+      for ( int i = 0; words.size() < count; i++ ) {
+         final String word = "word" + i;
+         if ( getStripe( word ) == stripe ) {
+            words.add( word );
+         }
+      }
+      return words;
+   }
+
+   /**
+    * Lvg call that returns the word and counts calls
+    */
+   static private final class CountingCall implements LvgCache.LvgCall<String> {
+      private int _calls;
+
+      @Override
+      public String call( final String word ) {
+         _calls++;
+         return word;
+      }
+   }
+
+}
@@ -28,8 +28,10 @@ import org.apache.uima.analysis_engine.annotator.AnnotatorConfigurationException
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.jcas.tcas.DocumentAnnotation;
@@ -268,24 +270,34 @@ public class ContextAnnotator extends org.apache.uima.fit.component.JCasAnnotato
 		iv_logger.info("SCOPE ORDER: " + scopes);
 	}
 
+	/**
+	 * The context annotations of each window are collected once, and the scopes of each focus are
+	 * taken from them by index.  All scopes of a focus are analyzed before moving to the next focus.
+	 */
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
 		try {
 			FSIterator windowIterator = jCas.getAnnotationIndex(windowType).iterator();
 			while (windowIterator.hasNext()) {
 				Annotation window = (Annotation) windowIterator.next();
 				List<Annotation> focusList = constrainToWindow(jCas, focusType, window);
+				if (focusList.isEmpty()) {
+					continue;
+				}
 
 				// why is this list reversed?
 				Collections.reverse(focusList);
 
-				Iterator<Integer> scopeIterator = scopes.iterator();
-				while (scopeIterator.hasNext()) {
-					int scope = scopeIterator.next();
-					Iterator<Annotation> focusIterator = focusList.iterator();
-					while (focusIterator.hasNext()) {
-						Annotation focus = focusIterator.next();
+				List<Annotation> windowContextList = constrainToWindow(jCas, contextType, window);
+				Annotation[] windowContext = windowContextList.toArray(new Annotation[windowContextList.size()]);
+
+				Iterator<Annotation> focusIterator = focusList.iterator();
+				while (focusIterator.hasNext()) {
+					Annotation focus = focusIterator.next();
+					Iterator<Integer> scopeIterator = scopes.iterator();
+					while (scopeIterator.hasNext()) {
+						int scope = scopeIterator.next();
 						List<Annotation> scopeContextAnnotations = getScopeContextAnnotations(jCas, focus, window,
-								scope);
+								windowContext, scope);
 						ContextHit contextHit = contextAnalyzer.analyzeContext(scopeContextAnnotations, scope);
 						if (contextHit != null) {
 							contextConsumer.consumeHit(jCas, focus, scope, contextHit);
@@ -299,6 +311,34 @@ public class ContextAnnotator extends org.apache.uima.fit.component.JCasAnnotato
 
 	}
 
+	/**
+	 * Gets the same context annotations as {@link #getScopeContextAnnotations(JCas, Annotation, Annotation, int)},
+	 * but takes them from the context annotations of the window instead of walking the annotation index.
+	 * 
+	 * @param windowContext context annotations in the window, in annotation index order
+	 */
+	protected List<Annotation> getScopeContextAnnotations(JCas jCas, Annotation focus, Annotation window,
+			Annotation[] windowContext, int scope) throws AnalysisEngineProcessException {
+		List<Annotation> scopeContextAnnotations = new ArrayList<Annotation>();
+		switch (scope) {
+		case LEFT_SCOPE:
+			scopeContextAnnotations = getLeftScopeContextAnnotations(focus, window, windowContext);
+			break;
+		case MIDDLE_SCOPE:
+			scopeContextAnnotations = getMiddleScopeContextAnnotations(jCas, focus, windowContext);
+			break;
+		case RIGHT_SCOPE:
+			scopeContextAnnotations = getRightScopeContextAnnotations(focus, window, windowContext);
+			break;
+		case ALL_SCOPE:
+			scopeContextAnnotations.addAll(getLeftScopeContextAnnotations(focus, window, windowContext));
+			scopeContextAnnotations.addAll(getMiddleScopeContextAnnotations(jCas, focus, windowContext));
+			scopeContextAnnotations.addAll(getRightScopeContextAnnotations(focus, window, windowContext));
+			break;
+		}
+		return scopeContextAnnotations;
+	}
+
 	protected List<Annotation> getScopeContextAnnotations(JCas jCas, Annotation focus, Annotation window, int scope)
 			throws AnalysisEngineProcessException {
 		List<Annotation> scopeContextAnnotations = new ArrayList<Annotation>();
@@ -413,6 +453,116 @@ public class ContextAnnotator extends org.apache.uima.fit.component.JCasAnnotato
 		return scopeContextAnnotations;
 	}
 
+	/**
+	 * Same as {@link #getLeftScopeContextAnnotations(JCas, Annotation, Annotation)}.
+	 */
+	private List<Annotation> getLeftScopeContextAnnotations(Annotation focus, Annotation window,
+			Annotation[] windowContext) throws AnalysisEngineProcessException {
+
+		List<Annotation> scopeContextAnnotations = new ArrayList<Annotation>();
+
+		if (focus.getBegin() < window.getBegin() || focus.getEnd() > window.getEnd())
+			return scopeContextAnnotations;
+
+		int focusIndex = getFocusIndex(focus, windowContext);
+		// the index walk could not move back from past the last context annotation
+		if (focusIndex == windowContext.length)
+			return scopeContextAnnotations;
+
+		for (int i = focusIndex; i >= 0 && scopeContextAnnotations.size() < leftScopeSize; i--) {
+			Annotation contextAnnotation = windowContext[i];
+			if (contextAnnotation.getEnd() > focus.getBegin()) {
+				continue;
+			}
+			if (!contextAnalyzer.isBoundary(contextAnnotation, LEFT_SCOPE)) {
+				scopeContextAnnotations.add(contextAnnotation);
+			} else {
+				break;
+			}
+		}
+		Collections.reverse(scopeContextAnnotations);
+		return scopeContextAnnotations;
+	}
+
+	/**
+	 * Same as {@link #getRightScopeContextAnnotations(JCas, Annotation, Annotation)}.
+	 */
+	private List<Annotation> getRightScopeContextAnnotations(Annotation focus, Annotation window,
+			Annotation[] windowContext) throws AnalysisEngineProcessException {
+
+		List<Annotation> scopeContextAnnotations = new ArrayList<Annotation>();
+
+		if (focus.getBegin() < window.getBegin() || focus.getEnd() > window.getEnd())
+			return scopeContextAnnotations;
+
+		int focusIndex = getFocusIndex(focus, windowContext);
+		// the index walk skipped the first context annotation of the window
+		if (focusIndex == 0)
+			focusIndex = 1;
+
+		for (int i = focusIndex; i < windowContext.length && scopeContextAnnotations.size() < rightScopeSize; i++) {
+			Annotation contextAnnotation = windowContext[i];
+			if (contextAnnotation.getBegin() < focus.getEnd()) {
+				continue;
+			}
+			if (!contextAnalyzer.isBoundary(contextAnnotation, RIGHT_SCOPE)) {
+				scopeContextAnnotations.add(contextAnnotation);
+			} else {
+				break;
+			}
+		}
+		return scopeContextAnnotations;
+	}
+
+	/**
+	 * Same as {@link #getMiddleScopeContextAnnotations(JCas, Annotation)} for a focus inside the window.
+	 */
+	private List<Annotation> getMiddleScopeContextAnnotations(JCas jCas, Annotation focus, Annotation[] windowContext)
+			throws AnalysisEngineProcessException {
+
+		List<Annotation> scopeContextAnnotations = new ArrayList<Annotation>();
+
+		for (int i = getFocusIndex(focus, windowContext); i < windowContext.length
+				&& windowContext[i].getBegin() <= focus.getEnd(); i++) {
+			Annotation contextAnnotation = windowContext[i];
+			if (contextAnnotation.getEnd() <= focus.getEnd() && contextAnnotation != focus) {
+				scopeContextAnnotations.add(contextAnnotation);
+			}
+		}
+		if (scopeContextAnnotations.size() == 0 && JCasUtil.getType(focus.getClass()) == contextType)
+			scopeContextAnnotations.add(focus);
+		else if (scopeContextAnnotations.size() == 0) {
+			TypeSystem typeSystem = jCas.getTypeSystem();
+			Type superType = jCas.getType(focusType).casType;
+			Type subType = focus.getType();
+			if (typeSystem.subsumes(superType, subType))
+				scopeContextAnnotations.add(focus);
+		}
+		return scopeContextAnnotations;
+	}
+
+	/**
+	 * Binary search in annotation index order, where annotations are sorted by begin and then by reverse end.
+	 * 
+	 * @return index of the first context annotation that is not before the focus,
+	 *         or the number of context annotations if there is none
+	 */
+	static private int getFocusIndex(Annotation focus, Annotation[] windowContext) {
+		int low = 0;
+		int high = windowContext.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			Annotation contextAnnotation = windowContext[mid];
+			if (contextAnnotation.getBegin() < focus.getBegin()
+					|| (contextAnnotation.getBegin() == focus.getBegin() && contextAnnotation.getEnd() > focus.getEnd())) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
 	/**
 	 * Gets a list of annotations within the specified window annotation.
 	 * 
@@ -426,11 +576,12 @@ public class ContextAnnotator extends org.apache.uima.fit.component.JCasAnnotato
 
 		List<Annotation> list = new ArrayList<Annotation>();
 
-		FSIterator subiterator = jCas.getAnnotationIndex(type).subiterator(window);
-
-		while (subiterator.hasNext()) {
-			Annotation annot = (Annotation) subiterator.next();
-			list.add(annot);
+		// A strict subiterator walks to the end of the annotation index before it stops, so select covered
+		// annotations instead.  The subiterator skipped annotations with the same span as the window.
+		for (AnnotationFS annotation : CasUtil.selectCovered(jCas.getCas(), jCas.getCasType(type), window)) {
+			if (annotation.getBegin() != window.getBegin() || annotation.getEnd() != window.getEnd()) {
+				list.add((Annotation) annotation);
+			}
 		}
 		return list;
 	}
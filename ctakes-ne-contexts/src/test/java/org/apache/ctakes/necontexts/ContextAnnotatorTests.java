@@ -21,12 +21,18 @@ package org.apache.ctakes.necontexts;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import org.apache.uima.UIMAException;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.analysis_engine.annotator.AnnotatorConfigurationException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -35,6 +41,7 @@ import org.junit.Test;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
 import org.apache.ctakes.typesystem.type.syntax.PunctuationToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.ctakes.utils.test.TestUtil;
 
@@ -514,4 +521,71 @@ public class ContextAnnotatorTests {
 		assertEquals(ContextAnnotator.RIGHT_SCOPE, (int)ca.scopes.get(2));
 		assertEquals(ContextAnnotator.ALL_SCOPE, (int)ca.scopes.get(3));
 	}
+
+	/**
+	 * Scopes taken from the context annotations of a window must be the same as scopes found by walking the
+	 * annotation index.  Tokens and foci are random, and include empty and overlapping tokens and foci that
+	 * are not aligned with tokens.
+	 */
+	@Test
+	public void testIndexedScopes() throws UIMAException {
+		ContextAnnotator contextAnnotator = new ContextAnnotator();
+		contextAnnotator.initialize(UimaContextFactory.createUimaContext(ContextAnnotator.SCOPE_ORDER_PARAM,
+				"LEFT,MIDDLE,RIGHT,ALL"));
+		String[] words = { "no", "fever", "or", "chills", "but", "cough", ".", "denies", "pain", ";", "which", "x" };
+		Random random = new Random(7);
+		JCas jCas = JCasFactory.createJCas();
+		for (int document = 0; document < 50; document++) {
+			jCas.reset();
+			StringBuilder sb = new StringBuilder();
+			List<int[]> wordSpans = new ArrayList<int[]>();
+			for (int i = 0; i < 60; i++) {
+				String word = words[random.nextInt(words.length)];
+				wordSpans.add(new int[] { sb.length(), sb.length() + word.length() });
+				sb.append(word).append(' ');
+			}
+			jCas.setDocumentText(sb.toString());
+			for (int[] span : wordSpans) {
+				new WordToken(jCas, span[0], span[1]).addToIndexes();
+				if (random.nextInt(20) == 0) {
+					new WordToken(jCas, span[0], span[0]).addToIndexes();
+				}
+				if (random.nextInt(20) == 0) {
+					new WordToken(jCas, span[0], Math.min(span[1] + 4, sb.length())).addToIndexes();
+				}
+			}
+			int sentenceBegin = 0;
+			while (sentenceBegin < sb.length()) {
+				int sentenceEnd = Math.min(sb.length(), sentenceBegin + 20 + random.nextInt(60));
+				new Sentence(jCas, sentenceBegin, sentenceEnd).addToIndexes();
+				for (int i = 0; i < 6; i++) {
+					int begin;
+					int end;
+					if (random.nextBoolean()) {
+						int[] first = wordSpans.get(random.nextInt(wordSpans.size()));
+						int[] last = wordSpans.get(Math.min(wordSpans.size() - 1,
+								wordSpans.indexOf(first) + random.nextInt(3)));
+						begin = first[0];
+						end = last[1];
+					} else {
+						begin = sentenceBegin + random.nextInt(sentenceEnd - sentenceBegin);
+						end = begin + random.nextInt(sentenceEnd - begin + 1);
+					}
+					new IdentifiedAnnotation(jCas, begin, end).addToIndexes();
+				}
+				sentenceBegin = sentenceEnd;
+			}
+			for (Sentence window : JCasUtil.select(jCas, Sentence.class)) {
+				List<BaseToken> windowContextList = JCasUtil.selectCovered(jCas, BaseToken.class, window);
+				Annotation[] windowContext = windowContextList.toArray(new Annotation[windowContextList.size()]);
+				for (IdentifiedAnnotation focus : JCasUtil.selectCovered(jCas, IdentifiedAnnotation.class, window)) {
+					for (int scope = ContextAnnotator.LEFT_SCOPE; scope <= ContextAnnotator.ALL_SCOPE; scope++) {
+						assertEquals(focus.getBegin() + "," + focus.getEnd() + " scope " + scope,
+								contextAnnotator.getScopeContextAnnotations(jCas, focus, window, scope),
+								contextAnnotator.getScopeContextAnnotations(jCas, focus, window, windowContext, scope));
+					}
+				}
+			}
+		}
+	}
 }
@@ -50,10 +50,13 @@
 
 package org.apache.ctakes.postagger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.resource.FileLocator;
@@ -75,6 +78,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
 
 @PipeBitInfo(
 		name = "Part of Speech Tagger",
@@ -97,7 +101,16 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 	public static final String PARAM_POS_MODEL_FILE = POS_MODEL_FILE_PARAM;
 	@ConfigurationParameter(name = POS_MODEL_FILE_PARAM, mandatory = false, defaultValue = "org/apache/ctakes/postagger/models/mayo-pos.zip", description = "Model file for OpenNLP POS tagger")
 	private String posModelPath;
-	private opennlp.tools.postag.POSTaggerME tagger;
+	private POSModel model;
+	private POSTaggerME tagger;
+
+	/**
+	 * Models are immutable after loading, so one model is shared by all taggers that use the same file.
+	 * Each tagger only holds its own small tagging state.
+	 * A model is counted by the taggers that use it and is dropped when the last of them is destroyed,
+	 * so it does not stay in memory for the life of the class loader.
+	 */
+	static private final Map<String, SharedModel> MODELS = new HashMap<>();
 
 	@Override
 	public void initialize(UimaContext uimaContext)
@@ -106,26 +119,106 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 
 		logger.info("POS tagger model file: " + posModelPath);
 
-		try (InputStream fis = FileLocator.getAsStream(posModelPath)) {
-			POSModel modelFile = new POSModel(fis);
-			tagger = new opennlp.tools.postag.POSTaggerME(modelFile);
+		try {
+			if (model != null) {
+				releaseSharedModel(posModelPath);
+			}
+			model = acquireSharedModel(posModelPath);
+			tagger = new POSTaggerME(model);
 		} catch (Exception e) {
 			logger.info("Error loading POS tagger model: " + posModelPath);
 			throw new ResourceInitializationException(e);
 		}
 	}
 
+	/**
+	 * Releases the shared model, which is dropped if no other tagger uses it.
+	 */
+	@Override
+	public void destroy() {
+		if (model != null) {
+			releaseSharedModel(posModelPath);
+			model = null;
+			tagger = null;
+		}
+		super.destroy();
+	}
+
+	/**
+	 * @param posModelPath path to a model file
+	 * @return the model in the file, loaded only if no other tagger is using the file
+	 * @throws IOException if the model cannot be read
+	 */
+	static private POSModel acquireSharedModel(String posModelPath) throws IOException {
+		synchronized (MODELS) {
+			SharedModel sharedModel = MODELS.get(posModelPath);
+			if (sharedModel == null) {
+				try (InputStream fis = FileLocator.getAsStream(posModelPath)) {
+					sharedModel = new SharedModel(new POSModel(fis));
+				}
+				MODELS.put(posModelPath, sharedModel);
+			}
+			sharedModel.users++;
+			return sharedModel.model;
+		}
+	}
+
+	/**
+	 * @param posModelPath path to a model file that was acquired
+	 */
+	static private void releaseSharedModel(String posModelPath) {
+		synchronized (MODELS) {
+			SharedModel sharedModel = MODELS.get(posModelPath);
+			if (sharedModel != null && --sharedModel.users <= 0) {
+				MODELS.remove(posModelPath);
+			}
+		}
+	}
+
+	/**
+	 * A loaded model and the number of taggers using it
+	 */
+	static private final class SharedModel {
+		private final POSModel model;
+		private int users;
+
+		private SharedModel(POSModel model) {
+			this.model = model;
+		}
+	}
+
+	/**
+	 * @return the shared model used by this tagger
+	 */
+	protected POSModel getModel() {
+		return model;
+	}
+
+	/**
+	 * @param words words of a sentence
+	 * @return part of speech tags of the words
+	 */
+	protected String[] tag(String[] words) {
+		return tagger.tag(words);
+	}
+
+	/**
+	 * The tokens of all sentences are collected in one pass over the document, then each sentence is tagged.
+	 */
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
 
 		logger.info("process(JCas)");
 
+		Map<Sentence, Collection<BaseToken>> sentenceTokens = JCasUtil.indexCovered(jCas, Sentence.class,
+				BaseToken.class);
 		Collection<Sentence> sentences = JCasUtil.select(jCas, Sentence.class);
+		List<BaseToken> printableTokens = new ArrayList<>();
 		for (Sentence sentence : sentences) {
 
-			List<BaseToken> printableTokens = new ArrayList<>();
+			printableTokens.clear();
 			
-			for(BaseToken token : JCasUtil.selectCovered(BaseToken.class,	sentence)){
+			for(BaseToken token : sentenceTokens.get(sentence)){
 			  if(token instanceof NewlineToken) continue;
 			  printableTokens.add(token);
 			}
@@ -136,7 +229,7 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 			}
 
 			if (words.length > 0) {
-				String[] wordTagList = tagger.tag(words);
+				String[] wordTagList = tag(words);
 
 				try {
 					for (int i = 0; i < printableTokens.size(); i++) {
@@ -1,6 +1,5 @@
 package org.apache.ctakes.postagger.concurrent;
 
-import org.apache.ctakes.core.concurrent.ThreadSafeWrapper;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.postagger.POSTagger;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
@@ -9,16 +8,17 @@ import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.TypePrioritiesFactory;
 import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
-import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import opennlp.tools.postag.POSTaggerME;
+
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
- * Made a singleton mostly for model memory.
+ * All instances share one model in memory.  Each thread tags with its own tagger on that model,
+ * so threads do not wait for each other.
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -34,20 +34,34 @@ final public class ThreadSafePosTagger extends POSTagger {
 
    static private final Logger LOGGER = Logger.getLogger( "ThreadSafePosTagger" );
 
+   // Taggers are small and hold the beam and context caches, so they are kept between documents
+   private ThreadLocal<POSTaggerME> _threadTaggers;
+
    /**
     * {@inheritDoc}
     */
    @Override
    public void initialize( final UimaContext context ) throws ResourceInitializationException {
-      PosSingleton.getInstance().initialize( context );
+      super.initialize( context );
+      _threadTaggers = ThreadLocal.withInitial( () -> new POSTaggerME( getModel() ) );
+   }
+
+   /**
+    * Drops the thread taggers so that they no longer hold the shared model.
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      _threadTaggers = null;
+      super.destroy();
    }
 
    /**
     * {@inheritDoc}
     */
    @Override
-   public void process( final JCas jCas ) throws AnalysisEngineProcessException {
-      PosSingleton.getInstance().process( jCas );
+   protected String[] tag( final String[] words ) {
+      return _threadTaggers.get().tag( words );
    }
 
    /**
@@ -75,43 +89,4 @@ final public class ThreadSafePosTagger extends POSTagger {
             POSTagger.PARAM_POS_MODEL_FILE, model );
    }
 
-
-   private enum PosSingleton implements ThreadSafeWrapper<POSTagger> {
-      INSTANCE;
-
-      static public PosSingleton getInstance() {
-         return INSTANCE;
-      }
-
-      private final POSTagger _delegate;
-      private boolean _initialized;
-
-      PosSingleton() {
-         _delegate = new POSTagger();
-      }
-
-      final private Object LOCK = new Object();
-
-      @Override
-      public Object getLock() {
-         return LOCK;
-      }
-
-      @Override
-      public POSTagger getDelegate() {
-         return _delegate;
-      }
-
-      @Override
-      public boolean isInitialized() {
-         return _initialized;
-      }
-
-      @Override
-      public void setInitialized( final boolean initialized ) {
-         _initialized = initialized;
-      }
-   }
-
-
 }
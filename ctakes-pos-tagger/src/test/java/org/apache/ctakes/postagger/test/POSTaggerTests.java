@@ -18,22 +18,125 @@
  */
 package org.apache.ctakes.postagger.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.Iterator;
 
 import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.UimaContextFactory;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.junit.Test;
 
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.postagger.POSTagger;
+import org.apache.ctakes.postagger.concurrent.ThreadSafePosTagger;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.ctakes.utils.test.TestUtil;
 
 public class POSTaggerTests {
 
+	private static final String MODEL_PATH = "org/apache/ctakes/postagger/models/mayo-pos.zip";
+
+	private static final String[][] SENTENCES = {
+		{ "The", "patient", "was", "given", "aspirin", "for", "chest", "pain", "." },
+		{ "She", "denies", "any", "history", "of", "diabetes", "or", "hypertension", "." },
+		{ "Follow", "up", "in", "two", "weeks", "with", "repeat", "labs", "." } };
+
+	/**
+	 * Exposes the model of a tagger
+	 */
+	private static final class ModelTagger extends POSTagger {
+		private POSModel model() {
+			return getModel();
+		}
+	}
+
+	private static ModelTagger createTagger() throws ResourceInitializationException {
+		ModelTagger tagger = new ModelTagger();
+		tagger.initialize(UimaContextFactory.createUimaContext());
+		return tagger;
+	}
+
+	@Test
+	public void testSharedModel() throws ResourceInitializationException {
+		ModelTagger tagger1 = createTagger();
+		ModelTagger tagger2 = createTagger();
+		assertNotNull(tagger1.model());
+		assertSame(tagger1.model(), tagger2.model());
+		POSModel sharedModel = tagger1.model();
+
+		// The model is kept while any tagger uses it
+		tagger1.destroy();
+		ModelTagger tagger3 = createTagger();
+		assertSame(sharedModel, tagger3.model());
+
+		// and dropped when the last tagger is destroyed
+		tagger2.destroy();
+		tagger3.destroy();
+		ModelTagger tagger4 = createTagger();
+		assertNotSame(sharedModel, tagger4.model());
+		tagger4.destroy();
+	}
+
+	@Test
+	public void testSameTagsAsUnsharedModel() throws Exception {
+		POSTaggerME unsharedTagger;
+		try (InputStream stream = FileLocator.getAsStream(MODEL_PATH)) {
+			unsharedTagger = new POSTaggerME(new POSModel(stream));
+		}
+		String[][] expected = new String[SENTENCES.length][];
+		for (int i = 0; i < SENTENCES.length; i++) {
+			expected[i] = unsharedTagger.tag(SENTENCES[i]);
+		}
+		assertTags(expected, POSTagger.createAnnotatorDescription());
+		assertTags(expected, ThreadSafePosTagger.createAnnotatorDescription());
+	}
+
+	private static void assertTags(String[][] expected, AnalysisEngineDescription description) throws Exception {
+		JCas jCas = JCasFactory.createJCas();
+		StringBuilder text = new StringBuilder();
+		for (String[] words : SENTENCES) {
+			int sentenceBegin = text.length();
+			for (String word : words) {
+				if (text.length() > sentenceBegin) {
+					text.append(' ');
+				}
+				new BaseToken(jCas, text.length(), text.length() + word.length()).addToIndexes();
+				text.append(word);
+			}
+			new Sentence(jCas, sentenceBegin, text.length()).addToIndexes();
+			text.append('\n');
+		}
+		jCas.setDocumentText(text.toString());
+
+		AnalysisEngine engine = AnalysisEngineFactory.createEngine(description);
+		engine.process(jCas);
+		engine.destroy();
+
+		int i = 0;
+		for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
+			String[] tags = JCasUtil.selectCovered(BaseToken.class, sentence).stream()
+					.map(BaseToken::getPartOfSpeech).toArray(String[]::new);
+			assertArrayEquals(expected[i++], tags);
+		}
+		assertEquals(SENTENCES.length, i);
+	}
+
 	@Test
     public void testTagger() throws ResourceInitializationException {
 		
@@ -0,0 +1,371 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.utils.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subset tree kernel computed with the fast tree kernel algorithm of
+ * Moschitti, "Making Tree Kernels practical for Natural Language Learning"
+ * (EACL 2006).
+ * <p>
+ * Trees are compiled once into {@link ProductionTree}s, with the nodes sorted
+ * by production. Evaluation merges the sorted node lists, so only pairs of
+ * nodes with the same production are visited, and keeps the delta of each
+ * visited pair in a hash table so that shared subtrees are counted once. Pairs of leaves
+ * or preterminals always have a delta of lambda squared and are counted
+ * without visiting them.
+ * <p>
+ * delta(n1, n2) is 0 if the productions differ, lambda squared for leaves
+ * and preterminals, and else lambda squared * product over the children of
+ * (1 + delta(child1, child2)). The kernel is the sum of delta over all pairs
+ * of nodes.
+ * <p>
+ * Thread safe: productions are interned in a concurrent map and each thread
+ * has its own delta table.
+ */
+public class FastTreeKernel {
+
+	/**
+	 * access to the nodes of some tree representation
+	 */
+	public interface TreeAdapter<T> {
+		T getChild(T node, int i);
+
+		int getChildCount(T node);
+
+		String getLabel(T node);
+	}
+
+	/**
+	 * delta table for one thread, an open addressing hash table keyed on the
+	 * node pair n1 * |T2| + n2. only pairs with the same production that are
+	 * not leaves or preterminals are stored, so the table grows with the
+	 * matching pairs rather than with |T1| * |T2|. an entry is valid if its
+	 * stamp is the current generation, so the table is never cleared, and it
+	 * shrinks again after a large evaluation.
+	 */
+	static private class DeltaTable {
+		static final int INITIAL_CAPACITY = 1 << 10;
+
+		int generation;
+		int mask;
+		int size;
+		long[] keys;
+		int[] stamps;
+		double[] values;
+
+		DeltaTable() {
+			allocate(INITIAL_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			stamps = new int[capacity];
+			values = new double[capacity];
+			mask = capacity - 1;
+			generation = 1;
+		}
+
+		private int slot(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			int slot = (int) (h >>> 32) & mask;
+			while (stamps[slot] == generation && keys[slot] != key)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		/**
+		 * @return the stored delta, or NaN if the pair was not stored
+		 */
+		double get(long key) {
+			int slot = slot(key);
+			return stamps[slot] == generation ? values[slot] : Double.NaN;
+		}
+
+		void put(long key, double value) {
+			int slot = slot(key);
+			if (stamps[slot] != generation) {
+				if (2 * (size + 1) > keys.length) {
+					grow();
+					slot = slot(key);
+				}
+				size++;
+				keys[slot] = key;
+				stamps[slot] = generation;
+			}
+			values[slot] = value;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldStamps = stamps;
+			double[] oldValues = values;
+			int oldGeneration = generation;
+			allocate(oldKeys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldStamps[i] == oldGeneration) {
+					int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					stamps[slot] = generation;
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+
+		/**
+		 * start a new evaluation. a table that is much larger than the last
+		 * evaluation needed is replaced by a smaller one.
+		 */
+		void reset() {
+			int needed = Math.max(INITIAL_CAPACITY,
+					Integer.highestOneBit(Math.max(1, size)) * 4);
+			size = 0;
+			if (keys.length > needed * 4) {
+				allocate(needed);
+				return;
+			}
+			generation++;
+			if (generation == 0) {
+				// wrapped around, old stamps could look valid
+				Arrays.fill(stamps, 0);
+				generation = 1;
+			}
+		}
+	}
+
+	public static final double DEFAULT_LAMBDA = 0.4;
+
+	private static final TreeAdapter<SimpleTree> SIMPLE_TREE_ADAPTER = new TreeAdapter<SimpleTree>() {
+		@Override
+		public SimpleTree getChild(SimpleTree node, int i) {
+			return node.children.get(i);
+		}
+
+		@Override
+		public int getChildCount(SimpleTree node) {
+			return node.children == null ? 0 : node.children.size();
+		}
+
+		@Override
+		public String getLabel(SimpleTree node) {
+			return node.cat;
+		}
+	};
+
+	private final ThreadLocal<DeltaTable> deltaTables = new ThreadLocal<DeltaTable>() {
+		@Override
+		protected DeltaTable initialValue() {
+			return new DeltaTable();
+		}
+	};
+	private final double lambda;
+	private final double lambdaSquared;
+	private final AtomicInteger nextProduction = new AtomicInteger();
+	private final ConcurrentMap<String, Integer> productionIds = new ConcurrentHashMap<String, Integer>();
+
+	public FastTreeKernel() {
+		this(DEFAULT_LAMBDA);
+	}
+
+	/**
+	 * @param lambda
+	 *            decay factor, each matching production contributes lambda
+	 *            squared
+	 */
+	public FastTreeKernel(double lambda) {
+		this.lambda = lambda;
+		this.lambdaSquared = lambda * lambda;
+	}
+
+	public double getLambda() {
+		return lambda;
+	}
+
+	public ProductionTree compile(SimpleTree tree) {
+		return compile(tree, SIMPLE_TREE_ADAPTER);
+	}
+
+	public <T> ProductionTree compile(T root, TreeAdapter<T> adapter) {
+		// breadth first, so that children are consecutive
+		List<T> nodes = new ArrayList<T>();
+		nodes.add(root);
+		List<Integer> childStartList = new ArrayList<Integer>();
+		for (int n = 0; n < nodes.size(); n++) {
+			T node = nodes.get(n);
+			childStartList.add(nodes.size());
+			int childCount = adapter.getChildCount(node);
+			for (int i = 0; i < childCount; i++)
+				nodes.add(adapter.getChild(node, i));
+		}
+		int nodeCount = nodes.size();
+		int[] productions = new int[nodeCount];
+		int[] childStarts = new int[nodeCount];
+		int[] childCounts = new int[nodeCount];
+		boolean[] constant = new boolean[nodeCount];
+		long[] packed = new long[nodeCount];
+		StringBuilder sb = new StringBuilder();
+		for (int n = 0; n < nodeCount; n++) {
+			T node = nodes.get(n);
+			int childCount = adapter.getChildCount(node);
+			childStarts[n] = childStartList.get(n);
+			childCounts[n] = childCount;
+			sb.setLength(0);
+			sb.append(adapter.getLabel(node));
+			for (int i = 0; i < childCount; i++)
+				sb.append('\t').append(adapter.getLabel(nodes.get(childStarts[n] + i)));
+			productions[n] = productionId(sb.toString());
+			constant[n] = childCount == 0
+					|| (childCount == 1 && adapter.getChildCount(nodes
+							.get(childStarts[n])) == 0);
+			packed[n] = ((long) productions[n] << 32) | n;
+		}
+		Arrays.sort(packed);
+		int[] sortedNodes = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			sortedNodes[i] = (int) packed[i];
+		return new ProductionTree(this, productions, childStarts, childCounts,
+				constant, sortedNodes);
+	}
+
+	private int productionId(String production) {
+		Integer id = productionIds.get(production);
+		if (id == null) {
+			Integer newId = nextProduction.getAndIncrement();
+			id = productionIds.putIfAbsent(production, newId);
+			if (id == null)
+				id = newId;
+		}
+		return id;
+	}
+
+	/**
+	 * @param t1
+	 * @param t2
+	 * @return the subset tree kernel of the trees
+	 */
+	public double evaluate(ProductionTree t1, ProductionTree t2) {
+		if (t1.kernel != this || t2.kernel != this)
+			throw new IllegalArgumentException(
+					"tree was compiled by another kernel");
+		DeltaTable table = null;
+		int[] s1 = t1.sortedNodes;
+		int[] s2 = t2.sortedNodes;
+		double sum = 0d;
+		int i = 0;
+		int j = 0;
+		while (i < s1.length && j < s2.length) {
+			int p1 = t1.productions[s1[i]];
+			int p2 = t2.productions[s2[j]];
+			if (p1 < p2) {
+				i++;
+			} else if (p1 > p2) {
+				j++;
+			} else {
+				int end1 = i;
+				int constant1 = 0;
+				while (end1 < s1.length && t1.productions[s1[end1]] == p1) {
+					if (t1.constant[s1[end1]])
+						constant1++;
+					end1++;
+				}
+				int end2 = j;
+				int constant2 = 0;
+				while (end2 < s2.length && t2.productions[s2[end2]] == p1) {
+					if (t2.constant[s2[end2]])
+						constant2++;
+					end2++;
+				}
+				// pairs where either node is a leaf or preterminal
+				int count1 = end1 - i;
+				int count2 = end2 - j;
+				sum += lambdaSquared
+						* ((double) constant1 * count2 + (double) (count1 - constant1)
+								* constant2);
+				if (constant1 < count1 && constant2 < count2) {
+					if (table == null) {
+						table = deltaTables.get();
+						table.reset();
+					}
+					for (int a = i; a < end1; a++) {
+						if (t1.constant[s1[a]])
+							continue;
+						for (int b = j; b < end2; b++) {
+							if (!t2.constant[s2[b]])
+								sum += delta(t1, t2, s1[a], s2[b], table);
+						}
+					}
+				}
+				i = end1;
+				j = end2;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * delta of two nodes with the same production
+	 */
+	private double delta(ProductionTree t1, ProductionTree t2, int n1, int n2,
+			DeltaTable table) {
+		if (t1.constant[n1] || t2.constant[n2])
+			return lambdaSquared;
+		long key = (long) n1 * t2.productions.length + n2;
+		double stored = table.get(key);
+		if (!Double.isNaN(stored))
+			return stored;
+		double delta = lambdaSquared;
+		int c1 = t1.childStarts[n1];
+		int c2 = t2.childStarts[n2];
+		for (int k = 0; k < t1.childCounts[n1]; k++) {
+			if (t1.productions[c1 + k] == t2.productions[c2 + k])
+				delta *= 1 + delta(t1, t2, c1 + k, c2 + k, table);
+		}
+		table.put(key, delta);
+		return delta;
+	}
+
+	/**
+	 * @param t1
+	 * @param t2
+	 * @return kernel normalized by the self kernels of the trees
+	 */
+	public double evaluateNormalized(ProductionTree t1, ProductionTree t2) {
+		double norm = Math.sqrt(getSelfKernel(t1) * getSelfKernel(t2));
+		return norm == 0d ? 0d : evaluate(t1, t2) / norm;
+	}
+
+	/**
+	 * @param tree
+	 * @return kernel of the tree with itself, computed once per tree
+	 */
+	public double getSelfKernel(ProductionTree tree) {
+		double selfKernel = tree.selfKernel;
+		if (Double.isNaN(selfKernel)) {
+			selfKernel = evaluate(tree, tree);
+			tree.selfKernel = selfKernel;
+		}
+		return selfKernel;
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.utils.tree;
+
+/**
+ * A tree compiled by a {@link FastTreeKernel}. Nodes are numbered breadth
+ * first, so the children of a node are consecutive. Each node has the id of
+ * its production, i.e. its label and the labels of its children, and the
+ * nodes are also listed sorted by production so that two trees can be
+ * matched with a merge.
+ * <p>
+ * Only usable with the kernel that compiled it. Immutable apart from the
+ * cached self kernel, so it can be shared by threads.
+ */
+public class ProductionTree {
+	final int[] childCounts;
+	final int[] childStarts;
+	/**
+	 * leaves and preterminals, whose delta with a node of the same
+	 * production is always lambda squared
+	 */
+	final boolean[] constant;
+	final FastTreeKernel kernel;
+	final int[] productions;
+	/**
+	 * node indices sorted by production
+	 */
+	final int[] sortedNodes;
+	/**
+	 * kernel of the tree with itself, NaN until computed
+	 */
+	volatile double selfKernel = Double.NaN;
+
+	ProductionTree(FastTreeKernel kernel, int[] productions,
+			int[] childStarts, int[] childCounts, boolean[] constant,
+			int[] sortedNodes) {
+		this.kernel = kernel;
+		this.productions = productions;
+		this.childStarts = childStarts;
+		this.childCounts = childCounts;
+		this.constant = constant;
+		this.sortedNodes = sortedNodes;
+	}
+
+	public int getNodeCount() {
+		return productions.length;
+	}
+}
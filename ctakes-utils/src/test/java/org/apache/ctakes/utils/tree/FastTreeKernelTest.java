@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FastTreeKernelTest {
+
+	private static final String[] TREES = {
+			"(S (NP (PRP it)) (VP (VBZ is) (JJ red)))",
+			"(S (NP (DT the) (NN car)) (VP (VBZ is) (JJ red)))",
+			"(S (NP (DT the) (NN car)) (VP (VBZ is) (ADJP (RB very) (JJ red))))",
+			"(S (NP (NP (DT the) (NN car)) (PP (IN of) (NP (PRP it)))) (VP (VBZ is) (JJ red)))",
+			"(NP (DT the) (NN car))", "(NN car)" };
+
+	private static final double LAMBDA_SQUARED = FastTreeKernel.DEFAULT_LAMBDA
+			* FastTreeKernel.DEFAULT_LAMBDA;
+
+	private static List<SimpleTree> nodes(SimpleTree tree) {
+		List<SimpleTree> nodes = new ArrayList<SimpleTree>();
+		nodes.add(tree);
+		for (int i = 0; i < nodes.size(); i++)
+			nodes.addAll(nodes.get(i).children);
+		return nodes;
+	}
+
+	private static boolean sameProduction(SimpleTree n1, SimpleTree n2) {
+		if (!n1.cat.equals(n2.cat) || n1.children.size() != n2.children.size())
+			return false;
+		for (int i = 0; i < n1.children.size(); i++) {
+			if (!n1.children.get(i).cat.equals(n2.children.get(i).cat))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean preterminal(SimpleTree n) {
+		return n.children.size() == 1 && n.children.get(0).isLeaf();
+	}
+
+	/**
+	 * recursive delta without a table
+	 */
+	private static double delta(SimpleTree n1, SimpleTree n2) {
+		if (!sameProduction(n1, n2))
+			return 0d;
+		if (n1.isLeaf() || preterminal(n1) || preterminal(n2))
+			return LAMBDA_SQUARED;
+		double delta = LAMBDA_SQUARED;
+		for (int i = 0; i < n1.children.size(); i++)
+			delta *= 1 + delta(n1.children.get(i), n2.children.get(i));
+		return delta;
+	}
+
+	private static double reference(SimpleTree t1, SimpleTree t2) {
+		double sum = 0d;
+		for (SimpleTree n1 : nodes(t1)) {
+			for (SimpleTree n2 : nodes(t2))
+				sum += delta(n1, n2);
+		}
+		return sum;
+	}
+
+	@Test
+	public void testSameAsAllPairs() {
+		FastTreeKernel kernel = new FastTreeKernel();
+		for (String s1 : TREES) {
+			SimpleTree t1 = SimpleTree.fromString(s1);
+			ProductionTree p1 = kernel.compile(t1);
+			for (String s2 : TREES) {
+				SimpleTree t2 = SimpleTree.fromString(s2);
+				ProductionTree p2 = kernel.compile(t2);
+				assertEquals(s1 + " " + s2, reference(t1, t2),
+						kernel.evaluate(p1, p2), 1e-12);
+				assertEquals(
+						s1 + " " + s2,
+						reference(t1, t2)
+								/ Math.sqrt(reference(t1, t1)
+										* reference(t2, t2)),
+						kernel.evaluateNormalized(p1, p2), 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testPreterminal() {
+		FastTreeKernel kernel = new FastTreeKernel();
+		// the preterminal and the leaf each match themselves
+		ProductionTree t = kernel.compile(SimpleTree.fromString("(NN car)"));
+		assertEquals(2 * LAMBDA_SQUARED, kernel.evaluate(t, t), 1e-12);
+		assertEquals(1d, kernel.evaluateNormalized(t, t), 1e-12);
+	}
+
+	/**
+	 * root with count children (X&lt;i % labels&gt; (A a) (B b))
+	 */
+	private static SimpleTree wideTree(String root, int count, int labels) {
+		SimpleTree tree = new SimpleTree(root);
+		for (int i = 0; i < count; i++) {
+			SimpleTree x = new SimpleTree("X" + (i % labels));
+			for (String[] pt : new String[][] { { "A", "a" }, { "B", "b" } }) {
+				SimpleTree t = new SimpleTree(pt[0]);
+				t.addChild(new SimpleTree(pt[1]));
+				x.addChild(t);
+			}
+			tree.addChild(x);
+		}
+		return tree;
+	}
+
+	@Test
+	public void testLargeTrees() {
+		// more than 46341 nodes per tree, so |T1| * |T2| does not fit an int
+		int count = 12000;
+		int labels = 1000;
+		FastTreeKernel kernel = new FastTreeKernel();
+		ProductionTree t1 = kernel.compile(wideTree("S", count, labels));
+		ProductionTree t2 = kernel.compile(wideTree("T", count, labels));
+		// A, B and the leaves match all pairs, X only pairs with the same label
+		double perLabel = count / labels;
+		double expected = 4d * count * count * LAMBDA_SQUARED + labels
+				* perLabel * perLabel * LAMBDA_SQUARED
+				* (1 + LAMBDA_SQUARED) * (1 + LAMBDA_SQUARED);
+		assertEquals(1d, kernel.evaluate(t1, t2) / expected, 1e-12);
+		// the table of the large evaluation is shrunk and still correct
+		for (String s : TREES) {
+			SimpleTree t = SimpleTree.fromString(s);
+			ProductionTree p = kernel.compile(t);
+			assertEquals(s, reference(t, t), kernel.evaluate(p, p), 1e-12);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherKernel() {
+		ProductionTree t = new FastTreeKernel().compile(SimpleTree
+				.fromString("(NN car)"));
+		new FastTreeKernel().evaluate(t, t);
+	}
+}
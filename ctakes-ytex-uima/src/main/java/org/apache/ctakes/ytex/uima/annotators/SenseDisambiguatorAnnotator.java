@@ -104,7 +104,7 @@ public class SenseDisambiguatorAnnotator extends JCasAnnotator_ImplBase {
 		ConceptSimilarityService simSvc = ApplicationContextHolder
 				.getApplicationContext().getBean(
 						ConceptSimilarityService.class);
-		if (simSvc.getConceptGraph() == null) {
+		if (simSvc.getConceptGraphIndex() == null) {
 			log.warn("Concept Graph was not loaded - word sense disambiguation disabled");
 			disabled = true;
 		}
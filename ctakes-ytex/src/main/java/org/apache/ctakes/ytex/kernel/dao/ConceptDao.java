@@ -21,7 +21,9 @@ package org.apache.ctakes.ytex.kernel.dao;
 import java.io.IOException;
 import java.util.Set;
 
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.MappedConceptGraph;
 
 /**
  * create/retrieve concept graphs. store concept graph on file system as they
@@ -38,14 +40,16 @@ public interface ConceptDao {
 	 * graph as follows:
 	 * <ul>
 	 * <li>classpath: attempt to load
-	 * org/apache/ctakes/ytex/conceptGraph/[name].gz</li>
+	 * org/apache/ctakes/ytex/conceptGraph/[name].cg</li>
 	 * <li>relative to org.apache.ctakes.ytex.conceptGraphDir: if that fails
 	 * then relative to the directory defined by the system property/ytex
 	 * property org.apache.ctakes.ytex.conceptGraphDir</li>
 	 * <li>relative to ytex.properties: if the org...conceptGraphDir property is
 	 * not defined, then look for [directory of
-	 * ytex.properties]/conceptGraph/[name].gz</li>
+	 * ytex.properties]/conceptGraph/[name].cg</li>
 	 * </ul>
+	 * If there is no [name].cg, look for a graph in the old [name].gz format
+	 * in the same places.
 	 * 
 	 * @param name
 	 *            name of concept graph. Will retrieve from classpath/file
@@ -54,9 +58,31 @@ public interface ConceptDao {
 	 */
 	public abstract ConceptGraph getConceptGraph(String name);
 
+	/**
+	 * retrieve an existing concept graph without creating {@link ConcRel}
+	 * objects. The graph is found as in {@link #getConceptGraph(String)}; a
+	 * [name].cg file is memory-mapped, a graph in the old format is converted
+	 * in memory.
+	 * 
+	 * @param name
+	 *            name of concept graph
+	 * @return null if not found
+	 */
+	public abstract MappedConceptGraph getMappedConceptGraph(String name);
+
+	/**
+	 * convert a concept graph in the old [name].gz format to the [name].cg
+	 * format, written to the directory specified by the system property/ytex
+	 * property org.apache.ctakes.ytex.conceptGraphDir
+	 * 
+	 * @param name
+	 *            name of concept graph
+	 */
+	public abstract void convertConceptGraph(String name) throws IOException;
+
 	/**
 	 * create the concept graph with specified name using specified query. Will
-	 * create a file [name].gz under dir.
+	 * create a file [name].cg under dir.
 	 * 
 	 * @param dir
 	 *            directory of concept graph (optional). If null will use
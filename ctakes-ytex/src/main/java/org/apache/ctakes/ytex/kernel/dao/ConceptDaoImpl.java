@@ -19,14 +19,11 @@
 package org.apache.ctakes.ytex.kernel.dao;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.sql.ResultSet;
@@ -36,7 +33,6 @@ import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.sql.DataSource;
 
@@ -54,16 +50,25 @@ import org.apache.ctakes.ytex.kernel.IntrinsicInfoContentEvaluator;
 import org.apache.ctakes.ytex.kernel.KernelContextHolder;
 import org.apache.ctakes.ytex.kernel.model.ConcRel;
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.MappedConceptGraph;
 import org.hibernate.SessionFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 public class ConceptDaoImpl implements ConceptDao {
 	private static final String CONCEPT_GRAPH_PATH = "org/apache/ctakes/ytex/conceptGraph/";
+	/**
+	 * extension of concept graphs in the {@link MappedConceptGraph} format
+	 */
+	private static final String CONCEPT_GRAPH_EXT = ".cg";
+	/**
+	 * extension of gzipped, java serialized concept graphs written by older
+	 * versions. these can still be read.
+	 */
+	private static final String LEGACY_CONCEPT_GRAPH_EXT = ".gz";
 	/**
 	 * the default concept id for the root. override with -Dytex.defaultRootId
 	 */
@@ -127,10 +132,21 @@ public class ConceptDaoImpl implements ConceptDao {
 								+ CONCEPT_GRAPH_PATH
 								+ "/[name].xml must exist on the classpath")
 				.create("name"));
+		options.addOption(OptionBuilder
+				.withDescription(
+						"convert an existing concept graph from the old "
+								+ LEGACY_CONCEPT_GRAPH_EXT + " format to the "
+								+ CONCEPT_GRAPH_EXT + " format")
+				.create("convert"));
 		try {
 			CommandLineParser parser = new GnuParser();
 			CommandLine line = parser.parse(options, args);
 			String name = line.getOptionValue("name");
+			if (line.hasOption("convert")) {
+				KernelContextHolder.getApplicationContext()
+						.getBean(ConceptDao.class).convertConceptGraph(name);
+				return;
+			}
 			String propRes = CONCEPT_GRAPH_PATH + name + ".xml";
 			URL url = ConceptDaoImpl.class.getClassLoader()
 					.getResource(propRes);
@@ -363,6 +379,51 @@ public class ConceptDaoImpl implements ConceptDao {
 		return cg;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.ctakes.ytex.kernel.dao.ConceptDao#getMappedConceptGraph(java
+	 * .lang.String)
+	 */
+	@Override
+	public MappedConceptGraph getMappedConceptGraph(String name) {
+		MappedConceptGraph mcg = this.readMappedConceptGraph(name);
+		if (mcg == null) {
+			ConceptGraph cg = this.readLegacyConceptGraph(name);
+			if (cg != null) {
+				log.info("concept graph "
+						+ name
+						+ " is in the old format and must be converted in memory, run ConceptDaoImpl -convert -name "
+						+ name + " to convert it");
+				mcg = MappedConceptGraph.fromConceptGraph(cg);
+			}
+		}
+		return mcg;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.ctakes.ytex.kernel.dao.ConceptDao#convertConceptGraph(java
+	 * .lang.String)
+	 */
+	@Override
+	public void convertConceptGraph(String name) throws IOException {
+		ConceptGraph cg = this.readLegacyConceptGraph(name);
+		if (cg == null)
+			throw new IllegalArgumentException("concept graph " + name
+					+ " in the " + LEGACY_CONCEPT_GRAPH_EXT
+					+ " format not found");
+		String cdir = this.getDefaultConceptGraphDir();
+		if (Strings.isNullOrEmpty(cdir)) {
+			throw new IllegalArgumentException(
+					"could not determine default concept graph directory; please set property org.apache.ctakes.ytex.conceptGraphDir");
+		}
+		writeConceptGraph(cdir, name, cg);
+	}
+
 	private File urlToFile(URL url) {
 		if (url != null && "file".equals(url.getProtocol())) {
 			File f;
@@ -478,19 +539,69 @@ public class ConceptDaoImpl implements ConceptDao {
 		return cg;
 	}
 
+	/**
+	 * read the concept graph in the new format if there is one, else in the
+	 * old format
+	 */
 	private ConceptGraph readConceptGraph(String name) {
+		MappedConceptGraph mcg = this.readMappedConceptGraph(name);
+		if (mcg != null)
+			return mcg.toConceptGraph();
+		return this.readLegacyConceptGraph(name);
+	}
+
+	/**
+	 * look for [name].cg on the classpath, then in the concept graph
+	 * directory. files are memory-mapped, resources in jars are read into
+	 * memory.
+	 * 
+	 * @return null if not found
+	 */
+	private MappedConceptGraph readMappedConceptGraph(String name) {
+		String resource = CONCEPT_GRAPH_PATH + name + CONCEPT_GRAPH_EXT;
+		try {
+			URL url = this.getClass().getClassLoader().getResource(resource);
+			if (url != null) {
+				log.info("loading concept graph from " + url);
+				File f = urlToFile(url);
+				if (f != null)
+					return MappedConceptGraph.open(f);
+				InputStream is = url.openStream();
+				try {
+					return MappedConceptGraph.read(new BufferedInputStream(is));
+				} finally {
+					is.close();
+				}
+			}
+			String cdir = this.getDefaultConceptGraphDir();
+			if (cdir != null) {
+				File f = new File(cdir + "/" + name + CONCEPT_GRAPH_EXT);
+				if (f.exists()) {
+					log.info("loading concept graph from "
+							+ f.getAbsolutePath());
+					return MappedConceptGraph.open(f);
+				}
+			}
+			return null;
+		} catch (IOException ioe) {
+			throw new RuntimeException(ioe);
+		}
+	}
+
+	private ConceptGraph readLegacyConceptGraph(String name) {
 		ObjectInputStream is = null;
 		try {
 			// try loading from classpath
 			InputStream resIs = this.getClass().getClassLoader()
-					.getResourceAsStream(CONCEPT_GRAPH_PATH + name + ".gz");
+					.getResourceAsStream(
+							CONCEPT_GRAPH_PATH + name + LEGACY_CONCEPT_GRAPH_EXT);
 			if (resIs == null) {
 				String cdir = this.getDefaultConceptGraphDir();
 				if (cdir == null) {
 					throw new IllegalArgumentException(
 							"could not determine default concept graph directory; please set property org.apache.ctakes.ytex.conceptGraphDir");
 				}
-				File f = new File(cdir + "/" + name + ".gz");
+				File f = new File(cdir + "/" + name + LEGACY_CONCEPT_GRAPH_EXT);
 				log.info("could not load conceptGraph from classpath, attempt to load from: "
 						+ f.getAbsolutePath());
 				if (f.exists()) {
@@ -502,7 +613,9 @@ public class ConceptDaoImpl implements ConceptDao {
 			} else {
 				log.info("loading concept graph from "
 						+ this.getClass().getClassLoader()
-								.getResource(CONCEPT_GRAPH_PATH + name + ".gz"));
+								.getResource(
+										CONCEPT_GRAPH_PATH + name
+												+ LEGACY_CONCEPT_GRAPH_EXT));
 			}
 			if (resIs != null) {
 				is = new ObjectInputStream(new BufferedInputStream(
@@ -580,33 +693,19 @@ public class ConceptDaoImpl implements ConceptDao {
 	// }
 
 	/**
-	 * write the concept graph, create parent directories as required
+	 * write the concept graph in the {@link MappedConceptGraph} format, create
+	 * parent directories as required
 	 * 
 	 * @param name
 	 * @param cg
 	 */
 	private void writeConceptGraph(String dir, String name, ConceptGraph cg) {
-		ObjectOutputStream os = null;
-		String outputDir = dir;
-		File cgFile = new File(outputDir + "/" + name + ".gz");
+		File cgFile = new File(dir + "/" + name + CONCEPT_GRAPH_EXT);
 		log.info("writing concept graph: " + cgFile.getAbsolutePath());
-		if (!cgFile.getParentFile().exists())
-			cgFile.getParentFile().mkdirs();
 		try {
-			os = new ObjectOutputStream(new BufferedOutputStream(
-					new GZIPOutputStream(new FileOutputStream(cgFile))));
-			// replace the writable list with an immutable list
-			cg.setConceptList(ImmutableList.copyOf(cg.getConceptList()));
-			os.writeObject(cg);
+			MappedConceptGraph.write(cg, cgFile);
 		} catch (IOException ioe) {
 			throw new RuntimeException(ioe);
-		} finally {
-			if (os != null)
-				try {
-					os.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
 		}
 	}
 
@@ -18,6 +18,7 @@
  */
 package org.apache.ctakes.ytex.kernel.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.ctakes.ytex.kernel.model.KernelEvaluation;
@@ -35,9 +36,40 @@ public interface KernelEvaluationDao {
 	public abstract void storeKernel(KernelEvaluation kernelEvaluation,
 			long instanceId1, long instanceId2, double kernel);
 
+	/**
+	 * store many kernel evaluations in the current transaction. the session
+	 * is flushed and cleared as we go, so that hibernate can batch the
+	 * inserts without keeping the objects.
+	 * 
+	 * @param kernelEvaluation
+	 * @param instanceIds1
+	 * @param instanceIds2
+	 * @param kernels
+	 * @param count
+	 *            number of evaluations in the arrays
+	 */
+	public abstract void storeKernels(KernelEvaluation kernelEvaluation,
+			long[] instanceIds1, long[] instanceIds2, double[] kernels,
+			int count);
+
 	public abstract Double getKernel(KernelEvaluation kernelEvaluation,
 			long instanceId1, long instanceId2);
 
+	/**
+	 * @return number of kernel evaluations stored for pairs of an instance
+	 *         from instanceIds1 and an instance from instanceIds2
+	 */
+	public abstract long countKernels(KernelEvaluation kernelEvaluation,
+			Collection<Long> instanceIds1, Collection<Long> instanceIds2);
+
+	/**
+	 * @return kernel evaluations stored for pairs of an instance from
+	 *         instanceIds1 and an instance from instanceIds2
+	 */
+	public abstract List<KernelEvaluationInstance> getKernels(
+			KernelEvaluation kernelEvaluation, Collection<Long> instanceIds1,
+			Collection<Long> instanceIds2);
+
 	public List<KernelEvaluationInstance> getAllKernelEvaluationsForInstance(
 			KernelEvaluation kernelEvaluation, long instanceId);
 
@@ -18,6 +18,7 @@
  */
 package org.apache.ctakes.ytex.kernel.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -26,6 +27,7 @@ import org.apache.ctakes.ytex.dao.DBUtil;
 import org.apache.ctakes.ytex.kernel.model.KernelEvaluation;
 import org.apache.ctakes.ytex.kernel.model.KernelEvaluationInstance;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
@@ -37,6 +39,7 @@ public class KernelEvaluationDaoImpl implements KernelEvaluationDao {
 	private SessionFactory sessionFactory;
 	private static final Log log = LogFactory
 			.getLog(KernelEvaluationDaoImpl.class);
+	private static final int FLUSH_INTERVAL = 1000;
 	private PlatformTransactionManager transactionManager;
 
 	public PlatformTransactionManager getTransactionManager() {
@@ -112,6 +115,26 @@ public class KernelEvaluationDaoImpl implements KernelEvaluationDao {
 		this.getSessionFactory().getCurrentSession().save(g);
 	}
 
+	public void storeKernels(KernelEvaluation kernelEvaluation,
+			long[] instanceIds1, long[] instanceIds2, double[] kernels,
+			int count) {
+		Session session = this.getSessionFactory().getCurrentSession();
+		for (int i = 0; i < count; i++) {
+			long instanceId1 = Math.min(instanceIds1[i], instanceIds2[i]);
+			long instanceId2 = Math.max(instanceIds1[i], instanceIds2[i]);
+			session.save(new KernelEvaluationInstance(kernelEvaluation
+					.getKernelEvaluationId(), instanceId1, instanceId2,
+					kernels[i]));
+			// keep the session small
+			if ((i + 1) % FLUSH_INTERVAL == 0) {
+				session.flush();
+				session.clear();
+			}
+		}
+		session.flush();
+		session.clear();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -139,6 +162,32 @@ public class KernelEvaluationDaoImpl implements KernelEvaluationDao {
 		}
 	}
 
+	@Override
+	public long countKernels(KernelEvaluation kernelEvaluation,
+			Collection<Long> instanceIds1, Collection<Long> instanceIds2) {
+		Query q = this.getSessionFactory().getCurrentSession()
+				.getNamedQuery("countKernelEvaluationsForPairs");
+		q.setInteger("kernelEvaluationId",
+				kernelEvaluation.getKernelEvaluationId());
+		q.setParameterList("instanceIds1", instanceIds1);
+		q.setParameterList("instanceIds2", instanceIds2);
+		return ((Number) q.uniqueResult()).longValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<KernelEvaluationInstance> getKernels(
+			KernelEvaluation kernelEvaluation, Collection<Long> instanceIds1,
+			Collection<Long> instanceIds2) {
+		Query q = this.getSessionFactory().getCurrentSession()
+				.getNamedQuery("getKernelEvaluationsForPairs");
+		q.setInteger("kernelEvaluationId",
+				kernelEvaluation.getKernelEvaluationId());
+		q.setParameterList("instanceIds1", instanceIds1);
+		q.setParameterList("instanceIds2", instanceIds2);
+		return q.list();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public List<KernelEvaluationInstance> getAllKernelEvaluationsForInstance(
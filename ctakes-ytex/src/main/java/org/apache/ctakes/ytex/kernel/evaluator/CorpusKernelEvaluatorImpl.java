@@ -18,17 +18,20 @@
  */
 package org.apache.ctakes.ytex.kernel.evaluator;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -43,6 +46,8 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ctakes.ytex.dao.DBUtil;
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixEvaluator.Tile;
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixEvaluator.TileSink;
 import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDao;
 import org.apache.ctakes.ytex.kernel.model.KernelEvaluation;
 import org.apache.ctakes.ytex.kernel.model.KernelEvaluationInstance;
@@ -71,29 +76,132 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 
 	}
 
-	public class SliceEvaluator implements Callable<Object> {
-		Map<Long, Node> instanceIDMap;
-		int nMod;
-		int nSlice;
-		boolean evalTest;
+	/**
+	 * store each tile in one transaction. a tile is done if the evaluations
+	 * of all its pairs are in the database, whichever run stored them: an
+	 * earlier run with another tile size or the row by row slices can leave
+	 * a tile partly stored. the tile is then evaluated again, and only the
+	 * missing pairs are stored.
+	 */
+	protected class DatabaseTileSink implements TileSink {
+		final long[] instanceIds;
+		final List<Node> instances;
+		final KernelEvaluation kernelEvaluation;
+		/**
+		 * indices of the tiles with some pairs already stored
+		 */
+		final Set<Integer> partialTiles = Collections
+				.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+		public DatabaseTileSink(KernelEvaluation kernelEvaluation,
+				long[] instanceIds, List<Node> instances) {
+			this.kernelEvaluation = kernelEvaluation;
+			this.instanceIds = instanceIds;
+			this.instances = instances;
+		}
 
-		public SliceEvaluator(Map<Long, Node> instanceIDMap, int nMod,
-				int nSlice, boolean evalTest) {
-			this.nSlice = nSlice;
-			this.nMod = nMod;
-			this.instanceIDMap = instanceIDMap;
-			this.evalTest = evalTest;
+		private List<Long> ids(int start, int end) {
+			List<Long> ids = new ArrayList<Long>(end - start);
+			for (int i = start; i < end; i++)
+				ids.add(instanceIds[i]);
+			return ids;
 		}
 
 		@Override
-		public Object call() throws Exception {
-			try {
-				evaluateKernelOnCorpus(instanceIDMap, nMod, nSlice, evalTest);
-			} catch (Exception e) {
-				log.error("error on slice: " + nSlice, e);
-				throw e;
+		public boolean isTileDone(Tile tile) {
+			long pairs = 0;
+			for (int row = tile.getRowStart(); row < tile.getRowEnd(); row++) {
+				if (instances.get(row) == null)
+					continue;
+				for (int col = Math.max(row, tile.getColStart()); col < tile
+						.getColEnd(); col++) {
+					if (instances.get(col) != null)
+						pairs++;
+				}
 			}
-			return null;
+			if (pairs == 0) {
+				// nothing to store
+				return true;
+			}
+			final List<Long> rowIds = ids(tile.getRowStart(), tile.getRowEnd());
+			final List<Long> colIds = ids(tile.getColStart(), tile.getColEnd());
+			long stored = txTemplate.execute(new TransactionCallback<Long>() {
+				@Override
+				public Long doInTransaction(TransactionStatus arg0) {
+					return kernelEvaluationDao.countKernels(kernelEvaluation,
+							rowIds, colIds);
+				}
+			});
+			if (stored > 0 && stored < pairs)
+				partialTiles.add(tile.getIndex());
+			return stored >= pairs;
+		}
+
+		@Override
+		public void storeTile(final Tile tile, double[] values) {
+			final long[] ids1 = new long[values.length];
+			final long[] ids2 = new long[values.length];
+			final double[] kernels = new double[values.length];
+			int count = 0;
+			int index = 0;
+			for (int row = tile.getRowStart(); row < tile.getRowEnd(); row++) {
+				for (int col = tile.getColStart(); col < tile.getColEnd(); col++) {
+					double value = values[index++];
+					if (!Double.isNaN(value)) {
+						ids1[count] = instanceIds[row];
+						ids2[count] = instanceIds[col];
+						kernels[count] = value;
+						count++;
+					}
+				}
+			}
+			final int evaluations = count;
+			final boolean partial = partialTiles.contains(tile.getIndex());
+			txTemplate.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus arg0) {
+					int missing = evaluations;
+					if (partial)
+						missing = removeStored(tile, ids1, ids2, kernels,
+								evaluations);
+					kernelEvaluationDao.storeKernels(kernelEvaluation, ids1,
+							ids2, kernels, missing);
+					return null;
+				}
+			});
+		}
+
+		/**
+		 * move the pairs that are not in the database to the front of the
+		 * arrays
+		 * 
+		 * @return number of pairs that are not in the database
+		 */
+		private int removeStored(Tile tile, long[] ids1, long[] ids2,
+				double[] kernels, int count) {
+			Map<Long, Set<Long>> stored = new HashMap<Long, Set<Long>>();
+			for (KernelEvaluationInstance kEval : kernelEvaluationDao
+					.getKernels(kernelEvaluation,
+							ids(tile.getRowStart(), tile.getRowEnd()),
+							ids(tile.getColStart(), tile.getColEnd()))) {
+				Set<Long> ids = stored.get(kEval.getInstanceId1());
+				if (ids == null) {
+					ids = new HashSet<Long>();
+					stored.put(kEval.getInstanceId1(), ids);
+				}
+				ids.add(kEval.getInstanceId2());
+			}
+			int missing = 0;
+			for (int i = 0; i < count; i++) {
+				Set<Long> ids = stored.get(Math.min(ids1[i], ids2[i]));
+				if (ids == null || !ids.contains(Math.max(ids1[i], ids2[i]))) {
+					ids1[missing] = ids1[i];
+					ids2[missing] = ids2[i];
+					kernels[missing] = kernels[i];
+					missing++;
+				}
+			}
+			return missing;
 		}
 	}
 
@@ -135,11 +243,11 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 				.create("loadInstanceMap"));
 		options.addOption(OptionBuilder
 				.withDescription(
-						"for parallelization, split the instances into mod slices")
+						"for parallelization, split the instances into mod slices.  Without slice, the number of threads, default the number of processors.")
 				.hasArg().create("mod"));
 		options.addOption(OptionBuilder
 				.withDescription(
-						"for parallelization, parameter that determines which slice we work on.  If this is not specified, nMod threads will be started to evaluate all slices in parallel.")
+						"for parallelization, parameter that determines which slice we work on.  If this is not specified, the gram matrix is evaluated in tiles on mod threads.")
 				.hasArg().create("slice"));
 		options.addOption(new Option("help", "print this message"));
 		return options;
@@ -192,9 +300,7 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 						.getOptionValue("evalTest", "no"));
 		int nMod = strMod != null ? Integer.parseInt(strMod) : 0;
 		Integer nSlice = null;
-		if (nMod == 0) {
-			nSlice = 0;
-		} else if (strSlice != null) {
+		if (nMod != 0 && strSlice != null) {
 			nSlice = Integer.parseInt(strSlice);
 		}
 		Map<Long, Node> instanceMap = null;
@@ -243,6 +349,9 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 	private double param1 = 0;
 
 	private String param2 = DBUtil.getEmptyString();	
+	private String gramMatrixFile;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int tileSize = GramMatrixEvaluator.DEFAULT_TILE_SIZE;
 	private PlatformTransactionManager transactionManager;
 	private TreeMappingInfo treeMappingInfo;
 	private TransactionTemplate txTemplate;
@@ -270,25 +379,64 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 	public void evaluateKernelOnCorpus() {
 		final Map<Long, Node> instanceIDMap = instanceTreeBuilder
 				.loadInstanceTrees(treeMappingInfo);
-		this.evaluateKernelOnCorpus(instanceIDMap, 0, 0, false);
+		this.evaluateTiles(instanceIDMap, threads, false);
 	}
 
+	/**
+	 * evaluate the gram matrix in tiles on nMod threads, or on the default
+	 * number of threads if nMod is 0.
+	 */
 	@Override
 	public void evaluateKernelOnCorpus(Map<Long, Node> instanceIDMap, int nMod,
 			boolean evalTest) throws InterruptedException {
-		ExecutorService svc = Executors.newFixedThreadPool(nMod);
-		List<Callable<Object>> taskList = new ArrayList<Callable<Object>>(nMod);
-		for (int nSlice = 1; nSlice <= nMod; nSlice++) {
-			taskList.add(new SliceEvaluator(instanceIDMap, nMod, nSlice,
-					evalTest));
+		this.evaluateTiles(instanceIDMap, nMod > 0 ? nMod : threads, evalTest);
+	}
+
+	/**
+	 * evaluate the gram matrix with a {@link GramMatrixEvaluator}. store it in
+	 * the gramMatrixFile if set, else in the database. tiles stored by an
+	 * earlier run are skipped, and pairs of partly stored tiles that are in
+	 * the database are not stored again.
+	 */
+	private void evaluateTiles(Map<Long, Node> instanceIDMap, int nThreads,
+			boolean evalTest) {
+		final KernelEvaluation kernelEvaluation = storeKernelEval();
+		final List<Long> documentIds = new ArrayList<Long>();
+		final List<Long> testDocumentIds = new ArrayList<Long>();
+		loadDocumentIds(documentIds, testDocumentIds, instanceIDQuery);
+		// rows are the training instances, columns also the test instances
+		int rowCount = documentIds.size();
+		if (evalTest) {
+			documentIds.addAll(testDocumentIds);
+		}
+		long[] instanceIds = new long[documentIds.size()];
+		List<Node> instances = new ArrayList<Node>(documentIds.size());
+		for (int i = 0; i < instanceIds.length; i++) {
+			instanceIds[i] = documentIds.get(i);
+			instances.add(instanceIDMap.get(instanceIds[i]));
+		}
+		try {
+			if (gramMatrixFile != null) {
+				GramMatrixFile file = GramMatrixFile.create(new File(
+						gramMatrixFile), instanceIds, rowCount, tileSize);
+				try {
+					new GramMatrixEvaluator(instanceKernel, instances, file)
+							.evaluate(rowCount, tileSize, nThreads);
+				} finally {
+					file.close();
+				}
+			} else {
+				new GramMatrixEvaluator(instanceKernel, instances,
+						new DatabaseTileSink(kernelEvaluation, instanceIds,
+								instances)).evaluate(rowCount, tileSize,
+						nThreads);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
-		svc.invokeAll(taskList);
-		svc.shutdown();
-		svc.awaitTermination(60 * 4, TimeUnit.MINUTES);
 	}
 
-	public void evaluateKernelOnCorpus(final Map<Long, Node> instanceIDMap,
-			int nMod, int nSlice, boolean evalTest) {
+	private KernelEvaluation storeKernelEval() {
 		KernelEvaluation kernelEvaluationTmp = new KernelEvaluation();
 		kernelEvaluationTmp.setExperiment(this.getExperiment());
 		kernelEvaluationTmp.setFoldId(this.getFoldId());
@@ -296,8 +444,12 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 		kernelEvaluationTmp.setCorpusName(this.getName());
 		kernelEvaluationTmp.setParam1(getParam1());
 		kernelEvaluationTmp.setParam2(getParam2());
-		final KernelEvaluation kernelEvaluation = this.kernelEvaluationDao
-				.storeKernelEval(kernelEvaluationTmp);
+		return this.kernelEvaluationDao.storeKernelEval(kernelEvaluationTmp);
+	}
+
+	public void evaluateKernelOnCorpus(final Map<Long, Node> instanceIDMap,
+			int nMod, int nSlice, boolean evalTest) {
+		final KernelEvaluation kernelEvaluation = storeKernelEval();
 		final List<Long> documentIds = new ArrayList<Long>();
 		final List<Long> testDocumentIds = new ArrayList<Long>();
 		loadDocumentIds(documentIds, testDocumentIds, instanceIDQuery);
@@ -370,6 +522,10 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 		return foldId;
 	}
 
+	public String getGramMatrixFile() {
+		return gramMatrixFile;
+	}
+
 	public String getInstanceIDQuery() {
 		return instanceIDQuery;
 	}
@@ -402,6 +558,14 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 		return param2;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
 	public PlatformTransactionManager getTransactionManager() {
 		return transactionManager;
 	}
@@ -467,6 +631,14 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 		this.foldId = foldId;
 	}
 
+	/**
+	 * @param gramMatrixFile
+	 *            store the gram matrix in this file instead of the database
+	 */
+	public void setGramMatrixFile(String gramMatrixFile) {
+		this.gramMatrixFile = gramMatrixFile;
+	}
+
 	public void setInstanceIDQuery(String instanceIDQuery) {
 		this.instanceIDQuery = instanceIDQuery;
 	}
@@ -499,6 +671,14 @@ public class CorpusKernelEvaluatorImpl implements CorpusKernelEvaluator {
 		this.param2 = param2;
 	}
 
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setTileSize(int tileSize) {
+		this.tileSize = tileSize;
+	}
+
 	public void setTransactionManager(
 			PlatformTransactionManager transactionManager) {
 		this.transactionManager = transactionManager;
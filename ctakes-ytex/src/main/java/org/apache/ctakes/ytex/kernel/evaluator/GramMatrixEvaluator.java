@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ctakes.ytex.kernel.tree.Node;
+
+/**
+ * Evaluate a kernel on all pairs of instances in process. The rows of the
+ * matrix are the training instances, the columns are the training instances
+ * followed by the test instances; as the kernel is symmetric only the upper
+ * triangle of the training block is evaluated. The matrix is split into
+ * square tiles, so that a thread works on a few hundred trees at a time, and
+ * the tiles are evaluated on a fork-join pool.
+ * <p>
+ * Each tile is handed to a {@link TileSink} when done. Tiles the sink already
+ * has are skipped, so an interrupted evaluation can be resumed.
+ */
+public class GramMatrixEvaluator {
+	/**
+	 * a block of the gram matrix. offset is the position of the tile's first
+	 * value if all tiles are stored one after the other.
+	 */
+	public static class Tile {
+		private final int colEnd;
+		private final int colStart;
+		private final int index;
+		private final long offset;
+		private final int rowEnd;
+		private final int rowStart;
+
+		Tile(int index, long offset, int rowStart, int rowEnd, int colStart,
+				int colEnd) {
+			this.index = index;
+			this.offset = offset;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.colStart = colStart;
+			this.colEnd = colEnd;
+		}
+
+		public int getColEnd() {
+			return colEnd;
+		}
+
+		public int getColStart() {
+			return colStart;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int getRowEnd() {
+			return rowEnd;
+		}
+
+		public int getRowStart() {
+			return rowStart;
+		}
+
+		/**
+		 * @return number of values in the tile
+		 */
+		public int size() {
+			return (rowEnd - rowStart) * (colEnd - colStart);
+		}
+	}
+
+	/**
+	 * receives evaluated tiles. called from the evaluator threads, so
+	 * implementations must be thread safe.
+	 */
+	public interface TileSink {
+		/**
+		 * @return true if the tile was stored by an earlier evaluation
+		 */
+		boolean isTileDone(Tile tile) throws IOException;
+
+		/**
+		 * @param values
+		 *            row major kernel values of the tile. values below the
+		 *            diagonal and for instances without a tree are NaN.
+		 */
+		void storeTile(Tile tile, double[] values) throws IOException;
+	}
+
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		TileTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				Tile tile = tiles.get(from);
+				try {
+					sink.storeTile(tile, evaluateTile(tile));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				int done = tilesDone.incrementAndGet();
+				if (log.isInfoEnabled() && done % logInterval == 0)
+					log.info("evaluated " + done + " of " + tiles.size()
+							+ " tiles");
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new TileTask(from, mid), new TileTask(mid, to));
+			}
+		}
+	}
+
+	public static final int DEFAULT_TILE_SIZE = 128;
+
+	private static final Log log = LogFactory.getLog(GramMatrixEvaluator.class);
+
+	/**
+	 * split the matrix into tiles
+	 * 
+	 * @param instanceCount
+	 *            number of columns
+	 * @param rowCount
+	 *            number of rows, the training instances
+	 * @param tileSize
+	 * @return tiles of the upper triangle, row by row
+	 */
+	public static List<Tile> createTiles(int instanceCount, int rowCount,
+			int tileSize) {
+		List<Tile> tiles = new ArrayList<Tile>();
+		long offset = 0;
+		for (int rowStart = 0; rowStart < rowCount; rowStart += tileSize) {
+			int rowEnd = Math.min(rowCount, rowStart + tileSize);
+			for (int colStart = rowStart; colStart < instanceCount; colStart += tileSize) {
+				Tile tile = new Tile(tiles.size(), offset, rowStart, rowEnd,
+						colStart, Math.min(instanceCount, colStart + tileSize));
+				tiles.add(tile);
+				offset += tile.size();
+			}
+		}
+		return tiles;
+	}
+
+	private final List<Node> instances;
+	private final Kernel kernel;
+	private int logInterval;
+	private final TileSink sink;
+	private List<Tile> tiles;
+	private final AtomicInteger tilesDone = new AtomicInteger();
+
+	/**
+	 * @param kernel
+	 * @param instances
+	 *            trees of the training instances followed by the test
+	 *            instances; null if an instance has no tree
+	 * @param sink
+	 */
+	public GramMatrixEvaluator(Kernel kernel, List<Node> instances,
+			TileSink sink) {
+		this.kernel = kernel;
+		this.instances = instances;
+		this.sink = sink;
+	}
+
+	/**
+	 * evaluate the tiles the sink doesn't have yet
+	 * 
+	 * @param rowCount
+	 *            number of training instances
+	 * @param tileSize
+	 * @param threads
+	 *            parallelism of the fork-join pool
+	 * @throws IOException
+	 *             if the sink failed
+	 */
+	public void evaluate(int rowCount, int tileSize, int threads)
+			throws IOException {
+		List<Tile> pending = new ArrayList<Tile>();
+		for (Tile tile : createTiles(instances.size(), rowCount, tileSize)) {
+			if (!sink.isTileDone(tile))
+				pending.add(tile);
+		}
+		if (log.isInfoEnabled())
+			log.info(pending.size() + " tiles to evaluate, tile size "
+					+ tileSize + ", threads " + threads);
+		if (pending.isEmpty())
+			return;
+		this.tiles = pending;
+		this.logInterval = Math.max(1, pending.size() / 20);
+		this.tilesDone.set(0);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new TileTask(0, pending.size()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	double[] evaluateTile(Tile tile) {
+		int cols = tile.getColEnd() - tile.getColStart();
+		double[] values = new double[tile.size()];
+		for (int row = tile.getRowStart(); row < tile.getRowEnd(); row++) {
+			Node root1 = instances.get(row);
+			int base = (row - tile.getRowStart()) * cols;
+			for (int col = tile.getColStart(); col < tile.getColEnd(); col++) {
+				Node root2 = instances.get(col);
+				values[base + col - tile.getColStart()] = col < row
+						|| root1 == null || root2 == null ? Double.NaN
+						: kernel.evaluate(root1, root2);
+			}
+		}
+		return values;
+	}
+}
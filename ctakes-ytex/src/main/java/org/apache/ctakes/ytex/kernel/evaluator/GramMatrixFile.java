@@ -0,0 +1,329 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixEvaluator.Tile;
+
+/**
+ * Gram matrix in a binary file, written tile by tile by the
+ * {@link GramMatrixEvaluator}. The file doubles as the checkpoint: a tile is
+ * flagged as done only after its values are on disk, so creating the file
+ * again for the same instances resumes the evaluation.
+ * <p>
+ * The file starts with a 20 byte header:
+ * <ul>
+ * <li>int magic number {@link #MAGIC}, int format version {@link #VERSION}</li>
+ * <li>int number of instances, int number of rows (training instances), int
+ * tile size</li>
+ * </ul>
+ * followed by
+ * <ul>
+ * <li>long[instances] instance ids, training instances first</li>
+ * <li>byte[tiles] 1 if the tile is done, padded to a multiple of 8 bytes</li>
+ * <li>double[] the values of each tile in row major order, tiles in the order
+ * of {@link GramMatrixEvaluator#createTiles(int, int, int)}. NaN if not
+ * evaluated.</li>
+ * </ul>
+ * All values are big-endian.
+ */
+public class GramMatrixFile implements GramMatrixEvaluator.TileSink,
+		Closeable {
+	private static final Log log = LogFactory.getLog(GramMatrixFile.class);
+
+	/**
+	 * "YTGM"
+	 */
+	public static final int MAGIC = 0x5954474D;
+
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 20;
+
+	/**
+	 * create the file, or reopen it to resume the evaluation if it was
+	 * created for the same instances and tile size.
+	 * 
+	 * @param file
+	 * @param instanceIds
+	 *            training instance ids followed by the test instance ids
+	 * @param rowCount
+	 *            number of training instances
+	 * @param tileSize
+	 * @return file open for writing
+	 * @throws IOException
+	 */
+	public static GramMatrixFile create(File file, long[] instanceIds,
+			int rowCount, int tileSize) throws IOException {
+		if (file.exists()) {
+			GramMatrixFile existing = new GramMatrixFile(file, true);
+			if (Arrays.equals(existing.instanceIds, instanceIds)
+					&& existing.rowCount == rowCount
+					&& existing.tileSize == tileSize) {
+				log.info("resuming " + file + ", " + existing.getTilesDone()
+						+ " of " + existing.tiles.size() + " tiles done");
+				return existing;
+			}
+			existing.close();
+			log.info("overwriting " + file
+					+ ", it has different instances or tile size");
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			List<Tile> tiles = GramMatrixEvaluator.createTiles(
+					instanceIds.length, rowCount, tileSize);
+			// header, ids and flags of tiles not done
+			ByteBuffer header = ByteBuffer.allocate((int) dataStart(
+					instanceIds.length, tiles.size()));
+			header.putInt(MAGIC).putInt(VERSION).putInt(instanceIds.length)
+					.putInt(rowCount).putInt(tileSize);
+			for (long instanceId : instanceIds)
+				header.putLong(instanceId);
+			header.rewind();
+			write(raf.getChannel(), header, 0);
+		} finally {
+			raf.close();
+		}
+		return new GramMatrixFile(file, true);
+	}
+
+	/**
+	 * @param file
+	 * @return file open for reading
+	 * @throws IOException
+	 */
+	public static GramMatrixFile open(File file) throws IOException {
+		return new GramMatrixFile(file, false);
+	}
+
+	private static long dataStart(int instanceCount, int tileCount) {
+		long flagsEnd = flagsStart(instanceCount) + tileCount;
+		return (flagsEnd + 7) / 8 * 8;
+	}
+
+	private static long flagsStart(int instanceCount) {
+		return HEADER_BYTES + 8L * instanceCount;
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new IOException("gram matrix file is truncated");
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	private static boolean wanted(int[] indices, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (indices[i] >= 0)
+				return true;
+		}
+		return false;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+
+	private final FileChannel channel;
+	private final long dataStart;
+	private final File file;
+	private final boolean[] done;
+	private final long[] instanceIds;
+	private final RandomAccessFile raf;
+	private final int rowCount;
+	private final List<Tile> tiles;
+	private final int tileSize;
+
+	private GramMatrixFile(File file, boolean writable) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		this.channel = raf.getChannel();
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			read(channel, header, 0);
+			if (header.getInt() != MAGIC)
+				throw new IOException(file + " is not a gram matrix file");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("gram matrix file version " + version
+						+ " is not supported, expected " + VERSION);
+			int instanceCount = header.getInt();
+			this.rowCount = header.getInt();
+			this.tileSize = header.getInt();
+			this.tiles = GramMatrixEvaluator.createTiles(instanceCount,
+					rowCount, tileSize);
+			ByteBuffer ids = ByteBuffer.allocate(8 * instanceCount);
+			read(channel, ids, HEADER_BYTES);
+			this.instanceIds = new long[instanceCount];
+			ids.asLongBuffer().get(instanceIds);
+			ByteBuffer flags = ByteBuffer.allocate(tiles.size());
+			read(channel, flags, flagsStart(instanceCount));
+			this.done = new boolean[tiles.size()];
+			for (int i = 0; i < done.length; i++)
+				done[i] = flags.get(i) != 0;
+			this.dataStart = dataStart(instanceCount, tiles.size());
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long[] getInstanceIds() {
+		return instanceIds;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return number of tiles stored
+	 */
+	public synchronized int getTilesDone() {
+		int count = 0;
+		for (boolean d : done) {
+			if (d)
+				count++;
+		}
+		return count;
+	}
+
+	@Override
+	public synchronized boolean isTileDone(Tile tile) {
+		return done[tile.getIndex()];
+	}
+
+	/**
+	 * @return true if all tiles are stored
+	 */
+	public boolean isComplete() {
+		return getTilesDone() == tiles.size();
+	}
+
+	/**
+	 * load the gram matrix of some of the instances. instances that were not
+	 * evaluated have 0, except on the diagonal, which is 1 as in
+	 * {@link org.apache.ctakes.ytex.kernel.KernelUtil#fillGramMatrix}.
+	 * 
+	 * @param ids
+	 *            instance ids, the rows and columns of the matrix
+	 * @return symmetric matrix
+	 * @throws IOException
+	 */
+	public double[][] loadGramMatrix(SortedSet<Long> ids) throws IOException {
+		Map<Long, Integer> idToIndex = new HashMap<Long, Integer>(ids.size());
+		for (long id : ids)
+			idToIndex.put(id, idToIndex.size());
+		// matrix index of each instance in the file, -1 if not wanted
+		int[] indices = new int[instanceIds.length];
+		for (int i = 0; i < instanceIds.length; i++) {
+			Integer index = idToIndex.get(instanceIds[i]);
+			indices[i] = index == null ? -1 : index;
+		}
+		double[][] gramMatrix = new double[ids.size()][ids.size()];
+		int missing = 0;
+		for (Tile tile : tiles) {
+			if (!wanted(indices, tile.getRowStart(), tile.getRowEnd())
+					|| !wanted(indices, tile.getColStart(), tile.getColEnd()))
+				continue;
+			if (!isTileDone(tile)) {
+				missing++;
+				continue;
+			}
+			DoubleBuffer values = readTile(tile);
+			for (int row = tile.getRowStart(); row < tile.getRowEnd(); row++) {
+				int i = indices[row];
+				for (int col = tile.getColStart(); col < tile.getColEnd(); col++) {
+					double value = values.get();
+					int j = indices[col];
+					if (i >= 0 && j >= 0 && !Double.isNaN(value)) {
+						gramMatrix[i][j] = value;
+						gramMatrix[j][i] = value;
+					}
+				}
+			}
+		}
+		if (missing > 0)
+			log.warn(file + " is incomplete, " + missing
+					+ " tiles of the gram matrix are missing");
+		for (int i = 0; i < gramMatrix.length; i++) {
+			if (gramMatrix[i][i] == 0)
+				gramMatrix[i][i] = 1;
+		}
+		return gramMatrix;
+	}
+
+	private DoubleBuffer readTile(Tile tile) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8 * tile.size());
+		read(channel, buffer, dataStart + 8 * tile.getOffset());
+		return buffer.asDoubleBuffer();
+	}
+
+	/**
+	 * write the values, then flag the tile as done, so that a tile is never
+	 * flagged without its values
+	 */
+	@Override
+	public void storeTile(Tile tile, double[] values) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8 * values.length);
+		buffer.asDoubleBuffer().put(values);
+		write(channel, buffer, dataStart + 8 * tile.getOffset());
+		channel.force(false);
+		ByteBuffer flag = ByteBuffer.allocate(1);
+		flag.put(0, (byte) 1);
+		write(channel, flag, flagsStart(instanceIds.length) + tile.getIndex());
+		synchronized (this) {
+			done[tile.getIndex()] = true;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ctakes.utils.tree.FastTreeKernel;
+import org.apache.ctakes.utils.tree.FastTreeKernel.TreeAdapter;
+import org.apache.ctakes.utils.tree.ProductionTree;
+import org.apache.ctakes.ytex.kernel.tree.Node;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Subset tree kernel over instance trees, computed with the fast tree kernel
+ * algorithm. Counts the tree fragments two trees have in common, weighted by
+ * lambda. The label of a node is its type, followed by the value of the
+ * labelAttribute if one is set.
+ * <p>
+ * Each tree is compiled once and kept for as long as the tree is in use; the
+ * compiled tree also holds the self kernel, so don't wrap this in a
+ * NormKernel - set normalize instead.
+ */
+public class SubsetTreeKernel implements Kernel {
+
+	/**
+	 * kernel with the current settings and the trees it compiled. weak keys
+	 * compare by identity, which is what we want as Node.equals ignores the
+	 * children.
+	 */
+	private static class Compiled {
+		final FastTreeKernel kernel;
+		final ConcurrentMap<Node, ProductionTree> trees = new MapMaker()
+				.weakKeys().makeMap();
+
+		Compiled(double lambda) {
+			kernel = new FastTreeKernel(lambda);
+		}
+	}
+
+	private final TreeAdapter<Node> adapter = new TreeAdapter<Node>() {
+		@Override
+		public Node getChild(Node node, int i) {
+			return node.getChildren().get(i);
+		}
+
+		@Override
+		public int getChildCount(Node node) {
+			return node.getChildren() == null ? 0 : node.getChildren().size();
+		}
+
+		@Override
+		public String getLabel(Node node) {
+			if (labelAttribute == null || node.getValue() == null)
+				return node.getType();
+			Serializable value = node.getValue().get(labelAttribute);
+			return value == null ? node.getType() : node.getType() + "="
+					+ value;
+		}
+	};
+
+	private volatile Compiled compiled;
+	private String labelAttribute;
+	private double lambda = FastTreeKernel.DEFAULT_LAMBDA;
+	private boolean normalize = true;
+
+	public String getLabelAttribute() {
+		return labelAttribute;
+	}
+
+	public void setLabelAttribute(String labelAttribute) {
+		this.labelAttribute = labelAttribute;
+		this.compiled = null;
+	}
+
+	public double getLambda() {
+		return lambda;
+	}
+
+	public void setLambda(double lambda) {
+		this.lambda = lambda;
+		this.compiled = null;
+	}
+
+	public boolean isNormalize() {
+		return normalize;
+	}
+
+	public void setNormalize(boolean normalize) {
+		this.normalize = normalize;
+	}
+
+	@Override
+	public double evaluate(Object o1, Object o2) {
+		if (o1 == null || o2 == null)
+			return 0;
+		Compiled c = compiled;
+		if (c == null) {
+			c = new Compiled(lambda);
+			compiled = c;
+		}
+		ProductionTree t1 = getTree(c, (Node) o1);
+		ProductionTree t2 = getTree(c, (Node) o2);
+		return normalize ? c.kernel.evaluateNormalized(t1, t2) : c.kernel
+				.evaluate(t1, t2);
+	}
+
+	private ProductionTree getTree(Compiled c, Node node) {
+		ProductionTree tree = c.trees.get(node);
+		if (tree == null) {
+			tree = c.kernel.compile(node, adapter);
+			c.trees.put(node, tree);
+		}
+		return tree;
+	}
+}
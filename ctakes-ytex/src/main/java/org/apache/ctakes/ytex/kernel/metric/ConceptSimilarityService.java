@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraphIndex;
 
 
 public interface ConceptSimilarityService {
@@ -79,6 +80,12 @@ public interface ConceptSimilarityService {
 
 	public abstract ConceptGraph getConceptGraph();
 
+	/**
+	 * @return primitive array view of the concept graph for lcs queries, null
+	 *         if there is no concept graph
+	 */
+	public abstract ConceptGraphIndex getConceptGraphIndex();
+
 	/**
 	 * cui - tui map. tuis are bitsets, indices correspond to tuis in
 	 * {@link #getTuiList()}
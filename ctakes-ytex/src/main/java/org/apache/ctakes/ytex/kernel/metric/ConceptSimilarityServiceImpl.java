@@ -41,7 +41,6 @@ import java.util.TreeMap;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Element;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -61,7 +60,9 @@ import org.apache.ctakes.ytex.kernel.dao.ClassifierEvaluationDao;
 import org.apache.ctakes.ytex.kernel.dao.ConceptDao;
 import org.apache.ctakes.ytex.kernel.model.ConcRel;
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraphIndex;
 import org.apache.ctakes.ytex.kernel.model.FeatureRank;
+import org.apache.ctakes.ytex.kernel.model.MappedConceptGraph;
 import org.apache.ctakes.ytex.kernel.pagerank.PageRankService;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
@@ -263,7 +264,31 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 
 	private CacheManager cacheManager;
 
-	private ConceptGraph cg = null;
+	/**
+	 * {@link ConcRel} view of the concept graph, created on first call to
+	 * {@link #getConceptGraph()}
+	 */
+	private volatile ConceptGraph cg = null;
+
+	/**
+	 * concept graph file, for concept id lookups
+	 */
+	private MappedConceptGraph mcg = null;
+
+	/**
+	 * primitive array view of the concept graph for lcs queries
+	 */
+	private ConceptGraphIndex cgIndex = null;
+
+	/**
+	 * lcs buffer for each thread, so lcs queries don't allocate
+	 */
+	private final ThreadLocal<ConceptGraphIndex.LcsBuffer> lcsBuffer = new ThreadLocal<ConceptGraphIndex.LcsBuffer>() {
+		@Override
+		protected ConceptGraphIndex.LcsBuffer initialValue() {
+			return new ConceptGraphIndex.LcsBuffer();
+		}
+	};
 
 	private ClassifierEvaluationDao classifierEvaluationDao;
 
@@ -285,7 +310,9 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 	// private ConceptInfo[] conceptInfoCache;
 
 	/**
-	 * cache to hold lcs's
+	 * no longer used - lcses are computed from the {@link ConceptGraphIndex},
+	 * which is faster than a cache lookup. kept so that existing bean
+	 * definitions still load.
 	 */
 	private Cache lcsCache;
 	private String lcsImputedType = ImputedFeatureEvaluator.MeasureType.INFOGAIN
@@ -493,9 +520,22 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 
 	@Override
 	public ConceptGraph getConceptGraph() {
+		if (cg == null && mcg != null) {
+			synchronized (this) {
+				if (cg == null) {
+					log.info("loading ConcRel graph for " + conceptGraphName);
+					cg = conceptDao.getConceptGraph(conceptGraphName);
+				}
+			}
+		}
 		return cg;
 	}
 
+	@Override
+	public ConceptGraphIndex getConceptGraphIndex() {
+		return cgIndex;
+	}
+
 	public String getConceptGraphName() {
 		return conceptGraphName;
 	}
@@ -528,9 +568,9 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 		// if (frMap.containsKey(concept))
 		// return frMap.get(concept).getRank();
 		// }
-		ConcRel cr = this.cg.getConceptMap().get(concept);
-		if (cr != null)
-			return cr.getDepth();
+		int node = mcg.getNodeIndex(concept);
+		if (node >= 0)
+			return cgIndex.getDepth(node);
 		return 0;
 	}
 
@@ -538,9 +578,9 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 	public double getIC(String concept, boolean intrinsicICMap) {
 		double ic = 0d;
 		if (intrinsicICMap) {
-			ConcRel cr = this.cg.getConceptMap().get(concept);
-			if (cr != null)
-				ic = cr.getIntrinsicInfoContent();
+			int node = mcg.getNodeIndex(concept);
+			if (node >= 0)
+				ic = cgIndex.getIntrinsicInfoContent(node);
 		} else {
 			Double icC = null;
 			if (isPreload()) {
@@ -616,13 +656,13 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 	public int getLCS(String concept1, String concept2, Set<String> lcses,
 			List<LCSPath> lcsPaths) {
 		int lcsDist = 0;
-		ConcRel cr1 = getConceptGraph().getConceptMap().get(concept1);
-		ConcRel cr2 = getConceptGraph().getConceptMap().get(concept2);
-		if (cr1 != null && cr2 != null) {
+		int node1 = mcg.getNodeIndex(concept1);
+		int node2 = mcg.getNodeIndex(concept2);
+		if (node1 >= 0 && node2 >= 0) {
 			lcses.clear();
 			if (lcsPaths == null) {
-				// no need to get paths which we don't cache - look in the cache
-				lcsDist = getLCSFromCache(cr1, cr2, lcses);
+				// no need to get paths - use the index
+				lcsDist = getLCSFromIndex(node1, node2, lcses);
 			} else {
 				lcsPaths.clear();
 				// need to get paths - compute the lcses and their paths
@@ -633,9 +673,9 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 			}
 		} else {
 			if (log.isDebugEnabled()) {
-				if (cr1 == null)
+				if (node1 < 0)
 					log.debug("could not find concept:" + concept1);
-				if (cr2 == null)
+				if (node2 < 0)
 					log.debug("could not find concept:" + concept2);
 			}
 		}
@@ -646,45 +686,22 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 		return lcsCache;
 	}
 
-	@SuppressWarnings("unchecked")
-	private int getLCSFromCache(ConcRel cr1, ConcRel cr2, Set<String> lcses) {
-		StringBuilder cacheKeyBuilder = new StringBuilder(this.conceptGraphName);
-		cacheKeyBuilder
-				.append(cr1.getConceptID().compareTo(cr2.getConceptID()) < 0 ? cr1
-						.getConceptID() : cr2.getConceptID());
-		cacheKeyBuilder
-				.append(cr1.getConceptID().compareTo(cr2.getConceptID()) >= 0 ? cr2
-						.getConceptID() : cr1.getConceptID());
-		String cacheKey = cacheKeyBuilder.toString();
-		Element e = this.lcsCache != null ? this.lcsCache.get(cacheKey) : null;
-		if (e != null) {
-			// hit the cache - unpack the lcs
-			if (e.getObjectValue() != null) {
-				Object[] val = (Object[]) e.getObjectValue();
-				lcses.addAll((Set<String>) val[1]);
-				return (Integer) val[0];
-			} else {
-				return -1;
-			}
-		} else {
-			// missed the cache - save the lcs
-			Object[] val = null;
-			Set<ConcRel> lcsCRSet = new HashSet<ConcRel>(2);
-			int dist = ConcRel.getLeastCommonConcept(cr1, cr2, lcsCRSet, null);
-			if (dist >= 0) {
-				val = new Object[2];
-				val[0] = dist;
-				for (ConcRel cr : lcsCRSet) {
-					lcses.add(cr.getConceptID());
-				}
-				val[1] = lcses;
-			}
-			if (this.lcsCache != null) {
-				e = new Element(cacheKey, val);
-				this.lcsCache.put(e);
-			}
-			return dist;
+	/**
+	 * compute the lcses via the concept graph index
+	 * 
+	 * @param node1
+	 * @param node2
+	 * @param lcses
+	 *            filled with the lcs concept ids
+	 * @return path length, -1 if no lcs
+	 */
+	private int getLCSFromIndex(int node1, int node2, Set<String> lcses) {
+		ConceptGraphIndex.LcsBuffer buffer = lcsBuffer.get();
+		int dist = cgIndex.getLeastCommonConcepts(node1, node2, buffer);
+		for (int i = 0; i < buffer.size(); i++) {
+			lcses.add(cgIndex.getConceptID(buffer.get(i)));
 		}
+		return dist;
 	}
 
 	public String getLcsImputedType() {
@@ -710,10 +727,13 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 
 	public void init() {
 		log.info("begin initialization for concept graph: " + conceptGraphName);
-		cg = conceptDao.getConceptGraph(conceptGraphName);
-		if (cg == null) {
+		mcg = conceptDao.getMappedConceptGraph(conceptGraphName);
+		if (mcg == null) {
 			log.warn("concept graph null, name: " + conceptGraphName);
 		} else {
+			cgIndex = new ConceptGraphIndex(mcg);
+			log.info("indexed " + cgIndex.getNodeCount() + " concepts with "
+					+ cgIndex.getAncestorCount() + " ancestors");
 			initSimilarityMetricMap();
 			if (isPreload()) {
 				try {
@@ -826,9 +846,8 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 		}
 		ImmutableMap.Builder<String, Double> mb = new ImmutableMap.Builder<String, Double>();
 		for (Map.Entry<String, Double> corpusICEntry : corpusICMap.entrySet()) {
-			ConcRel cr = cg.getConceptMap().get(corpusICEntry.getKey());
-			if (cr != null) {
-				mb.put(cr.getConceptID(), corpusICEntry.getValue());
+			if (mcg.getNodeIndex(corpusICEntry.getKey()) >= 0) {
+				mb.put(corpusICEntry.getKey(), corpusICEntry.getValue());
 			}
 		}
 		this.corpusICMap = mb.build();
@@ -856,8 +875,8 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 		// conceptGraphName);
 		// Integer maxDepth = this.classifierEvaluationDao
 		// .getMaxDepth(conceptGraphName);
-		double maxIC = this.cg.getIntrinsicICMax();
-		int maxDepth = this.cg.getDepthMax();
+		double maxIC = this.mcg.getIntrinsicICMax();
+		int maxDepth = this.mcg.getDepthMax();
 		this.similarityMetricMap = new HashMap<SimilarityMetricEnum, SimilarityMetric>(
 				SimilarityMetricEnum.values().length);
 		if (maxDepth > 0) {
@@ -894,8 +913,10 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 	}
 
 	public int lcs(String concept1, String concept2, List<LCSPath> lcsPaths) {
-		ConcRel cr1 = cg.getConceptMap().get(concept1);
-		ConcRel cr2 = cg.getConceptMap().get(concept2);
+		// paths need the ConcRel graph
+		Map<String, ConcRel> conceptMap = getConceptGraph().getConceptMap();
+		ConcRel cr1 = conceptMap.get(concept1);
+		ConcRel cr2 = conceptMap.get(concept2);
 		int dist = -1;
 		if (cr1 != null && cr2 != null) {
 			Set<ConcRel> crlcses = new HashSet<ConcRel>();
@@ -1086,7 +1107,7 @@ public class ConceptSimilarityServiceImpl implements ConceptSimilarityService {
 			simInfo.setLcsPaths(new ArrayList<LCSPath>(1));
 		// allocate result map
 		List<Double> similarities = new ArrayList<Double>(metrics.size());
-		if (cg != null) {
+		if (cgIndex != null) {
 			// iterate over metrics, compute, stuff in map
 			for (SimilarityMetricEnum metric : metrics) {
 				double sim = this.similarityMetricMap.get(metric).similarity(
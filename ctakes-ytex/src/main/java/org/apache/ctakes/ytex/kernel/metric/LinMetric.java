@@ -33,7 +33,7 @@ public class LinMetric extends BaseSimilarityMetric {
 	private static final Log log = LogFactory.getLog(LinMetric.class);
 	private boolean intrinsicIC = true;
 	private boolean validCG = false;
-	private String rootConcept = simSvc.getConceptGraph().getRoot();
+	private String rootConcept = null;
 
 	public boolean isIntrinsicIC() {
 		return intrinsicIC;
@@ -73,7 +73,8 @@ public class LinMetric extends BaseSimilarityMetric {
 	public LinMetric(ConceptSimilarityService simSvc, boolean intrinsicIC) {
 		super(simSvc);
 		this.intrinsicIC = intrinsicIC;
-		this.validCG = simSvc.getConceptGraph() != null;
+		this.validCG = simSvc.getConceptGraphIndex() != null;
+		// only corpus ic needs the root, which needs the ConcRel graph
 		if (!this.intrinsicIC && validCG) {
 			rootConcept = simSvc.getConceptGraph().getRoot();
 		}
@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive array view of a {@link ConceptGraph} for least common subsumer
+ * queries. Nodes are identified by {@link ConcRel#getNodeIndex()}.
+ * <p>
+ * Parents are held in compressed sparse row arrays: the parents of node
+ * <code>n</code> are <code>parents[parentOffsets[n] .. parentOffsets[n+1])</code>.
+ * The ancestors of every node, including the node itself, are precomputed in
+ * the same layout, sorted by node index, with the length of the shortest path
+ * from the node to each ancestor. The lcs of two concepts is found by merging
+ * their ancestor lists, without allocating objects.
+ * <p>
+ * The index is immutable and can be shared by threads; each thread needs its
+ * own {@link LcsBuffer}.
+ */
+public class ConceptGraphIndex {
+
+	/**
+	 * reusable holder for the lcses of a concept pair
+	 */
+	public static class LcsBuffer {
+		private int[] nodes = new int[4];
+		private int size;
+
+		private void add(int node) {
+			if (size == nodes.length)
+				nodes = Arrays.copyOf(nodes, size * 2);
+			nodes[size++] = node;
+		}
+
+		/**
+		 * @param i
+		 * @return node index of the i'th lcs
+		 */
+		public int get(int i) {
+			return nodes[i];
+		}
+
+		public int size() {
+			return size;
+		}
+	}
+
+	private int[] ancestorDistances;
+	private int[] ancestorOffsets;
+	private int[] ancestors;
+	private final short[] depths;
+	private final double[] intrinsicInfoContent;
+	private final String[] conceptIDs;
+	private final int[] parentOffsets;
+	private final int[] parents;
+
+	/**
+	 * build the index from the concept graph. the graph must be acyclic.
+	 *
+	 * @param cg
+	 */
+	public ConceptGraphIndex(ConceptGraph cg) {
+		List<ConcRel> conceptList = cg.getConceptList();
+		int nodeCount = conceptList.size();
+		conceptIDs = new String[nodeCount];
+		depths = new short[nodeCount];
+		intrinsicInfoContent = new double[nodeCount];
+		parentOffsets = new int[nodeCount + 1];
+		for (ConcRel cr : conceptList) {
+			int n = cr.getNodeIndex();
+			conceptIDs[n] = cr.getConceptID();
+			depths[n] = cr.getDepth();
+			intrinsicInfoContent[n] = cr.getIntrinsicInfoContent();
+			parentOffsets[n + 1] = cr.getParents().size();
+		}
+		for (int n = 0; n < nodeCount; n++)
+			parentOffsets[n + 1] += parentOffsets[n];
+		parents = new int[parentOffsets[nodeCount]];
+		for (ConcRel cr : conceptList) {
+			int i = parentOffsets[cr.getNodeIndex()];
+			for (ConcRel parent : cr.getParents())
+				parents[i++] = parent.getNodeIndex();
+		}
+		indexAncestors();
+	}
+
+	/**
+	 * build the index from a concept graph file, without creating
+	 * {@link ConcRel} objects. the graph must be acyclic.
+	 *
+	 * @param cg
+	 */
+	public ConceptGraphIndex(MappedConceptGraph cg) {
+		int nodeCount = cg.getNodeCount();
+		conceptIDs = new String[nodeCount];
+		depths = new short[nodeCount];
+		intrinsicInfoContent = new double[nodeCount];
+		parentOffsets = new int[nodeCount + 1];
+		parents = new int[cg.getEdgeCount()];
+		for (int n = 0; n < nodeCount; n++) {
+			conceptIDs[n] = cg.getConceptID(n);
+			depths[n] = cg.getDepth(n);
+			intrinsicInfoContent[n] = cg.getIntrinsicInfoContent(n);
+			int parentCount = cg.getParentCount(n);
+			for (int i = 0; i < parentCount; i++)
+				parents[parentOffsets[n] + i] = cg.getParent(n, i);
+			parentOffsets[n + 1] = parentOffsets[n] + parentCount;
+		}
+		indexAncestors();
+	}
+
+	private void indexAncestors() {
+		int nodeCount = conceptIDs.length;
+		// breadth-first search up from each node. the distance array doubles
+		// as the visited marker, and is reset after each search
+		int[] distance = new int[nodeCount];
+		Arrays.fill(distance, -1);
+		int[] queue = new int[nodeCount];
+		// ancestor and distance packed in a long, so that sorting by ancestor
+		// keeps the distance with it
+		long[] packed = new long[nodeCount];
+		ancestorOffsets = new int[nodeCount + 1];
+		int[] ancestorList = new int[Math.max(16, nodeCount * 4)];
+		int[] distanceList = new int[ancestorList.length];
+		for (int n = 0; n < nodeCount; n++) {
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = n;
+			distance[n] = 0;
+			while (head < tail) {
+				int node = queue[head++];
+				for (int i = parentOffsets[node]; i < parentOffsets[node + 1]; i++) {
+					int parent = parents[i];
+					if (distance[parent] < 0) {
+						distance[parent] = distance[node] + 1;
+						queue[tail++] = parent;
+					}
+				}
+			}
+			for (int i = 0; i < tail; i++) {
+				packed[i] = ((long) queue[i] << 32) | distance[queue[i]];
+				distance[queue[i]] = -1;
+			}
+			Arrays.sort(packed, 0, tail);
+			int start = ancestorOffsets[n];
+			if (start + tail > ancestorList.length) {
+				int length = Math.max(start + tail, ancestorList.length * 3 / 2);
+				ancestorList = Arrays.copyOf(ancestorList, length);
+				distanceList = Arrays.copyOf(distanceList, length);
+			}
+			for (int i = 0; i < tail; i++) {
+				ancestorList[start + i] = (int) (packed[i] >>> 32);
+				distanceList[start + i] = (int) packed[i];
+			}
+			ancestorOffsets[n + 1] = start + tail;
+		}
+		ancestors = Arrays.copyOf(ancestorList, ancestorOffsets[nodeCount]);
+		ancestorDistances = Arrays.copyOf(distanceList,
+				ancestorOffsets[nodeCount]);
+	}
+
+	/**
+	 * @param node
+	 * @param ancestor
+	 * @return length of the shortest path from node up to ancestor, -1 if
+	 *         ancestor is not an ancestor of node. 0 if they are the same.
+	 */
+	public int getAncestorDistance(int node, int ancestor) {
+		int i = Arrays.binarySearch(ancestors, ancestorOffsets[node],
+				ancestorOffsets[node + 1], ancestor);
+		return i < 0 ? -1 : ancestorDistances[i];
+	}
+
+	public int getAncestorCount() {
+		return ancestors.length;
+	}
+
+	public String getConceptID(int node) {
+		return conceptIDs[node];
+	}
+
+	public short getDepth(int node) {
+		return depths[node];
+	}
+
+	public double getIntrinsicInfoContent(int node) {
+		return intrinsicInfoContent[node];
+	}
+
+	/**
+	 * find the least common subsumers of two concepts, as
+	 * {@link ConcRel#getLeastCommonConcept(ConcRel, ConcRel, java.util.Set, java.util.Map)}
+	 * does without the paths: the lcses are all common ancestors on a shortest
+	 * path between the concepts. Unlike the breadth-first search, the full
+	 * ancestor lists are compared, so the shortest path is never missed.
+	 *
+	 * @param node1
+	 * @param node2
+	 * @param lcses
+	 *            cleared and filled with the lcses, required
+	 * @return number of nodes in the shortest path between the concepts via
+	 *         an lcs, -1 if no lcs
+	 */
+	public int getLeastCommonConcepts(int node1, int node2, LcsBuffer lcses) {
+		lcses.size = 0;
+		int i1 = ancestorOffsets[node1];
+		int end1 = ancestorOffsets[node1 + 1];
+		int i2 = ancestorOffsets[node2];
+		int end2 = ancestorOffsets[node2 + 1];
+		int minDist = Integer.MAX_VALUE;
+		while (i1 < end1 && i2 < end2) {
+			int a1 = ancestors[i1];
+			int a2 = ancestors[i2];
+			if (a1 < a2) {
+				i1++;
+			} else if (a1 > a2) {
+				i2++;
+			} else {
+				int dist = ancestorDistances[i1] + ancestorDistances[i2];
+				if (dist < minDist) {
+					minDist = dist;
+					lcses.size = 0;
+				}
+				if (dist == minDist)
+					lcses.add(a1);
+				i1++;
+				i2++;
+			}
+		}
+		return lcses.size == 0 ? -1 : minDist + 1;
+	}
+
+	/**
+	 * @param node1
+	 * @param node2
+	 * @return number of nodes in the shortest path between the concepts via a
+	 *         common ancestor, -1 if none
+	 */
+	public int getLcsDistance(int node1, int node2) {
+		int i1 = ancestorOffsets[node1];
+		int end1 = ancestorOffsets[node1 + 1];
+		int i2 = ancestorOffsets[node2];
+		int end2 = ancestorOffsets[node2 + 1];
+		int minDist = Integer.MAX_VALUE;
+		while (i1 < end1 && i2 < end2) {
+			int a1 = ancestors[i1];
+			int a2 = ancestors[i2];
+			if (a1 < a2) {
+				i1++;
+			} else if (a1 > a2) {
+				i2++;
+			} else {
+				int dist = ancestorDistances[i1] + ancestorDistances[i2];
+				if (dist < minDist)
+					minDist = dist;
+				i1++;
+				i2++;
+			}
+		}
+		return minDist == Integer.MAX_VALUE ? -1 : minDist + 1;
+	}
+
+	public int getNodeCount() {
+		return conceptIDs.length;
+	}
+
+	/**
+	 * @param node
+	 * @return offset of the node's first parent in {@link #getParents()}
+	 */
+	public int getParentOffset(int node) {
+		return parentOffsets[node];
+	}
+
+	/**
+	 * @return parents of all nodes, do not modify
+	 */
+	public int[] getParents() {
+		return parents;
+	}
+}
@@ -0,0 +1,454 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only concept graph in a versioned binary format, usable without
+ * creating {@link ConcRel} objects. A file is memory-mapped, so opening it
+ * takes no time and the pages are shared by all processes that use the graph.
+ * <p>
+ * The file starts with a 32 byte header:
+ * <ul>
+ * <li>int magic number {@link #MAGIC}, int format version {@link #VERSION}</li>
+ * <li>int number of nodes, int number of edges, int root node or -1</li>
+ * <li>short maximum depth, 2 bytes padding, double maximum intrinsic ic</li>
+ * </ul>
+ * followed by arrays, each indexed by {@link ConcRel#getNodeIndex()}:
+ * <ul>
+ * <li>double[nodes] intrinsic info content</li>
+ * <li>int[nodes + 1] parent offsets, int[edges] parents - compressed sparse
+ * row, parents of node n are at parent offsets n to n + 1</li>
+ * <li>int[nodes + 1] child offsets, int[edges] children - likewise</li>
+ * <li>int[nodes] nodes sorted by the utf-8 bytes of their concept ids, for
+ * lookup by concept id</li>
+ * <li>int[nodes + 1] concept id offsets into the string table</li>
+ * <li>short[nodes] depth</li>
+ * <li>byte[] string table of utf-8 concept ids</li>
+ * </ul>
+ * All values are big-endian. Readers reject other versions, so a change to the
+ * layout must increment the version.
+ */
+public class MappedConceptGraph {
+
+	/**
+	 * "YTCG"
+	 */
+	public static final int MAGIC = 0x59544347;
+
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 32;
+
+	/**
+	 * build the binary form of a concept graph in memory
+	 *
+	 * @param cg
+	 * @return
+	 */
+	public static MappedConceptGraph fromConceptGraph(ConceptGraph cg) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try {
+			write(cg, bos);
+			return new MappedConceptGraph(ByteBuffer.wrap(bos.toByteArray()));
+		} catch (IOException e) {
+			// can't happen in memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * memory-map a concept graph file
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 *             if the file can't be read or is not a concept graph of this
+	 *             version
+	 */
+	public static MappedConceptGraph open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel is closed
+			return new MappedConceptGraph(channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * read a concept graph into memory, e.g. from a resource in a jar that
+	 * can't be mapped
+	 *
+	 * @param is
+	 *            closed by the caller
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedConceptGraph read(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(1024 * 1024);
+		byte[] buffer = new byte[64 * 1024];
+		int n;
+		while ((n = is.read(buffer)) >= 0)
+			bos.write(buffer, 0, n);
+		return new MappedConceptGraph(ByteBuffer.wrap(bos.toByteArray()));
+	}
+
+	/**
+	 * write the concept graph to a file, create parent directories as required
+	 *
+	 * @param cg
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(ConceptGraph cg, File file) throws IOException {
+		if (file.getParentFile() != null && !file.getParentFile().exists())
+			file.getParentFile().mkdirs();
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(file),
+				64 * 1024);
+		try {
+			write(cg, os);
+		} finally {
+			os.close();
+		}
+	}
+
+	/**
+	 * write the concept graph in the binary format
+	 *
+	 * @param cg
+	 * @param os
+	 *            not closed
+	 * @throws IOException
+	 */
+	public static void write(ConceptGraph cg, OutputStream os)
+			throws IOException {
+		List<ConcRel> conceptList = cg.getConceptList();
+		int nodeCount = conceptList.size();
+		ConcRel[] nodes = new ConcRel[nodeCount];
+		for (ConcRel cr : conceptList)
+			nodes[cr.getNodeIndex()] = cr;
+		int[] parentOffsets = new int[nodeCount + 1];
+		int[] childOffsets = new int[nodeCount + 1];
+		final byte[][] ids = new byte[nodeCount][];
+		int idBytes = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			parentOffsets[i + 1] = parentOffsets[i]
+					+ edgeCount(nodes[i].getParentsArray(), nodes[i].getParents());
+			childOffsets[i + 1] = childOffsets[i]
+					+ edgeCount(nodes[i].getChildrenArray(),
+							nodes[i].getChildren());
+			ids[i] = nodes[i].getConceptID().getBytes(StandardCharsets.UTF_8);
+			idBytes += ids[i].length;
+		}
+		if (parentOffsets[nodeCount] != childOffsets[nodeCount])
+			throw new IllegalArgumentException(
+					"concept graph parents and children do not match");
+		Integer[] sorted = new Integer[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			sorted[i] = i;
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer n1, Integer n2) {
+				return compareBytes(ids[n1], ids[n2]);
+			}
+		});
+		ConcRel root = cg.getRoot() != null ? findRoot(cg, nodes) : null;
+
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeInt(nodeCount);
+		dos.writeInt(parentOffsets[nodeCount]);
+		dos.writeInt(root != null ? root.getNodeIndex() : -1);
+		dos.writeShort(cg.getDepthMax());
+		dos.writeShort(0);
+		dos.writeDouble(cg.getIntrinsicICMax());
+		for (ConcRel cr : nodes)
+			dos.writeDouble(cr.getIntrinsicInfoContent());
+		for (int offset : parentOffsets)
+			dos.writeInt(offset);
+		for (ConcRel cr : nodes)
+			writeEdges(dos, cr.getParentsArray(), cr.getParents());
+		for (int offset : childOffsets)
+			dos.writeInt(offset);
+		for (ConcRel cr : nodes)
+			writeEdges(dos, cr.getChildrenArray(), cr.getChildren());
+		for (Integer node : sorted)
+			dos.writeInt(node);
+		int idOffset = 0;
+		dos.writeInt(idOffset);
+		for (byte[] id : ids) {
+			idOffset += id.length;
+			dos.writeInt(idOffset);
+		}
+		for (ConcRel cr : nodes)
+			dos.writeShort(cr.getDepth());
+		for (byte[] id : ids)
+			dos.write(id);
+		dos.flush();
+	}
+
+	private static int compareBytes(byte[] b1, byte[] b2) {
+		int len = Math.min(b1.length, b2.length);
+		for (int i = 0; i < len; i++) {
+			int c = (b1[i] & 0xff) - (b2[i] & 0xff);
+			if (c != 0)
+				return c;
+		}
+		return b1.length - b2.length;
+	}
+
+	/**
+	 * the root may not be in the concept map of a graph that is still being
+	 * built, so look for it in the list
+	 */
+	private static ConcRel findRoot(ConceptGraph cg, ConcRel[] nodes) {
+		ConcRel root = cg.getConceptMap() != null ? cg.getConceptMap().get(
+				cg.getRoot()) : null;
+		if (root == null) {
+			for (ConcRel cr : nodes) {
+				if (cg.getRoot().equals(cr.getConceptID()))
+					return cr;
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * edges are in the arrays of a graph with cycles, else in the sets
+	 */
+	private static int edgeCount(int[] array, Collection<ConcRel> set) {
+		return array != null ? array.length : set.size();
+	}
+
+	private static void writeEdges(DataOutputStream dos, int[] array,
+			Collection<ConcRel> set) throws IOException {
+		if (array != null) {
+			for (int node : array)
+				dos.writeInt(node);
+		} else {
+			for (ConcRel cr : set)
+				dos.writeInt(cr.getNodeIndex());
+		}
+	}
+
+	private final IntBuffer childOffsets;
+	private final IntBuffer children;
+	private final ShortBuffer depths;
+	private final short depthMax;
+	private final ByteBuffer idBytes;
+	private final IntBuffer idOffsets;
+	private final double intrinsicICMax;
+	private final DoubleBuffer intrinsicInfoContent;
+	private final int nodeCount;
+	private final IntBuffer parentOffsets;
+	private final IntBuffer parents;
+	private final int root;
+	private final IntBuffer sortedNodes;
+
+	private MappedConceptGraph(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+			throw new IOException("not a concept graph file");
+		int version = buffer.getInt(4);
+		if (version != VERSION)
+			throw new IOException("concept graph file version " + version
+					+ " is not supported, expected " + VERSION);
+		nodeCount = buffer.getInt(8);
+		int edgeCount = buffer.getInt(12);
+		root = buffer.getInt(16);
+		depthMax = buffer.getShort(20);
+		intrinsicICMax = buffer.getDouble(24);
+		int position = HEADER_BYTES;
+		intrinsicInfoContent = slice(buffer, position, nodeCount * 8)
+				.asDoubleBuffer();
+		position += nodeCount * 8;
+		parentOffsets = slice(buffer, position, (nodeCount + 1) * 4)
+				.asIntBuffer();
+		position += (nodeCount + 1) * 4;
+		parents = slice(buffer, position, edgeCount * 4).asIntBuffer();
+		position += edgeCount * 4;
+		childOffsets = slice(buffer, position, (nodeCount + 1) * 4)
+				.asIntBuffer();
+		position += (nodeCount + 1) * 4;
+		children = slice(buffer, position, edgeCount * 4).asIntBuffer();
+		position += edgeCount * 4;
+		sortedNodes = slice(buffer, position, nodeCount * 4).asIntBuffer();
+		position += nodeCount * 4;
+		idOffsets = slice(buffer, position, (nodeCount + 1) * 4).asIntBuffer();
+		position += (nodeCount + 1) * 4;
+		depths = slice(buffer, position, nodeCount * 2).asShortBuffer();
+		position += nodeCount * 2;
+		idBytes = slice(buffer, position, idOffsets.get(nodeCount));
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length)
+			throws IOException {
+		if (position + length > buffer.capacity())
+			throw new IOException("concept graph file is truncated");
+		ByteBuffer dup = buffer.duplicate();
+		dup.limit(position + length);
+		dup.position(position);
+		return dup.slice();
+	}
+
+	public int getChild(int node, int i) {
+		return children.get(childOffsets.get(node) + i);
+	}
+
+	public int getChildCount(int node) {
+		return childOffsets.get(node + 1) - childOffsets.get(node);
+	}
+
+	public String getConceptID(int node) {
+		int start = idOffsets.get(node);
+		byte[] id = new byte[idOffsets.get(node + 1) - start];
+		for (int i = 0; i < id.length; i++)
+			id[i] = idBytes.get(start + i);
+		return new String(id, StandardCharsets.UTF_8);
+	}
+
+	public short getDepth(int node) {
+		return depths.get(node);
+	}
+
+	public short getDepthMax() {
+		return depthMax;
+	}
+
+	public int getEdgeCount() {
+		return parents.capacity();
+	}
+
+	public double getIntrinsicICMax() {
+		return intrinsicICMax;
+	}
+
+	public double getIntrinsicInfoContent(int node) {
+		return intrinsicInfoContent.get(node);
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * find a concept by binary search over the string table
+	 *
+	 * @param conceptID
+	 * @return node index, -1 if the concept is not in the graph
+	 */
+	public int getNodeIndex(String conceptID) {
+		byte[] id = conceptID.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = nodeCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int node = sortedNodes.get(mid);
+			int c = compareId(node, id);
+			if (c < 0)
+				low = mid + 1;
+			else if (c > 0)
+				high = mid - 1;
+			else
+				return node;
+		}
+		return -1;
+	}
+
+	private int compareId(int node, byte[] id) {
+		int start = idOffsets.get(node);
+		int len1 = idOffsets.get(node + 1) - start;
+		int len = Math.min(len1, id.length);
+		for (int i = 0; i < len; i++) {
+			int c = (idBytes.get(start + i) & 0xff) - (id[i] & 0xff);
+			if (c != 0)
+				return c;
+		}
+		return len1 - id.length;
+	}
+
+	public int getParent(int node, int i) {
+		return parents.get(parentOffsets.get(node) + i);
+	}
+
+	public int getParentCount(int node) {
+		return parentOffsets.get(node + 1) - parentOffsets.get(node);
+	}
+
+	/**
+	 * @return root node index, -1 if none
+	 */
+	public int getRootNode() {
+		return root;
+	}
+
+	/**
+	 * create the {@link ConcRel} objects for code that needs a
+	 * {@link ConceptGraph}. The relationships are set as arrays, as after java
+	 * deserialization; the caller resolves them.
+	 *
+	 * @return
+	 */
+	public ConceptGraph toConceptGraph() {
+		List<ConcRel> conceptList = new ArrayList<ConcRel>(nodeCount);
+		for (int node = 0; node < nodeCount; node++) {
+			ConcRel cr = new ConcRel(getConceptID(node), node);
+			cr.setDepth(getDepth(node));
+			cr.setIntrinsicInfoContent(getIntrinsicInfoContent(node));
+			int[] parentsArray = new int[getParentCount(node)];
+			for (int i = 0; i < parentsArray.length; i++)
+				parentsArray[i] = getParent(node, i);
+			cr.setParentsArray(parentsArray);
+			int[] childrenArray = new int[getChildCount(node)];
+			for (int i = 0; i < childrenArray.length; i++)
+				childrenArray[i] = getChild(node, i);
+			cr.setChildrenArray(childrenArray);
+			conceptList.add(cr);
+		}
+		ConceptGraph cg = new ConceptGraph();
+		cg.setConceptList(conceptList);
+		cg.setDepthMax(depthMax);
+		cg.setIntrinsicICMax(intrinsicICMax);
+		cg.setRoot(root >= 0 ? conceptList.get(root).getConceptID() : null);
+		return cg;
+	}
+}
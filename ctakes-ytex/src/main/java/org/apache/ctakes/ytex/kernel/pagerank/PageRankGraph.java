@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.pagerank;
+
+import java.util.List;
+
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.apache.ctakes.ytex.kernel.model.MappedConceptGraph;
+
+/**
+ * Link structure of a concept graph for pagerank. Page = concept, out-links =
+ * children, in-links = parents. Nodes are identified by
+ * {@link ConcRel#getNodeIndex()}.
+ * <p>
+ * Links are held in compressed sparse row arrays: the children of node
+ * <code>n</code> are <code>children[childOffsets[n] .. childOffsets[n+1])</code>,
+ * likewise for parents. Children are used to push scores from the few nodes
+ * of a personalized vector, parents to pull scores into every node once the
+ * vector is dense.
+ * <p>
+ * Immutable, can be shared by threads.
+ */
+public class PageRankGraph {
+
+	final int[] childOffsets;
+	final int[] children;
+	/**
+	 * 1 / number of children, 0 for leaves
+	 */
+	final double[] inverseOutDegree;
+	final int nodeCount;
+	final int[] parentOffsets;
+	final int[] parents;
+
+	/**
+	 * works with graphs that have cycles, which only have the relationship
+	 * arrays, and with acyclic graphs, which only have the relationship sets
+	 *
+	 * @param cg
+	 */
+	public PageRankGraph(ConceptGraph cg) {
+		this(childrenOf(cg));
+	}
+
+	/**
+	 * @param cg
+	 */
+	public PageRankGraph(MappedConceptGraph cg) {
+		this(childrenOf(cg));
+	}
+
+	private PageRankGraph(int[][] childCsr) {
+		childOffsets = childCsr[0];
+		children = childCsr[1];
+		nodeCount = childOffsets.length - 1;
+		inverseOutDegree = new double[nodeCount];
+		// transpose the children to get the parents
+		parentOffsets = new int[nodeCount + 1];
+		for (int child : children)
+			parentOffsets[child + 1]++;
+		for (int n = 0; n < nodeCount; n++) {
+			parentOffsets[n + 1] += parentOffsets[n];
+			int outDegree = childOffsets[n + 1] - childOffsets[n];
+			if (outDegree > 0)
+				inverseOutDegree[n] = 1d / outDegree;
+		}
+		parents = new int[children.length];
+		int[] next = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			for (int i = childOffsets[n]; i < childOffsets[n + 1]; i++) {
+				int child = children[i];
+				parents[parentOffsets[child] + next[child]++] = n;
+			}
+		}
+	}
+
+	private static int[][] childrenOf(ConceptGraph cg) {
+		List<ConcRel> conceptList = cg.getConceptList();
+		int nodeCount = conceptList.size();
+		int[] childOffsets = new int[nodeCount + 1];
+		for (ConcRel cr : conceptList) {
+			childOffsets[cr.getNodeIndex() + 1] = cr.getChildrenArray() != null ? cr
+					.getChildrenArray().length : cr.getChildren().size();
+		}
+		for (int n = 0; n < nodeCount; n++)
+			childOffsets[n + 1] += childOffsets[n];
+		int[] children = new int[childOffsets[nodeCount]];
+		for (ConcRel cr : conceptList) {
+			int i = childOffsets[cr.getNodeIndex()];
+			if (cr.getChildrenArray() != null) {
+				for (int child : cr.getChildrenArray())
+					children[i++] = child;
+			} else {
+				for (ConcRel child : cr.getChildren())
+					children[i++] = child.getNodeIndex();
+			}
+		}
+		return new int[][] { childOffsets, children };
+	}
+
+	private static int[][] childrenOf(MappedConceptGraph cg) {
+		int nodeCount = cg.getNodeCount();
+		int[] childOffsets = new int[nodeCount + 1];
+		int[] children = new int[cg.getEdgeCount()];
+		for (int n = 0; n < nodeCount; n++) {
+			int childCount = cg.getChildCount(n);
+			for (int i = 0; i < childCount; i++)
+				children[childOffsets[n] + i] = cg.getChild(n, i);
+			childOffsets[n + 1] = childOffsets[n] + childCount;
+		}
+		return new int[][] { childOffsets, children };
+	}
+
+	public int getEdgeCount() {
+		return children.length;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+}
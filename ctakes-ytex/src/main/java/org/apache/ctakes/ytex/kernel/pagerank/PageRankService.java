@@ -18,6 +18,7 @@
  */
 package org.apache.ctakes.ytex.kernel.pagerank;
 
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
@@ -61,4 +62,46 @@ public interface PageRankService {
 	public abstract double[] rank2(Map<Integer, Double> dampingVector, ConceptGraph cg, int iter,
 			double threshold, double dampingFactor);
 
+	/**
+	 * personalized pagerank vector of a single concept, from the cache if it
+	 * was computed before
+	 * 
+	 * @param concept
+	 * @param cg
+	 * @param iter
+	 * @param threshold
+	 * @param dampingFactor
+	 * @return null if the concept is not in the graph
+	 */
+	public abstract PageRankVector personalizedRank(String concept,
+			ConceptGraph cg, int iter, double threshold, double dampingFactor);
+
+	/**
+	 * personalized pagerank vectors of many concepts, computed in parallel
+	 * 
+	 * @param concepts
+	 * @param cg
+	 * @param iter
+	 * @param threshold
+	 * @param dampingFactor
+	 * @return vector of each concept, null for concepts not in the graph
+	 */
+	public abstract List<PageRankVector> personalizedRanks(
+			List<String> concepts, ConceptGraph cg, int iter,
+			double threshold, double dampingFactor);
+
+	/**
+	 * similarity of all pairs of concepts, as computed by
+	 * {@link #sim(String, String, ConceptGraph, int, double, double)}
+	 * 
+	 * @param concepts
+	 * @param cg
+	 * @param iter
+	 * @param threshold
+	 * @param dampingFactor
+	 * @return symmetric matrix, 0 for concepts not in the graph
+	 */
+	public abstract double[][] simMatrix(List<String> concepts,
+			ConceptGraph cg, int iter, double threshold, double dampingFactor);
+
 }
\ No newline at end of file
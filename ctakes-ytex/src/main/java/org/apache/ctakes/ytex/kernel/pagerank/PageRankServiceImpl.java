@@ -18,12 +18,21 @@
  */
 package org.apache.ctakes.ytex.kernel.pagerank;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -40,372 +49,600 @@ import org.apache.ctakes.ytex.kernel.dao.ConceptDao;
 import org.apache.ctakes.ytex.kernel.model.ConcRel;
 import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
 
-
+/**
+ * pagerank over the compressed sparse row arrays of a {@link PageRankGraph},
+ * with double[] score buffers that are reused by each thread.
+ * <p>
+ * A personalized vector starts with a few non-zero nodes, and scores only
+ * flow to their descendants. While few nodes have a score, each iteration
+ * pushes the scores of those nodes to their children. Once more than
+ * 1/{@link #DENSE_FRACTION} of the nodes have a score, each iteration pulls
+ * the scores of the parents into every node; single vectors split this over
+ * threads. Iteration stops when the vector converges.
+ * <p>
+ * Personalized vectors of single concepts are kept in an lru cache, so that
+ * similarity of many concept pairs computes each vector once. The cache is
+ * bounded by the number of vectors and by the node scores they store. Batches of
+ * concepts are computed in parallel, one concept per thread.
+ */
 public class PageRankServiceImpl implements PageRankService {
-	private static final Log log = LogFactory.getLog(PageRankServiceImpl.class);
+	/**
+	 * pagerank structure, buffers and cached vectors of a concept graph
+	 */
+	private static class GraphEntry {
+		final ConceptGraph cg;
+		final PageRankGraph graph;
+		final VectorCache vectorCache;
+		final ThreadLocal<Workspace> workspace;
 
-	private double[] rankInternal(Map<Integer, Double> dampingVector,
-			ConceptGraph cg, int iter, double threshold, double dampingFactor) {
-		Map<Integer, Double> scoreMapCurrent = dampingVector;
-		double N = (double) cg.getConceptList().size();
-		double scoresCurrent[] = new double[cg.getConceptList().size()];
-		double diff = 1d;
-		for (int i = 0; i < iter; i++) {
-			double[] scoresOld = scoresCurrent;
-			long timeBegin = 0;
-			if (log.isDebugEnabled()) {
-				timeBegin = System.currentTimeMillis();
-			}
-			scoresCurrent = pagerankIter(scoresOld, dampingVector, cg,
-					dampingFactor, N);
-			if (log.isDebugEnabled()) {
-				log.debug("iter " + i + " "
-						+ Long.toString(System.currentTimeMillis() - timeBegin));
+		GraphEntry(ConceptGraph cg, final int cacheSize, final long cacheEntries) {
+			this.cg = cg;
+			this.graph = new PageRankGraph(cg);
+			this.vectorCache = new VectorCache(cacheSize, cacheEntries);
+			this.workspace = new ThreadLocal<Workspace>() {
+				@Override
+				protected Workspace initialValue() {
+					return new Workspace(graph.nodeCount);
+				}
+			};
+		}
+	}
+
+	/**
+	 * lru cache of personalized vectors, bounded by the number of vectors and
+	 * by the number of node scores stored in all vectors. vectors of concepts
+	 * near the root have a score for most nodes of the graph, so a count
+	 * alone does not bound the memory.
+	 */
+	private static class VectorCache {
+		final LinkedHashMap<VectorKey, PageRankVector> vectors = new LinkedHashMap<VectorKey, PageRankVector>(
+				16, 0.75f, true);
+		final int maxVectors;
+		final long maxEntries;
+		long entries;
+
+		VectorCache(int maxVectors, long maxEntries) {
+			this.maxVectors = maxVectors;
+			this.maxEntries = maxEntries;
+		}
+
+		synchronized PageRankVector get(VectorKey key) {
+			return vectors.get(key);
+		}
+
+		/**
+		 * add the vector and evict the least recently used vectors until
+		 * both bounds hold. a vector larger than the entry bound is not kept.
+		 */
+		synchronized void put(VectorKey key, PageRankVector vector) {
+			if (maxVectors <= 0 || vector.size() > maxEntries)
+				return;
+			PageRankVector old = vectors.put(key, vector);
+			if (old != null)
+				entries -= old.size();
+			entries += vector.size();
+			Iterator<PageRankVector> iter = vectors.values().iterator();
+			while (vectors.size() > maxVectors || entries > maxEntries) {
+				entries -= iter.next().size();
+				iter.remove();
 			}
-			if ((diff = difference(scoresOld, scoresCurrent)) <= threshold)
-				break;
 		}
-		if (log.isDebugEnabled() && diff > threshold) {
-			log.debug("did not converge, diff = " + diff + ", dampingVector = "
-					+ dampingVector);
+
+		synchronized long getEntries() {
+			return entries;
+		}
+	}
+
+	/**
+	 * cache key of a personalized vector
+	 */
+	private static class VectorKey {
+		final double dampingFactor;
+		final int iter;
+		final int node;
+		final double threshold;
+
+		VectorKey(int node, int iter, double threshold, double dampingFactor) {
+			this.node = node;
+			this.iter = iter;
+			this.threshold = threshold;
+			this.dampingFactor = dampingFactor;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof VectorKey))
+				return false;
+			VectorKey other = (VectorKey) obj;
+			return node == other.node && iter == other.iter
+					&& Double.compare(threshold, other.threshold) == 0
+					&& Double.compare(dampingFactor, other.dampingFactor) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(threshold) * 31
+					+ Double.doubleToLongBits(dampingFactor);
+			return (node * 31 + iter) * 31 + (int) (bits ^ (bits >>> 32));
+		}
+	}
+
+	/**
+	 * score buffers of one thread. between computations all buffers are 0 and
+	 * no node is active.
+	 */
+	private static class Workspace {
+		/**
+		 * nodes that have had a score, in the order they got it
+		 */
+		final int[] activeNodes;
+		final boolean[] active;
+		int activeCount;
+		/**
+		 * (1-d) * v_i, the probability of jumping to a node
+		 */
+		final double[] jump;
+		double[] scores;
+		double[] newScores;
+
+		Workspace(int nodeCount) {
+			activeNodes = new int[nodeCount];
+			active = new boolean[nodeCount];
+			jump = new double[nodeCount];
+			scores = new double[nodeCount];
+			newScores = new double[nodeCount];
+		}
+
+		void activate(int node) {
+			if (!active[node]) {
+				active[node] = true;
+				activeNodes[activeCount++] = node;
+			}
 		}
-		return scoresCurrent;
 	}
 
 	/**
-	 * difference between 2 vectors
+	 * work on a range of indices
+	 */
+	private interface RangeTask {
+		double run(int start, int end);
+	}
+
+	/**
+	 * nodes per task of a parallel dense iteration
+	 */
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	/**
+	 * switch from pushing scores from active nodes to pulling scores into all
+	 * nodes when more than 1/DENSE_FRACTION of the nodes are active
+	 */
+	private static final int DENSE_FRACTION = 16;
+
+	private static final Log log = LogFactory.getLog(PageRankServiceImpl.class);
+
+	private long cacheEntries = 10000000;
+
+	private int cacheSize = 1000;
+
+	private ExecutorService executor;
+
+	private volatile GraphEntry graphEntry;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * one iteration over the nodes from start to end, pulling the scores of
+	 * parents into each node
 	 * 
-	 * @param a
-	 * @param b
-	 * @return a-b
+	 * @return sum of squared differences between the old and new scores
 	 */
-	private <T> double difference(Map<T, Double> a, Map<T, Double> b) {
+	private static double pagerankIterDense(PageRankGraph graph,
+			double[] scores, double[] newScores, double[] jump,
+			double uniformJump, double dampingFactor, int start, int end) {
+		int[] parentOffsets = graph.parentOffsets;
+		int[] parents = graph.parents;
+		double[] inverseOutDegree = graph.inverseOutDegree;
 		double diff = 0d;
-		for (Map.Entry<T, Double> aiEntry : a.entrySet()) {
-			Double bi = b.get(aiEntry.getKey());
-			diff += Math.pow(
-					aiEntry.getValue() - (bi != null ? bi.doubleValue() : 0d),
-					2);
-		}
-		for (Map.Entry<T, Double> biEntry : b.entrySet()) {
-			if (!a.containsKey(biEntry.getKey())) {
-				diff += Math.pow(biEntry.getValue(), 2);
+		for (int n = start; n < end; n++) {
+			double score = 0d;
+			for (int i = parentOffsets[n]; i < parentOffsets[n + 1]; i++) {
+				int parent = parents[i];
+				score += scores[parent] * inverseOutDegree[parent];
 			}
+			double adjusted = score * dampingFactor + jump[n] + uniformJump;
+			double d = adjusted - scores[n];
+			diff += d * d;
+			newScores[n] = adjusted;
 		}
 		return diff;
 	}
 
 	/**
+	 * one iteration over the active nodes, pushing their scores to their
+	 * children. children become active.
 	 * 
-	 * @param u
-	 * @param v
-	 * @return norm(u-v)
+	 * @return sum of squared differences between the old and new scores
 	 */
-	private double difference(double[] u, double[] v) {
+	private static double pagerankIterSparse(PageRankGraph graph,
+			Workspace ws, double dampingFactor) {
+		int[] childOffsets = graph.childOffsets;
+		int[] children = graph.children;
+		double[] scores = ws.scores;
+		double[] newScores = ws.newScores;
+		int activeCount = ws.activeCount;
+		for (int k = 0; k < activeCount; k++) {
+			int node = ws.activeNodes[k];
+			double score = scores[node];
+			if (score == 0d)
+				continue;
+			double share = score * dampingFactor
+					* graph.inverseOutDegree[node];
+			for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+				int child = children[i];
+				ws.activate(child);
+				newScores[child] += share;
+			}
+		}
 		double diff = 0d;
-		for (int i = 0; i < u.length; i++) {
-			double d = (u[i] - v[i]);
+		for (int k = 0; k < ws.activeCount; k++) {
+			int node = ws.activeNodes[k];
+			double adjusted = newScores[node] + ws.jump[node];
+			newScores[node] = adjusted;
+			double d = adjusted - scores[node];
 			diff += d * d;
+			// clear the old scores, they become the next new scores
+			scores[node] = 0d;
 		}
-		return Math.sqrt(diff);
-	}
-
-	private double cosine(double[] u, double[] v) {
-		double uu = 0;
-		double vv = 0;
-		double uv = 0;
-		for (int i = 0; i < u.length; i++) {
-			uu += u[i] * u[i];
-			vv += v[i] * v[i];
-			uv += u[i] * v[i];
-		}
-		return uv / Math.sqrt(uu * vv);
-	}
-
-	public double[] pagerankIter(double[] currentScores,
-			Map<Integer, Double> dampingVector, ConceptGraph cg,
-			double dampingFactor, double N, Set<Integer> activeNodes) {
-		double newScores[] = new double[(int) N];
-		Arrays.fill(newScores, 0d);
-		Integer[] activeNodeArr = new Integer[activeNodes.size()];
-		activeNodes.toArray(activeNodeArr);
-		for (int index : activeNodeArr) {
-			// pagerank with non-uniform damping vector (topic vector).
-			// because of the non-uniform damping vector, few nodes will have a
-			// non-zero pagerank.
-			// optimized so that we only iterate over nodes with non-zero
-			// pagerank.
-			// propagate from non-zero nodes to linked nodes
-			// we assume currentScores is non-null - it is initialized to the
-			// damping vector.
-			// iterate over nodes that have a pagerank, and propagate the
-			// pagerank to out-links.
-			// pagerank
-			double score = currentScores[index];
-			// get concept id
-			ConcRel cr = cg.getConceptList().get(index);
-			// get number of out-links
-			double nOutlinks = (double) cr.getChildren().size();
-			if (nOutlinks > 0) {
-				// propagate pagerank to out-links (children)
-				for (ConcRel crOut : cr.getChildren()) {
-					int targetIndex = crOut.getNodeIndex();
-					// get current pagerank value for target page
-					double childScore = newScores[targetIndex];
-					// add the pagerank/|links|
-					childScore += (score / nOutlinks);
-					newScores[targetIndex] = childScore;
-					activeNodes.add(targetIndex);
+		return diff;
+	}
+
+	/**
+	 * personalized vector of a single concept, from the cache if possible
+	 */
+	private PageRankVector personalizedRank(GraphEntry entry, int node,
+			int iter, double threshold, double dampingFactor, boolean parallel) {
+		VectorKey key = new VectorKey(node, iter, threshold, dampingFactor);
+		PageRankVector vector = entry.vectorCache.get(key);
+		if (vector == null) {
+			vector = rankVector(entry, new int[] { node }, new double[] { 1d },
+					iter, threshold, dampingFactor, parallel);
+			entry.vectorCache.put(key, vector);
+		}
+		return vector;
+	}
+
+	/**
+	 * compute a pagerank vector
+	 * 
+	 * @param seedNodes
+	 *            nodes of the damping vector. null for normal pagerank with a
+	 *            damping vector where every value is 1/N
+	 * @param seedWeights
+	 *            values of the damping vector
+	 * @param parallel
+	 *            split dense iterations over threads. false when called from
+	 *            a thread that is already working on part of a batch
+	 */
+	private PageRankVector rankVector(GraphEntry entry, int[] seedNodes,
+			double[] seedWeights, int iter, double threshold,
+			final double dampingFactor, boolean parallel) {
+		final PageRankGraph graph = entry.graph;
+		final Workspace ws = entry.workspace.get();
+		final int nodeCount = graph.nodeCount;
+		boolean dense;
+		final double uniformJump;
+		if (seedNodes == null) {
+			// for static page rank, all nodes have same weight initially
+			Arrays.fill(ws.scores, 1d / nodeCount);
+			uniformJump = (1 - dampingFactor) / nodeCount;
+			dense = true;
+		} else {
+			// for personalized page rank, the initial weights are the damping
+			// vector, and only those nodes can be jumped to
+			for (int i = 0; i < seedNodes.length; i++) {
+				ws.activate(seedNodes[i]);
+				ws.scores[seedNodes[i]] += seedWeights[i];
+				ws.jump[seedNodes[i]] += seedWeights[i] * (1 - dampingFactor);
+			}
+			uniformJump = 0d;
+			dense = false;
+		}
+		try {
+			double diff = 1d;
+			for (int i = 0; i < iter; i++) {
+				if (!dense && ws.activeCount > nodeCount / DENSE_FRACTION)
+					dense = true;
+				if (dense) {
+					final double[] scores = ws.scores;
+					final double[] newScores = ws.newScores;
+					final double[] jump = ws.jump;
+					RangeTask task = new RangeTask() {
+						@Override
+						public double run(int start, int end) {
+							return pagerankIterDense(graph, scores, newScores,
+									jump, uniformJump, dampingFactor, start,
+									end);
+						}
+					};
+					diff = parallel ? runChunks(nodeCount, task) : task.run(
+							0, nodeCount);
+				} else {
+					diff = pagerankIterSparse(graph, ws, dampingFactor);
 				}
+				double[] swap = ws.scores;
+				ws.scores = ws.newScores;
+				ws.newScores = swap;
+				if (log.isDebugEnabled()) {
+					log.debug("iter " + i + " active nodes "
+							+ (dense ? nodeCount : ws.activeCount));
+				}
+				if ((diff = Math.sqrt(diff)) <= threshold)
+					break;
+			}
+			if (log.isDebugEnabled() && diff > threshold) {
+				log.debug("did not converge, diff = " + diff
+						+ ", damping vector nodes = "
+						+ (seedNodes == null ? null : Arrays.toString(seedNodes)));
 			}
+			return dense ? denseVector(ws.scores) : sparseVector(ws);
+		} finally {
+			clear(ws, dense);
 		}
-		// we just added the contribution of pages to newScores sum(score).
-		// adjust: convert to (d)*sum(score) + (1-d)*v_i
-		for (int index : activeNodes) {
-			// personalized pagerank
-			double adjusted = (newScores[index] * dampingFactor);
-			// v_i
-			Double v_i = dampingVector.get(index);
-			// 1-c * v_i
-			if (v_i != null)
-				adjusted += v_i;
-			newScores[index] = adjusted;
-		}
-		return newScores;
-	}
-
-	public double[] pagerankIter(double[] currentScores,
-			Map<Integer, Double> dampingVector, ConceptGraph cg,
-			double dampingFactor, double N) {
-		double newScores[] = new double[(int) N];
-		double jump = ((1 - dampingFactor) / N);
-		for (int i = 0; i < currentScores.length; i++) {
-			double score = 0d;
-			ConcRel c = cg.getConceptList().get(i);
-			// get nodes pointing at node c
-			for (int parentIndex : c.getParentsArray()) {
-				ConcRel p = cg.getConceptList().get(parentIndex);
-				// get the pagerank for node p which is pointing at c
-				// if this is the first iteration, currentScores is null so
-				// use the initial pagerank
-				double prIn = currentScores[parentIndex];
-				// add the pagerank divided by the number of nodes p is
-				// pointing at
-				score += (prIn / (double) p.getChildrenArray().length);
+	}
+
+	private static PageRankVector denseVector(double[] scores) {
+		int size = 0;
+		for (double score : scores) {
+			if (score != 0d)
+				size++;
+		}
+		int[] nodes = new int[size];
+		double[] values = new double[size];
+		int i = 0;
+		for (int n = 0; n < scores.length; n++) {
+			if (scores[n] != 0d) {
+				nodes[i] = n;
+				values[i++] = scores[n];
 			}
-			if (dampingVector == null) {
-				// uniform damping
-				newScores[i] = (score * dampingFactor) + jump;
-			} else {
-				// personalized pagerank
-				double adjusted = (score * dampingFactor);
-				// get the random jump for this node
-				Double v_i = dampingVector.get(i);
-				// if not null, add it
-				if (v_i != null)
-					adjusted += v_i;
-				newScores[i] = adjusted;
+		}
+		return new PageRankVector(nodes, values);
+	}
+
+	private static PageRankVector sparseVector(Workspace ws) {
+		int[] nodes = Arrays.copyOf(ws.activeNodes, ws.activeCount);
+		Arrays.sort(nodes);
+		int size = 0;
+		for (int node : nodes) {
+			if (ws.scores[node] != 0d)
+				nodes[size++] = node;
+		}
+		nodes = Arrays.copyOf(nodes, size);
+		double[] values = new double[size];
+		for (int i = 0; i < size; i++)
+			values[i] = ws.scores[nodes[i]];
+		return new PageRankVector(nodes, values);
+	}
+
+	/**
+	 * reset the workspace for the next computation
+	 */
+	private static void clear(Workspace ws, boolean dense) {
+		if (dense) {
+			Arrays.fill(ws.scores, 0d);
+			Arrays.fill(ws.newScores, 0d);
+		}
+		for (int k = 0; k < ws.activeCount; k++) {
+			int node = ws.activeNodes[k];
+			ws.active[node] = false;
+			ws.jump[node] = 0d;
+			ws.scores[node] = 0d;
+			ws.newScores[node] = 0d;
+		}
+		ws.activeCount = 0;
+	}
+
+	/**
+	 * split 0 to count into chunks of {@link #CHUNK_SIZE} and run them on the
+	 * thread pool
+	 * 
+	 * @return sum of the task results
+	 */
+	private double runChunks(int count, final RangeTask task) {
+		if (threads < 2 || count <= CHUNK_SIZE)
+			return task.run(0, count);
+		List<Callable<Double>> callables = new ArrayList<Callable<Double>>();
+		for (int start = 0; start < count; start += CHUNK_SIZE) {
+			final int chunkStart = start;
+			final int chunkEnd = Math.min(count, start + CHUNK_SIZE);
+			callables.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					return task.run(chunkStart, chunkEnd);
+				}
+			});
+		}
+		double sum = 0d;
+		for (Future<Double> future : invokeAll(callables)) {
+			sum += getResult(future);
+		}
+		return sum;
+	}
+
+	/**
+	 * run the task for each index from 0 to count, with one worker per thread
+	 * taking the next index
+	 */
+	private void runEach(final int count, final RangeTask task) {
+		int workers = Math.min(threads, count);
+		if (workers < 2) {
+			task.run(0, count);
+			return;
+		}
+		final AtomicInteger next = new AtomicInteger();
+		List<Callable<Double>> callables = new ArrayList<Callable<Double>>(
+				workers);
+		for (int w = 0; w < workers; w++) {
+			callables.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					int i;
+					while ((i = next.getAndIncrement()) < count)
+						task.run(i, i + 1);
+					return 0d;
+				}
+			});
+		}
+		for (Future<Double> future : invokeAll(callables)) {
+			getResult(future);
+		}
+	}
+
+	private List<Future<Double>> invokeAll(List<Callable<Double>> callables) {
+		try {
+			return getExecutor().invokeAll(callables);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static double getResult(Future<Double> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "pagerank-"
+									+ count.incrementAndGet());
+							// don't keep the jvm alive
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return executor;
+	}
+
+	/**
+	 * the pagerank structure of the concept graph, built on first use and
+	 * kept until a different graph is used
+	 */
+	private GraphEntry getGraphEntry(ConceptGraph cg) {
+		GraphEntry entry = graphEntry;
+		if (entry == null || entry.cg != cg) {
+			synchronized (this) {
+				entry = graphEntry;
+				if (entry == null || entry.cg != cg) {
+					long timeBegin = System.currentTimeMillis();
+					entry = new GraphEntry(cg, cacheSize, cacheEntries);
+					graphEntry = entry;
+					if (log.isInfoEnabled())
+						log.info("pagerank graph, nodes: "
+								+ entry.graph.getNodeCount() + ", edges: "
+								+ entry.graph.getEdgeCount() + ", time(ms): "
+								+ (System.currentTimeMillis() - timeBegin));
+				}
 			}
 		}
-		return newScores;
+		return entry;
+	}
+
+	/**
+	 * @return node indices of the concepts, -1 for concepts not in the graph
+	 */
+	private static int[] toNodes(List<String> concepts, ConceptGraph cg) {
+		int[] nodes = new int[concepts.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			ConcRel cr = cg.getConceptMap().get(concepts.get(i));
+			nodes[i] = cr != null ? cr.getNodeIndex() : -1;
+		}
+		return nodes;
 	}
 
 	@Override
 	public double[] rank2(Map<Integer, Double> dampingVector, ConceptGraph cg,
 			int iter, double threshold, double dampingFactor) {
-		double N = (double) cg.getConceptMap().size();
-		double scoresCurrent[] = new double[cg.getConceptMap().size()];
-		Map<Integer, Double> dampingVectorAdj = null;
-		// Set<Integer> activeNodes = null;
+		GraphEntry entry = getGraphEntry(cg);
+		int[] seedNodes = null;
+		double[] seedWeights = null;
 		if (dampingVector != null) {
-			// for personalized page rank, put together a map of possibilities
-			// of randomly jumping to a specific node
-			dampingVectorAdj = new HashMap<Integer, Double>(
-					dampingVector.size());
-			// // initialize set of active nodes
-			// activeNodes = new HashSet<Integer>(dampingVector.keySet());
-			Arrays.fill(scoresCurrent, 0d);
+			seedNodes = new int[dampingVector.size()];
+			seedWeights = new double[dampingVector.size()];
+			int i = 0;
 			for (Map.Entry<Integer, Double> dvEntry : dampingVector.entrySet()) {
-				// set the random jump for the node
-				dampingVectorAdj.put(dvEntry.getKey(), dvEntry.getValue()
-						* (1 - dampingFactor));
-				// set the initial weight for the node
-				scoresCurrent[dvEntry.getKey()] = dvEntry.getValue();
-			}
-		} else {
-			// for static page rank, all nodes have same weight initially
-			Arrays.fill(scoresCurrent, 1d / N);
-		}
-		double diff = 1d;
-		for (int i = 0; i < iter; i++) {
-			double scoresOld[] = scoresCurrent;
-			long timeBegin = 0;
-			if (log.isDebugEnabled()) {
-				timeBegin = System.currentTimeMillis();
+				seedNodes[i] = dvEntry.getKey();
+				seedWeights[i++] = dvEntry.getValue();
 			}
-			// if (activeNodes == null) {
-			scoresCurrent = pagerankIter(scoresCurrent, dampingVectorAdj, cg,
-					dampingFactor, N);
-			// } else {
-			// scoresCurrent = pagerankIter(scoresCurrent, dampingVectorAdj,
-			// cg, dampingFactor, N, activeNodes);
-			// }
-			if (log.isDebugEnabled()) {
-				log.debug("iter " + i + " time(ms) "
-						+ Long.toString(System.currentTimeMillis() - timeBegin));
-			}
-			if ((diff = difference(scoresCurrent, scoresOld)) <= threshold)
-				break;
-		}
-		if (log.isDebugEnabled() && diff > threshold) {
-			log.debug("did not converge, diff = " + diff + ", dampingVector = "
-					+ dampingVector);
 		}
-		return scoresCurrent;
+		return rankVector(entry, seedNodes, seedWeights, iter, threshold,
+				dampingFactor, true).toArray(entry.graph.getNodeCount());
 	}
 
-	/**
-	 * perform one iteration of pagerank
-	 * 
-	 * @param currentScores
-	 * @param cg
-	 * @return
-	 */
-	public Map<Integer, Double> pagerankIter(
-			Map<Integer, Double> currentScores,
-			Map<Integer, Double> dampingVector, ConceptGraph cg,
-			double dampingFactor, double N) {
-		Map<Integer, Double> newScores = new HashMap<Integer, Double>();
-		if (dampingVector == null) {
-			// the constant probability of randomly surfing into this node,
-			// adjusted by damping factor
-			double jump = ((1 - dampingFactor) / N);
-			double initialValue = 1 / N;
-			// the basic pagerank iteration with uniform damping vector
-			// iterate over all nodes
-			for (ConcRel c : cg.getConceptList()) {
-				double score = 0d;
-				// get nodes pointing at node c
-				for (ConcRel in : c.getParents()) {
-					// get the pagerank for node p which is pointing at c
-					// if this is the first iteration, currentScores is null so
-					// use the initial pagerank
-					double prIn = currentScores == null ? initialValue
-							: currentScores.get(in.getNodeIndex());
-					// add the pagerank divided by the number of nodes p is
-					// pointing at
-					score += (prIn / (double) in.getChildren().size());
-				}
-				// adjust for uniform damping
-				double adjusted = (score * dampingFactor) + jump;
-				newScores.put(c.getNodeIndex(), adjusted);
+	@Override
+	public double[] rank(Map<String, Double> dampingVector, ConceptGraph cg,
+			int iter, double threshold, double dampingFactor) {
+		Map<Integer, Double> nodeVector = null;
+		if (dampingVector != null) {
+			nodeVector = new HashMap<Integer, Double>(dampingVector.size());
+			for (Map.Entry<String, Double> dvEntry : dampingVector.entrySet()) {
+				ConcRel cr = cg.getConceptMap().get(dvEntry.getKey());
+				if (cr != null)
+					nodeVector.put(cr.getNodeIndex(), dvEntry.getValue());
 			}
-			// for (ConcRel c : cg.getConceptMap().values()) {
-			// double score = 0d;
-			// // get nodes pointing at node c
-			// for (ConcRel in : c.getParents()) {
-			// // get the pagerank for node p which is pointing at c
-			// // if this is the first iteration, currentScores is null so
-			// // use the initial pagerank
-			// double prIn = currentScores == null ? initialValue
-			// : currentScores.get(in.getConceptID());
-			// // add the pagerank divided by the number of nodes p is
-			// // pointing at
-			// score += (prIn / (double) in.getChildren().size());
-			// }
-			// // adjust for uniform damping
-			// double adjusted = (score * dampingFactor) + jump;
-			// newScores.put(c.getConceptID(), adjusted);
-			// }
-		} else {
-			// pagerank with non-uniform damping vector (topic vector).
-			// because of the non-uniform damping vector, few nodes will have a
-			// non-zero pagerank.
-			// optimized so that we only iterate over nodes with non-zero
-			// pagerank.
-			// propagate from non-zero nodes to linked nodes
-			// we assume currentScores is non-null - it is initialized to the
-			// damping vector.
-			// iterate over nodes that have a pagerank, and propagate the
-			// pagerank to out-links.
-			for (Map.Entry<Integer, Double> scoreEntry : currentScores
-					.entrySet()) {
-				// page (concept id)
-				Integer index = scoreEntry.getKey();
-				// pagerank
-				double score = scoreEntry.getValue();
-				// get concept id
-				ConcRel cr = cg.getConceptList().get(index);
-				// get number of out-links
-				double nOutlinks = (double) cr.getChildren().size();
-				if (nOutlinks > 0) {
-					// propagate pagerank to out-links (children)
-					for (ConcRel crOut : cr.getChildren()) {
-						// get current pagerank value for target page
-						double childScore = 0d;
-						Double childScoreD = newScores
-								.get(crOut.getNodeIndex());
-						if (childScoreD != null)
-							childScore = childScoreD.doubleValue();
-						// add the pagerank/|links|
-						childScore += (score / nOutlinks);
-						newScores.put(crOut.getNodeIndex(), childScore);
-					}
+		}
+		return rank2(nodeVector, cg, iter, threshold, dampingFactor);
+	}
+
+	@Override
+	public double[] rank(Map<String, Double> dampingVector, ConceptGraph cg) {
+		return rank(dampingVector, cg, 30, 1e-4, 0.85);
+	}
+
+	@Override
+	public PageRankVector personalizedRank(String concept, ConceptGraph cg,
+			int iter, double threshold, double dampingFactor) {
+		ConcRel cr = cg.getConceptMap().get(concept);
+		if (cr == null)
+			return null;
+		return personalizedRank(getGraphEntry(cg), cr.getNodeIndex(), iter,
+				threshold, dampingFactor, true);
+	}
+
+	@Override
+	public List<PageRankVector> personalizedRanks(List<String> concepts,
+			ConceptGraph cg, final int iter, final double threshold,
+			final double dampingFactor) {
+		final GraphEntry entry = getGraphEntry(cg);
+		final int[] nodes = toNodes(concepts, cg);
+		final PageRankVector[] vectors = new PageRankVector[nodes.length];
+		runEach(nodes.length, new RangeTask() {
+			@Override
+			public double run(int start, int end) {
+				for (int i = start; i < end; i++) {
+					if (nodes[i] >= 0)
+						vectors[i] = personalizedRank(entry, nodes[i], iter,
+								threshold, dampingFactor, false);
 				}
+				return 0d;
 			}
-			// we just added the contribution of pages to newScores sum(score).
-			// adjust: convert to (d)*sum(score) + (1-d)*v_i
-			for (Map.Entry<Integer, Double> scoreEntry : newScores.entrySet()) {
-				// v_i
-				Double v_i = dampingVector.get(scoreEntry.getKey());
-				// 1-c * v_i
-				double v_i_adj = v_i != null ? v_i * (1 - dampingFactor) : 0d;
-				double adjusted = (scoreEntry.getValue() * dampingFactor)
-						+ v_i_adj;
-				scoreEntry.setValue(adjusted);
-			}
-			//
-			//
-			// for (Map.Entry<String, Double> scoreEntry : currentScores
-			// .entrySet()) {
-			// // page (concept id)
-			// String page = scoreEntry.getKey();
-			// // pagerank
-			// double score = scoreEntry.getValue();
-			// // get concept id
-			// ConcRel cr = cg.getConceptMap().get(page);
-			// // get number of out-links
-			// double nOutlinks = (double) cr.getChildren().size();
-			// if (nOutlinks > 0) {
-			// // propagate pagerank to out-links (children)
-			// for (ConcRel crOut : cr.getChildren()) {
-			// // get current pagerank value for target page
-			// double childScore = 0d;
-			// Double childScoreD = newScores
-			// .get(crOut.getConceptID());
-			// if (childScoreD != null)
-			// childScore = childScoreD.doubleValue();
-			// // add the pagerank/|links|
-			// childScore += (score / nOutlinks);
-			// newScores.put(crOut.getConceptID(), childScore);
-			// }
-			// }
-			// }
-			// // we just added the contribution of pages to newScores
-			// sum(score).
-			// // adjust: convert to (d)*sum(score) + (1-d)*v_i
-			// for (Map.Entry<String, Double> scoreEntry : newScores.entrySet())
-			// {
-			// // v_i
-			// Double v_i = dampingVector.get(scoreEntry.getKey());
-			// // 1-c * v_i
-			// double v_i_adj = v_i != null ? v_i * (1 - dampingFactor) : 0d;
-			// double adjusted = (scoreEntry.getValue() * dampingFactor)
-			// + v_i_adj;
-			// scoreEntry.setValue(adjusted);
-			// }
-		}
-		return newScores;
+		});
+		return Arrays.asList(vectors);
 	}
 
 	/**
@@ -425,49 +662,87 @@ public class PageRankServiceImpl implements PageRankService {
 	@Override
 	public double sim(String concept1, String concept2, ConceptGraph cg,
 			int iter, double threshold, double dampingFactor) {
-		Map<Integer, Double> c1dv = new HashMap<Integer, Double>(1);
-		ConcRel c1 = cg.getConceptMap().get(concept1);
-		ConcRel c2 = cg.getConceptMap().get(concept2);
-		if (c1 == null || c2 == null)
+		PageRankVector c1pr = personalizedRank(concept1, cg, iter, threshold,
+				dampingFactor);
+		if (c1pr == null)
+			return 0d;
+		PageRankVector c2pr = personalizedRank(concept2, cg, iter, threshold,
+				dampingFactor);
+		if (c2pr == null)
 			return 0d;
-		c1dv.put(c1.getNodeIndex(), 1d);
-		double[] c1pr = this.rank2(c1dv, cg, iter, threshold, dampingFactor);
-		Map<Integer, Double> c2dv = new HashMap<Integer, Double>(1);
-		c2dv.put(c2.getNodeIndex(), 1d);
-		double[] c2pr = this.rank2(c2dv, cg, iter, threshold, dampingFactor);
-		return cosine(c1pr, c2pr);
+		return c1pr.cosine(c2pr);
+	}
+
+	@Override
+	public double[][] simMatrix(List<String> concepts, ConceptGraph cg,
+			int iter, double threshold, double dampingFactor) {
+		final List<PageRankVector> vectors = personalizedRanks(concepts, cg,
+				iter, threshold, dampingFactor);
+		final double[][] sim = new double[vectors.size()][vectors.size()];
+		runEach(vectors.size(), new RangeTask() {
+			@Override
+			public double run(int start, int end) {
+				for (int i = start; i < end; i++) {
+					PageRankVector vi = vectors.get(i);
+					if (vi == null)
+						continue;
+					for (int j = i; j < sim.length; j++) {
+						PageRankVector vj = vectors.get(j);
+						if (vj != null)
+							sim[i][j] = sim[j][i] = vi.cosine(vj);
+					}
+				}
+				return 0d;
+			}
+		});
+		return sim;
+	}
+
+	public long getCacheEntries() {
+		return cacheEntries;
 	}
 
 	/**
-	 * cosine of two vectors
-	 * 
-	 * @param u
-	 * @param v
-	 * @return
+	 * @param cacheEntries
+	 *            number of node scores to keep over all cached vectors,
+	 *            default 10 million (about 120 MB). set before first use.
 	 */
-	private <T> double cosine(Map<T, Double> u, Map<T, Double> v) {
-		double uu = 0d;
-		double uv = 0d;
-		double vv = 0d;
-		if (u.isEmpty() || v.isEmpty())
-			return 0d;
-		// in this loop compute u*u, and u*v
-		for (Map.Entry<T, Double> uEntry : u.entrySet()) {
-			double ui = uEntry.getValue();
-			T uC = uEntry.getKey();
-			uu += ui * ui;
-			Double vi = v.get(uC);
-			if (vi != null)
-				uv += ui * vi.doubleValue();
-		}
-		if (uv == 0)
-			return 0d;
-		// in this loop, compute v*v
-		for (double vi : v.values()) {
-			vv += vi * vi;
-		}
-		// u*v/sqrt(v*v)*sqrt(u*u)
-		return uv / Math.sqrt(vv * uu);
+	public void setCacheEntries(long cacheEntries) {
+		this.cacheEntries = cacheEntries;
+	}
+
+	/**
+	 * @return node scores stored in the vector cache of the current graph
+	 */
+	long getCachedEntries() {
+		GraphEntry entry = graphEntry;
+		return entry == null ? 0 : entry.vectorCache.getEntries();
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * @param cacheSize
+	 *            number of personalized vectors to keep, default 1000. set
+	 *            before first use.
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads
+	 *            threads for batches and dense iterations, default number of
+	 *            processors. set before first use.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
 	}
 
 	public static void main(String args[]) {
@@ -526,17 +801,4 @@ public class PageRankServiceImpl implements PageRankService {
 		}
 
 	}
-
-	@Override
-	public double[] rank(Map<String, Double> dampingVector, ConceptGraph cg,
-			int iter, double threshold, double dampingFactor) {
-		// TODO Auto-generated method stub
-		return null;
-	}
-
-	@Override
-	public double[] rank(Map<String, Double> dampingVector, ConceptGraph cg) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.pagerank;
+
+import java.util.Arrays;
+
+/**
+ * sparse pagerank vector: the nodes with a non-zero score, sorted by node
+ * index. Personalized vectors of concepts deep in the hierarchy only reach a
+ * few descendants, so these are much smaller than the graph. Immutable.
+ */
+public class PageRankVector {
+
+	private final int[] nodes;
+	private final double norm;
+	private final double[] scores;
+
+	/**
+	 * @param nodes
+	 *            sorted node indices, not copied
+	 * @param scores
+	 *            score of each node, not copied
+	 */
+	public PageRankVector(int[] nodes, double[] scores) {
+		this.nodes = nodes;
+		this.scores = scores;
+		double nn = 0d;
+		for (double score : scores)
+			nn += score * score;
+		this.norm = Math.sqrt(nn);
+	}
+
+	/**
+	 * cosine of two vectors, 0 if either is 0
+	 *
+	 * @param other
+	 * @return
+	 */
+	public double cosine(PageRankVector other) {
+		if (norm == 0d || other.norm == 0d)
+			return 0d;
+		int[] nodes2 = other.nodes;
+		double[] scores2 = other.scores;
+		double uv = 0d;
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < nodes.length && i2 < nodes2.length) {
+			int n1 = nodes[i1];
+			int n2 = nodes2[i2];
+			if (n1 < n2) {
+				i1++;
+			} else if (n1 > n2) {
+				i2++;
+			} else {
+				uv += scores[i1++] * scores2[i2++];
+			}
+		}
+		return uv / (norm * other.norm);
+	}
+
+	/**
+	 * @param node
+	 * @return score of the node, 0 if not in the vector
+	 */
+	public double get(int node) {
+		int i = Arrays.binarySearch(nodes, node);
+		return i < 0 ? 0d : scores[i];
+	}
+
+	public int getNode(int i) {
+		return nodes[i];
+	}
+
+	public double getNorm() {
+		return norm;
+	}
+
+	public double getScore(int i) {
+		return scores[i];
+	}
+
+	/**
+	 * @return number of nodes with a non-zero score
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * @param nodeCount
+	 *            number of nodes in the graph
+	 * @return dense vector indexed by node
+	 */
+	public double[] toArray(int nodeCount) {
+		double[] dense = new double[nodeCount];
+		for (int i = 0; i < nodes.length; i++)
+			dense[nodes[i]] = scores[i];
+		return dense;
+	}
+}
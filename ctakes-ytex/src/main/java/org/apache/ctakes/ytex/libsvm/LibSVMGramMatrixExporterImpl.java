@@ -19,6 +19,7 @@
 package org.apache.ctakes.ytex.libsvm;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -45,6 +46,7 @@ import org.apache.ctakes.ytex.kernel.InstanceData;
 import org.apache.ctakes.ytex.kernel.KernelContextHolder;
 import org.apache.ctakes.ytex.kernel.KernelUtil;
 import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDao;
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixFile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
@@ -58,6 +60,8 @@ import com.google.common.collect.BiMap;
  * kernel_eval table) - required
  * <li>outdir directory where files will be place - optional defaults to current
  * directory
+ * <li>gramMatrixFile read the gram matrix from this file written by the
+ * CorpusKernelEvaluator instead of the database - optional
  * <p/>
  * Output to outdir following files:
  * <li>train_data.txt - for each class label, a symmetric gram matrix for
@@ -206,8 +210,8 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 	private void exportGramMatrices(String name, String experiment,
 			double param1, String param2, String scope, String splitName,
 			String outdir, InstanceData instanceData,
-			Map<String, BiMap<String, Integer>> labelToClassIndexMap)
-			throws IOException {
+			Map<String, BiMap<String, Integer>> labelToClassIndexMap,
+			GramMatrixFile gramMatrixFile) throws IOException {
 		// the full, symmetric gram matrix
 		double[][] gramMatrix = null;
 		// the set of all instance ids
@@ -218,7 +222,7 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 			// empty scope - load gram matrix
 			gramMatrix = loadGramMatrix(name, experiment, param1, param2,
 					splitName, null, 0, 0, instanceData, instanceIds,
-					mapInstanceIdToIndex);
+					mapInstanceIdToIndex, gramMatrixFile);
 			if (gramMatrix == null)
 				return;
 		}
@@ -227,7 +231,7 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 				// label scope - load gram matrix
 				gramMatrix = loadGramMatrix(name, experiment, param1, param2,
 						splitName, label, 0, 0, instanceData, instanceIds,
-						mapInstanceIdToIndex);
+						mapInstanceIdToIndex, gramMatrixFile);
 				if (gramMatrix == null)
 					return;
 			}
@@ -242,7 +246,8 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 						// fold scope - load gram matrix
 						gramMatrix = loadGramMatrix(name, experiment, param1,
 								param2, splitName, label, run, fold,
-								instanceData, instanceIds, mapInstanceIdToIndex);
+								instanceData, instanceIds, mapInstanceIdToIndex,
+								gramMatrixFile);
 					}
 					if (gramMatrix != null) {
 						// get folds
@@ -288,8 +293,18 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 		Map<String, BiMap<String, Integer>> labelToClassIndexMap = new HashMap<String, BiMap<String, Integer>>();
 		kernelUtil.fillLabelToClassToIndexMap(
 				instanceData.getLabelToClassMap(), labelToClassIndexMap);
-		exportGramMatrices(name, experiment, param1, param2, scope, splitName,
-				outdir, instanceData, labelToClassIndexMap);
+		String gramMatrixFileName = props.getProperty("gramMatrixFile");
+		GramMatrixFile gramMatrixFile = null;
+		if (gramMatrixFileName != null && gramMatrixFileName.length() > 0)
+			gramMatrixFile = GramMatrixFile.open(new File(gramMatrixFileName));
+		try {
+			exportGramMatrices(name, experiment, param1, param2, scope,
+					splitName, outdir, instanceData, labelToClassIndexMap,
+					gramMatrixFile);
+		} finally {
+			if (gramMatrixFile != null)
+				gramMatrixFile.close();
+		}
 	}
 
 	public DataSource getDataSource() {
@@ -315,7 +330,8 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 	private double[][] loadGramMatrix(String name, String experiment,
 			double param1, String param2, String splitName, String label,
 			int run, int fold, InstanceData instanceData,
-			SortedSet<Long> instanceIds, Map<Long, Integer> mapInstanceIdToIndex) {
+			SortedSet<Long> instanceIds, Map<Long, Integer> mapInstanceIdToIndex,
+			GramMatrixFile gramMatrixFile) throws IOException {
 		double[][] gramMatrix;
 		instanceIds.clear();
 		mapInstanceIdToIndex.clear();
@@ -324,8 +340,12 @@ public class LibSVMGramMatrixExporterImpl implements LibSVMGramMatrixExporter {
 		for (long instanceId : instanceIds) {
 			mapInstanceIdToIndex.put(instanceId, index++);
 		}
-		gramMatrix = this.kernelUtil.loadGramMatrix(instanceIds, name,
-				splitName, experiment, label, run, fold, param1, param2);
+		if (gramMatrixFile != null) {
+			gramMatrix = gramMatrixFile.loadGramMatrix(instanceIds);
+		} else {
+			gramMatrix = this.kernelUtil.loadGramMatrix(instanceIds, name,
+					splitName, experiment, label, run, fold, param1, param2);
+		}
 		return gramMatrix;
 	}
 
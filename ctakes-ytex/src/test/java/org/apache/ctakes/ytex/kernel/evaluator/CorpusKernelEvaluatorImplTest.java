@@ -0,0 +1,280 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDao;
+import org.apache.ctakes.ytex.kernel.dao.KernelEvaluationDaoImpl;
+import org.apache.ctakes.ytex.kernel.model.KernelEvaluation;
+import org.apache.ctakes.ytex.kernel.tree.Node;
+import org.hibernate.SessionFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.HibernateTransactionManager;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+/**
+ * resume of the gram matrix stored in the database, against an in-memory
+ * database
+ */
+public class CorpusKernelEvaluatorImplTest {
+
+	private static final int TRAIN = 10;
+	private static final int TEST = 3;
+	/**
+	 * instance without a tree
+	 */
+	private static final int NO_TREE = 4;
+
+	/**
+	 * k(x, y) = x * y, x the node type
+	 */
+	private static class ProductKernel implements Kernel {
+		final AtomicInteger evaluations = new AtomicInteger();
+
+		@Override
+		public double evaluate(Object o1, Object o2) {
+			evaluations.incrementAndGet();
+			return Double.parseDouble(((Node) o1).getType())
+					* Double.parseDouble(((Node) o2).getType());
+		}
+	}
+
+	private static DriverManagerDataSource dataSource;
+	private static KernelEvaluationDao kernelEvaluationDao;
+	private static SessionFactory sessionFactory;
+	private static HibernateTransactionManager transactionManager;
+
+	@BeforeClass
+	public static void setUpDatabase() throws SQLException {
+		dataSource = new DriverManagerDataSource(
+				"jdbc:hsqldb:mem:CorpusKernelEvaluatorImplTest", "sa", "");
+		dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement
+					.execute("CREATE TABLE kernel_eval (kernel_eval_id INT GENERATED BY DEFAULT AS IDENTITY,"
+							+ " corpus_name VARCHAR(50) DEFAULT '' NOT NULL, experiment VARCHAR(50) NOT NULL,"
+							+ " label VARCHAR(50) DEFAULT '' NOT NULL, cv_fold_id INT DEFAULT 0 NOT NULL,"
+							+ " param1 DOUBLE DEFAULT 0 NOT NULL, param2 VARCHAR(50) DEFAULT '' NOT NULL,"
+							+ " PRIMARY KEY (kernel_eval_id))");
+			statement
+					.execute("CREATE TABLE kernel_eval_instance (kernel_eval_id INT NOT NULL,"
+							+ " instance_id1 BIGINT NOT NULL, instance_id2 BIGINT NOT NULL,"
+							+ " similarity DOUBLE NOT NULL)");
+			statement
+					.execute("CREATE UNIQUE INDEX NK_kernel_eval_instance"
+							+ " ON kernel_eval_instance(kernel_eval_id, instance_id1, instance_id2)");
+			statement
+					.execute("CREATE TABLE gram_instance (instance_id BIGINT NOT NULL PRIMARY KEY, train INT NOT NULL)");
+			statement.close();
+			PreparedStatement insert = connection
+					.prepareStatement("INSERT INTO gram_instance VALUES (?, ?)");
+			for (int i = 0; i < TRAIN + TEST; i++) {
+				insert.setLong(1, instanceId(i));
+				insert.setInt(2, i < TRAIN ? 1 : 0);
+				insert.executeUpdate();
+			}
+			insert.close();
+		} finally {
+			connection.close();
+		}
+		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(
+				dataSource);
+		builder.addResource("org/apache/ctakes/ytex/kernel/model/KernelEvaluation.hbm.xml");
+		builder.setProperty("hibernate.dialect",
+				"org.hibernate.dialect.HSQLDialect");
+		sessionFactory = builder.buildSessionFactory();
+		transactionManager = new HibernateTransactionManager(sessionFactory);
+		KernelEvaluationDaoImpl daoImpl = new KernelEvaluationDaoImpl();
+		daoImpl.setSessionFactory(sessionFactory);
+		daoImpl.setTransactionManager(transactionManager);
+		// the dao joins the caller's transaction, as with the spring
+		// configuration
+		Properties transactionAttributes = new Properties();
+		transactionAttributes.setProperty("*", "PROPAGATION_REQUIRED");
+		ProxyFactory proxyFactory = new ProxyFactory(daoImpl);
+		proxyFactory.addAdvice(new TransactionInterceptor(transactionManager,
+				transactionAttributes));
+		kernelEvaluationDao = (KernelEvaluationDao) proxyFactory.getProxy();
+	}
+
+	@AfterClass
+	public static void tearDownDatabase() throws SQLException {
+		sessionFactory.close();
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("SHUTDOWN");
+			statement.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static long instanceId(int i) {
+		return 100 + i;
+	}
+
+	/**
+	 * instance ids 100, 101, ... with node types 1, 2, ...; the first TRAIN
+	 * are training instances
+	 */
+	private static Map<Long, Node> instances() {
+		Map<Long, Node> instances = new HashMap<Long, Node>();
+		for (int i = 0; i < TRAIN + TEST; i++) {
+			if (i != NO_TREE) {
+				Node node = new Node();
+				node.setType(Integer.toString(i + 1));
+				instances.put(instanceId(i), node);
+			}
+		}
+		return instances;
+	}
+
+	private static CorpusKernelEvaluatorImpl evaluator(String name,
+			Kernel kernel, int tileSize) {
+		CorpusKernelEvaluatorImpl evaluator = new CorpusKernelEvaluatorImpl();
+		evaluator.setDataSource(dataSource);
+		evaluator.setTransactionManager(transactionManager);
+		evaluator.setKernelEvaluationDao(kernelEvaluationDao);
+		evaluator
+				.setInstanceIDQuery("select instance_id, train from gram_instance order by instance_id");
+		evaluator.setExperiment("test");
+		evaluator.setName(name);
+		evaluator.setInstanceKernel(kernel);
+		evaluator.setTileSize(tileSize);
+		return evaluator;
+	}
+
+	private static KernelEvaluation kernelEvaluation(String name) {
+		KernelEvaluation kernelEvaluation = new KernelEvaluation();
+		kernelEvaluation.setCorpusName(name);
+		kernelEvaluation.setExperiment("test");
+		kernelEvaluation.setLabel("");
+		kernelEvaluation.setParam2("");
+		return kernelEvaluationDao.storeKernelEval(kernelEvaluation);
+	}
+
+	/**
+	 * every pair of a training instance with a later instance is stored once
+	 * with the right value
+	 */
+	private static void checkEvaluations(String name) throws SQLException {
+		Set<String> expected = new HashSet<String>();
+		for (int i = 0; i < TRAIN; i++) {
+			for (int j = i; j < TRAIN + TEST; j++) {
+				if (i != NO_TREE && j != NO_TREE)
+					expected.add(instanceId(i) + " " + instanceId(j));
+			}
+		}
+		Set<String> stored = new HashSet<String>();
+		Connection connection = dataSource.getConnection();
+		try {
+			PreparedStatement query = connection
+					.prepareStatement("SELECT instance_id1, instance_id2, similarity"
+							+ " FROM kernel_eval_instance WHERE kernel_eval_id = ?");
+			query.setInt(1, kernelEvaluation(name).getKernelEvaluationId());
+			ResultSet rs = query.executeQuery();
+			while (rs.next()) {
+				long id1 = rs.getLong(1);
+				long id2 = rs.getLong(2);
+				assertEquals(id1 + " " + id2, (id1 - 99) * (id2 - 99),
+						rs.getDouble(3), 0d);
+				assertTrue(stored.add(id1 + " " + id2));
+			}
+			query.close();
+		} finally {
+			connection.close();
+		}
+		assertEquals(expected, stored);
+	}
+
+	@Test
+	public void testComplete() throws Exception {
+		evaluator("complete", new ProductKernel(), 4).evaluateKernelOnCorpus(
+				instances(), 2, true);
+		checkEvaluations("complete");
+		// nothing left to evaluate
+		ProductKernel kernel = new ProductKernel();
+		evaluator("complete", kernel, 4).evaluateKernelOnCorpus(instances(),
+				2, true);
+		assertEquals(0, kernel.evaluations.get());
+		checkEvaluations("complete");
+	}
+
+	@Test
+	public void testResumeRows() throws Exception {
+		// the first of three row slices
+		evaluator("rows", new ProductKernel(), 4).evaluateKernelOnCorpus(
+				instances(), 3, 1, true);
+		evaluator("rows", new ProductKernel(), 4).evaluateKernelOnCorpus(
+				instances(), 2, true);
+		checkEvaluations("rows");
+	}
+
+	@Test
+	public void testResumeTileSize() throws Exception {
+		// training instances only, with smaller tiles
+		evaluator("tileSize", new ProductKernel(), 3).evaluateKernelOnCorpus(
+				instances(), 1, false);
+		ProductKernel kernel = new ProductKernel();
+		evaluator("tileSize", kernel, 4).evaluateKernelOnCorpus(instances(),
+				2, true);
+		checkEvaluations("tileSize");
+		// tiles of training instances only are not evaluated again
+		assertTrue(kernel.evaluations.get() < (TRAIN - 1) * TEST
+				+ (TRAIN - 1) * TRAIN / 2);
+	}
+
+	@Test
+	public void testResumePartialTiles() throws Exception {
+		// some pairs of every tile, including the first pair of each tile
+		KernelEvaluation kernelEvaluation = kernelEvaluation("partial");
+		for (int i = 0; i < TRAIN; i++) {
+			for (int j = i; j < TRAIN + TEST; j++) {
+				if (i != NO_TREE && j != NO_TREE && (i % 4 == 0 || j % 3 == 0))
+					kernelEvaluationDao.storeKernel(kernelEvaluation,
+							instanceId(i), instanceId(j), (i + 1) * (j + 1));
+			}
+		}
+		evaluator("partial", new ProductKernel(), 4).evaluateKernelOnCorpus(
+				instances(), 2, true);
+		checkEvaluations("partial");
+	}
+}
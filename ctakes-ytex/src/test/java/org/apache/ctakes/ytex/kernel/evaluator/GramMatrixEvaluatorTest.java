@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixEvaluator.Tile;
+import org.apache.ctakes.ytex.kernel.evaluator.GramMatrixEvaluator.TileSink;
+import org.apache.ctakes.ytex.kernel.tree.Node;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GramMatrixEvaluatorTest {
+
+	private static final int TRAIN = 10;
+	private static final int TEST = 3;
+	private static final int TILE_SIZE = 3;
+
+	/**
+	 * k(x, y) = x * y, x the node type
+	 */
+	private static class ProductKernel implements Kernel {
+		final AtomicInteger evaluations = new AtomicInteger();
+
+		@Override
+		public double evaluate(Object o1, Object o2) {
+			evaluations.incrementAndGet();
+			return Double.parseDouble(((Node) o1).getType())
+					* Double.parseDouble(((Node) o2).getType());
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * instance ids 100, 101, ... with node types 1, 2, ...; instance 104 has
+	 * no tree
+	 */
+	private static List<Node> instances() {
+		List<Node> instances = new ArrayList<Node>();
+		for (int i = 0; i < TRAIN + TEST; i++) {
+			Node node = null;
+			if (i != 4) {
+				node = new Node();
+				node.setType(Integer.toString(i + 1));
+			}
+			instances.add(node);
+		}
+		return instances;
+	}
+
+	private static long[] instanceIds() {
+		long[] ids = new long[TRAIN + TEST];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = 100 + i;
+		return ids;
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		File file = new File(folder.getRoot(), "gram.bin");
+		final GramMatrixFile gramMatrixFile = GramMatrixFile.create(file,
+				instanceIds(), TRAIN, TILE_SIZE);
+		int tileCount = GramMatrixEvaluator.createTiles(TRAIN + TEST, TRAIN,
+				TILE_SIZE).size();
+		// fail after 3 tiles
+		TileSink failing = new TileSink() {
+			int stored = 0;
+
+			@Override
+			public boolean isTileDone(Tile tile) {
+				return gramMatrixFile.isTileDone(tile);
+			}
+
+			@Override
+			public void storeTile(Tile tile, double[] values)
+					throws IOException {
+				if (stored++ == 3)
+					throw new IOException("disk full");
+				gramMatrixFile.storeTile(tile, values);
+			}
+		};
+		try {
+			new GramMatrixEvaluator(new ProductKernel(), instances(), failing)
+					.evaluate(TRAIN, TILE_SIZE, 1);
+			fail("sink failure should be rethrown");
+		} catch (IOException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+		gramMatrixFile.close();
+		// resume evaluates only the other tiles
+		GramMatrixFile resumed = GramMatrixFile.create(file, instanceIds(),
+				TRAIN, TILE_SIZE);
+		assertEquals(3, resumed.getTilesDone());
+		assertFalse(resumed.isComplete());
+		ProductKernel kernel = new ProductKernel();
+		new GramMatrixEvaluator(kernel, instances(), resumed).evaluate(TRAIN,
+				TILE_SIZE, 2);
+		assertEquals(tileCount, resumed.getTilesDone());
+		assertTrue(kernel.evaluations.get() > 0);
+		resumed.close();
+		checkMatrix(file);
+		// other instances start over
+		GramMatrixFile other = GramMatrixFile.create(file, new long[] { 1, 2 },
+				2, TILE_SIZE);
+		assertEquals(0, other.getTilesDone());
+		other.close();
+	}
+
+	private void checkMatrix(File file) throws IOException {
+		GramMatrixFile gramMatrixFile = GramMatrixFile.open(file);
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for (long id : instanceIds())
+			ids.add(id);
+		double[][] gramMatrix = gramMatrixFile.loadGramMatrix(ids);
+		gramMatrixFile.close();
+		for (int i = 0; i < ids.size(); i++) {
+			for (int j = 0; j < ids.size(); j++) {
+				double expected = (i + 1) * (j + 1);
+				if (i == j && (i == 4 || i >= TRAIN)) {
+					// not evaluated, diagonal defaults to 1
+					expected = 1;
+				} else if (i == 4 || j == 4 || (i >= TRAIN && j >= TRAIN)) {
+					// no tree, or both test instances
+					expected = 0;
+				}
+				assertEquals(i + " " + j, expected, gramMatrix[i][j], 0d);
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.evaluator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ctakes.ytex.kernel.tree.Node;
+import org.junit.Test;
+
+public class SubsetTreeKernelTest {
+
+	private static Node node(String type, String word, Node... children) {
+		Node node = new Node();
+		node.setType(type);
+		Map<String, Serializable> value = new HashMap<String, Serializable>();
+		value.put("word", word);
+		node.setValue(value);
+		for (Node child : children)
+			node.getChildren().add(child);
+		return node;
+	}
+
+	/**
+	 * document with two sentences of one word each
+	 */
+	private static Node doc(String w1, String w2) {
+		return node("doc", null, node("sentence", null, node("word", w1)),
+				node("sentence", null, node("word", w2)));
+	}
+
+	@Test
+	public void testEvaluate() {
+		SubsetTreeKernel kernel = new SubsetTreeKernel();
+		kernel.setNormalize(false);
+		double l2 = kernel.getLambda() * kernel.getLambda();
+		Node d1 = doc("a", "b");
+		Node d2 = doc("a", "c");
+		// doc matches, each sentence and word matches 2 of the other
+		double expected = l2 * (1 + l2) * (1 + l2) + 4 * l2 + 4 * l2;
+		assertEquals(expected, kernel.evaluate(d1, d2), 1e-12);
+		// words only match if they are the same, so only the first sentences
+		// and their words match
+		kernel.setLabelAttribute("word");
+		expected = l2 * (1 + l2) + l2 + l2;
+		assertEquals(expected, kernel.evaluate(d1, d2), 1e-12);
+		kernel.setNormalize(true);
+		assertEquals(1d, kernel.evaluate(d1, d1), 1e-12);
+		assertEquals(0d, kernel.evaluate(d1, null), 0d);
+	}
+}
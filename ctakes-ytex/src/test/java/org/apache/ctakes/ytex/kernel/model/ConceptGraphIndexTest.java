@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConceptGraphIndexTest {
+
+	private ConceptGraph cg;
+	private ConceptGraphIndex index;
+
+	private void addEdge(String parent, String child) {
+		ConcRel p = cg.getConceptMap().get(parent);
+		if (p == null)
+			p = cg.addConcept(parent);
+		ConcRel c = cg.getConceptMap().get(child);
+		if (c == null)
+			c = cg.addConcept(child);
+		p.getChildren().add(c);
+		c.getParents().add(p);
+	}
+
+	@Before
+	public void setUp() {
+		cg = new ConceptGraph();
+		addEdge("root", "animal");
+		addEdge("animal", "vertebrate");
+		addEdge("vertebrate", "cat");
+		addEdge("vertebrate", "dog");
+		addEdge("root", "bacteria");
+		addEdge("bacteria", "e coli");
+		// second parent - pet is a shorter way up from cat and dog
+		addEdge("animal", "pet");
+		addEdge("pet", "cat");
+		addEdge("pet", "dog");
+		index = new ConceptGraphIndex(cg);
+	}
+
+	private int node(String concept) {
+		return cg.getConceptMap().get(concept).getNodeIndex();
+	}
+
+	private Set<String> lcses(ConceptGraphIndex.LcsBuffer buffer) {
+		Set<String> lcses = new TreeSet<String>();
+		for (int i = 0; i < buffer.size(); i++)
+			lcses.add(index.getConceptID(buffer.get(i)));
+		return lcses;
+	}
+
+	@Test
+	public void testLeastCommonConcepts() {
+		ConceptGraphIndex.LcsBuffer buffer = new ConceptGraphIndex.LcsBuffer();
+		assertEquals(3, index.getLeastCommonConcepts(node("cat"), node("dog"),
+				buffer));
+		assertEquals(new TreeSet<String>(Arrays.asList("pet",
+				"vertebrate")), lcses(buffer));
+		assertEquals(6, index.getLeastCommonConcepts(node("cat"),
+				node("e coli"), buffer));
+		assertEquals(Collections.singleton("root"), lcses(buffer));
+		assertEquals(1, index.getLeastCommonConcepts(node("cat"), node("cat"),
+				buffer));
+		assertEquals(3,
+				index.getLeastCommonConcepts(node("cat"), node("animal"), buffer));
+		assertEquals(Collections.singleton("animal"), lcses(buffer));
+		assertEquals(2, index.getAncestorDistance(node("dog"), node("animal")));
+		assertEquals(-1, index.getAncestorDistance(node("dog"), node("bacteria")));
+	}
+
+	@Test
+	public void testSameAsBreadthFirstSearch() {
+		ConceptGraphIndex.LcsBuffer buffer = new ConceptGraphIndex.LcsBuffer();
+		for (ConcRel c1 : cg.getConceptList()) {
+			for (ConcRel c2 : cg.getConceptList()) {
+				Set<ConcRel> crLcses = new HashSet<ConcRel>();
+				int dist = ConcRel.getLeastCommonConcept(c1, c2, crLcses, null);
+				Set<String> expected = new TreeSet<String>();
+				for (ConcRel lcs : crLcses)
+					expected.add(lcs.getConceptID());
+				String pair = c1.getConceptID() + "," + c2.getConceptID();
+				assertEquals(pair, dist, index.getLeastCommonConcepts(
+						c1.getNodeIndex(), c2.getNodeIndex(), buffer));
+				assertEquals(pair, expected, lcses(buffer));
+				assertEquals(pair, dist, index.getLcsDistance(
+						c1.getNodeIndex(), c2.getNodeIndex()));
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedConceptGraphTest {
+
+	private ConceptGraph cg;
+
+	private void addEdge(String parent, String child) {
+		ConcRel p = cg.getConceptMap().get(parent);
+		if (p == null)
+			p = cg.addConcept(parent);
+		ConcRel c = cg.getConceptMap().get(child);
+		if (c == null)
+			c = cg.addConcept(child);
+		p.getChildren().add(c);
+		c.getParents().add(p);
+	}
+
+	@Before
+	public void setUp() {
+		cg = new ConceptGraph();
+		addEdge("root", "animal");
+		addEdge("animal", "vertebrate");
+		addEdge("vertebrate", "cat");
+		addEdge("vertebrate", "dog");
+		addEdge("root", "bacteria");
+		addEdge("bacteria", "e coli");
+		addEdge("animal", "pet");
+		addEdge("pet", "cat");
+		addEdge("pet", "dog");
+		// non-ascii concept id
+		addEdge("bacteria", "salmonella \u00e9");
+		for (ConcRel cr : cg.getConceptList()) {
+			cr.setDepth((short) (cr.getNodeIndex() + 1));
+			cr.setIntrinsicInfoContent(cr.getNodeIndex() / 2d);
+		}
+		cg.setRoot("root");
+		cg.setDepthMax((short) 4);
+		cg.setIntrinsicICMax(3.5);
+	}
+
+	private Set<String> ids(Set<ConcRel> concepts) {
+		Set<String> ids = new HashSet<String>();
+		for (ConcRel cr : concepts)
+			ids.add(cr.getConceptID());
+		return ids;
+	}
+
+	private void assertSameGraph(MappedConceptGraph mcg) {
+		assertEquals(cg.getConceptList().size(), mcg.getNodeCount());
+		assertEquals(10, mcg.getEdgeCount());
+		assertEquals(4, mcg.getDepthMax());
+		assertEquals(3.5, mcg.getIntrinsicICMax(), 0);
+		assertEquals(cg.getConceptMap().get("root").getNodeIndex(),
+				mcg.getRootNode());
+		for (ConcRel cr : cg.getConceptList()) {
+			int node = cr.getNodeIndex();
+			assertEquals(node, mcg.getNodeIndex(cr.getConceptID()));
+			assertEquals(cr.getConceptID(), mcg.getConceptID(node));
+			assertEquals(cr.getDepth(), mcg.getDepth(node));
+			assertEquals(cr.getIntrinsicInfoContent(),
+					mcg.getIntrinsicInfoContent(node), 0);
+			Set<String> parents = new HashSet<String>();
+			for (int i = 0; i < mcg.getParentCount(node); i++)
+				parents.add(mcg.getConceptID(mcg.getParent(node, i)));
+			assertEquals(ids(cr.getParents()), parents);
+			Set<String> children = new HashSet<String>();
+			for (int i = 0; i < mcg.getChildCount(node); i++)
+				children.add(mcg.getConceptID(mcg.getChild(node, i)));
+			assertEquals(ids(cr.getChildren()), children);
+		}
+		assertEquals(-1, mcg.getNodeIndex("fungus"));
+	}
+
+	@Test
+	public void testInMemory() {
+		assertSameGraph(MappedConceptGraph.fromConceptGraph(cg));
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		File file = File.createTempFile("concept", ".cg");
+		try {
+			MappedConceptGraph.write(cg, file);
+			assertSameGraph(MappedConceptGraph.open(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testToConceptGraph() {
+		ConceptGraph copy = MappedConceptGraph.fromConceptGraph(cg)
+				.toConceptGraph();
+		assertEquals("root", copy.getRoot());
+		assertEquals(cg.getConceptList().size(), copy.getConceptList().size());
+		// resolve the relationship arrays as ConceptDaoImpl does
+		for (ConcRel cr : copy.getConceptList())
+			cr.constructRel(copy.getConceptList());
+		for (ConcRel cr : copy.getConceptList()) {
+			ConcRel orig = cg.getConceptList().get(cr.getNodeIndex());
+			assertEquals(orig.getConceptID(), cr.getConceptID());
+			assertEquals(ids(orig.getParents()), ids(cr.getParents()));
+			assertEquals(ids(orig.getChildren()), ids(cr.getChildren()));
+		}
+		// an index built from either form is the same
+		ConceptGraphIndex index = new ConceptGraphIndex(cg);
+		ConceptGraphIndex mappedIndex = new ConceptGraphIndex(
+				MappedConceptGraph.fromConceptGraph(cg));
+		for (int n1 = 0; n1 < index.getNodeCount(); n1++) {
+			for (int n2 = 0; n2 < index.getNodeCount(); n2++)
+				assertEquals(index.getLcsDistance(n1, n2),
+						mappedIndex.getLcsDistance(n1, n2));
+		}
+	}
+
+	@Test
+	public void testBadVersion() {
+		try {
+			MappedConceptGraph.read(new ByteArrayInputStream(new byte[] { 0x59,
+					0x54, 0x43, 0x47, 0, 0, 0, 99, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+					0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 }));
+			fail("read a concept graph with an unknown version");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.kernel.pagerank;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.ctakes.ytex.kernel.model.ConcRel;
+import org.apache.ctakes.ytex.kernel.model.ConceptGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageRankServiceImplTest {
+
+	private static final int NODES = 40000;
+
+	private ConceptGraph cg;
+	private PageRankServiceImpl service;
+
+	/**
+	 * random dag, large enough that dense iterations are split into chunks
+	 */
+	@Before
+	public void setUp() {
+		Random random = new Random(42);
+		cg = new ConceptGraph();
+		cg.addConcept("C0");
+		for (int i = 1; i < NODES; i++) {
+			ConcRel child = cg.addConcept("C" + i);
+			int parents = random.nextInt(4) == 0 ? 2 : 1;
+			for (int p = 0; p < parents; p++) {
+				// mostly recent nodes, so that the graph is deep
+				int parentIndex = Math.max(0, i - 1 - random.nextInt(50));
+				ConcRel parent = cg.getConceptList().get(parentIndex);
+				child.getParents().add(parent);
+				parent.getChildren().add(child);
+			}
+		}
+		service = new PageRankServiceImpl();
+		service.setThreads(2);
+	}
+
+	/**
+	 * plain power iteration over the concept objects
+	 */
+	private double[] reference(Map<Integer, Double> dampingVector, int iter,
+			double threshold, double dampingFactor) {
+		List<ConcRel> concepts = cg.getConceptList();
+		int n = concepts.size();
+		double[] jump = new double[n];
+		double[] scores = new double[n];
+		if (dampingVector == null) {
+			Arrays.fill(scores, 1d / n);
+			Arrays.fill(jump, (1 - dampingFactor) / n);
+		} else {
+			for (Map.Entry<Integer, Double> e : dampingVector.entrySet()) {
+				scores[e.getKey()] = e.getValue();
+				jump[e.getKey()] = e.getValue() * (1 - dampingFactor);
+			}
+		}
+		for (int i = 0; i < iter; i++) {
+			double[] newScores = new double[n];
+			double diff = 0d;
+			for (ConcRel cr : concepts) {
+				double score = 0d;
+				for (ConcRel parent : cr.getParents())
+					score += scores[parent.getNodeIndex()]
+							/ parent.getChildren().size();
+				int node = cr.getNodeIndex();
+				newScores[node] = score * dampingFactor + jump[node];
+				diff += Math.pow(newScores[node] - scores[node], 2);
+			}
+			scores = newScores;
+			if (Math.sqrt(diff) <= threshold)
+				break;
+		}
+		return scores;
+	}
+
+	@Test
+	public void testPersonalized() {
+		// a seed deep in the graph stays sparse, one near the root turns
+		// dense
+		for (int seed : new int[] { NODES - 100, 10 }) {
+			Map<Integer, Double> dv = Collections.singletonMap(seed, 1d);
+			assertArrayEquals(reference(dv, 30, 1e-4, 0.85),
+					service.rank2(dv, cg, 30, 1e-4, 0.85), 1e-12);
+		}
+		Map<Integer, Double> dv = new HashMap<Integer, Double>();
+		dv.put(5, 0.5);
+		dv.put(NODES / 2, 0.5);
+		assertArrayEquals(reference(dv, 30, 1e-4, 0.85),
+				service.rank2(dv, cg, 30, 1e-4, 0.85), 1e-12);
+	}
+
+	@Test
+	public void testStatic() {
+		assertArrayEquals(reference(null, 30, 1e-6, 0.85),
+				service.rank(null, cg, 30, 1e-6, 0.85), 1e-12);
+		PageRankServiceImpl single = new PageRankServiceImpl();
+		single.setThreads(1);
+		assertArrayEquals(reference(null, 30, 1e-6, 0.85),
+				single.rank(null, cg, 30, 1e-6, 0.85), 1e-12);
+	}
+
+	@Test
+	public void testSimMatrix() {
+		List<String> concepts = new ArrayList<String>();
+		Random random = new Random(7);
+		for (int i = 0; i < 20; i++)
+			concepts.add("C" + random.nextInt(NODES));
+		concepts.add("unknown");
+		double[][] sim = service.simMatrix(concepts, cg, 30, 1e-3, 0.85);
+		PageRankServiceImpl single = new PageRankServiceImpl();
+		single.setThreads(1);
+		single.setCacheSize(0);
+		for (int i = 0; i < concepts.size(); i++) {
+			for (int j = 0; j < concepts.size(); j++) {
+				assertEquals(single.sim(concepts.get(i), concepts.get(j), cg,
+						30, 1e-3, 0.85), sim[i][j], 1e-12);
+			}
+		}
+		assertEquals(1d, sim[0][0], 1e-12);
+		assertNull(service.personalizedRanks(concepts, cg, 30, 1e-3, 0.85)
+				.get(concepts.size() - 1));
+	}
+
+	@Test
+	public void testCacheEntries() {
+		PageRankServiceImpl uncached = new PageRankServiceImpl();
+		uncached.setThreads(1);
+		uncached.setCacheSize(0);
+		int[] sizes = new int[10];
+		for (int i = 0; i < sizes.length; i++)
+			sizes[i] = uncached.personalizedRank("C" + i, cg, 30, 1e-4, 0.85)
+					.size();
+		assertEquals(0, uncached.getCachedEntries());
+		// room for the scores of the last two vectors only
+		long bound = sizes[8] + sizes[9];
+		service.setCacheEntries(bound);
+		List<PageRankVector> vectors = new ArrayList<PageRankVector>();
+		for (int i = 0; i < sizes.length; i++) {
+			vectors.add(service.personalizedRank("C" + i, cg, 30, 1e-4, 0.85));
+			assertTrue(service.getCachedEntries() <= bound);
+		}
+		assertEquals(bound, service.getCachedEntries());
+		assertSame(vectors.get(9),
+				service.personalizedRank("C9", cg, 30, 1e-4, 0.85));
+		assertNotSame(vectors.get(0),
+				service.personalizedRank("C0", cg, 30, 1e-4, 0.85));
+		// a vector larger than the bound is not cached at all
+		PageRankServiceImpl small = new PageRankServiceImpl();
+		small.setThreads(1);
+		small.setCacheEntries(sizes[0] - 1);
+		small.personalizedRank("C0", cg, 30, 1e-4, 0.85);
+		assertEquals(0, small.getCachedEntries());
+	}
+}